@@ -1,6 +1,7 @@
 package com.blockchain.learning;
 
 import com.blockchain.learning.model.NetworkInfo;
+import com.blockchain.learning.service.CacheWarmer;
 import com.blockchain.learning.service.Web3Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,6 +17,9 @@ public class AppStartupRunner implements CommandLineRunner {
     @Autowired
     private Web3Service web3Service;
 
+    @Autowired
+    private CacheWarmer cacheWarmer;
+
     @Override
     public void run(String... args) throws Exception {
         logger.info("=== Java Blockchain Learning Application Started ===");
@@ -37,6 +41,9 @@ public class AppStartupRunner implements CommandLineRunner {
             logger.error("Please ensure INFURA_PROJECT_ID environment variable is set correctly");
         }
 
+        // 预热在后台进行，完成前就绪探针 /api/health/ready 返回503
+        cacheWarmer.start();
+
         logger.info("🚀 Application is ready! Visit http://localhost:8080");
         logger.info("📚 API Documentation is available at http://localhost:8080/swagger-ui.html");
     }
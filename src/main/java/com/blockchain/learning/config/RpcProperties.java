@@ -0,0 +1,431 @@
+package com.blockchain.learning.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RPC节点池配置
+ *
+ * 对应配置前缀 {@code blockchain.rpc}。未配置 {@code endpoints} 时，
+ * 退回到根据 {@code blockchain.infura.project-id} 拼接的单个Infura地址。
+ */
+@ConfigurationProperties(prefix = "blockchain.rpc")
+public class RpcProperties {
+
+    /** RPC节点地址列表 */
+    private List<String> endpoints = new ArrayList<>();
+
+    /** 允许节点落后于最高区块的最大区块数，超过则暂不路由到该节点 */
+    private long maxBlockLag = 3;
+
+    /** 节点健康检查间隔 */
+    private Duration healthCheckInterval = Duration.ofSeconds(10);
+
+    /** 连续失败多少次后摘除节点（熔断器打开） */
+    private int ejectThreshold = 3;
+
+    /** 节点被摘除的时长，到期后熔断器半开，放行一个试探请求 */
+    private Duration ejectDuration = Duration.ofSeconds(30);
+
+    /** HTTP传输层配置 */
+    private Transport transport = new Transport();
+
+    /** 自适应并发限制配置 */
+    private Limiter limiter = new Limiter();
+
+    /** 重试与重试预算配置 */
+    private Retry retry = new Retry();
+
+    /** 对冲请求配置 */
+    private Hedge hedge = new Hedge();
+
+    public List<String> getEndpoints() {
+        return endpoints;
+    }
+
+    public void setEndpoints(List<String> endpoints) {
+        this.endpoints = endpoints;
+    }
+
+    public long getMaxBlockLag() {
+        return maxBlockLag;
+    }
+
+    public void setMaxBlockLag(long maxBlockLag) {
+        this.maxBlockLag = maxBlockLag;
+    }
+
+    public Duration getHealthCheckInterval() {
+        return healthCheckInterval;
+    }
+
+    public void setHealthCheckInterval(Duration healthCheckInterval) {
+        this.healthCheckInterval = healthCheckInterval;
+    }
+
+    public int getEjectThreshold() {
+        return ejectThreshold;
+    }
+
+    public void setEjectThreshold(int ejectThreshold) {
+        this.ejectThreshold = ejectThreshold;
+    }
+
+    public Duration getEjectDuration() {
+        return ejectDuration;
+    }
+
+    public void setEjectDuration(Duration ejectDuration) {
+        this.ejectDuration = ejectDuration;
+    }
+
+    public Transport getTransport() {
+        return transport;
+    }
+
+    public void setTransport(Transport transport) {
+        this.transport = transport;
+    }
+
+    public Limiter getLimiter() {
+        return limiter;
+    }
+
+    public void setLimiter(Limiter limiter) {
+        this.limiter = limiter;
+    }
+
+    public Retry getRetry() {
+        return retry;
+    }
+
+    public void setRetry(Retry retry) {
+        this.retry = retry;
+    }
+
+    public Hedge getHedge() {
+        return hedge;
+    }
+
+    public void setHedge(Hedge hedge) {
+        this.hedge = hedge;
+    }
+
+    /**
+     * HTTP传输层配置，对应 {@code blockchain.rpc.transport}
+     */
+    public static class Transport {
+
+        /** 连接池中保留的最大空闲连接数 */
+        private int maxIdleConnections = 16;
+
+        /** 空闲连接的保活时间 */
+        private Duration keepAlive = Duration.ofMinutes(5);
+
+        /** 异步请求的最大并发数 */
+        private int maxRequests = 128;
+
+        /** 每个节点主机的异步请求最大并发数 */
+        private int maxRequestsPerHost = 32;
+
+        /** 建立连接超时 */
+        private Duration connectTimeout = Duration.ofSeconds(10);
+
+        /** 读取响应超时 */
+        private Duration readTimeout = Duration.ofSeconds(30);
+
+        /** 是否在TLS连接上协商HTTP/2 */
+        private boolean http2 = true;
+
+        /** 启动时为每个节点预先建立的连接数，0表示不预热 */
+        private int warmupConnections = 2;
+
+        public int getMaxIdleConnections() {
+            return maxIdleConnections;
+        }
+
+        public void setMaxIdleConnections(int maxIdleConnections) {
+            this.maxIdleConnections = maxIdleConnections;
+        }
+
+        public Duration getKeepAlive() {
+            return keepAlive;
+        }
+
+        public void setKeepAlive(Duration keepAlive) {
+            this.keepAlive = keepAlive;
+        }
+
+        public int getMaxRequests() {
+            return maxRequests;
+        }
+
+        public void setMaxRequests(int maxRequests) {
+            this.maxRequests = maxRequests;
+        }
+
+        public int getMaxRequestsPerHost() {
+            return maxRequestsPerHost;
+        }
+
+        public void setMaxRequestsPerHost(int maxRequestsPerHost) {
+            this.maxRequestsPerHost = maxRequestsPerHost;
+        }
+
+        public Duration getConnectTimeout() {
+            return connectTimeout;
+        }
+
+        public void setConnectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+        }
+
+        public Duration getReadTimeout() {
+            return readTimeout;
+        }
+
+        public void setReadTimeout(Duration readTimeout) {
+            this.readTimeout = readTimeout;
+        }
+
+        public boolean isHttp2() {
+            return http2;
+        }
+
+        public void setHttp2(boolean http2) {
+            this.http2 = http2;
+        }
+
+        public int getWarmupConnections() {
+            return warmupConnections;
+        }
+
+        public void setWarmupConnections(int warmupConnections) {
+            this.warmupConnections = warmupConnections;
+        }
+    }
+
+    /**
+     * 自适应并发限制配置，对应 {@code blockchain.rpc.limiter}
+     */
+    public static class Limiter {
+
+        /** 是否启用并发限制 */
+        private boolean enabled = true;
+
+        /** 初始并发上限 */
+        private int initialLimit = 16;
+
+        /** 并发上限的下界 */
+        private int minLimit = 2;
+
+        /** 并发上限的上界 */
+        private int maxLimit = 128;
+
+        /** 节点出错或变慢时并发上限乘以的系数 */
+        private double backoffRatio = 0.7;
+
+        /** 响应时间超过该值视为节点过载，与出错同样处理 */
+        private Duration slowCallThreshold = Duration.ofSeconds(5);
+
+        /** 排队等待的最大请求数，超过后直接拒绝 */
+        private int maxQueueSize = 256;
+
+        /** 请求排队的最长时间 */
+        private Duration maxQueueWait = Duration.ofSeconds(5);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getInitialLimit() {
+            return initialLimit;
+        }
+
+        public void setInitialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+        }
+
+        public int getMinLimit() {
+            return minLimit;
+        }
+
+        public void setMinLimit(int minLimit) {
+            this.minLimit = minLimit;
+        }
+
+        public int getMaxLimit() {
+            return maxLimit;
+        }
+
+        public void setMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+        }
+
+        public double getBackoffRatio() {
+            return backoffRatio;
+        }
+
+        public void setBackoffRatio(double backoffRatio) {
+            this.backoffRatio = backoffRatio;
+        }
+
+        public Duration getSlowCallThreshold() {
+            return slowCallThreshold;
+        }
+
+        public void setSlowCallThreshold(Duration slowCallThreshold) {
+            this.slowCallThreshold = slowCallThreshold;
+        }
+
+        public int getMaxQueueSize() {
+            return maxQueueSize;
+        }
+
+        public void setMaxQueueSize(int maxQueueSize) {
+            this.maxQueueSize = maxQueueSize;
+        }
+
+        public Duration getMaxQueueWait() {
+            return maxQueueWait;
+        }
+
+        public void setMaxQueueWait(Duration maxQueueWait) {
+            this.maxQueueWait = maxQueueWait;
+        }
+    }
+
+    /**
+     * 重试配置，对应 {@code blockchain.rpc.retry}
+     *
+     * 切换节点、退避重试和对冲请求都要从重试预算（令牌桶）中取一个令牌，
+     * 令牌按正常请求数的固定比例补充，节点整体故障时重试量不会超过正常流量的这一比例。
+     */
+    public static class Retry {
+
+        /** 单次调用最多尝试的次数（包括第一次请求、切换节点和对冲请求） */
+        private int maxAttempts = 3;
+
+        /** 退避重试的基础间隔，实际间隔在 [0, base * 2^n] 内随机（full jitter） */
+        private Duration baseBackoff = Duration.ofMillis(100);
+
+        /** 退避重试的最大间隔 */
+        private Duration maxBackoff = Duration.ofSeconds(2);
+
+        /** 每个正常请求向预算补充的令牌数 */
+        private double budgetRatio = 0.1;
+
+        /** 不论流量大小每秒至少补充的令牌数，保证低流量时也能重试 */
+        private double budgetMinPerSecond = 1;
+
+        /** 预算中最多积累的令牌数 */
+        private int budgetMaxTokens = 20;
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public Duration getBaseBackoff() {
+            return baseBackoff;
+        }
+
+        public void setBaseBackoff(Duration baseBackoff) {
+            this.baseBackoff = baseBackoff;
+        }
+
+        public Duration getMaxBackoff() {
+            return maxBackoff;
+        }
+
+        public void setMaxBackoff(Duration maxBackoff) {
+            this.maxBackoff = maxBackoff;
+        }
+
+        public double getBudgetRatio() {
+            return budgetRatio;
+        }
+
+        public void setBudgetRatio(double budgetRatio) {
+            this.budgetRatio = budgetRatio;
+        }
+
+        public double getBudgetMinPerSecond() {
+            return budgetMinPerSecond;
+        }
+
+        public void setBudgetMinPerSecond(double budgetMinPerSecond) {
+            this.budgetMinPerSecond = budgetMinPerSecond;
+        }
+
+        public int getBudgetMaxTokens() {
+            return budgetMaxTokens;
+        }
+
+        public void setBudgetMaxTokens(int budgetMaxTokens) {
+            this.budgetMaxTokens = budgetMaxTokens;
+        }
+    }
+
+    /**
+     * 对冲请求配置，对应 {@code blockchain.rpc.hedge}
+     *
+     * 幂等的只读请求在超过近期延迟的指定分位数仍未返回时，向另一个节点再发一次，取先返回的结果。
+     */
+    public static class Hedge {
+
+        /** 是否启用对冲请求 */
+        private boolean enabled = true;
+
+        /** 触发对冲的延迟分位数 */
+        private double percentile = 0.95;
+
+        /** 对冲延迟的下限 */
+        private Duration minDelay = Duration.ofMillis(50);
+
+        /** 延迟样本少于该数量时不对冲 */
+        private int minSamples = 20;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getPercentile() {
+            return percentile;
+        }
+
+        public void setPercentile(double percentile) {
+            this.percentile = percentile;
+        }
+
+        public Duration getMinDelay() {
+            return minDelay;
+        }
+
+        public void setMinDelay(Duration minDelay) {
+            this.minDelay = minDelay;
+        }
+
+        public int getMinSamples() {
+            return minSamples;
+        }
+
+        public void setMinSamples(int minSamples) {
+            this.minSamples = minSamples;
+        }
+    }
+}
@@ -1,14 +1,26 @@
 package com.blockchain.learning.config;
 
+import com.blockchain.learning.rpc.AdaptiveConcurrencyLimiter;
+import com.blockchain.learning.rpc.RpcEndpoint;
+import com.blockchain.learning.rpc.RpcEndpointPool;
+import com.blockchain.learning.rpc.RpcHttpTransport;
+import com.blockchain.learning.rpc.SingleFlightService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.web3j.protocol.Web3j;
-import org.web3j.protocol.http.HttpService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 @Configuration
+@EnableConfigurationProperties(RpcProperties.class)
 public class Web3Config {
 
     private static final Logger logger = LoggerFactory.getLogger(Web3Config.class);
@@ -19,14 +31,61 @@ public class Web3Config {
     @Value("${blockchain.network.name:sepolia}")
     private String networkName;
 
+    @Autowired
+    private RpcProperties rpcProperties;
+
+    @Bean(destroyMethod = "close")
+    public RpcHttpTransport rpcHttpTransport() {
+        return new RpcHttpTransport(rpcProperties.getTransport());
+    }
+
+    @Bean(destroyMethod = "close")
+    public RpcEndpointPool rpcEndpointPool() {
+        List<String> urls = rpcProperties.getEndpoints();
+        if (urls == null || urls.isEmpty()) {
+            String infuraUrl = String.format("https://%s.infura.io/v3/%s", networkName, infuraProjectId);
+            logger.info("Connecting to Ethereum network: {} via URL: {}", networkName, infuraUrl);
+            urls = Collections.singletonList(infuraUrl);
+        } else {
+            logger.info("Connecting to Ethereum network: {} via {} configured RPC endpoints", networkName, urls.size());
+        }
+
+        RpcHttpTransport transport = rpcHttpTransport();
+        List<RpcEndpoint> endpoints = new ArrayList<>();
+        for (String url : urls) {
+            endpoints.add(new RpcEndpoint(url, transport.createService(url)));
+        }
+        transport.warmUp(urls);
+
+        RpcEndpointPool pool = new RpcEndpointPool(endpoints, rpcProperties);
+        pool.start();
+        return pool;
+    }
+
+    /**
+     * 位于节点池之上的自适应并发限制，节点过载时减少同时发出的请求
+     */
+    @Bean
+    public AdaptiveConcurrencyLimiter adaptiveConcurrencyLimiter() {
+        return new AdaptiveConcurrencyLimiter(rpcEndpointPool(), rpcProperties.getLimiter());
+    }
+
+    /**
+     * 位于并发限制之上的请求合并层，相同的并发请求只发送一次，合并掉的请求不占用并发名额
+     *
+     * 它是整条请求链的入口，按 {@link org.web3j.protocol.Web3jService} 类型注入时使用这一层。
+     */
+    @Bean
+    @Primary
+    public SingleFlightService singleFlightService() {
+        return new SingleFlightService(adaptiveConcurrencyLimiter());
+    }
+
     @Bean
     public Web3j web3j() {
-        String infuraUrl = String.format("https://%s.infura.io/v3/%s", networkName, infuraProjectId);
-        logger.info("Connecting to Ethereum network: {} via URL: {}", networkName, infuraUrl);
-        
-        Web3j web3j = Web3j.build(new HttpService(infuraUrl));
+        Web3j web3j = Web3j.build(singleFlightService());
         logger.info("Web3j client initialized successfully");
-        
+
         return web3j;
     }
 }
@@ -0,0 +1,325 @@
+package com.blockchain.learning.controller;
+
+import com.blockchain.learning.rpc.AdaptiveConcurrencyLimiter;
+import com.blockchain.learning.rpc.RpcEndpoint;
+import com.blockchain.learning.rpc.RpcEndpointPool;
+import com.blockchain.learning.rpc.RpcHttpTransport;
+import com.blockchain.learning.rpc.SingleFlightService;
+import com.blockchain.learning.rpc.TransportMetrics;
+import com.blockchain.learning.service.BackfillJob;
+import com.blockchain.learning.service.BackfillService;
+import com.blockchain.learning.service.BalanceCache;
+import com.blockchain.learning.service.BlockCache;
+import com.blockchain.learning.service.BlockCacheSnapshot;
+import com.blockchain.learning.service.BlockPrefetcher;
+import com.blockchain.learning.service.BlockStore;
+import com.blockchain.learning.service.TransactionIndexer;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Tag(name = "运维管理", description = "查看RPC节点、缓存等内部组件的运行状态")
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    @Autowired
+    private RpcEndpointPool rpcEndpointPool;
+
+    @Autowired
+    private RpcHttpTransport rpcHttpTransport;
+
+    @Autowired
+    private SingleFlightService singleFlightService;
+
+    @Autowired
+    private AdaptiveConcurrencyLimiter adaptiveConcurrencyLimiter;
+
+    @Autowired
+    private BlockCache blockCache;
+
+    @Autowired
+    private BalanceCache balanceCache;
+
+    @Autowired
+    private BlockPrefetcher blockPrefetcher;
+
+    @Autowired
+    private BlockCacheSnapshot blockCacheSnapshot;
+
+    @Autowired
+    private BlockStore blockStore;
+
+    @Autowired
+    private TransactionIndexer transactionIndexer;
+
+    @Autowired
+    private BackfillService backfillService;
+
+    @Operation(summary = "RPC节点状态", description = "返回节点池中每个RPC节点的延迟、在途请求数、区块高度和熔断状态，以及重试、对冲和重试预算的统计。")
+    @GetMapping("/rpc/endpoints")
+    public ResponseEntity<Map<String, Object>> getRpcEndpoints() {
+        List<Map<String, Object>> endpoints = new ArrayList<>();
+        for (RpcEndpoint endpoint : rpcEndpointPool.getEndpoints()) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("name", endpoint.getName());
+            item.put("latencyEwmaMillis", endpoint.getLatencyEwmaMillis());
+            item.put("inFlight", endpoint.getInFlight());
+            item.put("headBlock", endpoint.getHeadBlock());
+            item.put("ejected", endpoint.isEjected());
+            item.put("circuitState", endpoint.getCircuitState());
+            item.put("lagging", rpcEndpointPool.isLagging(endpoint));
+            item.put("totalRequests", endpoint.getTotalRequests());
+            item.put("totalFailures", endpoint.getTotalFailures());
+            endpoints.add(item);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("highestHeadBlock", rpcEndpointPool.getHighestHeadBlock());
+        response.put("retries", rpcEndpointPool.getRetries());
+        response.put("hedges", rpcEndpointPool.getHedges());
+        response.put("hedgeWins", rpcEndpointPool.getHedgeWins());
+        response.put("hedgeDelayMillis", rpcEndpointPool.getHedgeDelayMillis());
+        response.put("retryBudgetTokens", rpcEndpointPool.getRetryBudget().getTokens());
+        response.put("retryBudgetExhausted", rpcEndpointPool.getRetryBudget().getExhausted());
+        response.put("endpoints", endpoints);
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(summary = "HTTP传输层状态", description = "返回连接池大小，以及新建连接、TLS握手和连接复用的累计次数。")
+    @GetMapping("/rpc/transport")
+    public ResponseEntity<Map<String, Object>> getRpcTransport() {
+        TransportMetrics metrics = rpcHttpTransport.getMetrics();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("connectionCount", rpcHttpTransport.getConnectionCount());
+        response.put("idleConnectionCount", rpcHttpTransport.getIdleConnectionCount());
+        response.put("callsStarted", metrics.getCallsStarted());
+        response.put("callsFailed", metrics.getCallsFailed());
+        response.put("connectionsOpened", metrics.getConnectionsOpened());
+        response.put("connectionsReused", metrics.getConnectionsReused());
+        response.put("tlsHandshakes", metrics.getTlsHandshakes());
+        response.put("http2Connections", metrics.getHttp2Connections());
+        response.put("gzipResponses", metrics.getGzipResponses());
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(summary = "请求合并统计", description = "返回参与合并的RPC调用数、实际发送到节点的请求数以及合并比例。")
+    @GetMapping("/rpc/coalescing")
+    public ResponseEntity<Map<String, Object>> getRpcCoalescing() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("requests", singleFlightService.getRequests());
+        response.put("upstreamRequests", singleFlightService.getUpstreamRequests());
+        response.put("coalesced", singleFlightService.getCoalesced());
+        response.put("coalescingRatio", singleFlightService.getCoalescingRatio());
+        response.put("inFlight", singleFlightService.getInFlightCount());
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(summary = "RPC并发限制状态", description = "返回自适应并发限制的当前上限、在途请求数、排队深度，以及拒绝、排队超时和上限缩小的累计次数。")
+    @GetMapping("/rpc/limiter")
+    public ResponseEntity<Map<String, Object>> getRpcLimiter() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("enabled", adaptiveConcurrencyLimiter.isEnabled());
+        response.put("limit", adaptiveConcurrencyLimiter.getLimit());
+        response.put("inFlight", adaptiveConcurrencyLimiter.getInFlight());
+        response.put("queueDepth", adaptiveConcurrencyLimiter.getQueueDepth());
+        response.put("latencyEwmaMillis", adaptiveConcurrencyLimiter.getLatencyEwmaMillis());
+        response.put("errorRateEwma", adaptiveConcurrencyLimiter.getErrorRateEwma());
+        response.put("rejected", adaptiveConcurrencyLimiter.getRejected());
+        response.put("queueTimeouts", adaptiveConcurrencyLimiter.getQueueTimeouts());
+        response.put("decreases", adaptiveConcurrencyLimiter.getDecreases());
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(summary = "区块缓存状态", description = "返回区块缓存的容量、命中与未命中次数、淘汰次数、因链重组失效的条目数，以及堆外第二层的条目数、占用空间和命中次数。")
+    @GetMapping("/cache/blocks")
+    public ResponseEntity<Map<String, Object>> getBlockCache() {
+        long hits = blockCache.getHits();
+        long misses = blockCache.getMisses();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("size", blockCache.size());
+        response.put("maxEntries", blockCache.getMaxEntries());
+        response.put("confirmationDepth", blockCache.getConfirmationDepth());
+        response.put("hits", hits);
+        response.put("misses", misses);
+        response.put("hitRatio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        response.put("evictions", blockCache.getEvictions());
+        response.put("reorgInvalidations", blockCache.getReorgInvalidations());
+        response.put("unconfirmedExpirations", blockCache.getExpirations());
+
+        Map<String, Object> offHeap = new HashMap<>();
+        offHeap.put("enabled", blockCache.isOffHeapEnabled());
+        offHeap.put("entries", blockCache.getOffHeapEntries());
+        offHeap.put("usedBytes", blockCache.getOffHeapUsedBytes());
+        offHeap.put("allocatedBytes", blockCache.getOffHeapAllocatedBytes());
+        offHeap.put("capacityBytes", blockCache.getOffHeapCapacityBytes());
+        offHeap.put("hits", blockCache.getOffHeapHits());
+        offHeap.put("slabEvictions", blockCache.getOffHeapSlabEvictions());
+        response.put("offHeap", offHeap);
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(summary = "区块预取状态", description = "返回顺序访问预取的活跃访问序列数、在途预取数、预取区块数、预取命中次数，以及被取消和因并发上限跳过的预取次数。")
+    @GetMapping("/cache/blocks/prefetch")
+    public ResponseEntity<Map<String, Object>> getBlockPrefetch() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("enabled", blockPrefetcher.isEnabled());
+        response.put("minDepth", blockPrefetcher.getMinDepth());
+        response.put("maxDepth", blockPrefetcher.getMaxDepth());
+        response.put("activeStreams", blockPrefetcher.getActiveStreams());
+        response.put("inFlight", blockPrefetcher.getInFlight());
+        response.put("prefetches", blockPrefetcher.getPrefetches());
+        response.put("prefetchedBlocks", blockPrefetcher.getPrefetchedBlocks());
+        response.put("prefetchHits", blockPrefetcher.getPrefetchHits());
+        response.put("cancelled", blockPrefetcher.getCancelled());
+        response.put("skipped", blockPrefetcher.getSkipped());
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(summary = "区块缓存快照状态", description = "返回快照文件路径、最近一次保存的时间、条目数和文件大小，以及启动时恢复、经节点核对和丢弃的区块数。")
+    @GetMapping("/cache/blocks/snapshot")
+    public ResponseEntity<Map<String, Object>> getBlockCacheSnapshot() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("enabled", blockCacheSnapshot.isEnabled());
+        response.put("path", blockCacheSnapshot.getPath());
+        response.put("lastSavedAt", blockCacheSnapshot.getLastSavedAt());
+        response.put("lastSavedEntries", blockCacheSnapshot.getLastSavedEntries());
+        response.put("lastSavedBytes", blockCacheSnapshot.getLastSavedBytes());
+        response.put("restored", blockCacheSnapshot.getRestored());
+        response.put("validated", blockCacheSnapshot.getValidated());
+        response.put("discarded", blockCacheSnapshot.getDiscarded());
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(summary = "本地区块库状态", description = "返回本地区块库的区块数、分段数、数据与索引大小、命中与未命中次数，以及启动恢复时补入索引的记录数和截断的字节数。")
+    @GetMapping("/store/blocks")
+    public ResponseEntity<Map<String, Object>> getBlockStore() {
+        long hits = blockStore.getHits();
+        long misses = blockStore.getMisses();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("enabled", blockStore.isEnabled());
+        response.put("open", blockStore.isOpen());
+        response.put("path", blockStore.getPath());
+        response.put("blocks", blockStore.getBlocks());
+        response.put("segments", blockStore.getSegments());
+        response.put("dataBytes", blockStore.getDataBytes());
+        response.put("indexBytes", blockStore.getIndexBytes());
+        response.put("appended", blockStore.getAppended());
+        response.put("hits", hits);
+        response.put("misses", misses);
+        response.put("hitRatio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        response.put("corruptReads", blockStore.getCorruptReads());
+        response.put("recoveredRecords", blockStore.getRecoveredRecords());
+        response.put("truncatedBytes", blockStore.getTruncatedBytes());
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(summary = "本地交易索引状态", description = "返回交易索引覆盖的区块范围、与链头的距离、区块/交易/地址数量、估计的堆内存占用、已写盘的区块，以及回滚的重组次数和失败次数。")
+    @GetMapping("/explorer/index")
+    public ResponseEntity<Map<String, Object>> getTransactionIndex() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("enabled", transactionIndexer.isEnabled());
+        response.put("lowestBlock", transactionIndexer.getLowestBlock());
+        response.put("highestBlock", transactionIndexer.getHighestBlock());
+        response.put("chainHead", transactionIndexer.getChainHead());
+        response.put("caughtUp", transactionIndexer.isCaughtUp());
+        response.put("blocks", transactionIndexer.getIndexedBlocks());
+        response.put("transactions", transactionIndexer.getIndexedTransactions());
+        response.put("estimatedBytes", transactionIndexer.getIndexedBytes());
+        response.put("persistedThrough", transactionIndexer.getPersistedThrough());
+        response.put("loadedBlocks", transactionIndexer.getLoadedBlocks());
+        response.put("addresses", transactionIndexer.getIndexedAddresses());
+        response.put("reorgs", transactionIndexer.getReorgs());
+        response.put("failures", transactionIndexer.getFailures());
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(summary = "历史区块回填状态", description = "返回回填工作线程数，以及每个回填任务的区间、状态、进度、当前块大小、拆分与失败次数、吞吐和预计剩余时间。")
+    @GetMapping("/backfill")
+    public ResponseEntity<Map<String, Object>> getBackfill() {
+        List<Map<String, Object>> jobs = new ArrayList<>();
+        for (BackfillJob job : backfillService.getJobs()) {
+            jobs.add(describe(job));
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("enabled", backfillService.isEnabled());
+        response.put("workers", backfillService.getWorkers());
+        response.put("jobs", jobs);
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(summary = "创建历史区块回填任务", description = "把 [from, to] 区间中本地区块库还没有的已确认区块写入区块库。区间按块并行处理，块大小随节点错误自动调整，重启后从检查点继续。")
+    @PostMapping("/backfill")
+    public ResponseEntity<Map<String, Object>> startBackfill(@RequestParam long from, @RequestParam long to)
+            throws IOException {
+        return ResponseEntity.ok(describe(backfillService.start(from, to)));
+    }
+
+    @Operation(summary = "取消回填任务", description = "停止分配新的块，已完成的部分保留，之后可以恢复。")
+    @PostMapping("/backfill/{id}/cancel")
+    public ResponseEntity<Map<String, Object>> cancelBackfill(@PathVariable long id) {
+        return ResponseEntity.ok(describe(backfillService.cancel(id)));
+    }
+
+    @Operation(summary = "恢复回填任务", description = "从检查点继续失败或取消的回填任务。")
+    @PostMapping("/backfill/{id}/resume")
+    public ResponseEntity<Map<String, Object>> resumeBackfill(@PathVariable long id) {
+        return ResponseEntity.ok(describe(backfillService.resume(id)));
+    }
+
+    private static Map<String, Object> describe(BackfillJob job) {
+        Map<String, Object> item = new HashMap<>();
+        item.put("id", job.getId());
+        item.put("from", job.getFrom());
+        item.put("to", job.getTo());
+        item.put("state", job.getState());
+        item.put("createdAt", job.getCreatedAt());
+        item.put("totalBlocks", job.getTotalBlocks());
+        item.put("completedBlocks", job.getCompletedBlocks());
+        item.put("progress", job.getProgress());
+        item.put("storedBlocks", job.getStoredBlocks());
+        item.put("chunkSize", job.getChunkSize());
+        item.put("inFlight", job.getInFlight());
+        item.put("chunks", job.getChunks());
+        item.put("splits", job.getSplits());
+        item.put("failures", job.getFailures());
+        item.put("lastError", job.getLastError());
+        item.put("blocksPerSecond", job.getBlocksPerSecond());
+        item.put("etaSeconds", job.getEtaSeconds());
+        return item;
+    }
+
+    @Operation(summary = "余额缓存状态", description = "返回余额缓存的条目数、命中与未命中次数以及因链头前进而失效的条目数。")
+    @GetMapping("/cache/balances")
+    public ResponseEntity<Map<String, Object>> getBalanceCache() {
+        long hits = balanceCache.getHits();
+        long misses = balanceCache.getMisses();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("size", balanceCache.size());
+        response.put("maxEntries", balanceCache.getMaxEntries());
+        response.put("ttlMs", balanceCache.getTtlMs());
+        response.put("hits", hits);
+        response.put("misses", misses);
+        response.put("hitRatio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        response.put("invalidations", balanceCache.getInvalidations());
+        return ResponseEntity.ok(response);
+    }
+}
@@ -1,21 +1,49 @@
 package com.blockchain.learning.controller;
 
+import com.blockchain.learning.exception.BlockchainException;
+import com.blockchain.learning.model.BlockSummary;
 import com.blockchain.learning.model.NetworkInfo;
+import com.blockchain.learning.service.BalanceService;
+import com.blockchain.learning.service.BlockPrefetcher;
+import com.blockchain.learning.service.GasOracle;
 import com.blockchain.learning.service.Web3Service;
+import com.blockchain.learning.util.WalletUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 import org.web3j.protocol.core.methods.response.EthBlock;
 import org.web3j.protocol.core.methods.response.Transaction;
 import org.web3j.utils.Convert;
 
+import javax.servlet.http.HttpServletRequest;
+
 import java.io.IOException;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.regex.Pattern;
 
+/**
+ * 区块链查询控制器
+ *
+ * 所有接口都返回 {@link CompletableFuture}：等待节点响应期间不占用Servlet线程，
+ * 同时处理的请求数不再受Tomcat线程池大小限制。
+ */
 @RestController
 @RequestMapping("/api/blockchain")
 public class BlockchainController {
@@ -25,206 +53,379 @@ public class BlockchainController {
     @Autowired
     private Web3Service web3Service;
 
+    @Autowired
+    private GasOracle gasOracle;
+
+    @Autowired
+    private BalanceService balanceService;
+
+    @Autowired
+    private BlockPrefetcher blockPrefetcher;
+
+    /** 交易字段名：JSON-RPC字段都是驼峰形式的字母 */
+    private static final Pattern TRANSACTION_FIELD = Pattern.compile("[A-Za-z]{1,32}");
+
+    private static final int MAX_TRANSACTION_FIELDS = 32;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${blockchain.blocks.range.max-blocks:100000}")
+    private long maxRangeBlocks;
+
+    @Value("${blockchain.blocks.range.stream-timeout-ms:1800000}")
+    private long rangeStreamTimeoutMs;
+
+    @Value("${blockchain.balances.max-addresses:5000}")
+    private int maxBalanceAddresses;
+
     /**
      * 获取网络信息
      */
     @GetMapping("/network-info")
-    public ResponseEntity<NetworkInfo> getNetworkInfo() {
-        try {
-            logger.info("Fetching network information");
-            NetworkInfo networkInfo = web3Service.getNetworkInfo();
-            return ResponseEntity.ok(networkInfo);
-        } catch (IOException e) {
-            logger.error("Error fetching network info: {}", e.getMessage());
-            NetworkInfo errorInfo = new NetworkInfo();
-            errorInfo.setConnected(false);
-            return ResponseEntity.ok(errorInfo);
-        }
+    public CompletableFuture<ResponseEntity<NetworkInfo>> getNetworkInfo() {
+        logger.info("Fetching network information");
+        return web3Service.getNetworkInfoAsync()
+                .thenApply(ResponseEntity::ok)
+                .exceptionally(e -> {
+                    logger.error("Error fetching network info: {}", Web3Service.unwrap(e).getMessage());
+                    NetworkInfo errorInfo = new NetworkInfo();
+                    errorInfo.setConnected(false);
+                    return ResponseEntity.ok(errorInfo);
+                });
     }
 
     /**
      * 获取最新区块
      */
     @GetMapping("/blocks/latest")
-    public ResponseEntity<Map<String, Object>> getLatestBlock() {
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getLatestBlock() {
+        logger.info("Fetching latest block");
+        return web3Service.getLatestBlockAsync()
+                .thenApply(ethBlock -> {
+                    EthBlock.Block block = ethBlock.getBlock();
+
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("number", block.getNumber());
+                    response.put("hash", block.getHash());
+                    response.put("parentHash", block.getParentHash());
+                    response.put("timestamp", block.getTimestamp());
+                    response.put("gasLimit", block.getGasLimit());
+                    response.put("gasUsed", block.getGasUsed());
+                    response.put("transactionCount", block.getTransactions().size());
+
+                    return ResponseEntity.ok(response);
+                })
+                .exceptionally(e -> serverError("Error fetching latest block: {}", e));
+    }
+
+    /**
+     * 按顺序流式返回一段区块（NDJSON，每行一个区块）
+     *
+     * 区块按批次并行读取，每当最前面的一批完成就立即写出；客户端读得慢时读取也随之暂停。
+     * 区间超过链头时在最后一个已有区块处结束；读取中途节点出错时最后一行是 {"error": ...}。
+     * 同时进行的区间读取数达到上限时返回503。
+     */
+    @GetMapping("/blocks")
+    public ResponseEntity<ResponseBodyEmitter> getBlockRange(@RequestParam long from, @RequestParam long to) {
+        logger.info("Streaming blocks {} to {}", from, to);
+        if (from < 0 || to < from) {
+            throw new IllegalArgumentException("Invalid block range: from must be non-negative and not greater than to");
+        }
+        if (to - from + 1 > maxRangeBlocks) {
+            throw new IllegalArgumentException("At most " + maxRangeBlocks + " blocks can be requested at once");
+        }
+
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(rangeStreamTimeoutMs);
         try {
-            logger.info("Fetching latest block");
-            EthBlock ethBlock = web3Service.getLatestBlock();
-            EthBlock.Block block = ethBlock.getBlock();
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("number", block.getNumber());
-            response.put("hash", block.getHash());
-            response.put("parentHash", block.getParentHash());
-            response.put("timestamp", block.getTimestamp());
-            response.put("gasLimit", block.getGasLimit());
-            response.put("gasUsed", block.getGasUsed());
-            response.put("transactionCount", block.getTransactions().size());
-            
-            return ResponseEntity.ok(response);
-        } catch (IOException e) {
-            logger.error("Error fetching latest block: {}", e.getMessage());
-            return ResponseEntity.internalServerError().build();
+            web3Service.streamBlocksAsync(from, to, blocks -> {
+                StringBuilder lines = new StringBuilder(blocks.size() * 256);
+                for (BlockSummary block : blocks) {
+                    lines.append(objectMapper.writeValueAsString(toBlockMap(block))).append('\n');
+                }
+                // 写入阻塞期间不会发出新的批次
+                emitter.send(lines.toString(), MediaType.APPLICATION_NDJSON);
+            }).whenComplete((ignored, e) -> {
+                if (e == null) {
+                    emitter.complete();
+                    return;
+                }
+                Throwable cause = Web3Service.unwrap(e);
+                if (!(cause instanceof BlockchainException)) {
+                    // 客户端已断开
+                    emitter.completeWithError(cause);
+                    return;
+                }
+                logger.error("Error streaming blocks {} to {}: {}", from, to, cause.getMessage());
+                try {
+                    emitter.send(objectMapper.writeValueAsString(Collections.singletonMap("error", cause.getMessage()))
+                            + "\n", MediaType.APPLICATION_NDJSON);
+                    emitter.complete();
+                } catch (IOException | RuntimeException sendError) {
+                    emitter.completeWithError(sendError);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("Rejecting block range {} to {}: too many concurrent streams", from, to);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1").build();
         }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(emitter);
     }
 
     /**
      * 根据区块号获取区块
+     *
+     * full=true 时在同一个响应中返回区块的全部交易，fields 指定每笔交易需要的字段（逗号分隔，
+     * 与JSON-RPC字段名一致），只有这些字段会被解码和输出；不指定时返回交易的全部字段。
+     *
+     * 按客户端（X-Client-Id 请求头，没有时按来源地址）识别顺序访问，并预取后续区块。
      */
     @GetMapping("/blocks/{blockNumber}")
-    public ResponseEntity<Map<String, Object>> getBlockByNumber(@PathVariable String blockNumber) {
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getBlockByNumber(
+            @PathVariable String blockNumber,
+            @RequestParam(defaultValue = "false") boolean full,
+            @RequestParam(required = false) String fields,
+            @RequestHeader(value = "X-Client-Id", required = false) String clientId,
+            HttpServletRequest request) {
+        logger.info("Fetching block by number: {}", blockNumber);
+        BigInteger blockNum;
         try {
-            logger.info("Fetching block by number: {}", blockNumber);
-            BigInteger blockNum = new BigInteger(blockNumber);
-            EthBlock ethBlock = web3Service.getBlockByNumber(blockNum);
-            
-            if (ethBlock.getBlock() == null) {
-                return ResponseEntity.notFound().build();
-            }
-            
-            EthBlock.Block block = ethBlock.getBlock();
-            Map<String, Object> response = new HashMap<>();
-            response.put("number", block.getNumber());
-            response.put("hash", block.getHash());
-            response.put("parentHash", block.getParentHash());
-            response.put("timestamp", block.getTimestamp());
-            response.put("gasLimit", block.getGasLimit());
-            response.put("gasUsed", block.getGasUsed());
-            response.put("transactionCount", block.getTransactions().size());
-            response.put("miner", block.getMiner());
-            
-            return ResponseEntity.ok(response);
+            blockNum = new BigInteger(blockNumber);
         } catch (NumberFormatException e) {
             logger.error("Invalid block number format: {}", blockNumber);
-            return ResponseEntity.badRequest().build();
-        } catch (IOException e) {
-            logger.error("Error fetching block by number: {}", e.getMessage());
-            return ResponseEntity.internalServerError().build();
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+
+        if (!full) {
+            if (fields != null) {
+                return CompletableFuture.completedFuture(badRequest("fields can only be used with full=true"));
+            }
+            blockPrefetcher.recordAccess(clientId != null ? clientId : request.getRemoteAddr(), blockNum);
+            return web3Service.getBlockByNumberAsync(blockNum)
+                    .thenApply(BlockchainController::toBlockResponse)
+                    .exceptionally(e -> serverError("Error fetching block by number: {}", e));
         }
+
+        Set<String> projection = null;
+        if (fields != null) {
+            projection = new LinkedHashSet<>();
+            for (String field : fields.split(",")) {
+                String name = field.trim();
+                if (!TRANSACTION_FIELD.matcher(name).matches()) {
+                    return CompletableFuture.completedFuture(badRequest("Invalid transaction field: " + name));
+                }
+                projection.add(name);
+            }
+            if (projection.size() > MAX_TRANSACTION_FIELDS) {
+                return CompletableFuture.completedFuture(
+                        badRequest("At most " + MAX_TRANSACTION_FIELDS + " transaction fields can be requested"));
+            }
+        }
+
+        return web3Service.getBlockWithTransactionsAsync(blockNum, projection)
+                .thenApply(block -> {
+                    if (block == null) {
+                        return ResponseEntity.notFound().<Map<String, Object>>build();
+                    }
+                    Map<String, Object> response = toBlockMap(block.getSummary());
+                    response.put("transactions", block.getTransactions());
+                    return ResponseEntity.ok(response);
+                })
+                .exceptionally(e -> serverError("Error fetching block with transactions: {}", e));
     }
 
     /**
      * 根据区块哈希获取区块
      */
     @GetMapping("/blocks/hash/{blockHash}")
-    public ResponseEntity<Map<String, Object>> getBlockByHash(@PathVariable String blockHash) {
-        try {
-            logger.info("Fetching block by hash: {}", blockHash);
-            EthBlock ethBlock = web3Service.getBlockByHash(blockHash);
-            
-            if (ethBlock.getBlock() == null) {
-                return ResponseEntity.notFound().build();
-            }
-            
-            EthBlock.Block block = ethBlock.getBlock();
-            Map<String, Object> response = new HashMap<>();
-            response.put("number", block.getNumber());
-            response.put("hash", block.getHash());
-            response.put("parentHash", block.getParentHash());
-            response.put("timestamp", block.getTimestamp());
-            response.put("gasLimit", block.getGasLimit());
-            response.put("gasUsed", block.getGasUsed());
-            response.put("transactionCount", block.getTransactions().size());
-            response.put("miner", block.getMiner());
-            
-            return ResponseEntity.ok(response);
-        } catch (IOException e) {
-            logger.error("Error fetching block by hash: {}", e.getMessage());
-            return ResponseEntity.internalServerError().build();
-        }
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getBlockByHash(@PathVariable String blockHash) {
+        logger.info("Fetching block by hash: {}", blockHash);
+        return web3Service.getBlockByHashAsync(blockHash)
+                .thenApply(BlockchainController::toBlockResponse)
+                .exceptionally(e -> serverError("Error fetching block by hash: {}", e));
     }
 
     /**
      * 根据交易哈希获取交易信息
      */
     @GetMapping("/transactions/{txHash}")
-    public ResponseEntity<Map<String, Object>> getTransaction(@PathVariable String txHash) {
-        try {
-            logger.info("Fetching transaction: {}", txHash);
-            Transaction transaction = web3Service.getTransaction(txHash);
-            
-            if (transaction == null) {
-                return ResponseEntity.notFound().build();
-            }
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("hash", transaction.getHash());
-            response.put("blockNumber", transaction.getBlockNumber());
-            response.put("blockHash", transaction.getBlockHash());
-            response.put("transactionIndex", transaction.getTransactionIndex());
-            response.put("from", transaction.getFrom());
-            response.put("to", transaction.getTo());
-            response.put("value", transaction.getValue());
-            response.put("valueInEth", Convert.fromWei(transaction.getValue().toString(), Convert.Unit.ETHER));
-            response.put("gas", transaction.getGas());
-            response.put("gasPrice", transaction.getGasPrice());
-            response.put("nonce", transaction.getNonce());
-            
-            return ResponseEntity.ok(response);
-        } catch (IOException e) {
-            logger.error("Error fetching transaction: {}", e.getMessage());
-            return ResponseEntity.internalServerError().build();
-        }
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getTransaction(@PathVariable String txHash) {
+        logger.info("Fetching transaction: {}", txHash);
+        return web3Service.getTransactionAsync(txHash)
+                .thenApply(transaction -> {
+                    if (transaction == null) {
+                        return ResponseEntity.notFound().<Map<String, Object>>build();
+                    }
+
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("hash", transaction.getHash());
+                    response.put("blockNumber", transaction.getBlockNumber());
+                    response.put("blockHash", transaction.getBlockHash());
+                    response.put("transactionIndex", transaction.getTransactionIndex());
+                    response.put("from", transaction.getFrom());
+                    response.put("to", transaction.getTo());
+                    response.put("value", transaction.getValue());
+                    response.put("valueInEth", Convert.fromWei(transaction.getValue().toString(), Convert.Unit.ETHER));
+                    response.put("gas", transaction.getGas());
+                    response.put("gasPrice", transaction.getGasPrice());
+                    response.put("nonce", transaction.getNonce());
+
+                    return ResponseEntity.ok(response);
+                })
+                .exceptionally(e -> serverError("Error fetching transaction: {}", e));
     }
 
     /**
      * 获取地址余额
      */
     @GetMapping("/balance/{address}")
-    public ResponseEntity<Map<String, Object>> getBalance(@PathVariable String address) {
-        try {
-            logger.info("Fetching balance for address: {}", address);
-            BigInteger balance = web3Service.getBalance(address);
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("address", address);
-            response.put("balanceWei", balance);
-            response.put("balanceEth", Convert.fromWei(balance.toString(), Convert.Unit.ETHER));
-            
-            return ResponseEntity.ok(response);
-        } catch (IOException e) {
-            logger.error("Error fetching balance: {}", e.getMessage());
-            return ResponseEntity.internalServerError().build();
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getBalance(@PathVariable String address) {
+        logger.info("Fetching balance for address: {}", address);
+        return web3Service.getBalanceAsync(address)
+                .thenApply(balance -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("address", address);
+                    response.put("balanceWei", balance);
+                    response.put("balanceEth", Convert.fromWei(balance.toString(), Convert.Unit.ETHER));
+
+                    return ResponseEntity.ok(response);
+                })
+                .exceptionally(e -> serverError("Error fetching balance: {}", e));
+    }
+
+    /**
+     * 批量获取地址余额
+     *
+     * 请求体为 {@code {"addresses": ["0x...", ...]}}，所有余额读取自同一个区块。
+     */
+    @PostMapping("/balances")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getBalances(
+            @RequestBody Map<String, List<String>> request) {
+        List<String> addresses = request.get("addresses");
+        if (addresses == null || addresses.isEmpty()) {
+            return CompletableFuture.completedFuture(badRequest("addresses must not be empty"));
         }
+        if (addresses.size() > maxBalanceAddresses) {
+            return CompletableFuture.completedFuture(
+                    badRequest("at most " + maxBalanceAddresses + " addresses are allowed per request"));
+        }
+        for (String address : addresses) {
+            if (!WalletUtils.isValidAddress(address)) {
+                return CompletableFuture.completedFuture(badRequest("invalid address: " + address));
+            }
+        }
+
+        logger.info("Fetching balances for {} addresses", addresses.size());
+        return balanceService.getBalancesAsync(addresses)
+                .thenApply(result -> {
+                    List<Map<String, Object>> balances = new ArrayList<>();
+                    for (Map.Entry<String, BigInteger> entry : result.getBalances().entrySet()) {
+                        Map<String, Object> balance = new HashMap<>();
+                        balance.put("address", entry.getKey());
+                        balance.put("balanceWei", entry.getValue());
+                        balance.put("balanceEth", Convert.fromWei(entry.getValue().toString(), Convert.Unit.ETHER));
+                        balances.add(balance);
+                    }
+
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("blockNumber", result.getBlockNumber());
+                    response.put("source", result.getSource());
+                    response.put("count", balances.size());
+                    response.put("balances", balances);
+                    response.put("errors", result.getErrors());
+                    return ResponseEntity.ok(response);
+                })
+                .exceptionally(e -> serverError("Error fetching balances: {}", e));
     }
 
     /**
      * 获取地址交易数量
      */
     @GetMapping("/address/{address}/transaction-count")
-    public ResponseEntity<Map<String, Object>> getTransactionCount(@PathVariable String address) {
-        try {
-            logger.info("Fetching transaction count for address: {}", address);
-            BigInteger count = web3Service.getTransactionCount(address);
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("address", address);
-            response.put("transactionCount", count);
-            
-            return ResponseEntity.ok(response);
-        } catch (IOException e) {
-            logger.error("Error fetching transaction count: {}", e.getMessage());
-            return ResponseEntity.internalServerError().build();
-        }
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getTransactionCount(@PathVariable String address) {
+        logger.info("Fetching transaction count for address: {}", address);
+        return web3Service.getTransactionCountAsync(address)
+                .thenApply(count -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("address", address);
+                    response.put("transactionCount", count);
+
+                    return ResponseEntity.ok(response);
+                })
+                .exceptionally(e -> serverError("Error fetching transaction count: {}", e));
     }
 
     /**
      * 获取当前Gas价格
      */
     @GetMapping("/gas-price")
-    public ResponseEntity<Map<String, Object>> getGasPrice() {
-        try {
-            logger.info("Fetching current gas price");
-            BigInteger gasPrice = web3Service.getGasPrice();
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("gasPriceWei", gasPrice);
-            response.put("gasPriceGwei", Convert.fromWei(gasPrice.toString(), Convert.Unit.GWEI));
-            
-            return ResponseEntity.ok(response);
-        } catch (IOException e) {
-            logger.error("Error fetching gas price: {}", e.getMessage());
-            return ResponseEntity.internalServerError().build();
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getGasPrice() {
+        logger.info("Fetching current gas price");
+        return web3Service.getGasPriceAsync()
+                .thenApply(gasPrice -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("gasPriceWei", gasPrice);
+                    response.put("gasPriceGwei", Convert.fromWei(gasPrice.toString(), Convert.Unit.GWEI));
+
+                    return ResponseEntity.ok(response);
+                })
+                .exceptionally(e -> serverError("Error fetching gas price: {}", e));
+    }
+
+    /**
+     * 获取 EIP-1559 费用建议
+     *
+     * 直接读取Gas预言机在内存中的采样结果，不查询节点。
+     */
+    @GetMapping("/gas-fees")
+    public ResponseEntity<Map<String, Object>> getGasFees() {
+        logger.info("Fetching gas fee suggestions");
+        GasOracle.Snapshot snapshot = gasOracle.current();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("eip1559", snapshot.isEip1559());
+        response.put("gasPriceWei", snapshot.getGasPrice());
+        response.put("baseFeePerGasWei", snapshot.getBaseFeePerGas());
+        response.put("sampledAt", snapshot.getSampledAt());
+        for (GasOracle.Speed speed : GasOracle.Speed.values()) {
+            Map<String, Object> suggestion = new HashMap<>();
+            suggestion.put("maxFeePerGasWei", snapshot.getMaxFeePerGas(speed));
+            suggestion.put("maxPriorityFeePerGasWei", snapshot.getMaxPriorityFeePerGas(speed));
+            suggestion.put("maxFeePerGasGwei",
+                    Convert.fromWei(snapshot.getMaxFeePerGas(speed).toString(), Convert.Unit.GWEI));
+            response.put(speed.name().toLowerCase(), suggestion);
         }
+        return ResponseEntity.ok(response);
+    }
+
+    private static ResponseEntity<Map<String, Object>> toBlockResponse(BlockSummary block) {
+        if (block == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(toBlockMap(block));
+    }
+
+    private static Map<String, Object> toBlockMap(BlockSummary block) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("number", block.getNumber());
+        response.put("hash", block.getHash());
+        response.put("parentHash", block.getParentHash());
+        response.put("timestamp", block.getTimestamp());
+        response.put("gasLimit", block.getGasLimit());
+        response.put("gasUsed", block.getGasUsed());
+        response.put("transactionCount", block.getTransactionCount());
+        response.put("miner", block.getMiner());
+        return response;
+    }
+
+    private static ResponseEntity<Map<String, Object>> badRequest(String message) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("error", message);
+        return ResponseEntity.badRequest().body(response);
+    }
+
+    private static ResponseEntity<Map<String, Object>> serverError(String message, Throwable e) {
+        logger.error(message, Web3Service.unwrap(e).getMessage());
+        return ResponseEntity.internalServerError().build();
     }
-}
\ No newline at end of file
+}
@@ -3,6 +3,7 @@ package com.blockchain.learning.controller;
 import com.blockchain.learning.model.ContractDeployResult;
 import com.blockchain.learning.model.TransactionResult;
 import com.blockchain.learning.service.ContractService;
+import com.blockchain.learning.util.WalletUtils;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -13,11 +14,15 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Tag(name = "智能合约交互", description = "用于部署智能合约及交互的API")
@@ -30,6 +35,9 @@ public class ContractController {
     @Autowired
     private ContractService contractService;
 
+    @Value("${blockchain.contract.max-bulk-reads:1000}")
+    private int maxBulkReads;
+
     @Operation(summary = "部署新的SimpleStorage合约",
                description = "将SimpleStorage合约部署到区块链。调用前必须已加载钱包。",
                responses = {
@@ -60,6 +68,51 @@ public class ContractController {
         return ResponseEntity.ok(Collections.singletonMap("value", value));
     }
 
+    @Operation(summary = "批量读取多个合约",
+               description = "通过Multicall3把多个SimpleStorage合约的'get'、'owner'或'getInfo'调用合并成一次eth_call。"
+                       + "单个合约读取失败不影响其他合约，失败原因在errors中按地址返回。",
+               requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "合约地址列表和要调用的方法，method默认为get。", required = true,
+                                content = @Content(mediaType = "application/json",
+                                             schema = @Schema(type = "object"),
+                                             examples = @ExampleObject(value = "{\"addresses\": [\"0x...\", \"0x...\"], \"method\": \"get\"}"))),
+               responses = {
+                   @ApiResponse(responseCode = "200", description = "读取完成"),
+                   @ApiResponse(responseCode = "400", description = "地址或方法无效"),
+                   @ApiResponse(responseCode = "500", description = "服务器或区块链错误")
+               })
+    @PostMapping("/values")
+    public ResponseEntity<Map<String, Object>> getValues(@RequestBody Map<String, Object> payload) {
+        Object rawAddresses = payload.get("addresses");
+        if (!(rawAddresses instanceof List) || ((List<?>) rawAddresses).isEmpty()) {
+            throw new IllegalArgumentException("请求体中必须包含非空的addresses数组。");
+        }
+        List<?> addressList = (List<?>) rawAddresses;
+        if (addressList.size() > maxBulkReads) {
+            throw new IllegalArgumentException("单次最多读取" + maxBulkReads + "个合约。");
+        }
+        List<String> addresses = new ArrayList<>(addressList.size());
+        for (Object address : addressList) {
+            if (!(address instanceof String) || !WalletUtils.isValidAddress((String) address)) {
+                throw new IllegalArgumentException("无效的合约地址: " + address);
+            }
+            addresses.add((String) address);
+        }
+        Object method = payload.get("method");
+        ContractService.ReadMethod readMethod = ContractService.ReadMethod.fromFunctionName(
+                method == null ? "get" : method.toString());
+
+        logger.info("API request to read {}() from {} contracts", readMethod.getFunctionName(), addresses.size());
+        ContractService.BulkReadResult result = contractService.getValues(addresses, readMethod);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("method", readMethod.getFunctionName());
+        response.put("blockNumber", result.getBlockNumber());
+        response.put("source", result.getSource());
+        response.put("values", result.getValues());
+        response.put("errors", result.getErrors());
+        return ResponseEntity.ok(response);
+    }
+
     @Operation(summary = "向合约设置一个新的值",
                description = "调用SimpleStorage合约的'set'方法以存储一个新的数字。这会在区块链上创建一笔交易。",
                requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "需要存储的新值。", required = true,
@@ -10,6 +10,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
@@ -22,11 +23,16 @@ public class ExplorerController {
     @Autowired
     private ExplorerService explorerService;
 
-    @Operation(summary = "获取地址交易历史", description = "通过Etherscan API查询指定地址的交易列表")
+    @Operation(summary = "获取地址交易历史", description = "查询指定地址在区块区间内的交易列表（按区块号降序，最多 max-results 条）。本地交易索引覆盖的区块直接从索引返回，索引完全覆盖的区间不会请求Etherscan，其余区块范围通过Etherscan API补齐")
     @GetMapping("/txlist/{address}")
     public ResponseEntity<List<EtherscanTransaction>> getTransactionHistory(
-            @Parameter(description = "要查询的以太坊地址", required = true, example = "0xAb5801a7D398351b8bE11C439e05C5B3259aeC9B") @PathVariable String address) {
-        List<EtherscanTransaction> transactions = explorerService.getTransactionHistory(address);
+            @Parameter(description = "要查询的以太坊地址", required = true, example = "0xAb5801a7D398351b8bE11C439e05C5B3259aeC9B") @PathVariable String address,
+            @Parameter(description = "起始区块号") @RequestParam(defaultValue = "0") long startblock,
+            @Parameter(description = "结束区块号，默认到最新区块") @RequestParam(defaultValue = "" + ExplorerService.LATEST_BLOCK) long endblock) {
+        if (startblock < 0 || endblock < startblock) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<EtherscanTransaction> transactions = explorerService.getTransactionHistory(address, startblock, endblock);
         return ResponseEntity.ok(transactions);
     }
 }
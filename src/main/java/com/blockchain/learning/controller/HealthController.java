@@ -1,7 +1,11 @@
 package com.blockchain.learning.controller;
 
+import com.blockchain.learning.service.CacheWarmer;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -14,6 +18,9 @@ import java.util.Map;
 @RequestMapping("/api")
 public class HealthController {
 
+    @Autowired
+    private CacheWarmer cacheWarmer;
+
     @Operation(summary = "应用健康检查", description = "返回应用当前的运行状态。如果返回'UP'，则表示应用正常运行。")
     @GetMapping("/health")
     public Map<String, Object> health() {
@@ -24,6 +31,21 @@ public class HealthController {
         return response;
     }
 
+    @Operation(summary = "就绪检查", description = "启动预热完成（或超时）后返回200，预热期间返回503，供负载均衡或编排系统判断是否可以转发流量。")
+    @GetMapping("/health/ready")
+    public ResponseEntity<Map<String, Object>> ready() {
+        boolean ready = cacheWarmer.isReady();
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", ready ? "READY" : "WARMING_UP");
+        response.put("warmup", cacheWarmer.getState());
+        response.put("warmupDurationMs", cacheWarmer.getDurationMs());
+        response.put("warmedBlocks", cacheWarmer.getWarmedBlocks());
+        response.put("warmedBalances", cacheWarmer.getWarmedBalances());
+        response.put("failedSteps", cacheWarmer.getFailures());
+        response.put("timestamp", System.currentTimeMillis());
+        return ResponseEntity.status(ready ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE).body(response);
+    }
+
     @Operation(summary = "API概览", description = "欢迎信息及所有可用API端点的列表。")
     @GetMapping("/")
     public Map<String, Object> welcome() {
@@ -31,6 +53,7 @@ public class HealthController {
         response.put("message", "Welcome to Java Blockchain Learning API");
         response.put("version", "1.0.0");
         response.put("health", "/api/health");
+        response.put("ready", "/api/health/ready");
         
         // API端点列表
         Map<String, String> endpoints = new HashMap<>();
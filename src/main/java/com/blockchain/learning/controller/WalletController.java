@@ -3,6 +3,7 @@ package com.blockchain.learning.controller;
 import com.blockchain.learning.exception.WalletException;
 import com.blockchain.learning.model.WalletInfo;
 import com.blockchain.learning.service.WalletService;
+import com.blockchain.learning.service.Web3Service;
 import com.blockchain.learning.util.WalletUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,9 +11,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.math.BigInteger;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 钱包管理控制器
@@ -165,35 +166,35 @@ public class WalletController {
      * @return 余额信息
      */
     @GetMapping("/balance/{address}")
-    public ResponseEntity<Map<String, Object>> getBalance(@PathVariable String address) {
-        try {
-            // 验证地址格式
-            if (!WalletUtils.isValidAddress(address)) {
-                Map<String, Object> errorResponse = new HashMap<>();
-                errorResponse.put("error", "Invalid address format");
-                errorResponse.put("success", false);
-                return ResponseEntity.badRequest().body(errorResponse);
-            }
-
-            logger.info("Querying balance for address: {}", address);
-            BigInteger balance = walletService.getBalance(address);
-
-            Map<String, Object> response = new HashMap<>();
-            response.put("address", WalletUtils.formatAddress(address));
-            response.put("balanceWei", balance.toString());
-            response.put("balanceEth",
-                    org.web3j.utils.Convert.fromWei(balance.toString(), org.web3j.utils.Convert.Unit.ETHER).toString());
-            response.put("success", true);
-
-            return ResponseEntity.ok(response);
-
-        } catch (WalletException e) {
-            logger.error("Error querying balance: {}", e.getMessage());
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getBalance(@PathVariable String address) {
+        // 验证地址格式
+        if (!WalletUtils.isValidAddress(address)) {
             Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("error", e.getMessage());
+            errorResponse.put("error", "Invalid address format");
             errorResponse.put("success", false);
-            return ResponseEntity.internalServerError().body(errorResponse);
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(errorResponse));
         }
+
+        logger.info("Querying balance for address: {}", address);
+        return walletService.getBalanceAsync(address)
+                .thenApply(balance -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("address", WalletUtils.formatAddress(address));
+                    response.put("balanceWei", balance.toString());
+                    response.put("balanceEth",
+                            org.web3j.utils.Convert.fromWei(balance.toString(), org.web3j.utils.Convert.Unit.ETHER).toString());
+                    response.put("success", true);
+
+                    return ResponseEntity.ok(response);
+                })
+                .exceptionally(e -> {
+                    Throwable cause = Web3Service.unwrap(e);
+                    logger.error("Error querying balance: {}", cause.getMessage());
+                    Map<String, Object> errorResponse = new HashMap<>();
+                    errorResponse.put("error", cause.getMessage());
+                    errorResponse.put("success", false);
+                    return ResponseEntity.internalServerError().body(errorResponse);
+                });
     }
 
     /**
@@ -202,33 +203,33 @@ public class WalletController {
      * @return 当前活跃钱包的信息
      */
     @GetMapping("/info")
-    public ResponseEntity<Map<String, Object>> getCurrentWalletInfo() {
-        try {
-            if (!walletService.hasCurrentWallet()) {
-                Map<String, Object> response = new HashMap<>();
-                response.put("hasWallet", false);
-                response.put("message", "No wallet is currently loaded");
-                return ResponseEntity.ok(response);
-            }
-
-            logger.info("Getting current wallet info");
-            WalletInfo walletInfo = walletService.getCurrentWallet();
-
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getCurrentWalletInfo() {
+        if (!walletService.hasCurrentWallet()) {
             Map<String, Object> response = new HashMap<>();
-            response.put("hasWallet", true);
-            response.put("wallet", walletInfo);
-            response.put("success", true);
-
-            return ResponseEntity.ok(response);
-
-        } catch (WalletException e) {
-            logger.error("Error getting current wallet info: {}", e.getMessage());
-            Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("error", e.getMessage());
-            errorResponse.put("hasWallet", false);
-            errorResponse.put("success", false);
-            return ResponseEntity.internalServerError().body(errorResponse);
+            response.put("hasWallet", false);
+            response.put("message", "No wallet is currently loaded");
+            return CompletableFuture.completedFuture(ResponseEntity.ok(response));
         }
+
+        logger.info("Getting current wallet info");
+        return walletService.getCurrentWalletAsync()
+                .thenApply(walletInfo -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("hasWallet", true);
+                    response.put("wallet", walletInfo);
+                    response.put("success", true);
+
+                    return ResponseEntity.ok(response);
+                })
+                .exceptionally(e -> {
+                    Throwable cause = Web3Service.unwrap(e);
+                    logger.error("Error getting current wallet info: {}", cause.getMessage());
+                    Map<String, Object> errorResponse = new HashMap<>();
+                    errorResponse.put("error", cause.getMessage());
+                    errorResponse.put("hasWallet", false);
+                    errorResponse.put("success", false);
+                    return ResponseEntity.internalServerError().body(errorResponse);
+                });
     }
 
     /**
@@ -336,26 +337,30 @@ public class WalletController {
      * @return 钱包状态信息
      */
     @GetMapping("/status")
-    public ResponseEntity<Map<String, Object>> getWalletStatus() {
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getWalletStatus() {
         Map<String, Object> response = new HashMap<>();
 
         boolean hasWallet = walletService.hasCurrentWallet();
         response.put("hasCurrentWallet", hasWallet);
 
-        if (hasWallet) {
-            try {
-                WalletInfo walletInfo = walletService.getCurrentWallet();
-                response.put("currentAddress", walletInfo.getAddress());
-                response.put("balance", walletInfo.getBalanceInEth() + " ETH");
-                response.put("isImported", walletInfo.isImported());
-            } catch (Exception e) {
-                logger.warn("Error getting wallet details: {}", e.getMessage());
-                response.put("error", "Error retrieving wallet details");
-            }
+        if (!hasWallet) {
+            response.put("timestamp", System.currentTimeMillis());
+            return CompletableFuture.completedFuture(ResponseEntity.ok(response));
         }
 
-        response.put("timestamp", System.currentTimeMillis());
-        return ResponseEntity.ok(response);
+        return walletService.getCurrentWalletAsync()
+                .handle((walletInfo, e) -> {
+                    if (e != null) {
+                        logger.warn("Error getting wallet details: {}", Web3Service.unwrap(e).getMessage());
+                        response.put("error", "Error retrieving wallet details");
+                    } else {
+                        response.put("currentAddress", walletInfo.getAddress());
+                        response.put("balance", walletInfo.getBalanceInEth() + " ETH");
+                        response.put("isImported", walletInfo.isImported());
+                    }
+                    response.put("timestamp", System.currentTimeMillis());
+                    return ResponseEntity.ok(response);
+                });
     }
 
     /**
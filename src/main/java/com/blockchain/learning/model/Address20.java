@@ -0,0 +1,106 @@
+package com.blockchain.learning.model;
+
+/**
+ * 20字节地址的定长二进制表示
+ *
+ * 以两个long和一个int保存，不区分大小写（EIP-55校验和只影响字符串形式）。不可变。
+ */
+public final class Address20 {
+
+    public static final int BYTES = 20;
+
+    private final long high;
+
+    private final long middle;
+
+    private final int low;
+
+    public Address20(long high, long middle, int low) {
+        this.high = high;
+        this.middle = middle;
+        this.low = low;
+    }
+
+    /**
+     * 解析十六进制地址（可带0x前缀，大小写均可）
+     *
+     * 不足40位时在高位补0。
+     *
+     * @throws IllegalArgumentException 包含非十六进制字符或超过40位
+     */
+    public static Address20 fromHex(String hex) {
+        int start = HexKeys.digitsStart(hex);
+        int digits = hex.length() - start;
+        if (digits > 40) {
+            throw new IllegalArgumentException("Address longer than 20 bytes: " + hex);
+        }
+        int end = hex.length();
+        return new Address20(HexKeys.parseWord(hex, start, end - 24),
+                HexKeys.parseWord(hex, start, end - 8),
+                (int) HexKeys.parseWord(hex, Math.max(start, end - 8), end));
+    }
+
+    /**
+     * 不抛异常的 {@link #fromHex}，无法解析时返回null
+     */
+    public static Address20 tryFromHex(String hex) {
+        if (hex == null) {
+            return null;
+        }
+        try {
+            return fromHex(hex);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 带0x前缀的40位小写十六进制
+     */
+    public String toHex() {
+        char[] chars = new char[2 + 40];
+        chars[0] = '0';
+        chars[1] = 'x';
+        HexKeys.writeWord(high, chars, 2, 16);
+        HexKeys.writeWord(middle, chars, 18, 16);
+        HexKeys.writeWord(low & 0xffffffffL, chars, 34, 8);
+        return new String(chars);
+    }
+
+    /**
+     * 地址的第一个字节（0~255），用于按地址前缀分片
+     */
+    public int firstByte() {
+        return (int) (high >>> 56);
+    }
+
+    /**
+     * 折叠成一个long，用作原始类型Map的键；查找后需要再核对完整地址
+     */
+    public long fold() {
+        return HexKeys.mix(high ^ Long.rotateLeft(middle, 21) ^ Long.rotateLeft(low & 0xffffffffL, 42));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Address20)) {
+            return false;
+        }
+        Address20 other = (Address20) o;
+        return high == other.high && middle == other.middle && low == other.low;
+    }
+
+    @Override
+    public int hashCode() {
+        long folded = fold();
+        return (int) (folded ^ (folded >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return toHex();
+    }
+}
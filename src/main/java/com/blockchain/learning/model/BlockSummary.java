@@ -0,0 +1,113 @@
+package com.blockchain.learning.model;
+
+import org.web3j.protocol.core.methods.response.EthBlock;
+
+import java.math.BigInteger;
+
+/**
+ * 区块摘要
+ *
+ * 只保留接口实际返回的区块头字段和交易数量，不持有交易列表、logsBloom等大字段。
+ * 既可以直接从响应流中解码得到，也可以由web3j的 {@link EthBlock.Block} 转换而来；不可变。
+ */
+public final class BlockSummary {
+
+    private final long number;
+
+    private final String hash;
+
+    private final String parentHash;
+
+    private final long timestamp;
+
+    private final long gasLimit;
+
+    private final long gasUsed;
+
+    private final String miner;
+
+    private final BigInteger baseFeePerGas;
+
+    private final int transactionCount;
+
+    public BlockSummary(long number, String hash, String parentHash, long timestamp, long gasLimit, long gasUsed,
+                        String miner, BigInteger baseFeePerGas, int transactionCount) {
+        this.number = number;
+        this.hash = hash;
+        this.parentHash = parentHash;
+        this.timestamp = timestamp;
+        this.gasLimit = gasLimit;
+        this.gasUsed = gasUsed;
+        this.miner = miner;
+        this.baseFeePerGas = baseFeePerGas;
+        this.transactionCount = transactionCount;
+    }
+
+    /**
+     * 从web3j的区块对象转换
+     *
+     * @return 区块为null时返回null
+     */
+    public static BlockSummary of(EthBlock.Block block) {
+        if (block == null) {
+            return null;
+        }
+        return new BlockSummary(
+                block.getNumberRaw() == null ? 0 : block.getNumber().longValue(),
+                block.getHash(),
+                block.getParentHash(),
+                block.getTimestampRaw() == null ? 0 : block.getTimestamp().longValue(),
+                block.getGasLimitRaw() == null ? 0 : block.getGasLimit().longValue(),
+                block.getGasUsedRaw() == null ? 0 : block.getGasUsed().longValue(),
+                block.getMiner(),
+                block.getBaseFeePerGasRaw() == null ? null : block.getBaseFeePerGas(),
+                block.getTransactions() == null ? 0 : block.getTransactions().size());
+    }
+
+    public long getNumber() {
+        return number;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public String getParentHash() {
+        return parentHash;
+    }
+
+    /**
+     * 出块时间（秒）
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getGasLimit() {
+        return gasLimit;
+    }
+
+    public long getGasUsed() {
+        return gasUsed;
+    }
+
+    public String getMiner() {
+        return miner;
+    }
+
+    /**
+     * EIP-1559 基础费用（Wei），伦敦升级之前的区块为null
+     */
+    public BigInteger getBaseFeePerGas() {
+        return baseFeePerGas;
+    }
+
+    public int getTransactionCount() {
+        return transactionCount;
+    }
+
+    @Override
+    public String toString() {
+        return "BlockSummary{number=" + number + ", hash=" + hash + ", transactionCount=" + transactionCount + "}";
+    }
+}
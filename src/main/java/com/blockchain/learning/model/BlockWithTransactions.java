@@ -0,0 +1,30 @@
+package com.blockchain.learning.model;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 带交易列表的区块
+ *
+ * 每笔交易只包含请求投影中的字段（字段名与JSON-RPC一致），数量类字段已解码为整数；不可变。
+ */
+public final class BlockWithTransactions {
+
+    private final BlockSummary summary;
+
+    private final List<Map<String, Object>> transactions;
+
+    public BlockWithTransactions(BlockSummary summary, List<Map<String, Object>> transactions) {
+        this.summary = summary;
+        this.transactions = Collections.unmodifiableList(transactions);
+    }
+
+    public BlockSummary getSummary() {
+        return summary;
+    }
+
+    public List<Map<String, Object>> getTransactions() {
+        return transactions;
+    }
+}
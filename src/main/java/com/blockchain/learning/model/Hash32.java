@@ -0,0 +1,105 @@
+package com.blockchain.learning.model;
+
+/**
+ * 32字节哈希（区块哈希、交易哈希）的定长二进制表示
+ *
+ * 以四个long保存，对象约48字节；同样的哈希用66个字符的十六进制字符串保存时超过170字节，
+ * 作为Map键时计算hashCode和比较也要逐字符进行。不可变。
+ */
+public final class Hash32 {
+
+    public static final int BYTES = 32;
+
+    private final long w0;
+
+    private final long w1;
+
+    private final long w2;
+
+    private final long w3;
+
+    public Hash32(long w0, long w1, long w2, long w3) {
+        this.w0 = w0;
+        this.w1 = w1;
+        this.w2 = w2;
+        this.w3 = w3;
+    }
+
+    /**
+     * 解析十六进制哈希（可带0x前缀，大小写均可）
+     *
+     * 不足64位时在高位补0，因此只能用作查找键，不能还原出原始的字符串长度。
+     *
+     * @throws IllegalArgumentException 包含非十六进制字符或超过64位
+     */
+    public static Hash32 fromHex(String hex) {
+        int start = HexKeys.digitsStart(hex);
+        int digits = hex.length() - start;
+        if (digits > 64) {
+            throw new IllegalArgumentException("Hash longer than 32 bytes: " + hex);
+        }
+        int end = hex.length();
+        return new Hash32(HexKeys.parseWord(hex, start, end - 48),
+                HexKeys.parseWord(hex, start, end - 32),
+                HexKeys.parseWord(hex, start, end - 16),
+                HexKeys.parseWord(hex, start, end));
+    }
+
+    /**
+     * 不抛异常的 {@link #fromHex}，无法解析时返回null
+     */
+    public static Hash32 tryFromHex(String hex) {
+        if (hex == null) {
+            return null;
+        }
+        try {
+            return fromHex(hex);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 带0x前缀的64位小写十六进制
+     */
+    public String toHex() {
+        char[] chars = new char[2 + 64];
+        chars[0] = '0';
+        chars[1] = 'x';
+        HexKeys.writeWord(w0, chars, 2, 16);
+        HexKeys.writeWord(w1, chars, 18, 16);
+        HexKeys.writeWord(w2, chars, 34, 16);
+        HexKeys.writeWord(w3, chars, 50, 16);
+        return new String(chars);
+    }
+
+    /**
+     * 折叠成一个long，用作原始类型Map的键；不同的哈希可能折叠成同一个值，查找后需要再核对完整哈希
+     */
+    public long fold() {
+        return HexKeys.mix(w0 ^ Long.rotateLeft(w1, 16) ^ Long.rotateLeft(w2, 32) ^ Long.rotateLeft(w3, 48));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Hash32)) {
+            return false;
+        }
+        Hash32 other = (Hash32) o;
+        return w0 == other.w0 && w1 == other.w1 && w2 == other.w2 && w3 == other.w3;
+    }
+
+    @Override
+    public int hashCode() {
+        long folded = fold();
+        return (int) (folded ^ (folded >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return toHex();
+    }
+}
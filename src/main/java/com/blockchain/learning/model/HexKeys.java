@@ -0,0 +1,70 @@
+package com.blockchain.learning.model;
+
+/**
+ * {@link Hash32} 和 {@link Address20} 共用的十六进制编解码
+ *
+ * 直接在字符上查表解析和输出，不经过 {@code BigInteger} 或中间字节数组。
+ */
+final class HexKeys {
+
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+
+    /** 字符 → 数值，非十六进制字符为-1 */
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        java.util.Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < 10; i++) {
+            VALUES['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            VALUES['a' + i] = (byte) (10 + i);
+            VALUES['A' + i] = (byte) (10 + i);
+        }
+    }
+
+    private HexKeys() {
+    }
+
+    /**
+     * 跳过0x前缀后第一个数字的位置
+     */
+    static int digitsStart(String hex) {
+        return hex.length() >= 2 && hex.charAt(0) == '0' && (hex.charAt(1) == 'x' || hex.charAt(1) == 'X') ? 2 : 0;
+    }
+
+    /**
+     * 解析 [max(start, end - 16), end) 范围内的数字；范围为空时返回0（高位补0）
+     */
+    static long parseWord(String hex, int start, int end) {
+        long value = 0;
+        for (int i = Math.max(start, end - 16); i < end; i++) {
+            char c = hex.charAt(i);
+            int digit = c < 128 ? VALUES[c] : -1;
+            if (digit < 0) {
+                throw new IllegalArgumentException("Invalid hex character '" + c + "' in " + hex);
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+    /**
+     * 把value的低 digits×4 位写成定长十六进制
+     */
+    static void writeWord(long value, char[] chars, int offset, int digits) {
+        for (int i = digits - 1; i >= 0; i--) {
+            chars[offset + i] = DIGITS[(int) (value & 0xf)];
+            value >>>= 4;
+        }
+    }
+
+    /**
+     * 64位混合函数（SplitMix64的终结步骤），让折叠后的键在开放寻址表中均匀分布
+     */
+    static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+}
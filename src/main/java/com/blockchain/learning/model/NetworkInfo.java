@@ -28,6 +28,9 @@ public class NetworkInfo {
     /** 连接状态（true：已连接，false：连接失败或断开） */
     private boolean isConnected;
 
+    /** 链ID和节点版本的加载时间（毫秒时间戳），用于判断这部分数据的新鲜程度 */
+    private Long metadataUpdatedAt;
+
     /**
      * 默认构造函数
      */
@@ -142,6 +145,24 @@ public class NetworkInfo {
         isConnected = connected;
     }
 
+    /**
+     * 获取网络元数据的加载时间
+     * 
+     * @return 链ID和节点版本最近一次从节点加载的时间（毫秒时间戳），未加载时为null
+     */
+    public Long getMetadataUpdatedAt() {
+        return metadataUpdatedAt;
+    }
+
+    /**
+     * 设置网络元数据的加载时间
+     * 
+     * @param metadataUpdatedAt 毫秒时间戳
+     */
+    public void setMetadataUpdatedAt(Long metadataUpdatedAt) {
+        this.metadataUpdatedAt = metadataUpdatedAt;
+    }
+
     @Override
     public String toString() {
         return "NetworkInfo{" +
@@ -150,6 +171,7 @@ public class NetworkInfo {
                 ", latestBlockNumber=" + latestBlockNumber +
                 ", nodeVersion='" + nodeVersion + '\'' +
                 ", isConnected=" + isConnected +
+                ", metadataUpdatedAt=" + metadataUpdatedAt +
                 '}';
     }
 }
\ No newline at end of file
@@ -0,0 +1,50 @@
+package com.blockchain.learning.model;
+
+/**
+ * 交易回执摘要
+ *
+ * 只保留执行结果相关的字段，不持有日志和logsBloom；不可变。
+ */
+public final class ReceiptSummary {
+
+    private final String transactionHash;
+
+    private final int transactionIndex;
+
+    private final long gasUsed;
+
+    /** 执行是否成功；拜占庭分叉之前的回执没有status字段，为null */
+    private final Boolean success;
+
+    /** 合约创建交易部署的合约地址，其他交易为null */
+    private final String contractAddress;
+
+    public ReceiptSummary(String transactionHash, int transactionIndex, long gasUsed, Boolean success,
+                          String contractAddress) {
+        this.transactionHash = transactionHash;
+        this.transactionIndex = transactionIndex;
+        this.gasUsed = gasUsed;
+        this.success = success;
+        this.contractAddress = contractAddress;
+    }
+
+    public String getTransactionHash() {
+        return transactionHash;
+    }
+
+    public int getTransactionIndex() {
+        return transactionIndex;
+    }
+
+    public long getGasUsed() {
+        return gasUsed;
+    }
+
+    public Boolean getSuccess() {
+        return success;
+    }
+
+    public String getContractAddress() {
+        return contractAddress;
+    }
+}
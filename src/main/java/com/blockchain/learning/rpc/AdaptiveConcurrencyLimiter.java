@@ -0,0 +1,342 @@
+package com.blockchain.learning.rpc;
+
+import com.blockchain.learning.config.RpcProperties;
+import io.reactivex.Flowable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.websocket.events.Notification;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 自适应并发限制（AIMD）
+ *
+ * 限制同时发往节点的请求数。请求成功且响应及时时上限缓慢增长（每个上限窗口约加1）；
+ * 请求出错、被限流或响应超过慢调用阈值时上限按比例缩小。超出上限的请求排队等待，
+ * 队列已满或等待超时的请求直接失败，不再继续压向已经过载的节点。
+ *
+ * 同一时期发出的请求一起失败时只缩小一次：只有在上一次缩小之后才发出的请求出错，才会再次缩小。
+ */
+public class AdaptiveConcurrencyLimiter implements Web3jService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+    /** 节点返回的限流错误码（Infura、Alchemy等） */
+    private static final int RATE_LIMIT_ERROR_CODE = -32005;
+
+    /** 延迟和错误率的指数移动平均系数 */
+    private static final double EWMA_ALPHA = 0.2;
+
+    private final Web3jService delegate;
+
+    private final RpcProperties.Limiter settings;
+
+    private final ScheduledExecutorService timer;
+
+    private final Deque<CompletableFuture<Void>> queue = new ArrayDeque<>();
+
+    private double limit;
+
+    private int inFlight;
+
+    private long lastDecreaseNanos;
+
+    private double latencyEwmaMillis;
+
+    private double errorRateEwma;
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    private final AtomicLong queueTimeouts = new AtomicLong();
+
+    private final AtomicLong decreases = new AtomicLong();
+
+    public AdaptiveConcurrencyLimiter(Web3jService delegate, RpcProperties.Limiter settings) {
+        this.delegate = delegate;
+        this.settings = settings;
+        this.limit = settings.getInitialLimit();
+        this.lastDecreaseNanos = System.nanoTime();
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rpc-limiter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public <T extends Response> T send(Request request, Class<T> responseType) throws IOException {
+        if (!settings.isEnabled()) {
+            return delegate.send(request, responseType);
+        }
+
+        await(acquire());
+        long startNanos = System.nanoTime();
+        try {
+            T response = delegate.send(request, responseType);
+            release(startNanos, isOverloaded(response));
+            return response;
+        } catch (IOException | RuntimeException e) {
+            release(startNanos, true);
+            throw e;
+        }
+    }
+
+    @Override
+    public <T extends Response> CompletableFuture<T> sendAsync(Request request, Class<T> responseType) {
+        if (!settings.isEnabled()) {
+            return delegate.sendAsync(request, responseType);
+        }
+
+        return acquire().thenCompose(permit -> {
+            long startNanos = System.nanoTime();
+            CompletableFuture<T> upstream;
+            try {
+                upstream = delegate.sendAsync(request, responseType);
+            } catch (RuntimeException e) {
+                release(startNanos, true);
+                throw e;
+            }
+            return upstream.whenComplete((response, error) ->
+                    release(startNanos, error != null || isOverloaded(response)));
+        });
+    }
+
+    @Override
+    public BatchResponse sendBatch(BatchRequest batchRequest) throws IOException {
+        if (!settings.isEnabled()) {
+            return delegate.sendBatch(batchRequest);
+        }
+
+        await(acquire());
+        long startNanos = System.nanoTime();
+        try {
+            BatchResponse response = delegate.sendBatch(batchRequest);
+            release(startNanos, isOverloaded(response));
+            return response;
+        } catch (IOException | RuntimeException e) {
+            release(startNanos, true);
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<BatchResponse> sendBatchAsync(BatchRequest batchRequest) {
+        if (!settings.isEnabled()) {
+            return delegate.sendBatchAsync(batchRequest);
+        }
+
+        return acquire().thenCompose(permit -> {
+            long startNanos = System.nanoTime();
+            CompletableFuture<BatchResponse> upstream;
+            try {
+                upstream = delegate.sendBatchAsync(batchRequest);
+            } catch (RuntimeException e) {
+                release(startNanos, true);
+                throw e;
+            }
+            return upstream.whenComplete((response, error) ->
+                    release(startNanos, error != null || isOverloaded(response)));
+        });
+    }
+
+    @Override
+    public <T extends Notification<?>> Flowable<T> subscribe(Request request, String unsubscribeMethod,
+                                                             Class<T> responseType) {
+        return delegate.subscribe(request, unsubscribeMethod, responseType);
+    }
+
+    @Override
+    public void close() throws IOException {
+        timer.shutdownNow();
+        delegate.close();
+    }
+
+    /**
+     * 申请一个并发名额
+     *
+     * 有空闲名额时返回已完成的Future；否则排队，排队超时或队列已满时以 {@link IOException} 结束。
+     */
+    private CompletableFuture<Void> acquire() {
+        CompletableFuture<Void> permit = new CompletableFuture<>();
+        synchronized (this) {
+            if (inFlight < (int) limit && queue.isEmpty()) {
+                inFlight++;
+                permit.complete(null);
+                return permit;
+            }
+            if (queue.size() >= settings.getMaxQueueSize()) {
+                rejected.incrementAndGet();
+                permit.completeExceptionally(new IOException(
+                        "RPC concurrency limit reached: " + inFlight + " in flight, " + queue.size() + " queued"));
+                return permit;
+            }
+            queue.addLast(permit);
+        }
+
+        timer.schedule(() -> {
+            boolean removed;
+            synchronized (this) {
+                removed = queue.remove(permit);
+            }
+            if (removed) {
+                queueTimeouts.incrementAndGet();
+                permit.completeExceptionally(new IOException(
+                        "Timed out after " + settings.getMaxQueueWait().toMillis() + " ms waiting for an RPC slot"));
+            }
+        }, settings.getMaxQueueWait().toMillis(), TimeUnit.MILLISECONDS);
+        return permit;
+    }
+
+    /**
+     * 归还名额并根据本次请求的结果调整上限，然后唤醒排队的请求
+     */
+    private void release(long startNanos, boolean failed) {
+        long nowNanos = System.nanoTime();
+        double latencyMillis = (nowNanos - startNanos) / 1_000_000.0;
+        boolean overloaded = failed || latencyMillis > settings.getSlowCallThreshold().toMillis();
+
+        Deque<CompletableFuture<Void>> granted = new ArrayDeque<>();
+        synchronized (this) {
+            inFlight--;
+            latencyEwmaMillis = latencyEwmaMillis == 0 ? latencyMillis
+                    : EWMA_ALPHA * latencyMillis + (1 - EWMA_ALPHA) * latencyEwmaMillis;
+            errorRateEwma = EWMA_ALPHA * (overloaded ? 1.0 : 0.0) + (1 - EWMA_ALPHA) * errorRateEwma;
+
+            if (overloaded) {
+                // 上一次缩小之前发出的请求反映的是旧的负载，不重复缩小
+                if (startNanos - lastDecreaseNanos > 0) {
+                    double previous = limit;
+                    limit = Math.max(settings.getMinLimit(), limit * settings.getBackoffRatio());
+                    lastDecreaseNanos = nowNanos;
+                    decreases.incrementAndGet();
+                    logger.warn("Upstream RPC degraded ({}), concurrency limit {} -> {}",
+                            failed ? "error" : String.format("%.0f ms", latencyMillis),
+                            (int) previous, (int) limit);
+                }
+            } else if (inFlight + 1 >= (int) limit / 2) {
+                // 只有在上限确实被用到时才增长，避免空闲时上限无限膨胀
+                limit = Math.min(settings.getMaxLimit(), limit + 1.0 / limit);
+            }
+
+            while (inFlight < (int) limit && !queue.isEmpty()) {
+                inFlight++;
+                granted.addLast(queue.pollFirst());
+            }
+        }
+
+        for (CompletableFuture<Void> permit : granted) {
+            permit.complete(null);
+        }
+    }
+
+    /**
+     * 节点返回的限流错误也视为过载
+     */
+    private static boolean isOverloaded(Response<?> response) {
+        if (response == null || !response.hasError()) {
+            return false;
+        }
+        Response.Error error = response.getError();
+        String message = error.getMessage() == null ? "" : error.getMessage().toLowerCase();
+        return error.getCode() == RATE_LIMIT_ERROR_CODE
+                || message.contains("rate limit")
+                || message.contains("too many requests");
+    }
+
+    private static boolean isOverloaded(BatchResponse response) {
+        if (response == null) {
+            return false;
+        }
+        for (Response<?> item : response.getResponses()) {
+            if (isOverloaded(item)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void await(CompletableFuture<Void> permit) throws IOException {
+        try {
+            permit.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 当前并发上限
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * 当前发往节点、尚未完成的请求数
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * 正在排队等待名额的请求数
+     */
+    public synchronized int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * 响应时间的指数移动平均（毫秒）
+     */
+    public synchronized double getLatencyEwmaMillis() {
+        return latencyEwmaMillis;
+    }
+
+    /**
+     * 出错或慢调用比例的指数移动平均
+     */
+    public synchronized double getErrorRateEwma() {
+        return errorRateEwma;
+    }
+
+    /**
+     * 因队列已满被拒绝的请求数
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * 排队超时的请求数
+     */
+    public long getQueueTimeouts() {
+        return queueTimeouts.get();
+    }
+
+    /**
+     * 上限被缩小的次数
+     */
+    public long getDecreases() {
+        return decreases.get();
+    }
+
+    public boolean isEnabled() {
+        return settings.isEnabled();
+    }
+}
@@ -0,0 +1,177 @@
+package com.blockchain.learning.rpc;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Headers;
+import okhttp3.OkHttpClient;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.exceptions.ClientConnectionException;
+import org.web3j.protocol.http.HttpService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 真正异步的 {@link HttpService}
+ *
+ * web3j自带的 sendAsync 只是把阻塞的 send 放到另一个线程池中执行，每个进行中的请求仍然占用一个线程。
+ * 这里改为通过OkHttp的 enqueue 发送，请求在调度器中排队，响应由OkHttp的回调线程解析，
+ * 等待节点响应期间不占用任何线程，并发请求数只受调度器的 maxRequests 限制。
+ *
+ * 批量请求的 sendBatchAsync 走同一条路径。同步的 send 和 sendBatch 仍然阻塞调用线程，但解析同样由这里完成：
+ * {@link AttributedRequest} 的属性在同步和异步、单个和批量请求上都会交给解析器。
+ */
+public class AsyncHttpService extends HttpService {
+
+    private final OkHttpClient client;
+
+    private final String url;
+
+    public AsyncHttpService(String url, OkHttpClient client) {
+        super(url, client);
+        this.client = client;
+        this.url = url;
+    }
+
+    @Override
+    public <T extends Response> T send(Request request, Class<T> responseType) throws IOException {
+        if (!(request instanceof AttributedRequest)) {
+            return super.send(request, responseType);
+        }
+        try (InputStream result = performIO(objectMapper.writeValueAsString(request))) {
+            return result == null ? null : reader(request, responseType).readValue(result);
+        }
+    }
+
+    @Override
+    public <T extends Response> CompletableFuture<T> sendAsync(Request request, Class<T> responseType) {
+        return post(request, body -> reader(request, responseType).readValue(body));
+    }
+
+    @Override
+    public BatchResponse sendBatch(BatchRequest batchRequest) throws IOException {
+        List<Request<?, ? extends Response<?>>> requests = batchRequest.getRequests();
+        if (requests.isEmpty()) {
+            return new BatchResponse(Collections.emptyList(), Collections.emptyList());
+        }
+        try (InputStream result = performIO(objectMapper.writeValueAsString(requests))) {
+            return result == null ? null : parseBatch(requests, result);
+        }
+    }
+
+    /**
+     * 批量请求同样通过 enqueue 发送
+     */
+    @Override
+    public CompletableFuture<BatchResponse> sendBatchAsync(BatchRequest batchRequest) {
+        List<Request<?, ? extends Response<?>>> requests = batchRequest.getRequests();
+        if (requests.isEmpty()) {
+            return CompletableFuture.completedFuture(
+                    new BatchResponse(Collections.emptyList(), Collections.emptyList()));
+        }
+        return post(requests, body -> parseBatch(requests, body));
+    }
+
+    /**
+     * 解析批量响应
+     *
+     * 响应按ID对应到请求，用对应请求的响应类型（和属性）解析。节点可以打乱响应的顺序，所以不按位置对应：
+     * 有响应的ID对不上任何请求时整个批量失败，避免用错误的响应类型解析。
+     *
+     * @throws IOException 响应不是数组，或有ID对不上的响应
+     */
+    BatchResponse parseBatch(List<Request<?, ? extends Response<?>>> requests, InputStream body) throws IOException {
+        JsonNode nodes = objectMapper.readTree(body);
+        if (nodes == null || !nodes.isArray()) {
+            throw new IOException("Expected a batch response from " + url + " but got: " + nodes);
+        }
+        Map<Long, Request<?, ? extends Response<?>>> requestsById = new HashMap<>();
+        for (Request<?, ? extends Response<?>> request : requests) {
+            requestsById.put(request.getId(), request);
+        }
+        List<Response<?>> responses = new ArrayList<>(nodes.size());
+        for (JsonNode node : nodes) {
+            JsonNode id = node.path("id");
+            Request<?, ? extends Response<?>> request = id.canConvertToLong() ? requestsById.get(id.asLong()) : null;
+            if (request == null) {
+                throw new IOException("Batch response from " + url + " has id " + id
+                        + " that matches no request in the batch");
+            }
+            responses.add(reader(request, request.getResponseType()).readValue(node));
+        }
+        return new BatchResponse(requests, responses);
+    }
+
+    /**
+     * 通过OkHttp的 enqueue 发送请求体，在回调线程上解析响应
+     */
+    private <T> CompletableFuture<T> post(Object payloadObject, BodyParser<T> parser) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        byte[] payload;
+        try {
+            payload = objectMapper.writeValueAsBytes(payloadObject);
+        } catch (JsonProcessingException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+
+        okhttp3.Request httpRequest = new okhttp3.Request.Builder()
+                .url(url)
+                .headers(Headers.of(getHeaders()))
+                .post(RequestBody.create(payload, JSON_MEDIA_TYPE))
+                .build();
+
+        client.newCall(httpRequest).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                result.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call call, okhttp3.Response response) {
+                try (ResponseBody body = response.body()) {
+                    if (!response.isSuccessful()) {
+                        // 与 HttpService 的同步实现保持一致
+                        throw new ClientConnectionException("Invalid response received: "
+                                + response.code() + "; " + (body == null ? "" : body.string()));
+                    }
+                    if (body == null) {
+                        throw new IOException("Empty response body from " + url);
+                    }
+                    result.complete(parser.parse(body.byteStream()));
+                } catch (IOException | RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            }
+        });
+        return result;
+    }
+
+    private ObjectReader reader(Request<?, ?> request, Class<?> responseType) {
+        ObjectReader reader = objectMapper.readerFor(responseType);
+        if (request instanceof AttributedRequest) {
+            reader = reader.withAttributes(((AttributedRequest<?, ?>) request).getAttributes());
+        }
+        return reader;
+    }
+
+    @FunctionalInterface
+    private interface BodyParser<T> {
+
+        T parse(InputStream body) throws IOException;
+    }
+}
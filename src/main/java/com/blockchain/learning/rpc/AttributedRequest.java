@@ -0,0 +1,38 @@
+package com.blockchain.learning.rpc;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 携带解码参数的请求
+ *
+ * 参数不会发送给节点，而是在解析响应时作为Jackson的反序列化属性传给自定义的反序列化器，
+ * 用来让同一种响应类型按请求选择解码哪些字段。{@link AsyncHttpService} 负责把属性交给解析器；
+ * 请求合并时属性也是合并键的一部分，属性不同的请求不会共享响应。
+ *
+ * 其他 {@link Web3jService} 实现会忽略这些属性，反序列化器需要在属性缺失时给出完整结果。
+ */
+public class AttributedRequest<S, T extends Response> extends Request<S, T> {
+
+    private final Map<String, Object> attributes;
+
+    public AttributedRequest(String method, List<S> params, Web3jService web3jService, Class<T> responseType,
+                             Map<String, Object> attributes) {
+        super(method, params, web3jService, responseType);
+        this.attributes = Collections.unmodifiableMap(attributes);
+    }
+
+    /**
+     * 解析响应时使用的反序列化属性
+     */
+    @JsonIgnore
+    public Map<String, Object> getAttributes() {
+        return attributes;
+    }
+}
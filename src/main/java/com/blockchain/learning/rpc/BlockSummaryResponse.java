@@ -0,0 +1,193 @@
+package com.blockchain.learning.rpc;
+
+import com.blockchain.learning.model.BlockSummary;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * 以流式方式解码的 eth_getBlockByNumber / eth_getBlockByHash 响应
+ *
+ * web3j的 {@code EthBlock} 会把整个区块（包括每笔交易的全部字段）反序列化成对象树，
+ * 接口随后只用到其中几个区块头字段。这里直接在Jackson的 {@link JsonParser} 上逐个读取token：
+ * 需要的区块头字段就地解析，交易数组只计数、逐个跳过，其余字段整体跳过，不创建中间对象。
+ * {@link BlockWithTransactionsResponse} 复用同一套读取逻辑，只是改为按投影读取每笔交易。
+ *
+ * 作为普通的 {@link Response} 类型经过节点池、并发限制和请求合并，HTTP层的响应流直接交给解析器。
+ */
+public class BlockSummaryResponse extends Response<BlockSummary> {
+
+    /**
+     * 构造按区块号查询的请求
+     *
+     * @param fullTransactions 为true时节点返回完整交易对象，只会影响响应大小，解码结果相同
+     */
+    public static Request<?, BlockSummaryResponse> byNumber(Web3jService service, DefaultBlockParameter block,
+                                                            boolean fullTransactions) {
+        return new Request<>("eth_getBlockByNumber", Arrays.asList(block.getValue(), fullTransactions),
+                service, BlockSummaryResponse.class);
+    }
+
+    /**
+     * 构造按区块哈希查询的请求
+     */
+    public static Request<?, BlockSummaryResponse> byHash(Web3jService service, String blockHash,
+                                                          boolean fullTransactions) {
+        return new Request<>("eth_getBlockByHash", Arrays.asList(blockHash, fullTransactions),
+                service, BlockSummaryResponse.class);
+    }
+
+    @Override
+    @JsonDeserialize(using = Deserializer.class)
+    public void setResult(BlockSummary result) {
+        super.setResult(result);
+    }
+
+    /**
+     * 区块摘要，区块不存在时为null
+     */
+    public BlockSummary getBlock() {
+        return getResult();
+    }
+
+    /**
+     * 从区块JSON对象中流式读取摘要字段
+     */
+    public static class Deserializer extends JsonDeserializer<BlockSummary> {
+
+        @Override
+        public BlockSummary deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            return readBlock(parser, JsonParser::skipChildren);
+        }
+
+        /**
+         * 读取区块对象的摘要字段
+         *
+         * @param transactions 对交易数组中的每个元素调用一次，调用时解析器位于元素的第一个token，
+         *                     返回前必须读完该元素
+         */
+        static BlockSummary readBlock(JsonParser parser, ElementReader transactions) throws IOException {
+            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected block object but got " + parser.currentToken());
+            }
+
+            long number = 0;
+            String hash = null;
+            String parentHash = null;
+            long timestamp = 0;
+            long gasLimit = 0;
+            long gasUsed = 0;
+            String miner = null;
+            BigInteger baseFeePerGas = null;
+            int transactionCount = 0;
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                // 字段名由解析器统一缓存，不会为每个区块重新分配
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                switch (field) {
+                    case "number":
+                        number = quantity(parser);
+                        break;
+                    case "hash":
+                        hash = parser.getText();
+                        break;
+                    case "parentHash":
+                        parentHash = parser.getText();
+                        break;
+                    case "timestamp":
+                        timestamp = quantity(parser);
+                        break;
+                    case "gasLimit":
+                        gasLimit = quantity(parser);
+                        break;
+                    case "gasUsed":
+                        gasUsed = quantity(parser);
+                        break;
+                    case "miner":
+                        miner = parser.getText();
+                        break;
+                    case "baseFeePerGas":
+                        baseFeePerGas = new BigInteger(stripHexPrefix(parser.getText()), 16);
+                        break;
+                    case "transactions":
+                        transactionCount = readElements(parser, transactions);
+                        break;
+                    default:
+                        // logsBloom、extraData、withdrawals等：未读取的字符串不会被解码，对象和数组整体跳过
+                        parser.skipChildren();
+                }
+            }
+            return new BlockSummary(number, hash, parentHash, timestamp, gasLimit, gasUsed,
+                    miner, baseFeePerGas, transactionCount);
+        }
+
+        /**
+         * 逐个读取数组元素并计数
+         */
+        private static int readElements(JsonParser parser, ElementReader reader) throws IOException {
+            if (parser.currentToken() != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                return 0;
+            }
+            int count = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                reader.read(parser);
+                count++;
+            }
+            return count;
+        }
+
+        /**
+         * 直接在解析器的字符缓冲区上解析十六进制数量，不创建字符串
+         */
+        static long quantity(JsonParser parser) throws IOException {
+            char[] chars = parser.getTextCharacters();
+            int offset = parser.getTextOffset();
+            int length = parser.getTextLength();
+            if (length > 2 && chars[offset] == '0' && (chars[offset + 1] == 'x' || chars[offset + 1] == 'X')) {
+                offset += 2;
+                length -= 2;
+            }
+            if (length == 0 || length > 16) {
+                throw new JsonParseException(parser, "Invalid hex quantity: " + parser.getText());
+            }
+            long result = 0;
+            for (int i = offset; i < offset + length; i++) {
+                int digit = Character.digit(chars[i], 16);
+                if (digit < 0) {
+                    throw new JsonParseException(parser, "Invalid hex quantity: " + parser.getText());
+                }
+                result = (result << 4) | digit;
+            }
+            return result;
+        }
+
+        private static String stripHexPrefix(String value) {
+            return value.startsWith("0x") || value.startsWith("0X") ? value.substring(2) : value;
+        }
+    }
+
+    /**
+     * 数组元素的读取方式，默认整体跳过
+     */
+    @FunctionalInterface
+    interface ElementReader {
+
+        void read(JsonParser parser) throws IOException;
+    }
+}
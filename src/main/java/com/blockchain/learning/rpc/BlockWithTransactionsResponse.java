@@ -0,0 +1,120 @@
+package com.blockchain.learning.rpc;
+
+import com.blockchain.learning.model.BlockSummary;
+import com.blockchain.learning.model.BlockWithTransactions;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 带完整交易的 eth_getBlockByNumber 响应，按字段投影流式解码
+ *
+ * 区块头与 {@link BlockSummaryResponse} 的读取方式相同；交易数组中的每笔交易只解码投影中的字段，
+ * 其余字段（包括体积最大的 input 和签名）直接跳过。投影通过 {@link AttributedRequest} 传给解析器，
+ * 没有投影时解码交易的全部字段。
+ */
+public class BlockWithTransactionsResponse extends Response<BlockWithTransactions> {
+
+    /** 反序列化属性：交易字段投影，{@code Set<String>} */
+    static final String FIELDS_ATTRIBUTE = "transactionFields";
+
+    /** 十六进制数量字段，解码为整数；其余字符串字段原样保留 */
+    private static final Set<String> QUANTITY_FIELDS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "blockNumber", "chainId", "gas", "gasPrice", "maxFeePerGas", "maxPriorityFeePerGas",
+            "maxFeePerBlobGas", "nonce", "transactionIndex", "type", "value", "v", "yParity")));
+
+    /**
+     * 构造按区块号查询完整交易的请求
+     *
+     * @param fields 需要的交易字段，为null时返回全部字段
+     */
+    public static Request<?, BlockWithTransactionsResponse> byNumber(Web3jService service, DefaultBlockParameter block,
+                                                                     Set<String> fields) {
+        Map<String, Object> attributes = fields == null
+                ? Collections.<String, Object>emptyMap()
+                : Collections.<String, Object>singletonMap(FIELDS_ATTRIBUTE, new TreeSet<>(fields));
+        return new AttributedRequest<>("eth_getBlockByNumber", Arrays.asList(block.getValue(), true),
+                service, BlockWithTransactionsResponse.class, attributes);
+    }
+
+    @Override
+    @JsonDeserialize(using = Deserializer.class)
+    public void setResult(BlockWithTransactions result) {
+        super.setResult(result);
+    }
+
+    /**
+     * 区块及其交易，区块不存在时为null
+     */
+    public BlockWithTransactions getBlock() {
+        return getResult();
+    }
+
+    /**
+     * 读取区块头，并按投影读取每笔交易
+     */
+    public static class Deserializer extends JsonDeserializer<BlockWithTransactions> {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public BlockWithTransactions deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            Set<String> fields = (Set<String>) context.getAttribute(FIELDS_ATTRIBUTE);
+            List<Map<String, Object>> transactions = new ArrayList<>();
+            BlockSummary summary = BlockSummaryResponse.Deserializer.readBlock(parser,
+                    element -> transactions.add(readTransaction(element, fields)));
+            return new BlockWithTransactions(summary, transactions);
+        }
+
+        private static Map<String, Object> readTransaction(JsonParser parser, Set<String> fields) throws IOException {
+            Map<String, Object> transaction = new LinkedHashMap<>();
+            if (parser.currentToken() == JsonToken.VALUE_STRING) {
+                // 节点只返回了交易哈希
+                if (fields == null || fields.contains("hash")) {
+                    transaction.put("hash", parser.getText());
+                }
+                return transaction;
+            }
+            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                return transaction;
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (fields != null && !fields.contains(field)) {
+                    parser.skipChildren();
+                    continue;
+                }
+                if (value == JsonToken.VALUE_NULL) {
+                    transaction.put(field, null);
+                } else if (value == JsonToken.VALUE_STRING) {
+                    String text = parser.getText();
+                    transaction.put(field, QUANTITY_FIELDS.contains(field) ? Numeric.decodeQuantity(text) : text);
+                } else {
+                    // accessList、blobVersionedHashes等嵌套结构
+                    transaction.put(field, parser.readValueAsTree());
+                }
+            }
+            return transaction;
+        }
+    }
+}
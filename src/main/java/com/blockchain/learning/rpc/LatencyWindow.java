@@ -0,0 +1,59 @@
+package com.blockchain.learning.rpc;
+
+import java.util.Arrays;
+
+/**
+ * 最近请求延迟的滑动窗口
+ *
+ * 保存最近 {@code capacity} 个成功请求的延迟，按需计算分位数，用来确定对冲请求的等待时间。
+ * 分位数的计算结果会缓存，新增的样本达到窗口的八分之一时才重新排序。
+ */
+public class LatencyWindow {
+
+    private final long[] samples;
+
+    private int next;
+
+    private int size;
+
+    private int sinceLastSort;
+
+    private long[] sorted = new long[0];
+
+    public LatencyWindow(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    /**
+     * 记录一个延迟样本（毫秒）
+     */
+    public synchronized void record(long latencyMillis) {
+        samples[next] = latencyMillis;
+        next = (next + 1) % samples.length;
+        size = Math.min(size + 1, samples.length);
+        sinceLastSort++;
+    }
+
+    /**
+     * 计算分位数
+     *
+     * @param percentile 0到1之间的分位数，例如0.95
+     * @return 分位数对应的延迟（毫秒），没有样本时返回-1
+     */
+    public synchronized long percentile(double percentile) {
+        if (size == 0) {
+            return -1;
+        }
+        if (sorted.length != size || sinceLastSort >= Math.max(1, samples.length / 8)) {
+            sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            sinceLastSort = 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+}
@@ -0,0 +1,114 @@
+package com.blockchain.learning.rpc;
+
+import com.blockchain.learning.model.ReceiptSummary;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 流式解码的 eth_getBlockReceipts / eth_getTransactionReceipt 响应
+ *
+ * 每个回执只读取交易哈希、序号、gasUsed、status和合约地址，体积最大的logs和logsBloom整体跳过。
+ * 两种请求共用同一个响应类型：整块的回执数组按原顺序返回，单笔交易的回执返回只有一个元素的列表。
+ */
+public class ReceiptsResponse extends Response<List<ReceiptSummary>> {
+
+    /**
+     * 构造查询整个区块全部回执的请求（节点需要支持 eth_getBlockReceipts）
+     */
+    public static Request<?, ReceiptsResponse> byBlock(Web3jService service, DefaultBlockParameter block) {
+        return new Request<>("eth_getBlockReceipts", Collections.singletonList(block.getValue()),
+                service, ReceiptsResponse.class);
+    }
+
+    /**
+     * 构造查询单笔交易回执的请求
+     */
+    public static Request<?, ReceiptsResponse> byTransaction(Web3jService service, String transactionHash) {
+        return new Request<>("eth_getTransactionReceipt", Collections.singletonList(transactionHash),
+                service, ReceiptsResponse.class);
+    }
+
+    @Override
+    @JsonDeserialize(using = Deserializer.class)
+    public void setResult(List<ReceiptSummary> result) {
+        super.setResult(result);
+    }
+
+    /**
+     * 回执列表，区块或交易不存在时为null
+     */
+    public List<ReceiptSummary> getReceipts() {
+        return getResult();
+    }
+
+    public static class Deserializer extends JsonDeserializer<List<ReceiptSummary>> {
+
+        @Override
+        public List<ReceiptSummary> deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            if (parser.currentToken() == JsonToken.START_OBJECT) {
+                return Collections.singletonList(readReceipt(parser));
+            }
+            List<ReceiptSummary> receipts = new ArrayList<>();
+            if (parser.currentToken() != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                return receipts;
+            }
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (parser.currentToken() == JsonToken.START_OBJECT) {
+                    receipts.add(readReceipt(parser));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return receipts;
+        }
+
+        private static ReceiptSummary readReceipt(JsonParser parser) throws IOException {
+            String transactionHash = null;
+            int transactionIndex = 0;
+            long gasUsed = 0;
+            Boolean success = null;
+            String contractAddress = null;
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                switch (field) {
+                    case "transactionHash":
+                        transactionHash = parser.getText();
+                        break;
+                    case "transactionIndex":
+                        transactionIndex = (int) BlockSummaryResponse.Deserializer.quantity(parser);
+                        break;
+                    case "gasUsed":
+                        gasUsed = BlockSummaryResponse.Deserializer.quantity(parser);
+                        break;
+                    case "status":
+                        success = BlockSummaryResponse.Deserializer.quantity(parser) == 1;
+                        break;
+                    case "contractAddress":
+                        contractAddress = parser.getText();
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            return new ReceiptSummary(transactionHash, transactionIndex, gasUsed, success, contractAddress);
+        }
+    }
+}
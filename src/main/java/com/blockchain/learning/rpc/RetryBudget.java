@@ -0,0 +1,87 @@
+package com.blockchain.learning.rpc;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 重试预算（令牌桶）
+ *
+ * 每个正常请求补充 {@code ratio} 个令牌，另外每秒固定补充 {@code minPerSecond} 个，
+ * 每次重试或对冲消耗一个令牌，令牌不足时不再重试。这样节点整体故障时，
+ * 重试带来的额外流量最多是正常流量的 ratio 倍，不会把故障放大成重试风暴。
+ */
+public class RetryBudget {
+
+    private final double ratio;
+
+    private final double minPerSecond;
+
+    private final double maxTokens;
+
+    private double tokens;
+
+    private long lastRefillNanos;
+
+    private final AtomicLong withdrawn = new AtomicLong();
+
+    private final AtomicLong exhausted = new AtomicLong();
+
+    public RetryBudget(double ratio, double minPerSecond, int maxTokens) {
+        this.ratio = ratio;
+        this.minPerSecond = minPerSecond;
+        this.maxTokens = maxTokens;
+        this.tokens = maxTokens;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * 记录一个正常请求
+     */
+    public synchronized void deposit() {
+        refill();
+        tokens = Math.min(maxTokens, tokens + ratio);
+    }
+
+    /**
+     * 尝试取出一个令牌
+     *
+     * @return 预算足够时返回true
+     */
+    public synchronized boolean tryWithdraw() {
+        refill();
+        if (tokens < 1.0) {
+            exhausted.incrementAndGet();
+            return false;
+        }
+        tokens -= 1.0;
+        withdrawn.incrementAndGet();
+        return true;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(maxTokens, tokens + (now - lastRefillNanos) / 1_000_000_000.0 * minPerSecond);
+        lastRefillNanos = now;
+    }
+
+    /**
+     * 当前可用的令牌数
+     */
+    public synchronized double getTokens() {
+        refill();
+        return tokens;
+    }
+
+    /**
+     * 已消耗的令牌数，即实际发生的重试和对冲次数
+     */
+    public long getWithdrawn() {
+        return withdrawn.get();
+    }
+
+    /**
+     * 因预算不足而放弃的重试次数
+     */
+    public long getExhausted() {
+        return exhausted.get();
+    }
+}
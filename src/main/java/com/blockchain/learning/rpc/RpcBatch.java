@@ -0,0 +1,194 @@
+package com.blockchain.learning.rpc;
+
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * JSON-RPC 批量调用
+ *
+ * 将多个RPC请求打包成一次HTTP POST发送，减少与节点之间的网络往返。
+ * 每个加入批次的请求都会得到一个 {@link Call} 句柄，执行后通过句柄取回类型化的结果。
+ *
+ * 注意：JSON-RPC规范允许节点以任意顺序返回批量响应，因此这里按请求ID匹配响应，
+ * 只有在ID无法匹配时才退回到按位置匹配。
+ */
+public class RpcBatch {
+
+    private final Web3j web3j;
+
+    private final List<Call<?>> calls = new ArrayList<>();
+
+    private boolean executed;
+
+    public RpcBatch(Web3j web3j) {
+        this.web3j = web3j;
+    }
+
+    /**
+     * 向批次中添加一个请求
+     *
+     * @param request web3j构造的RPC请求
+     * @return 用于在执行后获取结果的句柄
+     */
+    public <T extends Response<?>> Call<T> add(Request<?, T> request) {
+        if (executed) {
+            throw new IllegalStateException("Batch has already been executed");
+        }
+        Call<T> call = new Call<>(request);
+        calls.add(call);
+        return call;
+    }
+
+    /**
+     * 批次中的请求数量
+     */
+    public int size() {
+        return calls.size();
+    }
+
+    /**
+     * 发送批次中的所有请求
+     *
+     * 只有一个请求时直接发送单个请求，避免批量封装的额外开销。
+     *
+     * @throws IOException 网络错误或响应无法解析时抛出；单个请求的RPC错误在 {@link Call#get()} 时抛出
+     */
+    public void execute() throws IOException {
+        markExecuted();
+
+        if (calls.isEmpty()) {
+            return;
+        }
+
+        if (calls.size() == 1) {
+            Call<?> call = calls.get(0);
+            call.complete(call.request.send());
+            return;
+        }
+
+        complete(newBatchRequest().send().getResponses());
+    }
+
+    /**
+     * 异步发送批次中的所有请求
+     *
+     * 返回的Future完成后即可通过各个 {@link Call#get()} 取回结果；网络错误时Future以异常结束。
+     */
+    public CompletableFuture<Void> executeAsync() {
+        markExecuted();
+
+        if (calls.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        if (calls.size() == 1) {
+            Call<?> call = calls.get(0);
+            return call.request.sendAsync().thenAccept(call::complete);
+        }
+
+        return newBatchRequest().sendAsync().thenAccept(batchResponse -> complete(batchResponse.getResponses()));
+    }
+
+    private void markExecuted() {
+        if (executed) {
+            throw new IllegalStateException("Batch has already been executed");
+        }
+        executed = true;
+    }
+
+    private BatchRequest newBatchRequest() {
+        BatchRequest batchRequest = web3j.newBatch();
+        for (Call<?> call : calls) {
+            batchRequest.add(call.request);
+        }
+        return batchRequest;
+    }
+
+    private void complete(List<? extends Response<?>> responses) {
+        Map<Long, Response<?>> responsesById = new HashMap<>();
+        for (Response<?> response : responses) {
+            responsesById.put(response.getId(), response);
+        }
+
+        for (int i = 0; i < calls.size(); i++) {
+            Call<?> call = calls.get(i);
+            Response<?> response = responsesById.get(call.request.getId());
+            if (response == null && responsesById.size() != responses.size() && i < responses.size()) {
+                // 节点返回了重复或缺失的ID，只能按位置匹配
+                response = responses.get(i);
+            }
+            call.complete(response);
+        }
+    }
+
+    /**
+     * 批次中单个请求的结果句柄
+     */
+    public static final class Call<T extends Response<?>> {
+
+        private final Request<?, T> request;
+
+        private T response;
+
+        private boolean completed;
+
+        private Call(Request<?, T> request) {
+            this.request = request;
+        }
+
+        /**
+         * 获取请求的RPC方法名
+         */
+        public String getMethod() {
+            return request.getMethod();
+        }
+
+        /**
+         * 获取类型化的响应
+         *
+         * @return 节点返回的响应
+         * @throws IOException 节点没有返回该请求的响应，或返回了RPC错误
+         */
+        public T get() throws IOException {
+            if (!completed) {
+                throw new IllegalStateException("Batch has not been executed yet");
+            }
+            if (response == null) {
+                throw new IOException("No response received for " + request.getMethod());
+            }
+            if (response.hasError()) {
+                throw new IOException("RPC error in " + request.getMethod() + ": "
+                        + response.getError().getMessage());
+            }
+            return response;
+        }
+
+        /**
+         * 节点返回的RPC错误，没有错误或没有收到响应时为null
+         */
+        public Response.Error getError() {
+            return response == null ? null : response.getError();
+        }
+
+        /**
+         * 请求是否成功返回了结果
+         */
+        public boolean isSuccessful() {
+            return completed && response != null && !response.hasError();
+        }
+
+        private void complete(Response<?> result) {
+            this.response = result == null ? null : request.getResponseType().cast(result);
+            this.completed = true;
+        }
+    }
+}
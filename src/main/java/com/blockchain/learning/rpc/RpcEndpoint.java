@@ -0,0 +1,216 @@
+package com.blockchain.learning.rpc;
+
+import org.web3j.protocol.Web3jService;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 节点池中的单个RPC节点
+ *
+ * 记录节点的延迟（指数加权移动平均）、在途请求数、连续失败次数和已知的最新区块号，
+ * 供 {@link RpcEndpointPool} 做路由和摘除判断。
+ *
+ * 每个节点带一个熔断器：连续失败达到阈值后熔断（OPEN），熔断期间请求直接跳过该节点；
+ * 熔断到期后进入半开状态（HALF_OPEN），只放行一个试探请求，成功则恢复，失败则重新熔断。
+ */
+public class RpcEndpoint {
+
+    /** 熔断器状态 */
+    public enum CircuitState {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /** EWMA平滑系数，越大越偏向最近的样本 */
+    private static final double EWMA_ALPHA = 0.3;
+
+    private final String name;
+
+    private final Web3jService service;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicLong totalRequests = new AtomicLong();
+
+    private final AtomicLong totalFailures = new AtomicLong();
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    private volatile double latencyEwmaMillis;
+
+    private volatile boolean latencySampled;
+
+    private volatile long ejectedUntil;
+
+    /** 半开状态下是否已有试探请求在途 */
+    private final AtomicBoolean trialInFlight = new AtomicBoolean();
+
+    private volatile long headBlock = -1;
+
+    public RpcEndpoint(String url, Web3jService service) {
+        this.name = describe(url);
+        this.service = service;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Web3jService getService() {
+        return service;
+    }
+
+    /**
+     * 路由评分，越低越优先
+     *
+     * 延迟乘以（在途请求数 + 1），使得繁忙的快节点和空闲的慢节点可以互相平衡。
+     * 尚未采样的节点评分为0，会被优先尝试一次。
+     */
+    public double score() {
+        return latencyEwmaMillis * (inFlight.get() + 1);
+    }
+
+    void requestStarted() {
+        inFlight.incrementAndGet();
+        totalRequests.incrementAndGet();
+    }
+
+    void requestSucceeded(long latencyNanos) {
+        inFlight.decrementAndGet();
+        consecutiveFailures.set(0);
+        ejectedUntil = 0;
+        trialInFlight.set(false);
+        recordLatency(latencyNanos / 1_000_000.0);
+    }
+
+    void requestFailed(int ejectThreshold, long ejectMillis) {
+        inFlight.decrementAndGet();
+        totalFailures.incrementAndGet();
+        // 半开状态的试探请求失败时立即重新熔断
+        boolean trial = trialInFlight.getAndSet(false);
+        if (consecutiveFailures.incrementAndGet() >= ejectThreshold || trial) {
+            ejectedUntil = System.currentTimeMillis() + ejectMillis;
+        }
+    }
+
+    /**
+     * 熔断器当前状态
+     */
+    public CircuitState getCircuitState() {
+        if (ejectedUntil == 0) {
+            return CircuitState.CLOSED;
+        }
+        return isEjected() ? CircuitState.OPEN : CircuitState.HALF_OPEN;
+    }
+
+    /**
+     * 熔断器是否允许向该节点发送请求（不占用试探名额）
+     */
+    boolean isCallPermitted() {
+        switch (getCircuitState()) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                return !trialInFlight.get();
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 选中节点后申请发送许可，半开状态下只有第一个申请者成为试探请求
+     */
+    boolean tryAcquirePermission() {
+        switch (getCircuitState()) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                return trialInFlight.compareAndSet(false, true);
+            default:
+                return false;
+        }
+    }
+
+    private synchronized void recordLatency(double latencyMillis) {
+        if (!latencySampled) {
+            latencyEwmaMillis = latencyMillis;
+            latencySampled = true;
+        } else {
+            latencyEwmaMillis = EWMA_ALPHA * latencyMillis + (1 - EWMA_ALPHA) * latencyEwmaMillis;
+        }
+    }
+
+    /**
+     * 节点是否处于摘除状态
+     */
+    public boolean isEjected() {
+        return System.currentTimeMillis() < ejectedUntil;
+    }
+
+    /**
+     * 健康检查成功后恢复节点
+     */
+    void restore() {
+        consecutiveFailures.set(0);
+        ejectedUntil = 0;
+        trialInFlight.set(false);
+    }
+
+    public long getHeadBlock() {
+        return headBlock;
+    }
+
+    void updateHeadBlock(long blockNumber) {
+        if (blockNumber > headBlock) {
+            headBlock = blockNumber;
+        }
+    }
+
+    public double getLatencyEwmaMillis() {
+        return latencyEwmaMillis;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getTotalRequests() {
+        return totalRequests.get();
+    }
+
+    public long getTotalFailures() {
+        return totalFailures.get();
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+    /**
+     * 只保留协议、主机和端口，避免在日志和接口中泄露URL路径里的项目ID
+     */
+    private static String describe(String url) {
+        try {
+            URI uri = URI.create(url);
+            if (uri.getHost() == null) {
+                return url;
+            }
+            return uri.getScheme() + "://" + uri.getHost() + (uri.getPort() > 0 ? ":" + uri.getPort() : "");
+        } catch (IllegalArgumentException e) {
+            return url;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RpcEndpoint{" +
+                "name='" + name + '\'' +
+                ", latencyEwmaMillis=" + latencyEwmaMillis +
+                ", inFlight=" + inFlight.get() +
+                ", headBlock=" + headBlock +
+                ", circuit=" + getCircuitState() +
+                '}';
+    }
+}
@@ -0,0 +1,565 @@
+package com.blockchain.learning.rpc;
+
+import com.blockchain.learning.config.RpcProperties;
+import io.reactivex.Flowable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthBlockNumber;
+import org.web3j.protocol.exceptions.ClientConnectionException;
+import org.web3j.protocol.websocket.events.Notification;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 多节点RPC连接池
+ *
+ * 作为 {@link Web3jService} 放在 {@code Web3j} 之下，对上层代码透明。
+ * 每次调用按延迟EWMA和在途请求数选择评分最低的节点；节点失败时自动切换到下一个节点，
+ * 连续失败的节点会被熔断，区块高度明显落后的节点不参与路由。
+ *
+ * 幂等的只读请求在所有节点都试过之后仍可按随机退避（full jitter）重试，
+ * 并且在超过近期p95延迟仍未返回时向另一个节点发出对冲请求，取先返回的结果。
+ * 切换、重试和对冲都受重试预算限制，节点整体故障时不会产生重试风暴。
+ */
+public class RpcEndpointPool implements Web3jService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RpcEndpointPool.class);
+
+    /** 幂等的只读方法，可以重复发送和对冲 */
+    private static final Set<String> IDEMPOTENT_METHODS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "eth_blockNumber",
+            "eth_chainId",
+            "net_version",
+            "web3_clientVersion",
+            "eth_gasPrice",
+            "eth_feeHistory",
+            "eth_getBalance",
+            "eth_getCode",
+            "eth_getTransactionCount",
+            "eth_call",
+            "eth_getBlockByNumber",
+            "eth_getBlockByHash",
+            "eth_getTransactionByHash",
+            "eth_getTransactionReceipt",
+            "eth_getLogs")));
+
+    /** 用于计算对冲延迟的样本数 */
+    private static final int LATENCY_WINDOW_SIZE = 1024;
+
+    private final List<RpcEndpoint> endpoints;
+
+    private final long maxBlockLag;
+
+    private final int ejectThreshold;
+
+    private final long ejectMillis;
+
+    private final long healthCheckMillis;
+
+    private final RpcProperties.Retry retrySettings;
+
+    private final RpcProperties.Hedge hedgeSettings;
+
+    private final RetryBudget retryBudget;
+
+    private final LatencyWindow latencyWindow = new LatencyWindow(LATENCY_WINDOW_SIZE);
+
+    private final ScheduledExecutorService timer;
+
+    private final AtomicLong retries = new AtomicLong();
+
+    private final AtomicLong hedges = new AtomicLong();
+
+    private final AtomicLong hedgeWins = new AtomicLong();
+
+    private ScheduledExecutorService healthChecker;
+
+    private volatile boolean closed;
+
+    public RpcEndpointPool(List<RpcEndpoint> endpoints, RpcProperties properties) {
+        if (endpoints == null || endpoints.isEmpty()) {
+            throw new IllegalArgumentException("At least one RPC endpoint is required");
+        }
+        this.endpoints = Collections.unmodifiableList(new ArrayList<>(endpoints));
+        this.maxBlockLag = properties.getMaxBlockLag();
+        this.ejectThreshold = properties.getEjectThreshold();
+        this.ejectMillis = properties.getEjectDuration().toMillis();
+        this.healthCheckMillis = properties.getHealthCheckInterval().toMillis();
+        this.retrySettings = properties.getRetry();
+        this.hedgeSettings = properties.getHedge();
+        this.retryBudget = new RetryBudget(retrySettings.getBudgetRatio(), retrySettings.getBudgetMinPerSecond(),
+                retrySettings.getBudgetMaxTokens());
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rpc-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 启动后台健康检查
+     *
+     * 只有一个节点时没有可切换的目标，不启动健康检查。
+     */
+    public synchronized void start() {
+        if (endpoints.size() < 2 || healthChecker != null) {
+            return;
+        }
+        healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rpc-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecker.scheduleWithFixedDelay(this::checkHealth, 0, healthCheckMillis, TimeUnit.MILLISECONDS);
+        logger.info("RPC endpoint pool started with {} endpoints", endpoints.size());
+    }
+
+    /**
+     * 对所有节点发送 eth_blockNumber，更新区块高度并恢复已经健康的节点
+     */
+    public void checkHealth() {
+        for (RpcEndpoint endpoint : endpoints) {
+            Request<String, EthBlockNumber> probe = new Request<>(
+                    "eth_blockNumber", Collections.<String>emptyList(), endpoint.getService(), EthBlockNumber.class);
+            endpoint.requestStarted();
+            long start = System.nanoTime();
+            try {
+                EthBlockNumber response = probe.send();
+                if (response.hasError()) {
+                    throw new IOException(response.getError().getMessage());
+                }
+                endpoint.requestSucceeded(System.nanoTime() - start);
+                endpoint.updateHeadBlock(response.getBlockNumber().longValue());
+                endpoint.restore();
+            } catch (IOException | RuntimeException e) {
+                endpoint.requestFailed(ejectThreshold, ejectMillis);
+                logger.debug("Health check failed for {}: {}", endpoint.getName(), e.getMessage());
+            }
+        }
+    }
+
+    public List<RpcEndpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * 所有节点中已知的最高区块号
+     */
+    public long getHighestHeadBlock() {
+        long highest = -1;
+        for (RpcEndpoint endpoint : endpoints) {
+            highest = Math.max(highest, endpoint.getHeadBlock());
+        }
+        return highest;
+    }
+
+    /**
+     * 节点是否落后于最高区块超过允许范围
+     */
+    public boolean isLagging(RpcEndpoint endpoint) {
+        return isLagging(endpoint, getHighestHeadBlock());
+    }
+
+    private boolean isLagging(RpcEndpoint endpoint, long highestHead) {
+        return endpoint.getHeadBlock() >= 0 && highestHead - endpoint.getHeadBlock() > maxBlockLag;
+    }
+
+    /**
+     * 选择评分最低的可用节点
+     *
+     * 熔断中的节点直接跳过；所有未熔断的节点都落后时，仍然在未尝试过的节点中选择评分最低的一个。
+     */
+    RpcEndpoint select(Set<RpcEndpoint> tried) {
+        long highestHead = getHighestHeadBlock();
+        RpcEndpoint best = null;
+        RpcEndpoint fallback = null;
+        for (RpcEndpoint endpoint : endpoints) {
+            if (tried.contains(endpoint) || !endpoint.isCallPermitted()) {
+                continue;
+            }
+            double score = endpoint.score();
+            if (fallback == null || score < fallback.score()) {
+                fallback = endpoint;
+            }
+            if (isLagging(endpoint, highestHead)) {
+                continue;
+            }
+            if (best == null || score < best.score()) {
+                best = endpoint;
+            }
+        }
+        return best != null ? best : fallback;
+    }
+
+    /**
+     * 选择节点并取得熔断器的发送许可
+     *
+     * @param allowRepeat 未尝试过的节点都不可用时，是否允许再次选择已经尝试过的节点
+     * @return 可以发送请求的节点，没有时返回null
+     */
+    private RpcEndpoint acquire(Set<RpcEndpoint> tried, boolean allowRepeat) {
+        Set<RpcEndpoint> excluded = new HashSet<>(tried);
+        RpcEndpoint endpoint;
+        while ((endpoint = select(excluded)) != null) {
+            if (endpoint.tryAcquirePermission()) {
+                return endpoint;
+            }
+            // 半开节点的试探名额已被其他请求占用
+            excluded.add(endpoint);
+        }
+        return allowRepeat && !tried.isEmpty() ? acquire(Collections.<RpcEndpoint>emptySet(), false) : null;
+    }
+
+    @Override
+    public <T extends Response> T send(Request request, Class<T> responseType) throws IOException {
+        return execute(request.getMethod(), service -> service.send(request, responseType));
+    }
+
+    @Override
+    public <T extends Response> CompletableFuture<T> sendAsync(Request request, Class<T> responseType) {
+        return executeAsync(request.getMethod(), service -> service.sendAsync(request, responseType));
+    }
+
+    @Override
+    public BatchResponse sendBatch(BatchRequest batchRequest) throws IOException {
+        return execute("batch", service -> service.sendBatch(batchRequest));
+    }
+
+    @Override
+    public CompletableFuture<BatchResponse> sendBatchAsync(BatchRequest batchRequest) {
+        return executeAsync("batch", service -> service.sendBatchAsync(batchRequest));
+    }
+
+    @Override
+    public <T extends Notification<?>> Flowable<T> subscribe(Request request, String unsubscribeMethod,
+                                                             Class<T> responseType) {
+        throw new UnsupportedOperationException("Pooled HTTP endpoints do not support subscriptions");
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        timer.shutdownNow();
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+        for (RpcEndpoint endpoint : endpoints) {
+            endpoint.getService().close();
+        }
+    }
+
+    private <T> T execute(String method, EndpointCall<T> call) throws IOException {
+        boolean idempotent = IDEMPOTENT_METHODS.contains(method);
+        retryBudget.deposit();
+
+        Set<RpcEndpoint> tried = new HashSet<>();
+        Exception lastFailure = null;
+        int attempts = 0;
+        while (true) {
+            if (attempts > 0 && (!idempotent && select(tried) == null || !mayRetry(method, attempts))) {
+                break;
+            }
+            RpcEndpoint endpoint = acquire(tried, idempotent && attempts > 0);
+            if (endpoint == null) {
+                break;
+            }
+            if (attempts > 0 && tried.contains(endpoint)) {
+                // 所有节点都试过了，退避后重试
+                sleep(backoffMillis(attempts));
+            }
+            tried.add(endpoint);
+            attempts++;
+
+            endpoint.requestStarted();
+            long start = System.nanoTime();
+            try {
+                T result = call.call(endpoint.getService());
+                succeeded(endpoint, start, result);
+                return result;
+            } catch (IOException | ClientConnectionException e) {
+                endpoint.requestFailed(ejectThreshold, ejectMillis);
+                logger.warn("RPC call {} failed on {}: {}", method, endpoint.getName(), e.getMessage());
+                lastFailure = e;
+            } catch (RuntimeException e) {
+                endpoint.requestFailed(ejectThreshold, ejectMillis);
+                throw e;
+            }
+        }
+        if (lastFailure == null) {
+            throw noEndpointAvailable();
+        }
+        if (lastFailure instanceof IOException) {
+            throw (IOException) lastFailure;
+        }
+        throw (RuntimeException) lastFailure;
+    }
+
+    /**
+     * {@link #execute} 的异步版本
+     *
+     * 节点失败时在回调中切换到下一个节点，退避和对冲都通过定时器调度，整个过程不阻塞调用线程。
+     */
+    private <T> CompletableFuture<T> executeAsync(String method, AsyncEndpointCall<T> call) {
+        retryBudget.deposit();
+        AsyncCall<T> asyncCall = new AsyncCall<>(method, call);
+        asyncCall.launch(false);
+        asyncCall.scheduleHedge();
+        return asyncCall.result;
+    }
+
+    /**
+     * 一次异步调用的状态：可能同时有一个原始请求和一个对冲请求在途，先成功的结果生效
+     */
+    private final class AsyncCall<T> {
+
+        private final String method;
+
+        private final AsyncEndpointCall<T> call;
+
+        private final boolean idempotent;
+
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private final Set<RpcEndpoint> tried = new HashSet<>();
+
+        private int attempts;
+
+        private int outstanding;
+
+        private Throwable lastFailure;
+
+        private AsyncCall(String method, AsyncEndpointCall<T> call) {
+            this.method = method;
+            this.call = call;
+            this.idempotent = IDEMPOTENT_METHODS.contains(method);
+        }
+
+        private void launch(boolean hedge) {
+            RpcEndpoint endpoint;
+            Throwable failure = null;
+            synchronized (this) {
+                endpoint = acquire(tried, idempotent && attempts > 0);
+                if (endpoint == null) {
+                    if (outstanding == 0) {
+                        failure = lastFailure != null ? lastFailure : noEndpointAvailable();
+                    }
+                } else {
+                    tried.add(endpoint);
+                    attempts++;
+                    outstanding++;
+                }
+            }
+            if (endpoint == null) {
+                if (failure != null) {
+                    result.completeExceptionally(failure);
+                }
+                return;
+            }
+
+            endpoint.requestStarted();
+            long start = System.nanoTime();
+            CompletableFuture<T> attempt;
+            try {
+                attempt = call.call(endpoint.getService());
+            } catch (RuntimeException e) {
+                attempt = new CompletableFuture<>();
+                attempt.completeExceptionally(e);
+            }
+            attempt.whenComplete((value, error) -> completed(endpoint, start, hedge, value, error));
+        }
+
+        private void completed(RpcEndpoint endpoint, long start, boolean hedge, T value, Throwable error) {
+            synchronized (this) {
+                outstanding--;
+            }
+            if (error == null) {
+                succeeded(endpoint, start, value);
+                if (result.complete(value) && hedge) {
+                    hedgeWins.incrementAndGet();
+                }
+                return;
+            }
+
+            endpoint.requestFailed(ejectThreshold, ejectMillis);
+            Throwable cause = unwrap(error);
+            if (!(cause instanceof IOException || cause instanceof ClientConnectionException)) {
+                result.completeExceptionally(cause);
+                return;
+            }
+            logger.warn("RPC call {} failed on {}: {}", method, endpoint.getName(), cause.getMessage());
+
+            boolean repeat;
+            boolean giveUp;
+            synchronized (this) {
+                lastFailure = cause;
+                // 另一个请求仍在途时由它决定结果
+                if (result.isDone() || outstanding > 0) {
+                    return;
+                }
+                repeat = select(tried) == null;
+                giveUp = repeat && !idempotent || !mayRetry(method, attempts);
+            }
+            if (giveUp) {
+                result.completeExceptionally(cause);
+            } else if (repeat) {
+                schedule(() -> launch(false), backoffMillis(attempts));
+            } else {
+                launch(false);
+            }
+        }
+
+        /**
+         * 近期延迟样本足够时，在p95延迟之后发出对冲请求
+         */
+        private void scheduleHedge() {
+            long delay = getHedgeDelayMillis();
+            if (!idempotent || delay < 0 || result.isDone()) {
+                return;
+            }
+            schedule(() -> {
+                synchronized (this) {
+                    if (result.isDone() || attempts >= retrySettings.getMaxAttempts() || outstanding == 0) {
+                        return;
+                    }
+                }
+                if (retryBudget.tryWithdraw()) {
+                    hedges.incrementAndGet();
+                    logger.debug("RPC call {} exceeded {} ms, sending hedged request", method, delay);
+                    launch(true);
+                }
+            }, delay);
+        }
+    }
+
+    /**
+     * 是否还可以再尝试一次：次数未到上限且重试预算中有令牌
+     */
+    private boolean mayRetry(String method, int attempts) {
+        if (attempts >= retrySettings.getMaxAttempts()) {
+            return false;
+        }
+        if (!retryBudget.tryWithdraw()) {
+            logger.warn("Retry budget exhausted, not retrying RPC call {}", method);
+            return false;
+        }
+        retries.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * 第n次重试的退避时间，在 [0, min(maxBackoff, base * 2^(n-1))] 内随机
+     */
+    private long backoffMillis(int attempts) {
+        long base = retrySettings.getBaseBackoff().toMillis();
+        long cap = Math.min(retrySettings.getMaxBackoff().toMillis(), base << Math.min(attempts - 1, 20));
+        return cap <= 0 ? 0 : ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    private void schedule(Runnable task, long delayMillis) {
+        if (closed) {
+            return;
+        }
+        timer.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static void sleep(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while backing off before RPC retry");
+        }
+    }
+
+    private IOException noEndpointAvailable() {
+        return new IOException("No RPC endpoint available: circuit breakers are open for all "
+                + endpoints.size() + " endpoints");
+    }
+
+    private void succeeded(RpcEndpoint endpoint, long start, Object result) {
+        long latencyNanos = System.nanoTime() - start;
+        endpoint.requestSucceeded(latencyNanos);
+        latencyWindow.record(latencyNanos / 1_000_000);
+        observe(endpoint, result);
+    }
+
+    /**
+     * 当前的对冲延迟（毫秒），样本不足或未启用对冲时返回-1
+     */
+    public long getHedgeDelayMillis() {
+        if (!hedgeSettings.isEnabled() || latencyWindow.size() < hedgeSettings.getMinSamples()) {
+            return -1;
+        }
+        return Math.max(hedgeSettings.getMinDelay().toMillis(), latencyWindow.percentile(hedgeSettings.getPercentile()));
+    }
+
+    public RetryBudget getRetryBudget() {
+        return retryBudget;
+    }
+
+    /**
+     * 切换节点或退避重试的次数
+     */
+    public long getRetries() {
+        return retries.get();
+    }
+
+    /**
+     * 发出的对冲请求数
+     */
+    public long getHedges() {
+        return hedges.get();
+    }
+
+    /**
+     * 对冲请求先于原始请求返回的次数
+     */
+    public long getHedgeWins() {
+        return hedgeWins.get();
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * 顺带从 eth_blockNumber 响应中更新节点的区块高度，减少额外的健康检查请求
+     */
+    private void observe(RpcEndpoint endpoint, Object result) {
+        if (result instanceof EthBlockNumber && !((EthBlockNumber) result).hasError()) {
+            endpoint.updateHeadBlock(((EthBlockNumber) result).getBlockNumber().longValue());
+        }
+    }
+
+    @FunctionalInterface
+    private interface EndpointCall<T> {
+        T call(Web3jService service) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface AsyncEndpointCall<T> {
+        CompletableFuture<T> call(Web3jService service);
+    }
+}
@@ -0,0 +1,123 @@
+package com.blockchain.learning.rpc;
+
+import com.blockchain.learning.config.RpcProperties;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.web3j.protocol.http.HttpService;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 所有RPC节点共享的HTTP传输层
+ *
+ * 在web3j默认OkHttp客户端的基础上，按配置设置连接池和调度器大小，在TLS连接上协商HTTP/2，
+ * 并通过 {@link TransportMetrics} 统计连接复用情况。gzip由OkHttp透明处理：
+ * 只要调用方没有自行设置 Accept-Encoding，OkHttp就会请求gzip并在读取时解压。
+ */
+public class RpcHttpTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(RpcHttpTransport.class);
+
+    private final OkHttpClient client;
+
+    private final TransportMetrics metrics;
+
+    private final int warmupConnections;
+
+    public RpcHttpTransport(RpcProperties.Transport settings) {
+        this.metrics = new TransportMetrics();
+        this.warmupConnections = settings.getWarmupConnections();
+
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(settings.getMaxRequests());
+        dispatcher.setMaxRequestsPerHost(settings.getMaxRequestsPerHost());
+
+        List<Protocol> protocols = settings.isHttp2()
+                ? Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1)
+                : Collections.singletonList(Protocol.HTTP_1_1);
+
+        this.client = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(settings.getMaxIdleConnections(),
+                        settings.getKeepAlive().toMillis(), TimeUnit.MILLISECONDS))
+                .dispatcher(dispatcher)
+                .protocols(protocols)
+                .connectTimeout(settings.getConnectTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .readTimeout(settings.getReadTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .retryOnConnectionFailure(true)
+                .eventListener(metrics)
+                .build();
+    }
+
+    /**
+     * 为指定节点创建使用共享客户端的 {@link HttpService}
+     *
+     * 异步请求通过OkHttp调度器发送，不占用调用线程，见 {@link AsyncHttpService}。
+     */
+    public HttpService createService(String url) {
+        return new AsyncHttpService(url, client);
+    }
+
+    /**
+     * 异步地为每个节点预先建立连接
+     *
+     * 发送不带请求体的HEAD请求，只为完成DNS解析、TCP连接和TLS握手，响应状态码无关紧要。
+     * 连接建立后留在连接池中，供之后的RPC请求复用。
+     */
+    public void warmUp(List<String> urls) {
+        if (warmupConnections <= 0) {
+            return;
+        }
+        for (String url : urls) {
+            for (int i = 0; i < warmupConnections; i++) {
+                Request request = new Request.Builder().url(url).head().build();
+                client.newCall(request).enqueue(new Callback() {
+                    @Override
+                    public void onResponse(Call call, Response response) {
+                        response.close();
+                    }
+
+                    @Override
+                    public void onFailure(Call call, IOException e) {
+                        logger.debug("Connection warm-up failed: {}", e.getMessage());
+                    }
+                });
+            }
+        }
+    }
+
+    public TransportMetrics getMetrics() {
+        return metrics;
+    }
+
+    public int getIdleConnectionCount() {
+        return client.connectionPool().idleConnectionCount();
+    }
+
+    public int getConnectionCount() {
+        return client.connectionPool().connectionCount();
+    }
+
+    public OkHttpClient getClient() {
+        return client;
+    }
+
+    /**
+     * 关闭连接池和调度器线程
+     */
+    public void close() {
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+}
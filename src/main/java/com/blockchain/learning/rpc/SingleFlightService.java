@@ -0,0 +1,233 @@
+package com.blockchain.learning.rpc;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.reactivex.Flowable;
+import org.web3j.protocol.ObjectMapperFactory;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.websocket.events.Notification;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 合并相同的在途RPC请求（single-flight）
+ *
+ * 新区块到达时大量客户端会同时查询最新区块、Gas价格等，产生许多完全相同的RPC请求。
+ * 这里以 方法名 + 参数 为键，同一时刻只向节点发送一个请求，其余调用者等待并共享同一个响应。
+ * 请求完成后立即移出，不做任何缓存：之后到达的调用会重新发起请求。
+ *
+ * 发送交易、签名以及有状态的过滤器相关方法不参与合并；批量请求直接透传。
+ */
+public class SingleFlightService implements Web3jService {
+
+    /** 有副作用或依赖服务端状态的方法，每次调用都必须真正发送 */
+    private static final Set<String> NON_COALESCABLE_METHODS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "eth_sendRawTransaction",
+            "eth_sendTransaction",
+            "eth_sign",
+            "eth_signTransaction",
+            "eth_newFilter",
+            "eth_newBlockFilter",
+            "eth_newPendingTransactionFilter",
+            "eth_uninstallFilter",
+            "eth_getFilterChanges")));
+
+    private final Web3jService delegate;
+
+    private final ObjectMapper objectMapper = ObjectMapperFactory.getObjectMapper();
+
+    private final Map<String, CompletableFuture<Response<?>>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong requests = new AtomicLong();
+
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public SingleFlightService(Web3jService delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends Response> T send(Request request, Class<T> responseType) throws IOException {
+        String key = keyOf(request, responseType);
+        if (key == null) {
+            return delegate.send(request, responseType);
+        }
+
+        requests.incrementAndGet();
+        CompletableFuture<Response<?>> leader = new CompletableFuture<>();
+        CompletableFuture<Response<?>> existing = inFlight.putIfAbsent(key, leader);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return (T) await(existing);
+        }
+
+        try {
+            T response = delegate.send(request, responseType);
+            inFlight.remove(key, leader);
+            leader.complete(response);
+            return response;
+        } catch (IOException | RuntimeException e) {
+            inFlight.remove(key, leader);
+            leader.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends Response> CompletableFuture<T> sendAsync(Request request, Class<T> responseType) {
+        String key = keyOf(request, responseType);
+        if (key == null) {
+            return delegate.sendAsync(request, responseType);
+        }
+
+        requests.incrementAndGet();
+        CompletableFuture<Response<?>> leader = new CompletableFuture<>();
+        CompletableFuture<Response<?>> existing = inFlight.putIfAbsent(key, leader);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return (CompletableFuture<T>) (CompletableFuture<?>) follow(existing);
+        }
+
+        CompletableFuture<T> upstream;
+        try {
+            upstream = delegate.sendAsync(request, responseType);
+        } catch (RuntimeException e) {
+            upstream = new CompletableFuture<>();
+            upstream.completeExceptionally(e);
+        }
+        upstream.whenComplete((response, error) -> {
+            inFlight.remove(key, leader);
+            if (error != null) {
+                leader.completeExceptionally(unwrap(error));
+            } else {
+                leader.complete(response);
+            }
+        });
+        return (CompletableFuture<T>) (CompletableFuture<?>) follow(leader);
+    }
+
+    /**
+     * 每个调用方拿到各自的Future：某个调用方取消或手动完成自己的Future，不影响其他调用方
+     */
+    private static CompletableFuture<Response<?>> follow(CompletableFuture<Response<?>> leader) {
+        CompletableFuture<Response<?>> follower = new CompletableFuture<>();
+        leader.whenComplete((response, error) -> {
+            if (error != null) {
+                follower.completeExceptionally(error);
+            } else {
+                follower.complete(response);
+            }
+        });
+        return follower;
+    }
+
+    @Override
+    public BatchResponse sendBatch(BatchRequest batchRequest) throws IOException {
+        return delegate.sendBatch(batchRequest);
+    }
+
+    @Override
+    public CompletableFuture<BatchResponse> sendBatchAsync(BatchRequest batchRequest) {
+        return delegate.sendBatchAsync(batchRequest);
+    }
+
+    @Override
+    public <T extends Notification<?>> Flowable<T> subscribe(Request request, String unsubscribeMethod,
+                                                             Class<T> responseType) {
+        return delegate.subscribe(request, unsubscribeMethod, responseType);
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    /**
+     * 参与合并的调用总数
+     */
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * 共享了其他调用响应、没有单独发送的调用数
+     */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    /**
+     * 实际发送到节点的请求数
+     */
+    public long getUpstreamRequests() {
+        return requests.get() - coalesced.get();
+    }
+
+    /**
+     * 合并比例：被合并的调用占全部调用的比例
+     */
+    public double getCoalescingRatio() {
+        long total = requests.get();
+        return total == 0 ? 0.0 : (double) coalesced.get() / total;
+    }
+
+    /**
+     * 当前正在等待响应的不同请求数
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * 计算合并键，不可合并的请求返回null
+     */
+    private String keyOf(Request<?, ?> request, Class<?> responseType) {
+        if (NON_COALESCABLE_METHODS.contains(request.getMethod())) {
+            return null;
+        }
+        try {
+            String key = request.getMethod() + objectMapper.writeValueAsString(request.getParams())
+                    + responseType.getName();
+            if (request instanceof AttributedRequest) {
+                key += objectMapper.writeValueAsString(((AttributedRequest<?, ?>) request).getAttributes());
+            }
+            return key;
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private static Response<?> await(CompletableFuture<Response<?>> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
@@ -0,0 +1,111 @@
+package com.blockchain.learning.rpc;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HTTP传输层计数器
+ *
+ * 作为OkHttp的 {@link EventListener} 注册，统计新建连接、TLS握手、连接复用和gzip响应的次数，
+ * 用来判断连接池配置是否合适：复用率低说明请求在反复支付握手开销。
+ */
+public class TransportMetrics extends EventListener {
+
+    private final AtomicLong callsStarted = new AtomicLong();
+
+    private final AtomicLong callsFailed = new AtomicLong();
+
+    private final AtomicLong connectionsOpened = new AtomicLong();
+
+    private final AtomicLong tlsHandshakes = new AtomicLong();
+
+    private final AtomicLong connectionsAcquired = new AtomicLong();
+
+    private final AtomicLong http2Connections = new AtomicLong();
+
+    private final AtomicLong gzipResponses = new AtomicLong();
+
+    @Override
+    public void callStart(Call call) {
+        callsStarted.incrementAndGet();
+    }
+
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+        callsFailed.incrementAndGet();
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+        connectionsOpened.incrementAndGet();
+    }
+
+    @Override
+    public void secureConnectEnd(Call call, Handshake handshake) {
+        tlsHandshakes.incrementAndGet();
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+        if (protocol == Protocol.HTTP_2 || protocol == Protocol.H2_PRIOR_KNOWLEDGE) {
+            http2Connections.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void connectionAcquired(Call call, Connection connection) {
+        connectionsAcquired.incrementAndGet();
+    }
+
+    @Override
+    public void responseHeadersEnd(Call call, Response response) {
+        // 网络层响应头，OkHttp在之后才会透明解压
+        if ("gzip".equalsIgnoreCase(response.header("Content-Encoding"))) {
+            gzipResponses.incrementAndGet();
+        }
+    }
+
+    public long getCallsStarted() {
+        return callsStarted.get();
+    }
+
+    public long getCallsFailed() {
+        return callsFailed.get();
+    }
+
+    public long getConnectionsOpened() {
+        return connectionsOpened.get();
+    }
+
+    public long getTlsHandshakes() {
+        return tlsHandshakes.get();
+    }
+
+    public long getConnectionsAcquired() {
+        return connectionsAcquired.get();
+    }
+
+    /**
+     * 复用已有连接的次数（获取连接总数减去新建连接数）
+     */
+    public long getConnectionsReused() {
+        return Math.max(0, connectionsAcquired.get() - connectionsOpened.get());
+    }
+
+    public long getHttp2Connections() {
+        return http2Connections.get();
+    }
+
+    public long getGzipResponses() {
+        return gzipResponses.get();
+    }
+}
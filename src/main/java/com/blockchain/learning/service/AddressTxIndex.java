@@ -0,0 +1,417 @@
+package com.blockchain.learning.service;
+
+import com.blockchain.learning.model.Address20;
+import com.blockchain.learning.model.EtherscanTransaction;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 地址 → 交易的倒排索引，覆盖一段连续的区块
+ *
+ * 每个地址对应一个按区块号升序的倒排表，每项是一个long：区块号 << 16 | 交易序号。
+ * 倒排表按地址第一个字节分成256个分片，每个分片单独加锁，写入一个区块时只短暂锁住涉及的分片，
+ * 查询只锁自己所在的分片。
+ *
+ * 交易本身按区块保存为紧凑的二进制记录（哈希、地址以原始字节保存），查询时才解码成
+ * {@link EtherscanTransaction}。只能在末尾追加或回滚区块、在开头淘汰区块，覆盖范围始终连续。
+ * {@link #bytes()} 是交易记录和倒排项占用堆内存的估计值，供调用方限制索引大小。
+ */
+class AddressTxIndex {
+
+    static final int SHARDS = 256;
+
+    /** 交易序号占用的低位 */
+    private static final int INDEX_BITS = 16;
+
+    static final int MAX_TRANSACTIONS_PER_BLOCK = 1 << INDEX_BITS;
+
+    /** 每个区块对象、每条记录数组和每个倒排项的大致开销 */
+    private static final int BLOCK_OVERHEAD_BYTES = 256;
+
+    private static final int RECORD_OVERHEAD_BYTES = 16;
+
+    private static final int POSTING_BYTES = 8;
+
+    private final Shard[] shards = new Shard[SHARDS];
+
+    private final Map<Long, IndexedBlock> blocks = new ConcurrentHashMap<>();
+
+    private volatile long lowest = -1;
+
+    private volatile long highest = -1;
+
+    private volatile long transactions;
+
+    private volatile long bytes;
+
+    AddressTxIndex() {
+        for (int i = 0; i < SHARDS; i++) {
+            shards[i] = new Shard();
+        }
+    }
+
+    /**
+     * 在末尾追加下一个区块
+     *
+     * @throws IllegalArgumentException 区块号与当前末尾不连续，或交易数超过上限
+     */
+    synchronized void append(IndexedBlock block) {
+        if (highest >= 0 && block.number != highest + 1) {
+            throw new IllegalArgumentException("Expected block " + (highest + 1) + " but got " + block.number);
+        }
+        if (block.records.length > MAX_TRANSACTIONS_PER_BLOCK) {
+            throw new IllegalArgumentException("Too many transactions in block " + block.number);
+        }
+        blocks.put(block.number, block);
+        long postings = 0;
+        for (int i = 0; i < block.records.length; i++) {
+            long posting = (block.number << INDEX_BITS) | i;
+            for (Address20 address : block.addresses(i)) {
+                Shard shard = shards[address.firstByte()];
+                synchronized (shard) {
+                    shard.lists.computeIfAbsent(address, key -> new PostingList()).add(posting);
+                }
+                postings++;
+            }
+        }
+        if (lowest < 0) {
+            lowest = block.number;
+        }
+        highest = block.number;
+        transactions += block.records.length;
+        bytes += block.bytes() + postings * POSTING_BYTES;
+    }
+
+    /**
+     * 回滚末尾的区块（链重组）
+     *
+     * @return 回滚的区块，索引为空时返回null
+     */
+    synchronized IndexedBlock removeHighest() {
+        if (highest < 0) {
+            return null;
+        }
+        IndexedBlock block = remove(highest, false);
+        highest = lowest == highest ? -1 : highest - 1;
+        lowest = highest < 0 ? -1 : lowest;
+        return block;
+    }
+
+    /**
+     * 淘汰开头的区块
+     */
+    synchronized void removeLowest() {
+        if (lowest < 0) {
+            return;
+        }
+        remove(lowest, true);
+        lowest = lowest == highest ? -1 : lowest + 1;
+        highest = lowest < 0 ? -1 : highest;
+    }
+
+    private IndexedBlock remove(long number, boolean fromStart) {
+        IndexedBlock block = blocks.remove(number);
+        long postings = 0;
+        for (int i = 0; i < block.records.length; i++) {
+            for (Address20 address : block.addresses(i)) {
+                postings++;
+                Shard shard = shards[address.firstByte()];
+                synchronized (shard) {
+                    PostingList list = shard.lists.get(address);
+                    if (fromStart) {
+                        list.removeFirst();
+                    } else {
+                        list.removeLast();
+                    }
+                    if (list.size == 0) {
+                        shard.lists.remove(address);
+                    }
+                }
+            }
+        }
+        transactions -= block.records.length;
+        bytes -= block.bytes() + postings * POSTING_BYTES;
+        return block;
+    }
+
+    /**
+     * 地址的交易，按区块号和交易序号降序（与Etherscan的 sort=desc 一致）
+     *
+     * @param limit 最多返回的条数
+     */
+    List<EtherscanTransaction> transactions(Address20 address, int limit) {
+        return transactions(address, 0, Long.MAX_VALUE, limit);
+    }
+
+    /**
+     * 地址在 [fromBlock, toBlock] 区间内的交易，按区块号和交易序号降序
+     *
+     * @param limit 最多返回的条数
+     */
+    List<EtherscanTransaction> transactions(Address20 address, long fromBlock, long toBlock, int limit) {
+        long[] postings;
+        Shard shard = shards[address.firstByte()];
+        synchronized (shard) {
+            PostingList list = shard.lists.get(address);
+            postings = list == null ? new long[0] : list.toArray();
+        }
+        List<EtherscanTransaction> result = new ArrayList<>(Math.min(postings.length, limit));
+        for (int i = postings.length - 1; i >= 0 && result.size() < limit; i--) {
+            long number = postings[i] >>> INDEX_BITS;
+            if (number > toBlock) {
+                continue;
+            }
+            if (number < fromBlock) {
+                break;
+            }
+            // 复制倒排表之后区块可能已被淘汰或回滚
+            IndexedBlock block = blocks.get(number);
+            if (block != null) {
+                result.add(block.transaction((int) (postings[i] & (MAX_TRANSACTIONS_PER_BLOCK - 1))));
+            }
+        }
+        return result;
+    }
+
+    IndexedBlock block(long number) {
+        return blocks.get(number);
+    }
+
+    long lowest() {
+        return lowest;
+    }
+
+    long highest() {
+        return highest;
+    }
+
+    int blockCount() {
+        return blocks.size();
+    }
+
+    long transactionCount() {
+        return transactions;
+    }
+
+    long bytes() {
+        return bytes;
+    }
+
+    int addressCount() {
+        int addresses = 0;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                addresses += shard.lists.size();
+            }
+        }
+        return addresses;
+    }
+
+    private static final class Shard {
+
+        private final Map<Address20, PostingList> lists = new HashMap<>();
+    }
+
+    /**
+     * long数组实现的倒排表，开头删除只移动起点，空出的空间超过一半时再整理
+     */
+    private static final class PostingList {
+
+        private long[] items = new long[2];
+
+        private int start;
+
+        private int size;
+
+        void add(long posting) {
+            if (start + size == items.length) {
+                if (start > 0) {
+                    System.arraycopy(items, start, items, 0, size);
+                    start = 0;
+                }
+                if (size == items.length) {
+                    items = Arrays.copyOf(items, size * 2);
+                }
+            }
+            items[start + size++] = posting;
+        }
+
+        void removeFirst() {
+            start++;
+            size--;
+            if (size == 0) {
+                start = 0;
+            }
+        }
+
+        void removeLast() {
+            size--;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOfRange(items, start, start + size);
+        }
+    }
+
+    /**
+     * 一个区块中的全部交易，以紧凑的二进制记录保存
+     *
+     * 每条记录：交易哈希、from、to、合约地址（均为一个字节的长度前缀加原始字节，null写成长度0）、
+     * value和gasPrice（同样带长度前缀）、gasUsed、执行结果（0失败、1成功、2未知）。
+     */
+    static final class IndexedBlock {
+
+        private final long number;
+
+        private final String hash;
+
+        private final String parentHash;
+
+        private final long timestamp;
+
+        private final byte[][] records;
+
+        IndexedBlock(long number, String hash, String parentHash, long timestamp, byte[][] records) {
+            this.number = number;
+            this.hash = hash;
+            this.parentHash = parentHash;
+            this.timestamp = timestamp;
+            this.records = records;
+        }
+
+        long getNumber() {
+            return number;
+        }
+
+        String getHash() {
+            return hash;
+        }
+
+        String getParentHash() {
+            return parentHash;
+        }
+
+        long getTimestamp() {
+            return timestamp;
+        }
+
+        int size() {
+            return records.length;
+        }
+
+        byte[] record(int index) {
+            return records[index];
+        }
+
+        /**
+         * 区块和交易记录占用堆内存的估计值
+         */
+        long bytes() {
+            long size = BLOCK_OVERHEAD_BYTES;
+            for (byte[] record : records) {
+                size += RECORD_OVERHEAD_BYTES + record.length;
+            }
+            return size;
+        }
+
+        /**
+         * 编码一笔交易
+         *
+         * @param success 执行是否成功，未知时为null
+         */
+        static byte[] encode(String hash, String from, String to, String contractAddress, BigInteger value,
+                             BigInteger gasPrice, long gasUsed, Boolean success) {
+            byte[][] fields = {hexBytes(hash), hexBytes(from), hexBytes(to), hexBytes(contractAddress),
+                    value == null ? new byte[0] : value.toByteArray(),
+                    gasPrice == null ? new byte[0] : gasPrice.toByteArray()};
+            int size = 8 + 1;
+            for (byte[] field : fields) {
+                size += 1 + field.length;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            for (byte[] field : fields) {
+                if (field.length > 255) {
+                    throw new IllegalArgumentException("Field too long for transaction record: " + field.length);
+                }
+                buffer.put((byte) field.length);
+                buffer.put(field);
+            }
+            buffer.putLong(gasUsed);
+            buffer.put((byte) (success == null ? 2 : success ? 1 : 0));
+            return buffer.array();
+        }
+
+        /**
+         * 交易涉及的地址（from、to、创建的合约），去重
+         */
+        Set<Address20> addresses(int index) {
+            ByteBuffer buffer = ByteBuffer.wrap(records[index]);
+            skip(buffer);
+            Set<Address20> addresses = new LinkedHashSet<>(4);
+            for (int i = 0; i < 3; i++) {
+                String address = hex(bytes(buffer));
+                Address20 key = Address20.tryFromHex(address);
+                if (key != null) {
+                    addresses.add(key);
+                }
+            }
+            return addresses;
+        }
+
+        /**
+         * 解码成与Etherscan txlist格式相同的交易
+         */
+        EtherscanTransaction transaction(int index) {
+            ByteBuffer buffer = ByteBuffer.wrap(records[index]);
+            EtherscanTransaction transaction = new EtherscanTransaction();
+            transaction.setBlockNumber(Long.toString(number));
+            transaction.setTimeStamp(Long.toString(timestamp));
+            transaction.setHash(hex(bytes(buffer)));
+            transaction.setFrom(orEmpty(hex(bytes(buffer))));
+            // 合约创建交易的to为空字符串，与Etherscan一致
+            transaction.setTo(orEmpty(hex(bytes(buffer))));
+            bytes(buffer);
+            transaction.setValue(decimal(bytes(buffer)));
+            transaction.setGasPrice(decimal(bytes(buffer)));
+            transaction.setGasUsed(Long.toString(buffer.getLong()));
+            transaction.setIsError(buffer.get() == 0 ? "1" : "0");
+            return transaction;
+        }
+
+        private static byte[] hexBytes(String value) {
+            return value == null || value.isEmpty() ? new byte[0] : Numeric.hexStringToByteArray(value);
+        }
+
+        private static String hex(byte[] bytes) {
+            return bytes.length == 0 ? null : Numeric.toHexString(bytes);
+        }
+
+        private static String orEmpty(String value) {
+            return value == null ? "" : value;
+        }
+
+        private static String decimal(byte[] bytes) {
+            return bytes.length == 0 ? "0" : new BigInteger(bytes).toString();
+        }
+
+        private static byte[] bytes(ByteBuffer buffer) {
+            byte[] bytes = new byte[buffer.get() & 0xff];
+            buffer.get(bytes);
+            return bytes;
+        }
+
+        private static void skip(ByteBuffer buffer) {
+            buffer.position(buffer.position() + 1 + (buffer.get(buffer.position()) & 0xff));
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package com.blockchain.learning.service;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 一个区块区间回填任务的进度
+ *
+ * 区间按块（chunk）分给工作线程，已完成的部分保存为合并后的区间集合，检查点就是这个集合：
+ * 重启后只重新处理其中的空隙，已完成的块不会重复请求。
+ *
+ * 块大小自适应：每成功一块增大约四分之一，直到 max-chunk-size；节点因结果过多、批量过大拒绝时
+ * 把这一块对半拆开放回队首，块大小同时减半。普通错误把这一块原样放回，连续失败达到上限后任务失败。
+ *
+ * 检查点格式（大端）：魔数、版本、任务ID、起止区块号、状态、块大小、统计计数、创建时间、
+ * 已完成区间数，随后是每个区间的起止区块号。
+ */
+public class BackfillJob {
+
+    public enum State {
+        RUNNING, COMPLETED, FAILED, CANCELLED
+    }
+
+    private static final int MAGIC = 0x42464a31; // "BFJ1"
+
+    private static final int VERSION = 1;
+
+    private final long id;
+
+    private final long from;
+
+    private final long to;
+
+    private final long createdAt;
+
+    private final int minChunkSize;
+
+    private final int maxChunkSize;
+
+    /** 已完成的区间：起点 → 终点（含），相邻的区间合并 */
+    private final TreeMap<Long, Long> completed = new TreeMap<>();
+
+    /** 拆分或失败后放回的区间，优先于 cursor 之后的新区间分配 */
+    private final Deque<long[]> pending = new ArrayDeque<>();
+
+    /** 尚未分配过的第一个区块 */
+    private long cursor;
+
+    private State state = State.RUNNING;
+
+    private int chunkSize;
+
+    private int inFlight;
+
+    private long completedBlocks;
+
+    private long storedBlocks;
+
+    private long chunks;
+
+    private long splits;
+
+    private long failures;
+
+    private int consecutiveFailures;
+
+    private String lastError;
+
+    /** 本次运行（启动或恢复）的开始时间和完成的区块数，用于计算吞吐 */
+    private long runStartedAt = System.currentTimeMillis();
+
+    private long runBlocks;
+
+    BackfillJob(long id, long from, long to, int initialChunkSize, int minChunkSize, int maxChunkSize) {
+        this(id, from, to, System.currentTimeMillis(), minChunkSize, maxChunkSize);
+        this.chunkSize = clamp(initialChunkSize);
+    }
+
+    private BackfillJob(long id, long from, long to, long createdAt, int minChunkSize, int maxChunkSize) {
+        this.id = id;
+        this.from = from;
+        this.to = to;
+        this.createdAt = createdAt;
+        this.minChunkSize = Math.max(1, minChunkSize);
+        this.maxChunkSize = Math.max(this.minChunkSize, maxChunkSize);
+        this.cursor = from;
+    }
+
+    /**
+     * 分配下一块
+     *
+     * @return [起点, 终点]，任务不在运行或暂时没有可分配的区间时返回null
+     */
+    synchronized long[] claim() {
+        if (state != State.RUNNING) {
+            return null;
+        }
+        long[] range = pending.pollFirst();
+        boolean fresh = range == null;
+        if (fresh) {
+            if (cursor > to) {
+                return null;
+            }
+            range = new long[]{cursor, to};
+        }
+        long end = Math.min(range[1], range[0] + chunkSize - 1);
+        if (fresh) {
+            cursor = end + 1;
+        } else if (end < range[1]) {
+            pending.addFirst(new long[]{end + 1, range[1]});
+        }
+        inFlight++;
+        return new long[]{range[0], end};
+    }
+
+    /**
+     * 一块处理成功
+     *
+     * @param stored 新写入的区块数
+     */
+    synchronized void complete(long start, long end, int stored) {
+        inFlight--;
+        add(start, end);
+        long blocks = end - start + 1;
+        completedBlocks += blocks;
+        runBlocks += blocks;
+        storedBlocks += stored;
+        chunks++;
+        consecutiveFailures = 0;
+        chunkSize = clamp(chunkSize + Math.max(1, chunkSize / 4));
+        if (completedBlocks == getTotalBlocks()) {
+            state = State.COMPLETED;
+        }
+    }
+
+    /**
+     * 节点因区间过大拒绝了这一块：对半拆开放回队首，块大小减半
+     *
+     * @return 已经是最小的块、无法再拆时返回false，调用方按普通失败处理
+     */
+    synchronized boolean split(long start, long end) {
+        if (end - start + 1 <= minChunkSize) {
+            return false;
+        }
+        inFlight--;
+        long middle = start + (end - start) / 2;
+        pending.addFirst(new long[]{middle + 1, end});
+        pending.addFirst(new long[]{start, middle});
+        chunkSize = clamp((int) Math.min(Integer.MAX_VALUE, (end - start + 1) / 2));
+        splits++;
+        return true;
+    }
+
+    /**
+     * 一块处理失败：放回队首稍后重试
+     *
+     * @param maxFailures 连续失败达到这个次数时任务失败
+     */
+    synchronized void fail(long start, long end, String error, int maxFailures) {
+        inFlight--;
+        pending.addFirst(new long[]{start, end});
+        failures++;
+        lastError = error;
+        if (++consecutiveFailures >= maxFailures && state == State.RUNNING) {
+            state = State.FAILED;
+        }
+    }
+
+    /**
+     * 取消：在途的块仍会完成并记录，不再分配新的块
+     */
+    synchronized void cancel() {
+        if (state == State.RUNNING || state == State.FAILED) {
+            state = State.CANCELLED;
+        }
+    }
+
+    /**
+     * 恢复失败或取消的任务
+     */
+    synchronized void resume() {
+        if (state == State.FAILED || state == State.CANCELLED) {
+            state = State.RUNNING;
+            consecutiveFailures = 0;
+            runStartedAt = System.currentTimeMillis();
+            runBlocks = 0;
+        }
+    }
+
+    synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    private void add(long start, long end) {
+        Map.Entry<Long, Long> before = completed.floorEntry(start - 1);
+        if (before != null && before.getValue() >= start - 1) {
+            start = before.getKey();
+            end = Math.max(end, before.getValue());
+        }
+        Map.Entry<Long, Long> after = completed.ceilingEntry(start);
+        while (after != null && after.getKey() <= end + 1) {
+            end = Math.max(end, after.getValue());
+            completed.remove(after.getKey());
+            after = completed.ceilingEntry(start);
+        }
+        completed.put(start, end);
+    }
+
+    private int clamp(int size) {
+        return Math.max(minChunkSize, Math.min(maxChunkSize, size));
+    }
+
+    /**
+     * 编码为检查点
+     */
+    synchronized ByteBuffer encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 4 + 8 * 3 + 1 + 4 + 8 * 5 + 4 + completed.size() * 16);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(id);
+        buffer.putLong(from);
+        buffer.putLong(to);
+        buffer.put((byte) state.ordinal());
+        buffer.putInt(chunkSize);
+        buffer.putLong(storedBlocks);
+        buffer.putLong(chunks);
+        buffer.putLong(splits);
+        buffer.putLong(failures);
+        buffer.putLong(createdAt);
+        buffer.putInt(completed.size());
+        for (Map.Entry<Long, Long> range : completed.entrySet()) {
+            buffer.putLong(range.getKey());
+            buffer.putLong(range.getValue());
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * 从检查点恢复：已完成区间之间的空隙和最后一个区间之后的部分重新排队
+     *
+     * @throws IllegalArgumentException 格式不对或内容损坏
+     */
+    static BackfillJob decode(ByteBuffer buffer, int minChunkSize, int maxChunkSize) {
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IllegalArgumentException("Unknown backfill checkpoint format");
+            }
+            long id = buffer.getLong();
+            long from = buffer.getLong();
+            long to = buffer.getLong();
+            int state = buffer.get();
+            int chunkSize = buffer.getInt();
+            long stored = buffer.getLong();
+            long chunks = buffer.getLong();
+            long splits = buffer.getLong();
+            long failures = buffer.getLong();
+            long createdAt = buffer.getLong();
+            int count = buffer.getInt();
+            if (from < 0 || to < from || state < 0 || state >= State.values().length || count < 0) {
+                throw new IllegalArgumentException("Corrupt backfill checkpoint");
+            }
+
+            BackfillJob job = new BackfillJob(id, from, to, createdAt, minChunkSize, maxChunkSize);
+            job.state = State.values()[state];
+            job.chunkSize = job.clamp(chunkSize);
+            job.storedBlocks = stored;
+            job.chunks = chunks;
+            job.splits = splits;
+            job.failures = failures;
+            long next = from;
+            for (int i = 0; i < count; i++) {
+                long start = buffer.getLong();
+                long end = buffer.getLong();
+                if (start < next || end < start || end > to) {
+                    throw new IllegalArgumentException("Corrupt backfill checkpoint");
+                }
+                if (start > next) {
+                    job.pending.addLast(new long[]{next, start - 1});
+                }
+                job.completed.put(start, end);
+                job.completedBlocks += end - start + 1;
+                next = end + 1;
+            }
+            job.cursor = next;
+            return job;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated backfill checkpoint", e);
+        }
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getFrom() {
+        return from;
+    }
+
+    public long getTo() {
+        return to;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getTotalBlocks() {
+        return to - from + 1;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized long getCompletedBlocks() {
+        return completedBlocks;
+    }
+
+    public synchronized double getProgress() {
+        return (double) completedBlocks / getTotalBlocks();
+    }
+
+    public synchronized long getStoredBlocks() {
+        return storedBlocks;
+    }
+
+    public synchronized int getChunkSize() {
+        return chunkSize;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized long getChunks() {
+        return chunks;
+    }
+
+    public synchronized long getSplits() {
+        return splits;
+    }
+
+    public synchronized long getFailures() {
+        return failures;
+    }
+
+    public synchronized String getLastError() {
+        return lastError;
+    }
+
+    /**
+     * 本次运行的平均吞吐（区块/秒）
+     */
+    public synchronized double getBlocksPerSecond() {
+        long elapsed = System.currentTimeMillis() - runStartedAt;
+        return elapsed <= 0 ? 0.0 : runBlocks * 1000.0 / elapsed;
+    }
+
+    /**
+     * 按当前吞吐估计的剩余秒数，没有吞吐数据时为-1
+     */
+    public synchronized long getEtaSeconds() {
+        double rate = getBlocksPerSecond();
+        return rate <= 0 ? -1 : (long) Math.ceil((getTotalBlocks() - completedBlocks) / rate);
+    }
+}
@@ -0,0 +1,391 @@
+package com.blockchain.learning.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * 历史区块回填
+ *
+ * 把一段已确认的区块区间写入本地区块库：区间按块切分，由 workers 个工作线程并行处理，
+ * 每个线程同时只有一个批量请求在途，所以回填对节点的并发不超过 workers。
+ * 任务按创建顺序处理，前一个任务没有可分配的块时工作线程才转向下一个任务。
+ *
+ * 每个任务的已完成区间定期写入检查点文件（写入前先把区块库刷盘，检查点不会超前于区块库），
+ * 任务结束、取消或失败时立即写入。启动时读回检查点，未完成的任务从空隙处继续。
+ * 块大小的调整见 {@link BackfillJob}。
+ *
+ * 区间是否已确认只在创建任务时核对一次（链头跟踪器不可用时直接询问节点），之后写入区块库以任务的终点为准，
+ * 不依赖链头跟踪器；读到的区块没能写入区块库时这一块按失败处理，不会记为已完成。
+ */
+@Service
+public class BackfillService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BackfillService.class);
+
+    /** 节点因一次请求的结果或批量过大而拒绝时的常见错误信息 */
+    private static final Pattern RANGE_TOO_LARGE = Pattern.compile(
+            "more than \\d+ results|query returned more than|batch size|batch too large|response size exceeded"
+                    + "|response too large|block range (is )?too (large|wide)",
+            Pattern.CASE_INSENSITIVE);
+
+    /** 限流：不能靠拆小请求解决，按普通失败退避 */
+    private static final Pattern RATE_LIMITED = Pattern.compile(
+            "\\b429\\b|too many requests|rate limit|rate-limit|throttl|request limit|capacity exceeded",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final long MAX_BACKOFF_MS = 60_000;
+
+    @Autowired
+    private Web3Service web3Service;
+
+    @Autowired
+    private ChainHeadTracker chainHeadTracker;
+
+    @Autowired
+    private BlockCache blockCache;
+
+    @Autowired
+    private BlockStore blockStore;
+
+    @Value("${blockchain.backfill.enabled:true}")
+    private boolean enabled;
+
+    @Value("${blockchain.backfill.path:./data/backfill}")
+    private String path;
+
+    @Value("${blockchain.backfill.workers:4}")
+    private int workers;
+
+    @Value("${blockchain.backfill.initial-chunk-size:50}")
+    private int initialChunkSize;
+
+    @Value("${blockchain.backfill.min-chunk-size:1}")
+    private int minChunkSize;
+
+    @Value("${blockchain.backfill.max-chunk-size:500}")
+    private int maxChunkSize;
+
+    @Value("${blockchain.backfill.max-failures:10}")
+    private int maxFailures;
+
+    @Value("${blockchain.backfill.retry-backoff-ms:1000}")
+    private long retryBackoffMs;
+
+    @Value("${blockchain.backfill.checkpoint-interval-ms:5000}")
+    private long checkpointIntervalMs;
+
+    /** 按任务ID排序，即创建顺序 */
+    private final Map<Long, BackfillJob> jobs = new ConcurrentSkipListMap<>();
+
+    private final Map<Long, Long> lastCheckpointAt = new ConcurrentHashMap<>();
+
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    /** 有新的块可以分配时唤醒空闲的工作线程 */
+    private final Object signal = new Object();
+
+    private ExecutorService workerPool;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            logger.info("Block backfill is disabled");
+            return;
+        }
+        try {
+            load();
+        } catch (IOException e) {
+            logger.warn("Failed to load backfill checkpoints from {}: {}", path, e.getMessage());
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        workerPool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "backfill-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workers; i++) {
+            workerPool.execute(this::work);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (workerPool == null) {
+            return;
+        }
+        workerPool.shutdownNow();
+        try {
+            workerPool.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (BackfillJob job : jobs.values()) {
+            checkpointQuietly(job);
+        }
+    }
+
+    /**
+     * 创建回填任务
+     *
+     * @throws IllegalArgumentException 区间无效，或包含尚未确认的区块
+     * @throws IllegalStateException 回填或本地区块库未启用
+     */
+    public BackfillJob start(long from, long to) throws IOException {
+        if (!enabled) {
+            throw new IllegalStateException("Block backfill is disabled");
+        }
+        if (!blockStore.isOpen()) {
+            throw new IllegalStateException("Local block store is not open");
+        }
+        if (from < 0 || to < from) {
+            throw new IllegalArgumentException("Invalid block range: " + from + ".." + to);
+        }
+        long confirmed = latestConfirmedBlock();
+        if (to > confirmed) {
+            throw new IllegalArgumentException("Block " + to + " is not confirmed yet, latest confirmed block is "
+                    + confirmed);
+        }
+
+        BackfillJob job = new BackfillJob(nextId.getAndIncrement(), from, to,
+                initialChunkSize, minChunkSize, maxChunkSize);
+        jobs.put(job.getId(), job);
+        checkpoint(job);
+        logger.info("Started backfill job {} for blocks {}..{}", job.getId(), from, to);
+        wakeWorkers();
+        return job;
+    }
+
+    /**
+     * 取消任务，已完成的部分保留在检查点中
+     *
+     * @throws IllegalArgumentException 任务不存在
+     */
+    public BackfillJob cancel(long id) {
+        BackfillJob job = job(id);
+        job.cancel();
+        checkpointQuietly(job);
+        return job;
+    }
+
+    /**
+     * 恢复失败或取消的任务
+     *
+     * @throws IllegalArgumentException 任务不存在
+     */
+    public BackfillJob resume(long id) {
+        BackfillJob job = job(id);
+        job.resume();
+        checkpointQuietly(job);
+        wakeWorkers();
+        return job;
+    }
+
+    public List<BackfillJob> getJobs() {
+        return new ArrayList<>(jobs.values());
+    }
+
+    private BackfillJob job(long id) {
+        BackfillJob job = jobs.get(id);
+        if (job == null) {
+            throw new IllegalArgumentException("Unknown backfill job: " + id);
+        }
+        return job;
+    }
+
+    private long latestConfirmedBlock() throws IOException {
+        BigInteger latest = chainHeadTracker.getLatestBlockNumber();
+        if (latest == null) {
+            latest = web3Service.getLatestBlock().getBlock().getNumber();
+        }
+        return latest.longValue() - blockCache.getConfirmationDepth();
+    }
+
+    private void work() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                if (!runOnce()) {
+                    synchronized (signal) {
+                        signal.wait(1000);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void wakeWorkers() {
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+    }
+
+    /**
+     * 从最早的有可分配区间的任务中取一块并处理
+     *
+     * @return 没有可处理的块时返回false
+     */
+    boolean runOnce() throws InterruptedException {
+        for (BackfillJob job : jobs.values()) {
+            long[] chunk = job.claim();
+            if (chunk != null) {
+                process(job, chunk[0], chunk[1]);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void process(BackfillJob job, long start, long end) throws InterruptedException {
+        try {
+            int stored = Web3Service.await(web3Service.backfillBlocksAsync(start, end, job.getTo()));
+            job.complete(start, end, stored);
+            if (job.getState() == BackfillJob.State.COMPLETED) {
+                logger.info("Backfill job {} completed: {} blocks, {} newly stored", job.getId(),
+                        job.getTotalBlocks(), job.getStoredBlocks());
+            }
+        } catch (IOException | RuntimeException e) {
+            if (isRangeTooLarge(e) && job.split(start, end)) {
+                logger.debug("Backfill job {} split blocks {}..{} after: {}", job.getId(), start, end, e.getMessage());
+            } else {
+                job.fail(start, end, e.getMessage(), maxFailures);
+                logger.warn("Backfill job {} failed on blocks {}..{}: {}", job.getId(), start, end, e.getMessage());
+                if (job.getState() == BackfillJob.State.FAILED) {
+                    logger.warn("Backfill job {} stopped after {} consecutive failures", job.getId(), maxFailures);
+                } else {
+                    int attempt = Math.min(job.getConsecutiveFailures() - 1, 16);
+                    Thread.sleep(Math.min(MAX_BACKOFF_MS, retryBackoffMs << Math.max(0, attempt)));
+                }
+            }
+            wakeWorkers();
+        }
+        checkpointIfDue(job);
+    }
+
+    /**
+     * 错误是否表示这一块的结果或批量太大；限流错误即使同时带有上面的字样也不算
+     */
+    static boolean isRangeTooLarge(Throwable error) {
+        boolean tooLarge = false;
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            String message = cause.getMessage();
+            if (message == null) {
+                continue;
+            }
+            if (RATE_LIMITED.matcher(message).find()) {
+                return false;
+            }
+            tooLarge |= RANGE_TOO_LARGE.matcher(message).find();
+        }
+        return tooLarge;
+    }
+
+    private void checkpointIfDue(BackfillJob job) {
+        Long last = lastCheckpointAt.get(job.getId());
+        if (job.getState() != BackfillJob.State.RUNNING || last == null
+                || System.currentTimeMillis() - last >= checkpointIntervalMs) {
+            checkpointQuietly(job);
+        }
+    }
+
+    private void checkpointQuietly(BackfillJob job) {
+        try {
+            checkpoint(job);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to write checkpoint of backfill job {}: {}", job.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 写入任务的检查点：先编码进度，再把区块库刷盘，最后写临时文件并原子替换
+     */
+    synchronized void checkpoint(BackfillJob job) throws IOException {
+        ByteBuffer buffer = job.encode();
+        blockStore.flush();
+
+        Path dir = Paths.get(path);
+        Files.createDirectories(dir);
+        Path target = dir.resolve(fileName(job.getId()));
+        Path temp = Files.createTempFile(dir, target.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        lastCheckpointAt.put(job.getId(), System.currentTimeMillis());
+    }
+
+    /**
+     * 读回目录中的全部检查点，损坏的文件跳过
+     */
+    void load() throws IOException {
+        Path dir = Paths.get(path);
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        int running = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "job-*.ckpt")) {
+            for (Path file : files) {
+                BackfillJob job;
+                try {
+                    job = BackfillJob.decode(ByteBuffer.wrap(Files.readAllBytes(file)), minChunkSize, maxChunkSize);
+                } catch (IllegalArgumentException e) {
+                    logger.warn("Ignoring backfill checkpoint {}: {}", file, e.getMessage());
+                    continue;
+                }
+                jobs.put(job.getId(), job);
+                nextId.accumulateAndGet(job.getId() + 1, Math::max);
+                if (job.getState() == BackfillJob.State.RUNNING) {
+                    running++;
+                }
+            }
+        }
+        if (!jobs.isEmpty()) {
+            logger.info("Loaded {} backfill jobs from {}, resuming {}", jobs.size(), dir, running);
+        }
+    }
+
+    private static String fileName(long id) {
+        return String.format("job-%06d.ckpt", id);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+}
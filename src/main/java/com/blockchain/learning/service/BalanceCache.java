@@ -0,0 +1,144 @@
+package com.blockchain.learning.service;
+
+import com.blockchain.learning.model.Address20;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.math.BigInteger;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 地址余额缓存
+ *
+ * 按地址缓存余额，并记录查询时的链头区块号。链头不变时余额不会变化，缓存一直有效；
+ * 链头前进（或同一高度发生重组）时所有缓存项立即失效，下一次查询时才按新链头重新获取。
+ *
+ * 链头跟踪器没有就绪时无法判断链头是否变化，这时只按TTL判断缓存是否有效；
+ * TTL同时作为兜底，防止链头长时间没有推进时返回过旧的余额。
+ *
+ * 以定长的 {@link Address20} 作为键，大小写不同的同一地址共用一个缓存项；无法解析的地址不缓存。
+ */
+@Service
+public class BalanceCache {
+
+    private static final long UNKNOWN_BLOCK = -1;
+
+    @Autowired
+    private ChainHeadTracker chainHeadTracker;
+
+    @Value("${blockchain.cache.balances.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${blockchain.cache.balances.ttl-ms:15000}")
+    private long ttlMs;
+
+    private Map<Address20, CachedBalance> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        entries = new LinkedHashMap<Address20, CachedBalance>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Address20, CachedBalance> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        chainHeadTracker.addListener(block -> invalidateAll());
+    }
+
+    /**
+     * 查找缓存的余额
+     *
+     * @param address 地址
+     * @param headBlockNumber 当前链头区块号，未知时为null
+     * @return 仍然有效的余额，未命中时返回null
+     */
+    public synchronized BigInteger get(String address, BigInteger headBlockNumber) {
+        Address20 key = Address20.tryFromHex(address);
+        CachedBalance entry = key == null ? null : entries.get(key);
+        if (entry == null || !isValid(entry, headBlockNumber)) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.balance;
+    }
+
+    /**
+     * 放入余额
+     *
+     * @param headBlockNumber 发起查询时的链头区块号，未知时为null
+     */
+    public synchronized void put(String address, BigInteger headBlockNumber, BigInteger balance) {
+        Address20 key = Address20.tryFromHex(address);
+        if (balance == null || key == null) {
+            return;
+        }
+        long blockNumber = headBlockNumber == null ? UNKNOWN_BLOCK : headBlockNumber.longValue();
+        entries.put(key, new CachedBalance(blockNumber, balance, System.currentTimeMillis()));
+    }
+
+    /**
+     * 链头变化时清空所有缓存项
+     */
+    public synchronized void invalidateAll() {
+        invalidations.addAndGet(entries.size());
+        entries.clear();
+    }
+
+    private boolean isValid(CachedBalance entry, BigInteger headBlockNumber) {
+        if (System.currentTimeMillis() - entry.fetchedAt >= ttlMs) {
+            return false;
+        }
+        return headBlockNumber == null || headBlockNumber.longValue() == entry.blockNumber;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getTtlMs() {
+        return ttlMs;
+    }
+
+    private static final class CachedBalance {
+
+        /** 查询时的链头区块号，未知时为 {@link #UNKNOWN_BLOCK} */
+        private final long blockNumber;
+
+        private final BigInteger balance;
+
+        private final long fetchedAt;
+
+        private CachedBalance(long blockNumber, BigInteger balance, long fetchedAt) {
+            this.blockNumber = blockNumber;
+            this.balance = balance;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.blockchain.learning.service;
+
+import com.blockchain.learning.model.Address20;
+import com.blockchain.learning.rpc.RpcBatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.methods.response.EthBlockNumber;
+import org.web3j.protocol.core.methods.response.EthGetBalance;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 多地址余额查询
+ *
+ * 先确定一个区块号，所有地址的余额都在该区块读取：
+ * Multicall3 可用时通过 {@code getEthBalance} 聚合成少量 eth_call，
+ * 否则把 eth_getBalance 按批次大小拆分成多个JSON-RPC批量请求并行发送。
+ */
+@Service
+public class BalanceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BalanceService.class);
+
+    /** 余额来源：Multicall3 聚合调用 */
+    public static final String SOURCE_MULTICALL = "multicall3";
+
+    /** 余额来源：JSON-RPC 批量请求 */
+    public static final String SOURCE_RPC_BATCH = "rpc-batch";
+
+    @Autowired
+    private Web3j web3j;
+
+    @Autowired
+    private ChainHeadTracker chainHeadTracker;
+
+    @Autowired
+    private BalanceCache balanceCache;
+
+    @Autowired
+    private MulticallService multicallService;
+
+    @Value("${blockchain.balances.batch-size:100}")
+    private int batchSize;
+
+    /**
+     * 在同一区块查询一组地址的余额
+     *
+     * @param addresses 地址列表，重复地址（包括只有大小写不同的写法）只查询一次，结果按请求中的每种写法返回
+     */
+    public CompletableFuture<Balances> getBalancesAsync(List<String> addresses) {
+        // 请求中的每种写法 → 实际查询的写法；无法解析的地址原样查询，由节点报错
+        Map<String, String> queried = new LinkedHashMap<>();
+        Map<Object, String> byKey = new LinkedHashMap<>();
+        for (String address : addresses) {
+            Address20 key = Address20.tryFromHex(address);
+            queried.put(address, byKey.computeIfAbsent(key != null ? key : address, ignored -> address));
+        }
+        List<String> unique = new ArrayList<>(byKey.values());
+
+        return pinBlockNumber()
+                .thenCompose(blockNumber -> multicallService.isAvailableAsync()
+                        .thenCompose(available -> available
+                                ? viaMulticall(unique, blockNumber)
+                                .exceptionally(e -> {
+                                    logger.warn("Multicall3 balance lookup failed, falling back to RPC batches: {}",
+                                            Web3Service.unwrap(e).getMessage());
+                                    return null;
+                                })
+                                : CompletableFuture.completedFuture(null))
+                        .thenCompose(result -> result != null
+                                ? CompletableFuture.completedFuture(result)
+                                : viaRpcBatches(unique, blockNumber)))
+                .thenApply(result -> fanOut(result, queried))
+                .thenApply(this::remember);
+    }
+
+    /**
+     * 把查询结果按请求中的每种写法展开
+     */
+    private static Balances fanOut(Balances result, Map<String, String> queried) {
+        if (queried.size() == result.getBalances().size() + result.getErrors().size()) {
+            return result;
+        }
+        Map<String, BigInteger> balances = new LinkedHashMap<>();
+        Map<String, String> errors = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : queried.entrySet()) {
+            BigInteger balance = result.getBalances().get(entry.getValue());
+            if (balance != null) {
+                balances.put(entry.getKey(), balance);
+            } else if (result.getErrors().containsKey(entry.getValue())) {
+                errors.put(entry.getKey(), result.getErrors().get(entry.getValue()));
+            }
+        }
+        return new Balances(result.getBlockNumber(), result.getSource(), balances, errors);
+    }
+
+    /**
+     * 确定本次查询使用的区块号，优先使用链头跟踪器中的值
+     */
+    private CompletableFuture<BigInteger> pinBlockNumber() {
+        BigInteger tracked = chainHeadTracker.getLatestBlockNumber();
+        if (tracked != null) {
+            return CompletableFuture.completedFuture(tracked);
+        }
+        return web3j.ethBlockNumber().sendAsync().thenApply(EthBlockNumber::getBlockNumber);
+    }
+
+    private CompletableFuture<Balances> viaMulticall(List<String> addresses, BigInteger blockNumber) {
+        List<MulticallService.Call> calls = new ArrayList<>(addresses.size());
+        for (String address : addresses) {
+            calls.add(multicallService.getEthBalance(address));
+        }
+
+        return multicallService.aggregate3Async(calls, DefaultBlockParameter.valueOf(blockNumber))
+                .thenApply(results -> {
+                    Map<String, BigInteger> balances = new LinkedHashMap<>();
+                    Map<String, String> errors = new LinkedHashMap<>();
+                    for (int i = 0; i < addresses.size(); i++) {
+                        MulticallService.Result result = results.get(i);
+                        if (result.isSuccess()) {
+                            balances.put(addresses.get(i), Numeric.toBigInt(result.getReturnData()));
+                        } else {
+                            errors.put(addresses.get(i), "getEthBalance reverted");
+                        }
+                    }
+                    logger.debug("Fetched {} balances at block {} via Multicall3", balances.size(), blockNumber);
+                    return new Balances(blockNumber, SOURCE_MULTICALL, balances, errors);
+                });
+    }
+
+    private CompletableFuture<Balances> viaRpcBatches(List<String> addresses, BigInteger blockNumber) {
+        DefaultBlockParameter block = DefaultBlockParameter.valueOf(blockNumber);
+        List<RpcBatch.Call<EthGetBalance>> calls = new ArrayList<>(addresses.size());
+        List<CompletableFuture<Void>> batches = new ArrayList<>();
+        for (int from = 0; from < addresses.size(); from += batchSize) {
+            RpcBatch batch = new RpcBatch(web3j);
+            for (String address : addresses.subList(from, Math.min(from + batchSize, addresses.size()))) {
+                calls.add(batch.add(web3j.ethGetBalance(address, block)));
+            }
+            batches.add(batch.executeAsync());
+        }
+
+        return CompletableFuture.allOf(batches.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> {
+                    Map<String, BigInteger> balances = new LinkedHashMap<>();
+                    Map<String, String> errors = new LinkedHashMap<>();
+                    for (int i = 0; i < addresses.size(); i++) {
+                        try {
+                            balances.put(addresses.get(i), calls.get(i).get().getBalance());
+                        } catch (IOException | RuntimeException e) {
+                            errors.put(addresses.get(i), e.getMessage());
+                        }
+                    }
+                    logger.debug("Fetched {} balances at block {} in {} RPC batches",
+                            balances.size(), blockNumber, batches.size());
+                    return new Balances(blockNumber, SOURCE_RPC_BATCH, balances, errors);
+                });
+    }
+
+    /**
+     * 查询的区块仍是链头时，顺便填充单地址余额缓存
+     */
+    private Balances remember(Balances result) {
+        if (result.getBlockNumber().equals(chainHeadTracker.getLatestBlockNumber())) {
+            for (Map.Entry<String, BigInteger> entry : result.getBalances().entrySet()) {
+                balanceCache.put(entry.getKey(), result.getBlockNumber(), entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 同一区块的一组余额，不可变
+     */
+    public static final class Balances {
+
+        private final BigInteger blockNumber;
+
+        private final String source;
+
+        private final Map<String, BigInteger> balances;
+
+        private final Map<String, String> errors;
+
+        Balances(BigInteger blockNumber, String source, Map<String, BigInteger> balances, Map<String, String> errors) {
+            this.blockNumber = blockNumber;
+            this.source = source;
+            this.balances = Collections.unmodifiableMap(balances);
+            this.errors = Collections.unmodifiableMap(errors);
+        }
+
+        /**
+         * 所有余额读取自的区块号
+         */
+        public BigInteger getBlockNumber() {
+            return blockNumber;
+        }
+
+        /**
+         * 余额来源，{@link #SOURCE_MULTICALL} 或 {@link #SOURCE_RPC_BATCH}
+         */
+        public String getSource() {
+            return source;
+        }
+
+        /**
+         * 地址到余额（Wei）的映射，保持请求中的地址顺序
+         */
+        public Map<String, BigInteger> getBalances() {
+            return balances;
+        }
+
+        /**
+         * 查询失败的地址及原因
+         */
+        public Map<String, String> getErrors() {
+            return errors;
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package com.blockchain.learning.service;
+
+import com.blockchain.learning.model.BlockSummary;
+import com.blockchain.learning.model.Hash32;
+import com.blockchain.learning.util.LongLongHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.web3j.protocol.core.methods.response.EthBlock;
+
+import javax.annotation.PostConstruct;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 区块缓存
+ *
+ * 按区块号和区块哈希缓存区块摘要，容量满时按LRU淘汰。
+ * 已确认的区块（低于链头减确认深度，或不高于 finalized 区块）内容不会再变化，可以一直保留；
+ * 最近的区块同样缓存，但一旦发现父哈希对不上（链重组），所有未确认的缓存项都会失效。
+ * 父哈希检查只在相邻区块也在缓存中时才起作用，所以未确认的缓存项另有一个很短的存活时间
+ * （unconfirmed-ttl-ms），过期后按未命中处理，重新向节点查询。
+ *
+ * 不知道链头位置时无法判断区块是否已确认，这种情况下只缓存 finalized 区块。
+ *
+ * 堆上只保留最近访问的 max-entries 个区块对象；被LRU淘汰的已确认区块编码后移到堆外的
+ * {@link OffHeapBlockStore}。堆外命中时每次解码出一个短命的对象，不放回堆上：
+ * 零散的历史区块读取放回堆上只会挤掉热点区块，并让老年代不断变化。
+ */
+@Service
+public class BlockCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlockCache.class);
+
+    private static final long NOT_FOUND = -1;
+
+    @Autowired
+    private ChainHeadTracker chainHeadTracker;
+
+    @Value("${blockchain.cache.blocks.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${blockchain.cache.blocks.confirmation-depth:64}")
+    private long confirmationDepth;
+
+    @Value("${blockchain.cache.blocks.unconfirmed-ttl-ms:12000}")
+    private long unconfirmedTtlMs;
+
+    @Value("${blockchain.cache.blocks.off-heap.enabled:true}")
+    private boolean offHeapEnabled;
+
+    @Value("${blockchain.cache.blocks.off-heap.max-mb:256}")
+    private long offHeapMaxMb;
+
+    @Value("${blockchain.cache.blocks.off-heap.slab-mb:16}")
+    private int offHeapSlabMb;
+
+    private OffHeapBlockStore offHeap;
+
+    private Map<Long, BlockSummary> blocksByNumber;
+
+    /** 区块哈希折叠值 → 区块号；折叠值可能冲突，查到后还要核对完整哈希 */
+    private final LongLongHashMap numbersByHash = new LongLongHashMap();
+
+    /** 未确认的区块号 → 放入缓存的时间 */
+    private final Map<Long, Long> unconfirmedSince = new HashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final AtomicLong reorgInvalidations = new AtomicLong();
+
+    private final AtomicLong offHeapHits = new AtomicLong();
+
+    private final AtomicLong expirations = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (offHeapEnabled) {
+            offHeap = new OffHeapBlockStore(offHeapMaxMb << 20, offHeapSlabMb << 20);
+        }
+        blocksByNumber = new LinkedHashMap<Long, BlockSummary>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, BlockSummary> eldest) {
+                if (size() > maxEntries) {
+                    unindex(eldest.getValue());
+                    unconfirmedSince.remove(eldest.getKey());
+                    evictions.incrementAndGet();
+                    if (offHeap != null && isConfirmed(eldest.getKey())) {
+                        offHeap.put(eldest.getValue());
+                    }
+                    return true;
+                }
+                return false;
+            }
+        };
+        chainHeadTracker.addListener(this::put);
+    }
+
+    /**
+     * 按区块号查找缓存
+     *
+     * @return 缓存的区块，未命中时返回null
+     */
+    public synchronized BlockSummary getByNumber(BigInteger blockNumber) {
+        BlockSummary block = live(blocksByNumber.get(blockNumber.longValue()));
+        if (block == null && offHeap != null) {
+            block = offHeapHit(offHeap.get(blockNumber.longValue()));
+        }
+        return record(block);
+    }
+
+    /**
+     * 区块是否已在缓存中，不计入命中统计，也不影响LRU顺序
+     */
+    public synchronized boolean contains(long blockNumber) {
+        return blocksByNumber.containsKey(blockNumber) || (offHeap != null && offHeap.contains(blockNumber));
+    }
+
+    /**
+     * 按区块哈希查找缓存
+     *
+     * @return 缓存的区块，未命中时返回null
+     */
+    public synchronized BlockSummary getByHash(String blockHash) {
+        Hash32 key = Hash32.tryFromHex(blockHash);
+        if (key == null) {
+            return record(null);
+        }
+        long blockNumber = numbersByHash.get(key.fold(), NOT_FOUND);
+        BlockSummary block = blockNumber == NOT_FOUND ? null : blocksByNumber.get(blockNumber);
+        if (block != null && !key.equals(Hash32.fromHex(block.getHash()))) {
+            block = null;
+        }
+        block = live(block);
+        if (block == null && offHeap != null) {
+            block = offHeapHit(offHeap.getByHash(key));
+        }
+        return record(block);
+    }
+
+    /**
+     * 过期的未确认区块从缓存中删除，按未命中处理
+     */
+    private BlockSummary live(BlockSummary block) {
+        if (block == null || unconfirmedTtlMs <= 0) {
+            return block;
+        }
+        Long since = unconfirmedSince.get(block.getNumber());
+        if (since == null) {
+            return block;
+        }
+        if (isConfirmed(block.getNumber())) {
+            unconfirmedSince.remove(block.getNumber());
+            return block;
+        }
+        if (System.currentTimeMillis() - since < unconfirmedTtlMs) {
+            return block;
+        }
+        blocksByNumber.remove(block.getNumber());
+        unindex(block);
+        unconfirmedSince.remove(block.getNumber());
+        expirations.incrementAndGet();
+        return null;
+    }
+
+    private BlockSummary offHeapHit(BlockSummary block) {
+        if (block != null) {
+            offHeapHits.incrementAndGet();
+        }
+        return block;
+    }
+
+    /**
+     * 放入链头跟踪器推送的区块
+     */
+    public void put(EthBlock ethBlock) {
+        if (ethBlock != null) {
+            put(BlockSummary.of(ethBlock.getBlock()));
+        }
+    }
+
+    /**
+     * 放入区块，同时检查与相邻缓存区块的哈希链是否一致
+     */
+    public synchronized void put(BlockSummary block) {
+        if (block == null || Hash32.tryFromHex(block.getHash()) == null) {
+            return;
+        }
+        long number = block.getNumber();
+        String hash = normalize(block.getHash());
+        boolean confirmed = isConfirmed(number);
+        if (!confirmed && chainHeadTracker.getLatestBlockNumber() == null) {
+            return;
+        }
+
+        BlockSummary existing = blocksByNumber.get(number);
+        BlockSummary parent = blocksByNumber.get(number - 1);
+        BlockSummary child = blocksByNumber.get(number + 1);
+        boolean conflict = (existing != null && !hash.equals(normalize(existing.getHash())))
+                || (parent != null && !normalize(parent.getHash()).equals(normalize(block.getParentHash())))
+                || (child != null && !hash.equals(normalize(child.getParentHash())));
+        if (conflict) {
+            if (confirmed && existing != null) {
+                // 已确认的区块不可能被重组，冲突的是来自分叉的新数据
+                logger.warn("Ignoring block {} ({}) that conflicts with a confirmed cached block", number, hash);
+                return;
+            }
+            invalidateUnconfirmed();
+        }
+
+        blocksByNumber.put(number, block);
+        index(block);
+        if (confirmed) {
+            unconfirmedSince.remove(number);
+        } else {
+            unconfirmedSince.put(number, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * 放入从快照恢复的区块，不做确认检查，已有同号区块时保留已有的
+     *
+     * 调用方负责保证区块仍在主链上（已 finalized 或已与节点核对过哈希）。
+     */
+    public synchronized boolean restore(BlockSummary block) {
+        if (block == null || Hash32.tryFromHex(block.getHash()) == null
+                || blocksByNumber.containsKey(block.getNumber())) {
+            return false;
+        }
+        blocksByNumber.put(block.getNumber(), block);
+        index(block);
+        return true;
+    }
+
+    /**
+     * 当前缓存中所有已确认的区块，按区块号升序，不影响LRU顺序
+     */
+    public synchronized List<BlockSummary> confirmedBlocks() {
+        List<BlockSummary> blocks = new ArrayList<>();
+        for (Map.Entry<Long, BlockSummary> entry : blocksByNumber.entrySet()) {
+            if (isConfirmed(entry.getKey())) {
+                blocks.add(entry.getValue());
+            }
+        }
+        blocks.sort(Comparator.comparingLong(BlockSummary::getNumber));
+        return blocks;
+    }
+
+    /**
+     * 区块是否已确认（不会再因链重组而改变）
+     */
+    public boolean isConfirmed(long blockNumber) {
+        BigInteger finalized = chainHeadTracker.getFinalizedBlockNumber();
+        if (finalized != null && blockNumber <= finalized.longValue()) {
+            return true;
+        }
+        BigInteger head = chainHeadTracker.getLatestBlockNumber();
+        return head != null && blockNumber <= head.longValue() - confirmationDepth;
+    }
+
+    /**
+     * 删除所有未确认的缓存项
+     */
+    private void invalidateUnconfirmed() {
+        int removed = 0;
+        Iterator<Map.Entry<Long, BlockSummary>> iterator = blocksByNumber.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, BlockSummary> entry = iterator.next();
+            if (!isConfirmed(entry.getKey())) {
+                unindex(entry.getValue());
+                unconfirmedSince.remove(entry.getKey());
+                iterator.remove();
+                removed++;
+            }
+        }
+        reorgInvalidations.addAndGet(removed);
+        logger.info("Chain reorganization detected, invalidated {} unconfirmed cached blocks", removed);
+    }
+
+    private BlockSummary record(BlockSummary block) {
+        if (block == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return block;
+    }
+
+    private void index(BlockSummary block) {
+        numbersByHash.put(Hash32.fromHex(block.getHash()).fold(), block.getNumber());
+    }
+
+    private void unindex(BlockSummary block) {
+        long key = Hash32.fromHex(block.getHash()).fold();
+        if (numbersByHash.get(key, NOT_FOUND) == block.getNumber()) {
+            numbersByHash.remove(key);
+        }
+    }
+
+    private static String normalize(String hash) {
+        return hash == null ? "" : hash.toLowerCase();
+    }
+
+    public synchronized int size() {
+        return blocksByNumber.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getReorgInvalidations() {
+        return reorgInvalidations.get();
+    }
+
+    public long getExpirations() {
+        return expirations.get();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getConfirmationDepth() {
+        return confirmationDepth;
+    }
+
+    public boolean isOffHeapEnabled() {
+        return offHeap != null;
+    }
+
+    public synchronized int getOffHeapEntries() {
+        return offHeap == null ? 0 : offHeap.size();
+    }
+
+    public synchronized long getOffHeapUsedBytes() {
+        return offHeap == null ? 0 : offHeap.getUsedBytes();
+    }
+
+    public synchronized long getOffHeapAllocatedBytes() {
+        return offHeap == null ? 0 : offHeap.getAllocatedBytes();
+    }
+
+    public long getOffHeapCapacityBytes() {
+        return offHeap == null ? 0 : offHeap.getCapacityBytes();
+    }
+
+    public synchronized long getOffHeapSlabEvictions() {
+        return offHeap == null ? 0 : offHeap.getSlabEvictions();
+    }
+
+    public long getOffHeapHits() {
+        return offHeapHits.get();
+    }
+}
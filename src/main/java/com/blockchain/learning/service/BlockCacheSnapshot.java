@@ -0,0 +1,332 @@
+package com.blockchain.learning.service;
+
+import com.blockchain.learning.model.BlockSummary;
+import com.blockchain.learning.rpc.BlockSummaryResponse;
+import com.blockchain.learning.rpc.RpcBatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.DefaultBlockParameter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 区块缓存快照
+ *
+ * 定期把区块缓存中已确认的区块写入本地的紧凑二进制文件，重启后通过内存映射读回，
+ * 避免每次重启都要向节点重新请求这些区块。
+ *
+ * 写快照时记录当时的 finalized 区块号：不高于它的区块已经不可逆，直接恢复；
+ * 高于它的区块只是按确认深度判断为已确认，恢复前批量向节点核对哈希，对不上的丢弃。
+ *
+ * 文件格式（大端）：魔数、版本、链ID、finalized 区块号（未知为-1）、条目数，随后逐条写入
+ * {@link BlockSummaryCodec} 编码的区块摘要。先写临时文件再原子替换，读到损坏的文件、
+ * 或快照的链ID与节点不一致（节点或网络配置改过）时整体放弃。
+ */
+@Service
+public class BlockCacheSnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlockCacheSnapshot.class);
+
+    private static final int MAGIC = 0x42435331; // "BCS1"
+
+    private static final int VERSION = 2;
+
+    /** 魔数、版本、链ID、finalized 区块号、条目数 */
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4;
+
+    @Autowired
+    private BlockCache blockCache;
+
+    @Autowired
+    private ChainHeadTracker chainHeadTracker;
+
+    @Autowired
+    private Web3Service web3Service;
+
+    @Autowired
+    private Web3jService web3jService;
+
+    @Autowired
+    private NetworkInfoService networkInfoService;
+
+    @Value("${blockchain.cache.blocks.snapshot.enabled:true}")
+    private boolean enabled;
+
+    @Value("${blockchain.cache.blocks.snapshot.path:./data/block-cache.snapshot}")
+    private String path;
+
+    @Value("${blockchain.cache.blocks.snapshot.interval-ms:300000}")
+    private long intervalMs;
+
+    @Value("${blockchain.cache.blocks.snapshot.validate-batch-size:100}")
+    private int validateBatchSize;
+
+    private volatile long lastSavedAt;
+
+    private volatile int lastSavedEntries;
+
+    private volatile long lastSavedBytes;
+
+    private volatile int restored;
+
+    private volatile int validated;
+
+    private volatile int discarded;
+
+    /** 恢复结束前不保存，避免用不完整的缓存覆盖快照 */
+    private volatile boolean restoreFinished;
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            logger.info("Block cache snapshots are disabled");
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "block-cache-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 先恢复，之后定期保存；两者在同一线程上执行，不会互相覆盖
+        scheduler.execute(this::restoreQuietly);
+        scheduler.scheduleWithFixedDelay(this::saveQuietly, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        saveQuietly();
+    }
+
+    /**
+     * 把已确认的缓存区块写入快照文件
+     *
+     * @return 写入的区块数
+     */
+    public synchronized int save() throws IOException {
+        List<BlockSummary> blocks = blockCache.confirmedBlocks();
+        BigInteger finalized = chainHeadTracker.getFinalizedBlockNumber();
+        long chainId = networkInfoService.getChainId();
+
+        Path target = Paths.get(path);
+        Path parent = target.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, target.getFileName().toString(), ".tmp");
+        try {
+            int size = HEADER_BYTES;
+            for (BlockSummary block : blocks) {
+                size += BlockSummaryCodec.encodedSize(block);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putLong(chainId);
+            buffer.putLong(finalized == null ? -1 : finalized.longValue());
+            buffer.putInt(blocks.size());
+            for (BlockSummary block : blocks) {
+                BlockSummaryCodec.encode(block, buffer);
+            }
+            buffer.flip();
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        lastSavedAt = System.currentTimeMillis();
+        lastSavedEntries = blocks.size();
+        lastSavedBytes = Files.size(target);
+        logger.debug("Saved {} cached blocks ({} bytes) to {}", blocks.size(), lastSavedBytes, target);
+        return blocks.size();
+    }
+
+    /**
+     * 从快照文件恢复区块缓存
+     *
+     * @return 恢复的区块数
+     */
+    public synchronized int restore() throws IOException {
+        Path file = Paths.get(path);
+        if (!Files.isRegularFile(file)) {
+            return 0;
+        }
+
+        long snapshotFinalized;
+        List<BlockSummary> blocks;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                logger.warn("Ignoring block cache snapshot {} with unknown format", file);
+                return 0;
+            }
+            long snapshotChainId = buffer.getLong();
+            long chainId = networkInfoService.getChainId();
+            if (snapshotChainId != chainId) {
+                logger.warn("Ignoring block cache snapshot {} from chain {}, the node is on chain {}",
+                        file, snapshotChainId, chainId);
+                return 0;
+            }
+            snapshotFinalized = buffer.getLong();
+            int count = buffer.getInt();
+            blocks = new ArrayList<>(Math.max(0, Math.min(count, blockCache.getMaxEntries())));
+            try {
+                for (int i = 0; i < count; i++) {
+                    blocks.add(BlockSummaryCodec.decode(buffer));
+                }
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                logger.warn("Ignoring truncated block cache snapshot {}", file);
+                return 0;
+            }
+        }
+
+        // 只恢复最近的区块，超出缓存容量的部分恢复了也会被立即淘汰
+        int skip = Math.max(0, blocks.size() - blockCache.getMaxEntries());
+        List<BlockSummary> unfinalized = new ArrayList<>();
+        int restoredBlocks = 0;
+        for (BlockSummary block : blocks.subList(skip, blocks.size())) {
+            if (block.getNumber() <= snapshotFinalized) {
+                if (blockCache.restore(block)) {
+                    restoredBlocks++;
+                }
+            } else {
+                unfinalized.add(block);
+            }
+        }
+        int validatedBlocks = 0;
+        for (int from = 0; from < unfinalized.size(); from += validateBatchSize) {
+            int count = validate(unfinalized.subList(from, Math.min(from + validateBatchSize, unfinalized.size())));
+            validatedBlocks += count;
+            restoredBlocks += count;
+        }
+
+        restored = restoredBlocks;
+        validated = validatedBlocks;
+        discarded = blocks.size() - skip - restoredBlocks;
+        logger.info("Restored {} cached blocks from {} ({} checked against the node, {} discarded)",
+                restoredBlocks, file, unfinalized.size(), discarded);
+        return restoredBlocks;
+    }
+
+    /**
+     * 与节点核对一批未 finalized 的区块，哈希一致的放回缓存
+     *
+     * @return 放回缓存的区块数
+     */
+    private int validate(List<BlockSummary> blocks) {
+        RpcBatch batch = web3Service.newBatch();
+        List<RpcBatch.Call<BlockSummaryResponse>> calls = new ArrayList<>(blocks.size());
+        for (BlockSummary block : blocks) {
+            calls.add(batch.add(BlockSummaryResponse.byNumber(
+                    web3jService, DefaultBlockParameter.valueOf(BigInteger.valueOf(block.getNumber())), false)));
+        }
+        try {
+            batch.execute();
+        } catch (IOException e) {
+            logger.warn("Could not validate {} snapshot blocks, discarding them: {}", blocks.size(), e.getMessage());
+            return 0;
+        }
+
+        int accepted = 0;
+        for (int i = 0; i < blocks.size(); i++) {
+            BlockSummary cached = blocks.get(i);
+            try {
+                BlockSummary current = calls.get(i).get().getBlock();
+                if (current != null && cached.getHash().equalsIgnoreCase(current.getHash())
+                        && blockCache.restore(cached)) {
+                    accepted++;
+                }
+            } catch (IOException e) {
+                logger.debug("Discarding snapshot block {}: {}", cached.getNumber(), e.getMessage());
+            }
+        }
+        return accepted;
+    }
+
+    private void saveQuietly() {
+        if (!restoreFinished) {
+            return;
+        }
+        try {
+            save();
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to save block cache snapshot to {}: {}", path, e.getMessage());
+        }
+    }
+
+    private void restoreQuietly() {
+        try {
+            restore();
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to restore block cache snapshot from {}: {}", path, e.getMessage());
+        } finally {
+            restoreFinished = !Thread.currentThread().isInterrupted();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public long getLastSavedAt() {
+        return lastSavedAt;
+    }
+
+    public int getLastSavedEntries() {
+        return lastSavedEntries;
+    }
+
+    public long getLastSavedBytes() {
+        return lastSavedBytes;
+    }
+
+    public int getRestored() {
+        return restored;
+    }
+
+    public int getValidated() {
+        return validated;
+    }
+
+    public int getDiscarded() {
+        return discarded;
+    }
+}
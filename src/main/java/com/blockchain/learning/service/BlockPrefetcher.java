@@ -0,0 +1,307 @@
+package com.blockchain.learning.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigInteger;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 区块预取
+ *
+ * 按客户端记录 {@code /blocks/{n}} 的访问序列，连续多次访问相邻区块（向前或向后）时，
+ * 异步把接下来的K个区块读入 {@link BlockCache}，顺序扫描因此以缓存速度而不是往返时延推进。
+ *
+ * 预取深度K按"节点往返时延 / 客户端访问间隔"估计，即在一次预取完成之前客户端还会读多少个区块，
+ * 再限制在 [min-depth, max-depth] 之间。客户端跳到别处或改变方向时取消尚未完成的预取。
+ */
+@Service
+public class BlockPrefetcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlockPrefetcher.class);
+
+    /** 访问间隔和预取时延EWMA的平滑系数 */
+    private static final double ALPHA = 0.3;
+
+    @Autowired
+    private Web3Service web3Service;
+
+    @Autowired
+    private ChainHeadTracker chainHeadTracker;
+
+    @Value("${blockchain.cache.blocks.prefetch.enabled:true}")
+    private boolean enabled;
+
+    @Value("${blockchain.cache.blocks.prefetch.trigger:2}")
+    private int trigger;
+
+    @Value("${blockchain.cache.blocks.prefetch.min-depth:4}")
+    private int minDepth;
+
+    @Value("${blockchain.cache.blocks.prefetch.max-depth:64}")
+    private int maxDepth;
+
+    @Value("${blockchain.cache.blocks.prefetch.max-streams:1024}")
+    private int maxStreams;
+
+    @Value("${blockchain.cache.blocks.prefetch.max-in-flight:8}")
+    private int maxInFlight;
+
+    @Value("${blockchain.cache.blocks.prefetch.idle-timeout-ms:30000}")
+    private long idleTimeoutMs;
+
+    /** 按客户端保存的访问序列，超过 max-streams 时淘汰最久未访问的 */
+    private final Map<String, Scan> scans = new LinkedHashMap<String, Scan>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Scan> eldest) {
+            if (size() > maxStreams) {
+                eldest.getValue().cancel();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicLong prefetches = new AtomicLong();
+
+    private final AtomicLong prefetchedBlocks = new AtomicLong();
+
+    private final AtomicLong prefetchHits = new AtomicLong();
+
+    private final AtomicLong cancelled = new AtomicLong();
+
+    private final AtomicLong skipped = new AtomicLong();
+
+    /**
+     * 记录一次区块访问，需要时发起预取
+     *
+     * @param client 客户端标识（会话或来源地址）
+     */
+    public void recordAccess(String client, BigInteger blockNumber) {
+        if (!enabled || client == null || blockNumber.bitLength() >= 63) {
+            return;
+        }
+        long number = blockNumber.longValue();
+        long now = System.nanoTime();
+        synchronized (scans) {
+            expireIdle(now);
+            Scan scan = scans.get(client);
+            if (scan == null) {
+                scans.put(client, new Scan(number, now));
+                return;
+            }
+            scan.access(number, now);
+            if (scan.runLength >= trigger) {
+                prefetch(scan);
+            }
+        }
+    }
+
+    /**
+     * 预取深度：一次预取往返期间客户端预计访问的区块数，再多留一个余量
+     */
+    static int depthFor(double intervalNanos, double latencyNanos, int minDepth, int maxDepth) {
+        if (intervalNanos <= 0 || latencyNanos <= 0) {
+            return minDepth;
+        }
+        double depth = Math.ceil(latencyNanos / intervalNanos) + 1;
+        return (int) Math.max(minDepth, Math.min(maxDepth, depth));
+    }
+
+    private void prefetch(Scan scan) {
+        int depth = depthFor(scan.intervalEwma, scan.latencyEwma, minDepth, maxDepth);
+        long target = scan.last + scan.direction * (long) depth;
+        if (scan.direction > 0) {
+            BigInteger head = chainHeadTracker.getLatestBlockNumber();
+            if (head == null) {
+                return;
+            }
+            target = Math.min(target, head.longValue());
+        } else {
+            target = Math.max(target, 0);
+        }
+
+        // 只补齐已预取范围之外的部分；上一次预取尚未完成时等它完成
+        long start = scan.prefetchedTo == Scan.NONE ? scan.last + scan.direction
+                : scan.prefetchedTo + scan.direction;
+        if ((target - start) * scan.direction < 0 || scan.pending != null) {
+            return;
+        }
+        if (inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            skipped.incrementAndGet();
+            return;
+        }
+
+        long end = target;
+        long from = Math.min(start, target);
+        long to = Math.max(start, target);
+        long startedAt = System.nanoTime();
+        CompletableFuture<Integer> future = web3Service.prefetchBlocksAsync(from, to);
+        scan.pending = future;
+        scan.prefetchedTo = end;
+        prefetches.incrementAndGet();
+        future.whenComplete((fetched, e) -> {
+            inFlight.decrementAndGet();
+            synchronized (scans) {
+                if (scan.pending == future) {
+                    scan.pending = null;
+                    if (e == null) {
+                        scan.readyTo = end;
+                        scan.recordLatency(System.nanoTime() - startedAt);
+                    } else {
+                        // 失败或取消的区间下次重新预取
+                        scan.prefetchedTo = scan.readyTo;
+                    }
+                }
+            }
+            if (e == null) {
+                prefetchedBlocks.addAndGet(fetched);
+            } else if (!future.isCancelled()) {
+                logger.debug("Block prefetch {}..{} failed: {}", from, to, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 清理长时间没有访问的序列
+     */
+    private void expireIdle(long now) {
+        long idleNanos = idleTimeoutMs * 1_000_000L;
+        Iterator<Scan> iterator = scans.values().iterator();
+        while (iterator.hasNext()) {
+            Scan scan = iterator.next();
+            if (now - scan.lastAccessAt <= idleNanos) {
+                // 按访问顺序排列，后面的都更新
+                break;
+            }
+            scan.cancel();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * 单个客户端的访问序列，由 {@code scans} 的锁保护
+     */
+    private class Scan {
+
+        static final long NONE = -1;
+
+        long last;
+
+        long lastAccessAt;
+
+        int direction;
+
+        int runLength;
+
+        double intervalEwma;
+
+        double latencyEwma;
+
+        /** 已发起预取的最远区块 */
+        long prefetchedTo = NONE;
+
+        /** 已完成预取的最远区块 */
+        long readyTo = NONE;
+
+        CompletableFuture<Integer> pending;
+
+        Scan(long number, long now) {
+            this.last = number;
+            this.lastAccessAt = now;
+        }
+
+        void access(long number, long now) {
+            long step = number - last;
+            if (step == 0) {
+                lastAccessAt = now;
+                return;
+            }
+            if (readyTo != NONE && step == direction && (number - readyTo) * direction <= 0) {
+                prefetchHits.incrementAndGet();
+            }
+            if ((step == 1 || step == -1) && (runLength == 0 || step == direction)) {
+                long interval = now - lastAccessAt;
+                intervalEwma = intervalEwma == 0 ? interval : ALPHA * interval + (1 - ALPHA) * intervalEwma;
+                direction = (int) step;
+                runLength++;
+            } else {
+                // 跳转或反向：之前的预取已经没用了
+                cancel();
+                direction = 0;
+                runLength = 0;
+                intervalEwma = 0;
+                prefetchedTo = NONE;
+                readyTo = NONE;
+            }
+            last = number;
+            lastAccessAt = now;
+        }
+
+        void recordLatency(long nanos) {
+            latencyEwma = latencyEwma == 0 ? nanos : ALPHA * nanos + (1 - ALPHA) * latencyEwma;
+        }
+
+        void cancel() {
+            if (pending != null) {
+                // 只放弃结果（不再写入缓存），已发出的HTTP请求不会中断
+                pending.cancel(false);
+                pending = null;
+                cancelled.incrementAndGet();
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getActiveStreams() {
+        synchronized (scans) {
+            return scans.size();
+        }
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getPrefetches() {
+        return prefetches.get();
+    }
+
+    public long getPrefetchedBlocks() {
+        return prefetchedBlocks.get();
+    }
+
+    public long getPrefetchHits() {
+        return prefetchHits.get();
+    }
+
+    public long getCancelled() {
+        return cancelled.get();
+    }
+
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    public int getMinDepth() {
+        return minDepth;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+}
@@ -0,0 +1,650 @@
+package com.blockchain.learning.service;
+
+import com.blockchain.learning.model.BlockSummary;
+import com.blockchain.learning.model.Hash32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 本地区块库
+ *
+ * 已确认的区块摘要追加写入本地的分段文件，进程重启后仍可直接读取，不必再向节点请求。
+ * 只追加不修改：已确认的区块不会再变化，同一区块只写一次。
+ *
+ * 每条记录（大端）：载荷长度、CRC32、记录类型、标志位，随后是 {@link BlockSummaryCodec} 编码的载荷，
+ * 压缩后更小时保存为Deflate压缩的载荷。当前分段写满 segment-mb 后切换到新的分段文件。
+ * 区块号和区块哈希到记录位置的索引保存在内存映射的 {@link BlockStoreIndex} 中。
+ *
+ * 崩溃恢复：索引定期连同检查点刷盘。启动时从检查点开始逐条扫描分段文件，
+ * 长度或CRC对不上的记录（写到一半时进程退出）连同其后的内容一起截断，其余记录补入索引；
+ * 没有正常关闭时再清除指向数据末尾之后的索引项。
+ * 读取时同样校验CRC和区块号，索引指向的记录无效时按未命中处理。
+ *
+ * 目录中的 store.meta 记录区块库所属的链ID，打开时与节点的链ID不一致则清空重建。
+ */
+@Service
+public class BlockStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlockStore.class);
+
+    /** 载荷长度、CRC32、记录类型、标志位 */
+    static final int RECORD_HEADER_BYTES = 4 + 4 + 1 + 1;
+
+    static final byte TYPE_BLOCK_SUMMARY = 1;
+
+    private static final byte FLAG_DEFLATED = 1;
+
+    /** 单条记录载荷的上限，超过时视为损坏 */
+    private static final int MAX_PAYLOAD_BYTES = 1 << 20;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+
+    private static final String SEGMENT_SUFFIX = ".dat";
+
+    private static final String INDEX_FILE = "blocks.idx";
+
+    /** 记录区块库属于哪条链：魔数、版本、链ID */
+    private static final String MANIFEST_FILE = "store.meta";
+
+    private static final int MANIFEST_MAGIC = 0x42534d31; // "BSM1"
+
+    private static final int MANIFEST_VERSION = 1;
+
+    @Autowired
+    private BlockCache blockCache;
+
+    @Autowired
+    private NetworkInfoService networkInfoService;
+
+    @Value("${blockchain.store.enabled:true}")
+    private boolean enabled;
+
+    @Value("${blockchain.store.path:./data/blocks}")
+    private String path;
+
+    @Value("${blockchain.store.segment-mb:256}")
+    private int segmentMb;
+
+    @Value("${blockchain.store.index-initial-capacity:65536}")
+    private int indexInitialCapacity;
+
+    @Value("${blockchain.store.flush-interval-ms:5000}")
+    private long flushIntervalMs;
+
+    private final List<FileChannel> segments = new ArrayList<>();
+
+    private BlockStoreIndex index;
+
+    /** 当前分段的写入位置 */
+    private long writePosition;
+
+    private volatile boolean open;
+
+    private ScheduledExecutorService scheduler;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong appended = new AtomicLong();
+
+    private final AtomicLong corruptReads = new AtomicLong();
+
+    private volatile long recoveredRecords;
+
+    private volatile long truncatedBytes;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            logger.info("Local block store is disabled");
+            return;
+        }
+        try {
+            open();
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to open local block store at {}, continuing without it: {}", path, e.getMessage());
+            closeQuietly();
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "block-store-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        flushQuietly();
+        closeQuietly();
+    }
+
+    /**
+     * 打开分段文件和索引，从检查点开始恢复
+     */
+    synchronized void open() throws IOException {
+        Path directory = Paths.get(path);
+        Files.createDirectories(directory);
+        checkChain(directory);
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        files.sort(null);
+        for (int i = 0; i < files.size(); i++) {
+            if (!files.get(i).equals(segmentPath(i))) {
+                throw new IOException("Unexpected block store segment " + files.get(i));
+            }
+            segments.add(FileChannel.open(files.get(i), StandardOpenOption.READ, StandardOpenOption.WRITE));
+        }
+        if (segments.isEmpty()) {
+            segments.add(createSegment(0));
+        }
+
+        index = BlockStoreIndex.open(directory.resolve(INDEX_FILE), indexInitialCapacity);
+        int segment = index.checkpointSegment();
+        long offset = index.checkpointOffset();
+        if (segment >= segments.size() || offset > segments.get(segment).size()) {
+            // 检查点超出现有数据：分段文件被替换或截断过，整体重建索引
+            logger.warn("Block store index checkpoint is ahead of the data, rebuilding the index");
+            index.reset();
+            segment = 0;
+            offset = 0;
+        }
+        recover(segment, offset);
+        open = true;
+        logger.info("Opened local block store at {}: {} blocks in {} segments", directory, index.size(),
+                segments.size());
+    }
+
+    /**
+     * 核对数据目录所属的链
+     *
+     * 节点地址或网络配置改变后，目录中可能是另一条链的区块。链ID对不上，或者目录中有数据但没有记录链ID时，
+     * 清空分段文件和索引，再写入当前的链ID。节点不可用、取不到链ID时抛出异常，区块库不打开。
+     */
+    private void checkChain(Path directory) throws IOException {
+        long chainId = networkInfoService.getChainId();
+        Path manifest = directory.resolve(MANIFEST_FILE);
+        Long storedChainId = readChainId(manifest);
+        if (storedChainId != null && storedChainId == chainId) {
+            return;
+        }
+
+        List<Path> stale = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : stream) {
+                stale.add(file);
+            }
+        }
+        stale.add(directory.resolve(INDEX_FILE));
+        boolean hasData = false;
+        for (Path file : stale) {
+            hasData |= Files.deleteIfExists(file);
+        }
+        if (hasData) {
+            logger.warn("Discarded local block store at {}: it belongs to chain {} but the node is on chain {}",
+                    directory, storedChainId == null ? "unknown" : storedChainId, chainId);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 4 + 8);
+        buffer.putInt(MANIFEST_MAGIC);
+        buffer.putInt(MANIFEST_VERSION);
+        buffer.putLong(chainId);
+        Path temp = Files.createTempFile(directory, MANIFEST_FILE, ".tmp");
+        try {
+            Files.write(temp, buffer.array());
+            Files.move(temp, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * @return 记录的链ID，文件不存在或格式不对时返回null
+     */
+    private static Long readChainId(Path manifest) throws IOException {
+        if (!Files.isRegularFile(manifest)) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(manifest));
+        if (buffer.remaining() != 16 || buffer.getInt() != MANIFEST_MAGIC || buffer.getInt() != MANIFEST_VERSION) {
+            return null;
+        }
+        return buffer.getLong();
+    }
+
+    /**
+     * 扫描检查点之后的记录补入索引，截断末尾不完整或损坏的记录
+     */
+    private void recover(int fromSegment, long fromOffset) throws IOException {
+        long recovered = 0;
+        long truncated = 0;
+        for (int segment = fromSegment; segment < segments.size(); segment++) {
+            FileChannel channel = segments.get(segment);
+            long position = segment == fromSegment ? fromOffset : 0;
+            while (true) {
+                BlockSummary block = readRecord(channel, position);
+                if (block == null) {
+                    break;
+                }
+                index.put(block.getNumber(), Hash32.fromHex(block.getHash()).fold(), location(segment, position));
+                position += RECORD_HEADER_BYTES + payloadLength(channel, position);
+                recovered++;
+            }
+            if (position < channel.size()) {
+                truncated += channel.size() - position;
+                logger.warn("Truncating {} bytes of incomplete records at the end of block store segment {}",
+                        channel.size() - position, segment);
+                channel.truncate(position);
+            }
+        }
+        writePosition = segments.get(segments.size() - 1).size();
+        if (!index.wasClean() || truncated > 0) {
+            // 崩溃后检查点之后的索引项可能指向没有写完（或已截断）的记录
+            long[] segmentEnds = new long[segments.size()];
+            for (int i = 0; i < segmentEnds.length; i++) {
+                segmentEnds[i] = segments.get(i).size();
+            }
+            int invalidated = index.invalidateBeyond(segmentEnds);
+            if (invalidated > 0) {
+                logger.warn("Dropped {} block store index entries pointing past the end of the data", invalidated);
+            }
+        }
+        index.checkpoint(segments.size() - 1, writePosition);
+        recoveredRecords = recovered;
+        truncatedBytes = truncated;
+    }
+
+    /**
+     * 追加一个已确认的区块，未确认或已存在时忽略
+     *
+     * @return 是否写入
+     */
+    public boolean append(BlockSummary block) {
+        if (!open || block == null || Hash32.tryFromHex(block.getHash()) == null
+                || !blockCache.isConfirmed(block.getNumber())) {
+            return false;
+        }
+        try {
+            return write(block);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to append block {} to the local block store: {}", block.getNumber(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 追加调用方已核实为已确认的区块（历史回填），不再按当前链头判断：链头跟踪器未启用或暂时中断时
+     * {@link BlockCache#isConfirmed} 无法判断，而回填区间在任务开始时已经核对过
+     *
+     * @return 是否写入，区块已在库中时返回false
+     * @throws IOException 区块库未打开、区块无效或写入失败
+     */
+    public boolean appendConfirmed(BlockSummary block) throws IOException {
+        if (block == null || Hash32.tryFromHex(block.getHash()) == null) {
+            throw new IOException("Invalid block summary");
+        }
+        if (!open) {
+            throw new IOException("Local block store is not open");
+        }
+        boolean written = write(block);
+        if (!written && !open) {
+            throw new IOException("Local block store is not open");
+        }
+        return written;
+    }
+
+    private synchronized boolean write(BlockSummary block) throws IOException {
+        if (!open || index.location(block.getNumber()) != BlockStoreIndex.NOT_FOUND) {
+            return false;
+        }
+        ByteBuffer record = encodeRecord(block);
+        if (writePosition > 0 && writePosition + record.remaining() > (long) segmentMb << 20) {
+            // 切换分段前把旧分段刷盘，之后它不会再变化
+            segments.get(segments.size() - 1).force(false);
+            segments.add(createSegment(segments.size()));
+            writePosition = 0;
+        }
+
+        int segment = segments.size() - 1;
+        long position = writePosition;
+        FileChannel channel = segments.get(segment);
+        while (record.hasRemaining()) {
+            writePosition += channel.write(record, writePosition);
+        }
+        index.put(block.getNumber(), Hash32.fromHex(block.getHash()).fold(), location(segment, position));
+        appended.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * 区块是否已在库中，只查索引，不读取记录，也不计入命中统计
+     */
+    public synchronized boolean contains(long blockNumber) {
+        return open && index.location(blockNumber) != BlockStoreIndex.NOT_FOUND;
+    }
+
+    /**
+     * 按区块号读取
+     *
+     * @return 不在库中时返回null
+     */
+    public BlockSummary get(long blockNumber) {
+        BlockSummary block = read(blockNumber);
+        (block == null ? misses : hits).incrementAndGet();
+        return block;
+    }
+
+    /**
+     * 按区块哈希读取（大小写均可）
+     *
+     * @return 不在库中时返回null
+     */
+    public BlockSummary getByHash(String blockHash) {
+        Hash32 key = Hash32.tryFromHex(blockHash);
+        BlockSummary block = null;
+        if (key != null && open) {
+            long number;
+            synchronized (this) {
+                number = open ? index.numberByHash(key.fold()) : BlockStoreIndex.NOT_FOUND;
+            }
+            block = number == BlockStoreIndex.NOT_FOUND ? null : read(number);
+            if (block != null && !key.equals(Hash32.fromHex(block.getHash()))) {
+                block = null;
+            }
+        }
+        (block == null ? misses : hits).incrementAndGet();
+        return block;
+    }
+
+    private BlockSummary read(long blockNumber) {
+        if (!open) {
+            return null;
+        }
+        FileChannel channel;
+        long position;
+        synchronized (this) {
+            if (!open) {
+                return null;
+            }
+            long location = index.location(blockNumber);
+            if (location == BlockStoreIndex.NOT_FOUND) {
+                return null;
+            }
+            channel = segments.get((int) (location >>> 32));
+            position = location & 0xffffffffL;
+        }
+        // 按位置读取不改变通道状态，可以在锁外并发进行
+        try {
+            BlockSummary block = readRecord(channel, position);
+            if (block != null && block.getNumber() == blockNumber) {
+                return block;
+            }
+        } catch (IOException e) {
+            logger.debug("Failed to read block {} from the local block store: {}", blockNumber, e.getMessage());
+        }
+        corruptReads.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * 读取并校验一条记录
+     *
+     * @return 记录不完整、CRC对不上或无法解码时返回null
+     */
+    private static BlockSummary readRecord(FileChannel channel, long position) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        if (!readFully(channel, header, position)) {
+            return null;
+        }
+        header.flip();
+        int length = header.getInt();
+        int crc = header.getInt();
+        byte type = header.get();
+        byte flags = header.get();
+        if (length < 0 || length > MAX_PAYLOAD_BYTES || type != TYPE_BLOCK_SUMMARY) {
+            return null;
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        if (!readFully(channel, payload, position + RECORD_HEADER_BYTES)) {
+            return null;
+        }
+        if (crc != checksum(type, flags, payload.array(), length)) {
+            return null;
+        }
+        try {
+            byte[] bytes = (flags & FLAG_DEFLATED) != 0 ? inflate(payload.array()) : payload.array();
+            return BlockSummaryCodec.decode(ByteBuffer.wrap(bytes));
+        } catch (DataFormatException | BufferUnderflowException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static int payloadLength(FileChannel channel, long position) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(4);
+        readFully(channel, length, position);
+        return length.getInt(0);
+    }
+
+    static ByteBuffer encodeRecord(BlockSummary block) {
+        ByteBuffer encoded = ByteBuffer.allocate(BlockSummaryCodec.encodedSize(block));
+        BlockSummaryCodec.encode(block, encoded);
+        byte[] payload = encoded.array();
+        byte flags = 0;
+        byte[] deflated = deflate(payload);
+        if (deflated.length < payload.length) {
+            payload = deflated;
+            flags = FLAG_DEFLATED;
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + payload.length);
+        record.putInt(payload.length);
+        record.putInt(checksum(TYPE_BLOCK_SUMMARY, flags, payload, payload.length));
+        record.put(TYPE_BLOCK_SUMMARY);
+        record.put(flags);
+        record.put(payload);
+        record.flip();
+        return record;
+    }
+
+    /**
+     * 压缩后的载荷：原始长度加Deflate数据
+     */
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            byte[] buffer = new byte[data.length + 64];
+            ByteBuffer output = ByteBuffer.wrap(buffer);
+            output.putInt(data.length);
+            int length = deflater.deflate(buffer, 4, buffer.length - 4);
+            if (!deflater.finished()) {
+                return data;
+            }
+            byte[] result = new byte[4 + length];
+            System.arraycopy(buffer, 0, result, 0, result.length);
+            return result;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data) throws DataFormatException {
+        int length = ByteBuffer.wrap(data).getInt();
+        if (length < 0 || length > MAX_PAYLOAD_BYTES) {
+            throw new DataFormatException("Invalid inflated length " + length);
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, 4, data.length - 4);
+            byte[] result = new byte[length];
+            if (inflater.inflate(result) != length || !inflater.finished()) {
+                throw new DataFormatException("Truncated deflated record");
+            }
+            return result;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static int checksum(byte type, byte flags, byte[] payload, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(flags);
+        crc.update(payload, 0, length);
+        return (int) crc.getValue();
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long location(int segment, long offset) {
+        return ((long) segment << 32) | offset;
+    }
+
+    private Path segmentPath(int segment) {
+        return Paths.get(path).resolve(String.format("%s%06d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    private FileChannel createSegment(int segment) throws IOException {
+        return FileChannel.open(segmentPath(segment), StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+    }
+
+    /**
+     * 把当前分段和索引刷盘，并前移检查点
+     */
+    public synchronized void flush() throws IOException {
+        if (!open) {
+            return;
+        }
+        segments.get(segments.size() - 1).force(false);
+        index.checkpoint(segments.size() - 1, writePosition);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to flush local block store at {}: {}", path, e.getMessage());
+        }
+    }
+
+    synchronized void closeQuietly() {
+        open = false;
+        try {
+            if (index != null) {
+                index.close();
+            }
+            for (FileChannel channel : segments) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to close local block store at {}: {}", path, e.getMessage());
+        }
+        segments.clear();
+        index = null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public synchronized int getBlocks() {
+        return open ? index.size() : 0;
+    }
+
+    public synchronized int getSegments() {
+        return segments.size();
+    }
+
+    public synchronized long getDataBytes() {
+        long bytes = 0;
+        for (FileChannel channel : segments) {
+            try {
+                bytes += channel.size();
+            } catch (IOException e) {
+                return -1;
+            }
+        }
+        return bytes;
+    }
+
+    public synchronized long getIndexBytes() {
+        return open ? index.sizeBytes() : 0;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getAppended() {
+        return appended.get();
+    }
+
+    public long getCorruptReads() {
+        return corruptReads.get();
+    }
+
+    public long getRecoveredRecords() {
+        return recoveredRecords;
+    }
+
+    public long getTruncatedBytes() {
+        return truncatedBytes;
+    }
+}
@@ -0,0 +1,318 @@
+package com.blockchain.learning.service;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link BlockStore} 的内存映射索引
+ *
+ * 一个文件中保存两张开放寻址（线性探测）哈希表：区块号 → 记录位置，区块哈希折叠值 → 区块号。
+ * 每个槽16字节（键、值），键为0表示空槽。负载超过一半时在同一文件末尾建立容量翻倍的两张新表，
+ * 写完并刷盘后才把文件头中的表位置切换过去：文件一直处于映射状态，不做替换（Windows上无法替换已映射的文件），
+ * 中途崩溃时文件头仍指向完好的旧表。旧表留在文件中成为空洞，总大小小于当前两张表，{@link #reset} 时回收。
+ * 每张表单独映射，单张表最多 2^26 个槽（1GB），即最多约3300万个区块。
+ *
+ * 索引只是分段文件的派生数据：文件头记录检查点（此前的记录都已写入索引并刷盘），
+ * 启动时从检查点开始重新扫描分段文件补齐索引；文件缺失或损坏时整体重建。
+ * 没有正常关闭时，检查点之后的索引项可能指向没有写完的记录，由 {@link #invalidateBeyond} 清除。
+ * 非线程安全，由 {@link BlockStore} 的锁保护。
+ */
+class BlockStoreIndex {
+
+    static final long NOT_FOUND = -1;
+
+    private static final int MAGIC = 0x42534931; // "BSI1"
+
+    private static final int VERSION = 2;
+
+    /** 魔数、版本、容量、两张表的条目数、检查点（分段序号、偏移）、正常关闭标志、表的起始位置，补齐到64字节 */
+    private static final int HEADER_BYTES = 64;
+
+    private static final int SLOT_BYTES = 16;
+
+    private static final int MAX_CAPACITY = 1 << 26;
+
+    private final Path file;
+
+    private FileChannel channel;
+
+    private MappedByteBuffer header;
+
+    private MappedByteBuffer numbers;
+
+    private MappedByteBuffer hashes;
+
+    private int capacity;
+
+    /** 两张表在文件中的起始位置 */
+    private long tablesOffset;
+
+    private int size;
+
+    private int hashSize;
+
+    /** 上次是否正常关闭 */
+    private boolean wasClean;
+
+    private BlockStoreIndex(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * 打开索引文件，不存在或格式不对时新建空索引（检查点为起点）
+     */
+    static BlockStoreIndex open(Path file, int initialCapacity) throws IOException {
+        BlockStoreIndex index = new BlockStoreIndex(file);
+        if (Files.isRegularFile(file) && index.load()) {
+            return index;
+        }
+        index.create(file, tableCapacity(initialCapacity));
+        index.wasClean = true;
+        return index;
+    }
+
+    /**
+     * 区块的记录位置
+     *
+     * @return 不存在时返回 {@link #NOT_FOUND}
+     */
+    long location(long blockNumber) {
+        return blockNumber < 0 ? NOT_FOUND : get(numbers, blockNumber + 1);
+    }
+
+    /**
+     * 哈希折叠值对应的区块号；折叠值可能冲突，调用方需要核对完整哈希
+     *
+     * @return 不存在时返回 {@link #NOT_FOUND}
+     */
+    long numberByHash(long hashFold) {
+        return get(hashes, hashKey(hashFold));
+    }
+
+    /**
+     * 写入或覆盖一个区块的索引项
+     */
+    void put(long blockNumber, long hashFold, long location) throws IOException {
+        if (blockNumber < 0) {
+            // 键 blockNumber + 1 为0时会与空槽混淆
+            throw new IllegalArgumentException("Negative block number: " + blockNumber);
+        }
+        if (Math.max(size, hashSize) + 1 > capacity / 2) {
+            grow();
+        }
+        if (insert(numbers, blockNumber + 1, location)) {
+            size++;
+        }
+        if (insert(hashes, hashKey(hashFold), blockNumber)) {
+            hashSize++;
+        }
+        header.putInt(12, size);
+        header.putInt(16, hashSize);
+    }
+
+    int checkpointSegment() {
+        return header.getInt(20);
+    }
+
+    long checkpointOffset() {
+        return header.getLong(24);
+    }
+
+    /**
+     * 先把索引表刷盘，再写入检查点并刷盘：检查点只会落后于索引表，不会超前
+     */
+    void checkpoint(int segment, long offset) {
+        numbers.force();
+        hashes.force();
+        header.force();
+        header.putInt(20, segment);
+        header.putLong(24, offset);
+        header.force();
+    }
+
+    boolean wasClean() {
+        return wasClean;
+    }
+
+    /**
+     * 让指向各分段有效末尾之后的索引项失效（值改为 {@link #NOT_FOUND}，键保留）
+     *
+     * @param segmentEnds 每个分段的有效长度
+     * @return 失效的条目数
+     */
+    int invalidateBeyond(long[] segmentEnds) {
+        int invalidated = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            int position = slot * SLOT_BYTES;
+            long location = numbers.getLong(position + 8);
+            if (numbers.getLong(position) == 0 || location == NOT_FOUND) {
+                continue;
+            }
+            int segment = (int) (location >>> 32);
+            if (segment >= segmentEnds.length || (location & 0xffffffffL) >= segmentEnds[segment]) {
+                numbers.putLong(position + 8, NOT_FOUND);
+                invalidated++;
+            }
+        }
+        return invalidated;
+    }
+
+    /**
+     * 清空索引，检查点回到起点
+     */
+    void reset() throws IOException {
+        close();
+        create(file, capacity);
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    long sizeBytes() {
+        return tablesOffset + 2L * capacity * SLOT_BYTES;
+    }
+
+    void close() throws IOException {
+        if (channel != null) {
+            numbers.force();
+            hashes.force();
+            header.putInt(32, 1);
+            header.force();
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private boolean load() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long fileSize = channel.size();
+        if (fileSize >= HEADER_BYTES) {
+            header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            int storedCapacity = header.getInt(8);
+            long storedOffset = header.getLong(40);
+            if (header.getInt(0) == MAGIC && header.getInt(4) == VERSION && Integer.bitCount(storedCapacity) == 1
+                    && storedCapacity <= MAX_CAPACITY && storedOffset >= HEADER_BYTES
+                    && fileSize >= storedOffset + 2L * storedCapacity * SLOT_BYTES) {
+                long end = storedOffset + 2L * storedCapacity * SLOT_BYTES;
+                if (fileSize > end) {
+                    // 扩容写到一半时退出留下的新表，下次扩容要从全0的空间开始
+                    channel.truncate(end);
+                }
+                mapTables(storedOffset, storedCapacity);
+                size = header.getInt(12);
+                hashSize = header.getInt(16);
+                wasClean = header.getInt(32) == 1;
+                header.putInt(32, 0);
+                header.force();
+                return true;
+            }
+        }
+        channel.close();
+        channel = null;
+        return false;
+    }
+
+    private void create(Path target, int newCapacity) throws IOException {
+        Files.deleteIfExists(target);
+        channel = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        header.putInt(0, MAGIC);
+        header.putInt(4, VERSION);
+        header.putInt(8, newCapacity);
+        header.putLong(40, HEADER_BYTES);
+        // 映射超出文件末尾的部分会扩展文件，新扩展的内容全为0，即全部是空槽
+        mapTables(HEADER_BYTES, newCapacity);
+        size = 0;
+        hashSize = 0;
+    }
+
+    private void mapTables(long offset, int newCapacity) throws IOException {
+        long tableBytes = (long) newCapacity * SLOT_BYTES;
+        numbers = channel.map(FileChannel.MapMode.READ_WRITE, offset, tableBytes);
+        hashes = channel.map(FileChannel.MapMode.READ_WRITE, offset + tableBytes, tableBytes);
+        tablesOffset = offset;
+        capacity = newCapacity;
+    }
+
+    /**
+     * 在文件末尾建立容量翻倍的新表，刷盘后再切换文件头，沿用原来的检查点
+     */
+    private void grow() throws IOException {
+        if (capacity >= MAX_CAPACITY) {
+            throw new IOException("Block store index is full (" + capacity / 2 + " blocks)");
+        }
+        MappedByteBuffer oldNumbers = numbers;
+        MappedByteBuffer oldHashes = hashes;
+        int oldCapacity = capacity;
+
+        mapTables(tablesOffset + 2L * oldCapacity * SLOT_BYTES, oldCapacity * 2);
+        rehash(oldNumbers, numbers, oldCapacity);
+        rehash(oldHashes, hashes, oldCapacity);
+        numbers.force();
+        hashes.force();
+        header.putInt(8, capacity);
+        header.putLong(40, tablesOffset);
+        header.force();
+    }
+
+    private void rehash(MappedByteBuffer from, MappedByteBuffer to, int oldCapacity) {
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            long key = from.getLong(slot * SLOT_BYTES);
+            if (key != 0) {
+                insert(to, key, from.getLong(slot * SLOT_BYTES + 8));
+            }
+        }
+    }
+
+    private long get(MappedByteBuffer table, long key) {
+        for (int slot = slot(key); ; slot = (slot + 1) & (capacity - 1)) {
+            long existing = table.getLong(slot * SLOT_BYTES);
+            if (existing == key) {
+                return table.getLong(slot * SLOT_BYTES + 8);
+            }
+            if (existing == 0) {
+                return NOT_FOUND;
+            }
+        }
+    }
+
+    /**
+     * @return 是否新增了条目（false表示覆盖了已有的值）
+     */
+    private boolean insert(MappedByteBuffer table, long key, long value) {
+        for (int slot = slot(key); ; slot = (slot + 1) & (capacity - 1)) {
+            int position = slot * SLOT_BYTES;
+            long existing = table.getLong(position);
+            if (existing == key || existing == 0) {
+                table.putLong(position, key);
+                table.putLong(position + 8, value);
+                return existing == 0;
+            }
+        }
+    }
+
+    private int slot(long key) {
+        long mixed = key * 0x9e3779b97f4a7c15L;
+        return (int) (mixed ^ (mixed >>> 32)) & (capacity - 1);
+    }
+
+    /** 0表示空槽，折叠值恰好为0的哈希改用1（查找后本来就要核对完整哈希） */
+    private static long hashKey(long hashFold) {
+        return hashFold == 0 ? 1 : hashFold;
+    }
+
+    private static int tableCapacity(int expectedEntries) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedEntries * 2 - 1)) << 1;
+        return Math.min(capacity, MAX_CAPACITY);
+    }
+}
@@ -0,0 +1,97 @@
+package com.blockchain.learning.service;
+
+import com.blockchain.learning.model.BlockSummary;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+/**
+ * 区块摘要的紧凑二进制编码，供缓存快照和堆外缓存共用
+ *
+ * 数值字段按定长写入，哈希、地址和基础费用以一个字节的长度前缀加原始字节保存（null写成长度0）。
+ * 主网区块约占150字节，而对应的对象（含字符串）在堆上超过600字节。
+ */
+final class BlockSummaryCodec {
+
+    private BlockSummaryCodec() {
+    }
+
+    /**
+     * 编码后的字节数
+     */
+    static int encodedSize(BlockSummary block) {
+        return 8 + fieldSize(hexLength(block.getHash())) + fieldSize(hexLength(block.getParentHash()))
+                + 8 * 3 + fieldSize(hexLength(block.getMiner()))
+                + fieldSize(block.getBaseFeePerGas() == null ? 0 : block.getBaseFeePerGas().toByteArray().length)
+                + 4;
+    }
+
+    /**
+     * 从缓冲区当前位置开始写入，写完后位置移到编码末尾
+     */
+    static void encode(BlockSummary block, ByteBuffer buffer) {
+        buffer.putLong(block.getNumber());
+        putBytes(buffer, hexBytes(block.getHash()));
+        putBytes(buffer, hexBytes(block.getParentHash()));
+        buffer.putLong(block.getTimestamp());
+        buffer.putLong(block.getGasLimit());
+        buffer.putLong(block.getGasUsed());
+        putBytes(buffer, hexBytes(block.getMiner()));
+        putBytes(buffer, block.getBaseFeePerGas() == null ? new byte[0] : block.getBaseFeePerGas().toByteArray());
+        buffer.putInt(block.getTransactionCount());
+    }
+
+    /**
+     * 从缓冲区当前位置开始读取，读完后位置移到编码末尾
+     *
+     * @throws java.nio.BufferUnderflowException 数据不完整
+     */
+    static BlockSummary decode(ByteBuffer buffer) {
+        long number = buffer.getLong();
+        byte[] hash = getBytes(buffer);
+        byte[] parentHash = getBytes(buffer);
+        long timestamp = buffer.getLong();
+        long gasLimit = buffer.getLong();
+        long gasUsed = buffer.getLong();
+        byte[] miner = getBytes(buffer);
+        byte[] baseFee = getBytes(buffer);
+        int transactionCount = buffer.getInt();
+        return new BlockSummary(number, hex(hash), hex(parentHash), timestamp, gasLimit, gasUsed, hex(miner),
+                baseFee.length == 0 ? null : new BigInteger(baseFee), transactionCount);
+    }
+
+    private static int fieldSize(int length) {
+        return 1 + length;
+    }
+
+    private static int hexLength(String value) {
+        if (value == null) {
+            return 0;
+        }
+        int digits = Numeric.cleanHexPrefix(value).length();
+        return (digits + 1) / 2;
+    }
+
+    private static byte[] hexBytes(String value) {
+        return value == null ? new byte[0] : Numeric.hexStringToByteArray(value);
+    }
+
+    private static String hex(byte[] bytes) {
+        return bytes.length == 0 ? null : Numeric.toHexString(bytes);
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        if (bytes.length > 255) {
+            throw new IllegalArgumentException("Field too long for block summary encoding: " + bytes.length);
+        }
+        buffer.put((byte) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static byte[] getBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.get() & 0xff];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,309 @@
+package com.blockchain.learning.service;
+
+import com.blockchain.learning.model.BlockSummary;
+import com.blockchain.learning.util.WalletUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 启动预热
+ *
+ * 部署后的第一批请求会全部落到节点上。应用启动时先把最近的区块、当前Gas价格和钱包目录中各地址的余额
+ * 读入缓存（区块和余额都走批量请求），再在这些缓存数据上反复执行热点读取路径，让JIT提前编译。
+ *
+ * 预热在后台线程中进行，不阻塞启动；就绪探针在预热完成或超时之后才返回就绪。
+ */
+@Service
+public class CacheWarmer {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheWarmer.class);
+
+    /** 钱包文件的扩展名，文件名即地址 */
+    private static final String WALLET_SUFFIX = ".wallet";
+
+    /**
+     * 预热状态
+     */
+    public enum State {
+        /** 尚未开始 */
+        PENDING,
+        /** 正在预热 */
+        WARMING,
+        /** 预热完成（个别步骤失败也算完成） */
+        COMPLETED,
+        /** 超过等待时间，不再等待预热 */
+        TIMED_OUT,
+        /** 未启用预热 */
+        DISABLED
+    }
+
+    @Autowired
+    private Web3Service web3Service;
+
+    @Autowired
+    private BlockCache blockCache;
+
+    @Autowired
+    private GasOracle gasOracle;
+
+    @Autowired
+    private BalanceService balanceService;
+
+    @Value("${blockchain.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${blockchain.warmup.recent-blocks:64}")
+    private int recentBlocks;
+
+    @Value("${blockchain.warmup.max-addresses:500}")
+    private int maxAddresses;
+
+    @Value("${blockchain.warmup.jit-iterations:2000}")
+    private int jitIterations;
+
+    @Value("${blockchain.warmup.timeout-ms:30000}")
+    private long timeoutMs;
+
+    @Value("${blockchain.wallet.storage-path:./wallets}")
+    private String walletStoragePath;
+
+    private volatile State state = State.PENDING;
+
+    private volatile long startedAt;
+
+    private volatile long finishedAt;
+
+    private volatile int warmedBlocks;
+
+    private volatile int warmedBalances;
+
+    private final List<String> failures = new ArrayList<>();
+
+    private ScheduledExecutorService executor;
+
+    /**
+     * 在后台开始预热
+     *
+     * @return 预热完成或超时后完成的Future
+     */
+    public synchronized CompletableFuture<State> start() {
+        CompletableFuture<State> result = new CompletableFuture<>();
+        if (!enabled) {
+            state = State.DISABLED;
+            result.complete(state);
+            return result;
+        }
+        if (state != State.PENDING) {
+            result.complete(state);
+            return result;
+        }
+
+        state = State.WARMING;
+        startedAt = System.currentTimeMillis();
+        // 一个线程执行预热，另一个负责超时
+        executor = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "cache-warmer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.schedule(() -> {
+            if (finish(State.TIMED_OUT)) {
+                logger.warn("Cache warm-up did not finish within {} ms, reporting ready anyway", timeoutMs);
+            }
+            result.complete(state);
+        }, timeoutMs, TimeUnit.MILLISECONDS);
+        executor.execute(() -> {
+            warmUp();
+            if (finish(State.COMPLETED)) {
+                logger.info("Cache warm-up completed in {} ms: {} blocks, {} balances, {} failed steps",
+                        finishedAt - startedAt, warmedBlocks, warmedBalances, getFailures().size());
+            }
+            result.complete(state);
+        });
+        return result;
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 依次执行各个预热步骤，单个步骤失败不影响后续步骤
+     */
+    void warmUp() {
+        BigInteger head = null;
+        try {
+            head = web3Service.getLatestBlock().getBlock().getNumber();
+        } catch (IOException | RuntimeException e) {
+            fail("latestBlock", e);
+        }
+
+        long to = -1;
+        long from = 0;
+        if (head != null && recentBlocks > 0) {
+            to = head.longValue();
+            from = Math.max(0, to - recentBlocks + 1);
+            try {
+                warmedBlocks = await(web3Service.prefetchBlocksAsync(from, to));
+            } catch (Exception e) {
+                fail("recentBlocks", e);
+            }
+        }
+
+        try {
+            gasOracle.refresh();
+        } catch (IOException | RuntimeException e) {
+            fail("gasPrice", e);
+        }
+
+        List<String> addresses = walletAddresses();
+        if (!addresses.isEmpty()) {
+            try {
+                warmedBalances = await(balanceService.getBalancesAsync(addresses)).getBalances().size();
+            } catch (Exception e) {
+                fail("balances", e);
+            }
+        }
+
+        // 预取的区块不一定都留在缓存中（例如链头跟踪器还没有链头时，未确认的区块不会缓存；
+        // 未确认的区块在前面的步骤中也可能已经过期），所以在执行前才收集
+        List<Long> cachedBlocks = new ArrayList<>();
+        for (long number = to; number >= from; number--) {
+            if (blockCache.contains(number)) {
+                cachedBlocks.add(number);
+            }
+        }
+        if (!cachedBlocks.isEmpty()) {
+            exerciseHotPaths(cachedBlocks);
+        }
+    }
+
+    /**
+     * 在已缓存的区块上反复执行缓存读取路径
+     *
+     * 只读缓存，不会访问节点；区块在执行过程中过期或被淘汰时立即停止。读取会计入区块缓存的命中统计。
+     *
+     * @param cachedBlocks 执行前确认在缓存中的区块号
+     */
+    private void exerciseHotPaths(List<Long> cachedBlocks) {
+        for (int i = 0; i < jitIterations && state == State.WARMING; i++) {
+            long number = cachedBlocks.get(i % cachedBlocks.size());
+            BlockSummary block = blockCache.getByNumber(BigInteger.valueOf(number));
+            if (block == null) {
+                logger.debug("Stopping hot path warm-up after {} iterations, block {} is no longer cached", i, number);
+                return;
+            }
+            blockCache.getByHash(block.getHash());
+        }
+    }
+
+    /**
+     * 等待异步步骤，最多等到预热超时
+     */
+    private <T> T await(CompletableFuture<T> future) throws Exception {
+        long remaining = startedAt + timeoutMs - System.currentTimeMillis();
+        try {
+            return future.get(Math.max(0, remaining), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            throw e;
+        }
+    }
+
+    /**
+     * 钱包目录中保存的地址
+     */
+    List<String> walletAddresses() {
+        List<String> addresses = new ArrayList<>();
+        Path walletDir = Paths.get(walletStoragePath);
+        if (!Files.isDirectory(walletDir)) {
+            return addresses;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(walletDir, "*" + WALLET_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String address = name.substring(0, name.length() - WALLET_SUFFIX.length());
+                if (WalletUtils.isValidAddress(address) && addresses.size() < maxAddresses) {
+                    addresses.add(address);
+                }
+            }
+        } catch (IOException e) {
+            fail("walletAddresses", e);
+        }
+        return addresses;
+    }
+
+    private synchronized boolean finish(State finalState) {
+        if (state != State.WARMING) {
+            return false;
+        }
+        state = finalState;
+        finishedAt = System.currentTimeMillis();
+        return true;
+    }
+
+    private void fail(String step, Throwable e) {
+        Throwable cause = Web3Service.unwrap(e);
+        logger.warn("Cache warm-up step {} failed: {}", step, cause.getMessage());
+        synchronized (failures) {
+            failures.add(step);
+        }
+    }
+
+    /**
+     * 是否可以接收流量：预热完成、超时或未启用
+     */
+    public boolean isReady() {
+        State current = state;
+        return current == State.COMPLETED || current == State.TIMED_OUT || current == State.DISABLED;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public long getDurationMs() {
+        if (startedAt == 0) {
+            return 0;
+        }
+        return (finishedAt == 0 ? System.currentTimeMillis() : finishedAt) - startedAt;
+    }
+
+    public int getWarmedBlocks() {
+        return warmedBlocks;
+    }
+
+    public int getWarmedBalances() {
+        return warmedBalances;
+    }
+
+    public List<String> getFailures() {
+        synchronized (failures) {
+            return new ArrayList<>(failures);
+        }
+    }
+}
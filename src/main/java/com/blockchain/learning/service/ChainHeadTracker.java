@@ -0,0 +1,338 @@
+package com.blockchain.learning.service;
+
+import io.reactivex.disposables.Disposable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.response.EthBlock;
+import org.web3j.protocol.websocket.WebSocketService;
+import org.web3j.protocol.websocket.events.NewHeadsNotification;
+import org.web3j.utils.Numeric;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 链头跟踪器
+ *
+ * 在内存中保存最新区块头，供 {@code /blocks/latest} 和 {@code /network-info} 直接读取，
+ * 避免每个HTTP请求都向节点查询最新区块。
+ *
+ * 配置了WebSocket地址时订阅 newHeads 推送；否则（或订阅断开时）退回到自适应轮询：
+ * 根据最近的出块间隔估计下一个区块的时间，只在临近出块时才频繁查询 eth_blockNumber。
+ */
+@Service
+public class ChainHeadTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChainHeadTracker.class);
+
+    /** 出块间隔EWMA的平滑系数 */
+    private static final double BLOCK_TIME_ALPHA = 0.2;
+
+    /** WebSocket断开后重新连接的等待时间 */
+    private static final long RECONNECT_DELAY_MS = 60_000;
+
+    /** 每前进多少个区块刷新一次 finalized 区块号（一个epoch） */
+    private static final long FINALIZED_REFRESH_BLOCKS = 32;
+
+    @Autowired
+    private Web3j web3j;
+
+    @Value("${blockchain.head-tracker.enabled:true}")
+    private boolean enabled;
+
+    @Value("${blockchain.head-tracker.websocket-url:}")
+    private String websocketUrl;
+
+    @Value("${blockchain.head-tracker.block-time-ms:12000}")
+    private long initialBlockTimeMs;
+
+    @Value("${blockchain.head-tracker.min-poll-interval-ms:1000}")
+    private long minPollIntervalMs;
+
+    private volatile EthBlock latestBlock;
+
+    private volatile long lastUpdatedAt;
+
+    private volatile double blockTimeMs;
+
+    private volatile boolean subscribed;
+
+    private volatile BigInteger finalizedBlockNumber;
+
+    private volatile BigInteger finalizedCheckedAt;
+
+    private final List<Consumer<EthBlock>> listeners = new CopyOnWriteArrayList<>();
+
+    private ScheduledExecutorService scheduler;
+
+    private WebSocketService webSocketService;
+
+    private Disposable subscription;
+
+    @PostConstruct
+    public void start() {
+        blockTimeMs = initialBlockTimeMs;
+        if (!enabled) {
+            logger.info("Chain head tracker is disabled, latest block will be fetched on demand");
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "chain-head-tracker");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        if (websocketUrl != null && !websocketUrl.isEmpty()) {
+            scheduler.execute(this::subscribe);
+        }
+        scheduler.execute(this::tick);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        closeSubscription();
+    }
+
+    /**
+     * 获取内存中的最新区块
+     *
+     * @return 最新区块；尚未获取到或已经过期时返回null，调用方应直接查询节点
+     */
+    public EthBlock getLatestBlock() {
+        return isFresh() ? latestBlock : null;
+    }
+
+    /**
+     * 获取内存中的最新区块号
+     *
+     * @return 最新区块号；尚未获取到或已经过期时返回null
+     */
+    public BigInteger getLatestBlockNumber() {
+        EthBlock block = getLatestBlock();
+        return block == null ? null : block.getBlock().getNumber();
+    }
+
+    /**
+     * 内存中的区块是否足够新
+     *
+     * 超过三个出块间隔没有更新，说明推送或轮询已经中断，不能再当作最新区块使用。
+     * 跟踪器被禁用时没有后台刷新，内存中的区块始终视为过期。
+     */
+    public boolean isFresh() {
+        return enabled && latestBlock != null && System.currentTimeMillis() - lastUpdatedAt < 3 * blockTimeMs;
+    }
+
+    /**
+     * 获取最近一次查询到的 finalized 区块号
+     *
+     * @return finalized 区块号；节点不支持该标签或尚未查询时返回null
+     */
+    public BigInteger getFinalizedBlockNumber() {
+        return finalizedBlockNumber;
+    }
+
+    /**
+     * 注册新区块监听器，每当链头前进或发生重组时调用
+     */
+    public void addListener(Consumer<EthBlock> listener) {
+        listeners.add(listener);
+    }
+
+    public boolean isSubscribed() {
+        return subscribed;
+    }
+
+    public long getLastUpdatedAt() {
+        return lastUpdatedAt;
+    }
+
+    public double getBlockTimeMs() {
+        return blockTimeMs;
+    }
+
+    /**
+     * 记录新的区块
+     *
+     * 只接受更高的区块，或同一高度但哈希不同的区块（链重组）；重复的区块只刷新时间戳。
+     */
+    public void update(EthBlock ethBlock) {
+        if (accept(ethBlock)) {
+            for (Consumer<EthBlock> listener : listeners) {
+                try {
+                    listener.accept(ethBlock);
+                } catch (RuntimeException e) {
+                    logger.warn("Chain head listener failed: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private synchronized boolean accept(EthBlock ethBlock) {
+        if (ethBlock == null || ethBlock.getBlock() == null) {
+            return false;
+        }
+        EthBlock.Block block = ethBlock.getBlock();
+        EthBlock current = latestBlock;
+        if (current != null) {
+            EthBlock.Block currentBlock = current.getBlock();
+            int order = block.getNumber().compareTo(currentBlock.getNumber());
+            if (order < 0) {
+                return false;
+            }
+            if (order == 0 && block.getHash().equals(currentBlock.getHash())) {
+                lastUpdatedAt = System.currentTimeMillis();
+                return false;
+            }
+            if (order > 0 && block.getNumber().subtract(currentBlock.getNumber()).equals(BigInteger.ONE)) {
+                long deltaMs = block.getTimestamp().subtract(currentBlock.getTimestamp()).longValue() * 1000;
+                if (deltaMs > 0) {
+                    blockTimeMs = BLOCK_TIME_ALPHA * deltaMs + (1 - BLOCK_TIME_ALPHA) * blockTimeMs;
+                }
+            }
+        }
+        latestBlock = ethBlock;
+        lastUpdatedAt = System.currentTimeMillis();
+        logger.debug("New chain head: {} ({})", block.getNumber(), block.getHash());
+        return true;
+    }
+
+    /**
+     * 轮询一次并安排下一次轮询
+     *
+     * WebSocket推送正常时只做看门狗检查；否则查询 eth_blockNumber，有新区块时再获取区块头。
+     */
+    private void tick() {
+        long nextDelay;
+        try {
+            if (subscribed && isFresh()) {
+                nextDelay = (long) blockTimeMs;
+            } else {
+                nextDelay = poll();
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to poll chain head: {}", e.getMessage());
+            nextDelay = Math.max(minPollIntervalMs, (long) blockTimeMs);
+        }
+        scheduleTick(nextDelay);
+    }
+
+    private long poll() throws IOException {
+        BigInteger blockNumber = web3j.ethBlockNumber().send().getBlockNumber();
+        EthBlock current = latestBlock;
+        if (current == null || blockNumber.compareTo(current.getBlock().getNumber()) > 0) {
+            fetchBlock(DefaultBlockParameter.valueOf(blockNumber));
+        } else {
+            lastUpdatedAt = System.currentTimeMillis();
+        }
+        return nextPollDelay();
+    }
+
+    /**
+     * 估计下一个区块的到达时间，临近时以最小间隔轮询
+     */
+    private long nextPollDelay() {
+        EthBlock current = latestBlock;
+        if (current == null) {
+            return minPollIntervalMs;
+        }
+        long blockTimestampMs = current.getBlock().getTimestamp().longValue() * 1000;
+        long expectedAt = blockTimestampMs + (long) blockTimeMs;
+        return Math.max(minPollIntervalMs, expectedAt - System.currentTimeMillis());
+    }
+
+    private void fetchBlock(DefaultBlockParameter blockParameter) throws IOException {
+        EthBlock block = web3j.ethGetBlockByNumber(blockParameter, false).send();
+        update(block);
+        refreshFinalizedIfDue();
+    }
+
+    /**
+     * 链头每前进一个epoch查询一次 finalized 区块号
+     */
+    private void refreshFinalizedIfDue() {
+        BigInteger head = latestBlock == null ? null : latestBlock.getBlock().getNumber();
+        if (head == null || (finalizedCheckedAt != null
+                && head.subtract(finalizedCheckedAt).longValue() < FINALIZED_REFRESH_BLOCKS)) {
+            return;
+        }
+        finalizedCheckedAt = head;
+        try {
+            EthBlock finalized = web3j.ethGetBlockByNumber(DefaultBlockParameterName.FINALIZED, false).send();
+            if (!finalized.hasError() && finalized.getBlock() != null) {
+                finalizedBlockNumber = finalized.getBlock().getNumber();
+                logger.debug("Finalized block: {}", finalizedBlockNumber);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Could not fetch finalized block: {}", e.getMessage());
+        }
+    }
+
+    private void scheduleTick(long delayMs) {
+        if (scheduler != null && !scheduler.isShutdown()) {
+            scheduler.schedule(this::tick, delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void subscribe() {
+        try {
+            webSocketService = new WebSocketService(websocketUrl, false);
+            webSocketService.connect();
+            Web3j webSocketWeb3j = Web3j.build(webSocketService);
+            subscription = webSocketWeb3j.newHeadsNotifications().subscribe(
+                    this::onNewHead,
+                    this::onSubscriptionError);
+            subscribed = true;
+            logger.info("Subscribed to newHeads via WebSocket");
+        } catch (Exception e) {
+            onSubscriptionError(e);
+        }
+    }
+
+    private void onNewHead(NewHeadsNotification notification) {
+        String number = notification.getParams().getResult().getNumber();
+        try {
+            // 推送的区块头不包含交易列表，按区块号补取一次完整区块头
+            fetchBlock(DefaultBlockParameter.valueOf(Numeric.decodeQuantity(number)));
+        } catch (IOException e) {
+            logger.warn("Failed to fetch block {} announced by newHeads: {}", number, e.getMessage());
+        }
+    }
+
+    private void onSubscriptionError(Throwable error) {
+        logger.warn("newHeads subscription failed, falling back to polling: {}", error.getMessage());
+        subscribed = false;
+        closeSubscription();
+        if (scheduler != null && !scheduler.isShutdown()) {
+            scheduler.schedule(this::subscribe, RECONNECT_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void closeSubscription() {
+        if (subscription != null) {
+            subscription.dispose();
+            subscription = null;
+        }
+        if (webSocketService != null) {
+            webSocketService.close();
+            webSocketService = null;
+        }
+    }
+}
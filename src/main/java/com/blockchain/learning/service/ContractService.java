@@ -4,19 +4,41 @@ import com.blockchain.learning.contracts.SimpleStorage;
 import com.blockchain.learning.exception.BlockchainException;
 import com.blockchain.learning.model.ContractDeployResult;
 import com.blockchain.learning.model.TransactionResult;
+import com.blockchain.learning.rpc.RpcBatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.FunctionReturnDecoder;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.generated.Uint256;
 import org.web3j.crypto.Credentials;
 import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.protocol.core.methods.response.EthCall;
 import org.web3j.protocol.core.methods.response.TransactionReceipt;
 import org.web3j.tx.RawTransactionManager;
 import org.web3j.tx.TransactionManager;
-import org.web3j.tx.gas.StaticGasProvider;
+import org.web3j.utils.Numeric;
 
+import java.io.IOException;
 import java.math.BigInteger;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
 
 @Service
 public class ContractService {
@@ -25,24 +47,95 @@ public class ContractService {
 
     private static final BigInteger GAS_LIMIT = BigInteger.valueOf(2_000_000L);
 
+    /** 批量读取来源：Multicall3 聚合调用 */
+    public static final String SOURCE_MULTICALL = "multicall3";
+
+    /** 批量读取来源：JSON-RPC 批量请求 */
+    public static final String SOURCE_RPC_BATCH = "rpc-batch";
+
     @Autowired
     private Web3j web3j;
 
     @Autowired
-    private Web3Service web3Service;
+    private GasOracle gasOracle;
+
+    @Autowired
+    private NetworkInfoService networkInfoService;
 
     @Autowired
     private WalletService walletService;
 
+    @Autowired
+    private MulticallService multicallService;
+
+    @Autowired
+    private ChainHeadTracker chainHeadTracker;
+
+    /**
+     * SimpleStorage 支持批量读取的只读方法
+     */
+    public enum ReadMethod {
+
+        GET("get", Collections.<TypeReference<?>>singletonList(new TypeReference<Uint256>() {})),
+
+        OWNER("owner", Collections.<TypeReference<?>>singletonList(new TypeReference<Address>() {})),
+
+        GET_INFO("getInfo", Arrays.<TypeReference<?>>asList(
+                new TypeReference<Uint256>() {}, new TypeReference<Address>() {}, new TypeReference<Address>() {}));
+
+        private final String functionName;
+
+        private final List<TypeReference<?>> outputs;
+
+        ReadMethod(String functionName, List<TypeReference<?>> outputs) {
+            this.functionName = functionName;
+            this.outputs = outputs;
+        }
+
+        public String getFunctionName() {
+            return functionName;
+        }
+
+        /**
+         * 按合约中的函数名查找，例如 {@code getInfo}
+         */
+        public static ReadMethod fromFunctionName(String functionName) {
+            for (ReadMethod method : values()) {
+                if (method.functionName.equals(functionName)) {
+                    return method;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported read method: " + functionName);
+        }
+
+        private Function function() {
+            return new Function(functionName, Collections.<Type>emptyList(), outputs);
+        }
+
+        /**
+         * 把解码后的返回值转换成接口返回的结构
+         */
+        private Object toValue(List<Type> decoded) {
+            if (this != GET_INFO) {
+                return decoded.get(0).getValue();
+            }
+            Map<String, Object> info = new HashMap<>();
+            info.put("value", decoded.get(0).getValue());
+            info.put("owner", decoded.get(1).getValue());
+            info.put("contractAddress", decoded.get(2).getValue());
+            return info;
+        }
+    }
+
     public ContractDeployResult deploySimpleStorageContract() {
         try {
             Credentials credentials = walletService.getCurrentCredentials();
             logger.info("Deploying contract using wallet address: {}", credentials.getAddress());
 
-            BigInteger gasPrice = web3Service.getGasPrice();
-            StaticGasProvider gasProvider = new StaticGasProvider(gasPrice, GAS_LIMIT);
+            OracleGasProvider gasProvider = gasOracle.gasProvider(GAS_LIMIT);
 
-            logger.info("Deploying SimpleStorage.sol with gas price {} and gas limit {}", gasPrice, GAS_LIMIT);
+            logger.info("Deploying SimpleStorage.sol with max fee {} (priority {}) and gas limit {}",
+                    gasProvider.getMaxFeePerGas(null), gasProvider.getMaxPriorityFeePerGas(null), GAS_LIMIT);
             SimpleStorage contract = SimpleStorage.deploy(web3j, credentials, gasProvider).send();
 
             String contractAddress = contract.getContractAddress();
@@ -71,10 +164,10 @@ public class ContractService {
         try {
             logger.info("Reading value from contract at address: {}", contractAddress);
             Credentials credentials = walletService.getCurrentCredentials();
-            BigInteger gasPrice = web3Service.getGasPrice();
 
-            // Corrected call to SimpleStorage.load
-            SimpleStorage contract = SimpleStorage.load(contractAddress, web3j, credentials, gasPrice, GAS_LIMIT);
+            // 只读调用不消耗Gas，这里的Gas参数只是为了构造合约对象
+            SimpleStorage contract = SimpleStorage.load(contractAddress, web3j, credentials,
+                    gasOracle.gasProvider(GAS_LIMIT));
 
             BigInteger value = contract.get().send();
             logger.info("Value read successfully from contract {}: {}", contractAddress, value);
@@ -85,18 +178,107 @@ public class ContractService {
         }
     }
 
+    /**
+     * 批量读取多个 SimpleStorage 合约
+     *
+     * 所有读取编码进 Multicall3 的 aggregate3 调用，合约数不超过单次上限时只需要一次 eth_call；
+     * Multicall3 不可用或 aggregate3 调用失败时退回到一个JSON-RPC批量请求，同样只有一次HTTP往返。
+     * 单个合约读取失败（地址上没有合约、调用revert）不影响其他合约，失败原因按地址返回。
+     *
+     * @param contractAddresses 合约地址列表，重复地址只读取一次
+     * @param method 要调用的只读方法
+     */
+    public BulkReadResult getValues(List<String> contractAddresses, ReadMethod method) {
+        List<String> addresses = new ArrayList<>(new LinkedHashSet<>(contractAddresses));
+        BigInteger blockNumber = chainHeadTracker.getLatestBlockNumber();
+        DefaultBlockParameter block = blockNumber != null
+                ? DefaultBlockParameter.valueOf(blockNumber)
+                : DefaultBlockParameterName.LATEST;
+        String callData = FunctionEncoder.encode(method.function());
+        logger.info("Reading {}() from {} contracts", method.getFunctionName(), addresses.size());
+
+        try {
+            List<MulticallService.Result> results = null;
+            String source = SOURCE_MULTICALL;
+            if (multicallService.isAvailableAsync().join()) {
+                List<MulticallService.Call> calls = new ArrayList<>(addresses.size());
+                for (String address : addresses) {
+                    calls.add(new MulticallService.Call(address, true, callData));
+                }
+                try {
+                    results = multicallService.aggregate3Async(calls, block).join();
+                } catch (CompletionException e) {
+                    logger.warn("Multicall3 contract read failed, falling back to an RPC batch: {}",
+                            Web3Service.unwrap(e).getMessage());
+                }
+            }
+            if (results == null) {
+                results = callInBatch(addresses, callData, block);
+                source = SOURCE_RPC_BATCH;
+            }
+
+            Map<String, Object> values = new LinkedHashMap<>();
+            Map<String, String> errors = new LinkedHashMap<>();
+            for (int i = 0; i < addresses.size(); i++) {
+                MulticallService.Result result = results.get(i);
+                String returnData = result.getReturnData();
+                if (!result.isSuccess()) {
+                    errors.put(addresses.get(i), "call reverted");
+                } else if (returnData == null || Numeric.cleanHexPrefix(returnData).isEmpty()) {
+                    errors.put(addresses.get(i), "empty return data, address may not be a SimpleStorage contract");
+                } else {
+                    List<Type> decoded = FunctionReturnDecoder.decode(returnData, method.function().getOutputParameters());
+                    if (decoded.isEmpty()) {
+                        errors.put(addresses.get(i), "could not decode return data");
+                    } else {
+                        values.put(addresses.get(i), method.toValue(decoded));
+                    }
+                }
+            }
+            logger.info("Read {}() from {} contracts via {}, {} failed",
+                    method.getFunctionName(), values.size(), source, errors.size());
+            return new BulkReadResult(blockNumber, source, values, errors);
+        } catch (CompletionException | IOException e) {
+            Throwable cause = Web3Service.unwrap(e);
+            logger.error("Failed to read {}() from contracts: {}", method.getFunctionName(), cause.getMessage(), cause);
+            throw new BlockchainException("Could not read contracts: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Multicall3 不可用时把所有 eth_call 放进一个JSON-RPC批量请求
+     */
+    private List<MulticallService.Result> callInBatch(List<String> addresses, String callData,
+                                                      DefaultBlockParameter block) throws IOException {
+        RpcBatch batch = new RpcBatch(web3j);
+        List<RpcBatch.Call<EthCall>> calls = new ArrayList<>(addresses.size());
+        for (String address : addresses) {
+            calls.add(batch.add(web3j.ethCall(
+                    Transaction.createEthCallTransaction(null, address, callData), block)));
+        }
+        batch.execute();
+
+        List<MulticallService.Result> results = new ArrayList<>(calls.size());
+        for (RpcBatch.Call<EthCall> call : calls) {
+            if (!call.isSuccessful() || call.get().isReverted()) {
+                results.add(new MulticallService.Result(false, null));
+            } else {
+                results.add(new MulticallService.Result(true, call.get().getValue()));
+            }
+        }
+        return results;
+    }
+
     public TransactionResult setValue(String contractAddress, BigInteger newValue) {
         try {
             logger.info("Setting value '{}' in contract at address: {}", newValue, contractAddress);
 
             Credentials credentials = walletService.getCurrentCredentials();
-            long chainId = web3j.ethChainId().send().getChainId().longValue();
-            TransactionManager transactionManager = new RawTransactionManager(web3j, credentials, chainId);
-
-            BigInteger gasPrice = web3Service.getGasPrice();
+            OracleGasProvider gasProvider = gasOracle.gasProvider(GAS_LIMIT);
+            TransactionManager transactionManager =
+                    new RawTransactionManager(web3j, credentials, networkInfoService.getChainId());
 
-            // Corrected call to SimpleStorage.load
-            SimpleStorage contract = SimpleStorage.load(contractAddress, web3j, transactionManager, gasPrice, GAS_LIMIT);
+            SimpleStorage contract = SimpleStorage.load(contractAddress, web3j, transactionManager, gasProvider);
 
             TransactionReceipt receipt = contract.set(newValue).send();
             logger.info("Transaction to set value successful. TxHash: {}", receipt.getTransactionHash());
@@ -105,7 +287,9 @@ public class ContractService {
             result.setTransactionHash(receipt.getTransactionHash());
             result.setStatus(receipt.isStatusOK() ? "SUCCESS" : "FAILED");
             result.setGasUsed(receipt.getGasUsed());
-            result.setGasPrice(gasPrice);
+            result.setGasPrice(receipt.getEffectiveGasPrice() != null
+                    ? Numeric.decodeQuantity(receipt.getEffectiveGasPrice())
+                    : gasProvider.getGasPrice());
             result.setBlockNumber(receipt.getBlockNumber());
             result.setBlockHash(receipt.getBlockHash());
 
@@ -116,4 +300,50 @@ public class ContractService {
             throw new BlockchainException("Could not set value in contract: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * 批量读取结果，不可变
+     */
+    public static final class BulkReadResult {
+
+        private final BigInteger blockNumber;
+
+        private final String source;
+
+        private final Map<String, Object> values;
+
+        private final Map<String, String> errors;
+
+        BulkReadResult(BigInteger blockNumber, String source, Map<String, Object> values, Map<String, String> errors) {
+            this.blockNumber = blockNumber;
+            this.source = source;
+            this.values = Collections.unmodifiableMap(values);
+            this.errors = Collections.unmodifiableMap(errors);
+        }
+
+        /**
+         * 读取所在的区块号，链头跟踪器未就绪时按 latest 读取，此时为null
+         */
+        public BigInteger getBlockNumber() {
+            return blockNumber;
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        /**
+         * 合约地址到读取结果的映射，保持请求中的地址顺序
+         */
+        public Map<String, Object> getValues() {
+            return values;
+        }
+
+        /**
+         * 读取失败的合约地址及原因
+         */
+        public Map<String, String> getErrors() {
+            return errors;
+        }
+    }
 }
@@ -1,9 +1,11 @@
 package com.blockchain.learning.service;
 
+import com.blockchain.learning.model.Address20;
 import com.blockchain.learning.model.EtherscanResponse;
 import com.blockchain.learning.model.EtherscanTransaction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.stereotype.Service;
@@ -13,6 +15,7 @@ import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -21,6 +24,9 @@ public class ExplorerService {
 
     private static final Logger logger = LoggerFactory.getLogger(ExplorerService.class);
 
+    /** Etherscan接受的最大区块号，表示"直到最新区块" */
+    public static final long LATEST_BLOCK = 99999999;
+
     private final RestTemplate restTemplate;
 
     @Value("${explorer.api.url}")
@@ -29,6 +35,9 @@ public class ExplorerService {
     @Value("${explorer.api.key}")
     private String apiKey;
 
+    @Autowired
+    private TransactionIndexer transactionIndexer;
+
     public ExplorerService(RestTemplateBuilder restTemplateBuilder) {
         this.restTemplate = restTemplateBuilder
                 .setConnectTimeout(java.time.Duration.ofSeconds(5))
@@ -37,18 +46,67 @@ public class ExplorerService {
     }
 
     /**
-     * Fetches the transaction history for a given address from the Etherscan API.
+     * Returns the transaction history for a given address, newest first.
      *
      * @param address The Ethereum address to query.
      * @return A list of transactions, or an empty list if there are none or an error occurs.
      */
     public List<EtherscanTransaction> getTransactionHistory(String address) {
+        return getTransactionHistory(address, 0, LATEST_BLOCK);
+    }
+
+    /**
+     * Returns the transaction history of an address within [startBlock, endBlock], newest first,
+     * capped at max-results transactions like Etherscan's txlist.
+     *
+     * Blocks covered by the local transaction index are served from it, and a range the index fully covers
+     * never reaches Etherscan. Etherscan is only queried for the parts of the range the index does not cover:
+     * blocks after its tip while the index is still catching up with the chain head, and blocks older than
+     * the index when the newer parts have not already filled the result.
+     *
+     * @param address The Ethereum address to query.
+     * @param startBlock First block of the range.
+     * @param endBlock Last block of the range, {@link #LATEST_BLOCK} for the chain head.
+     * @return A list of transactions, or an empty list if there are none or an error occurs.
+     */
+    public List<EtherscanTransaction> getTransactionHistory(String address, long startBlock, long endBlock) {
+        Address20 key = Address20.tryFromHex(address);
+        long lowest = transactionIndexer.getLowestBlock();
+        if (key == null || lowest < 0 || endBlock < lowest) {
+            return fetchTransactionHistory(address, startBlock, endBlock);
+        }
+
+        int maxResults = transactionIndexer.getMaxResults();
+        long highest = transactionIndexer.getHighestBlock();
+        List<EtherscanTransaction> transactions = new ArrayList<>();
+        if (endBlock > highest && !transactionIndexer.isCaughtUp()) {
+            transactions.addAll(fetchTransactionHistory(address, Math.max(startBlock, highest + 1), endBlock));
+        }
+        if (transactions.size() < maxResults && startBlock <= highest) {
+            List<EtherscanTransaction> indexed = transactionIndexer.getTransactions(key,
+                    Math.max(startBlock, lowest), Math.min(endBlock, highest), maxResults - transactions.size());
+            logger.debug("Served {} transactions for address {} from the local index (blocks {}..{})",
+                    indexed.size(), address, lowest, highest);
+            transactions.addAll(indexed);
+        }
+        if (transactions.size() < maxResults && startBlock < lowest) {
+            transactions.addAll(fetchTransactionHistory(address, startBlock, lowest - 1));
+        }
+        return transactions.size() > maxResults ? new ArrayList<>(transactions.subList(0, maxResults)) : transactions;
+    }
+
+    /**
+     * Fetches the transaction history of an address within [startBlock, endBlock] from the Etherscan API.
+     *
+     * @return A list of transactions, or an empty list if there are none or an error occurs.
+     */
+    private List<EtherscanTransaction> fetchTransactionHistory(String address, long startBlock, long endBlock) {
         String url = UriComponentsBuilder.fromHttpUrl(apiUrl)
                 .queryParam("module", "account")
                 .queryParam("action", "txlist")
                 .queryParam("address", address)
-                .queryParam("startblock", 0)
-                .queryParam("endblock", 99999999)
+                .queryParam("startblock", startBlock)
+                .queryParam("endblock", endBlock)
                 .queryParam("sort", "desc")
                 .queryParam("apikey", apiKey)
                 .toUriString();
@@ -0,0 +1,340 @@
+package com.blockchain.learning.service;
+
+import com.blockchain.learning.exception.BlockchainException;
+import com.blockchain.learning.rpc.RpcBatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthFeeHistory;
+import org.web3j.protocol.core.methods.response.EthGasPrice;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gas价格预言机
+ *
+ * 后台定时通过一次批量请求获取 eth_feeHistory 和 eth_gasPrice，按区块号保存最近若干区块的
+ * 小费分位数（滚动窗口），从内存中给出慢/标准/快三档 EIP-1559 费用建议。
+ * 合约调用通过 {@link #gasProvider(BigInteger)} 取得费用，不再在每次调用前查询Gas价格。
+ *
+ * 节点不支持 eth_feeHistory（返回"方法不存在"）时不再请求它，退回到 eth_gasPrice 的传统交易；
+ * 返回的数据不含基础费用（London升级之前的区块）时这次采样同样给出传统交易的费用。
+ */
+@Service
+public class GasOracle {
+
+    private static final Logger logger = LoggerFactory.getLogger(GasOracle.class);
+
+    /** JSON-RPC错误码：方法不存在 */
+    private static final int METHOD_NOT_FOUND = -32601;
+
+    /** 费用档位 */
+    public enum Speed {
+        SLOW, STANDARD, FAST
+    }
+
+    @Autowired
+    private Web3j web3j;
+
+    @Autowired
+    private NetworkInfoService networkInfoService;
+
+    @Value("${blockchain.gas-oracle.enabled:true}")
+    private boolean enabled;
+
+    @Value("${blockchain.gas-oracle.refresh-interval-ms:12000}")
+    private long refreshIntervalMs;
+
+    @Value("${blockchain.gas-oracle.history-blocks:20}")
+    private int historyBlocks;
+
+    @Value("${blockchain.gas-oracle.reward-percentiles:10,50,90}")
+    private double[] rewardPercentiles;
+
+    @Value("${blockchain.gas-oracle.default-speed:STANDARD}")
+    private Speed defaultSpeed;
+
+    /** 每个区块的小费分位数，按区块号排序，只保留最近 historyBlocks 个区块 */
+    private final TreeMap<Long, BigInteger[]> rewardsByBlock = new TreeMap<>();
+
+    private volatile Snapshot snapshot;
+
+    private volatile boolean feeHistorySupported = true;
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            logger.info("Gas oracle background sampling is disabled, fees will be sampled on demand");
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "gas-oracle");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::refreshQuietly, 0, refreshIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 获取当前的费用快照
+     *
+     * 尚未采样或快照已过期（超过三个刷新间隔，说明后台采样中断或未启用）时同步采样一次；
+     * 采样失败但有旧快照时继续使用旧快照。
+     */
+    public Snapshot current() {
+        Snapshot current = snapshot;
+        if (current != null && System.currentTimeMillis() - current.getSampledAt() < 3 * refreshIntervalMs) {
+            return current;
+        }
+        try {
+            return refresh();
+        } catch (IOException | RuntimeException e) {
+            if (current != null) {
+                logger.warn("Gas oracle refresh failed, using fees sampled at {}: {}",
+                        current.getSampledAt(), e.getMessage());
+                return current;
+            }
+            throw new BlockchainException("Could not sample gas fees: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 使用默认档位创建合约调用的Gas提供者
+     */
+    public OracleGasProvider gasProvider(BigInteger gasLimit) {
+        return gasProvider(defaultSpeed, gasLimit);
+    }
+
+    /**
+     * 创建合约调用的Gas提供者
+     *
+     * 提供者固定使用创建时的快照，同一笔交易估算和签名时看到的费用保持一致。
+     */
+    public OracleGasProvider gasProvider(Speed speed, BigInteger gasLimit) {
+        return new OracleGasProvider(current(), speed, gasLimit);
+    }
+
+    /**
+     * 采样一次并更新快照
+     *
+     * @throws IOException 请求失败，或 eth_feeHistory 返回了"方法不存在"以外的错误；快照保持不变
+     */
+    public synchronized Snapshot refresh() throws IOException {
+        int blockCount = rewardsByBlock.isEmpty() ? historyBlocks : Math.max(1, historyBlocks / 4);
+
+        RpcBatch batch = new RpcBatch(web3j);
+        RpcBatch.Call<EthGasPrice> gasPriceResponse = batch.add(web3j.ethGasPrice());
+        RpcBatch.Call<EthFeeHistory> feeHistoryResponse = feeHistorySupported
+                ? batch.add(web3j.ethFeeHistory(blockCount, DefaultBlockParameterName.LATEST, percentileList()))
+                : null;
+        batch.execute();
+
+        BigInteger gasPrice = gasPriceResponse.get().getGasPrice();
+        long chainId = networkInfoService.getChainId();
+
+        BigInteger baseFee = null;
+        if (feeHistoryResponse != null) {
+            Response.Error error = feeHistoryResponse.getError();
+            if (error != null && error.getCode() == METHOD_NOT_FOUND) {
+                feeHistorySupported = false;
+                logger.info("Node does not support eth_feeHistory, falling back to legacy gas price");
+            } else {
+                // 限流、超时等其他错误只算这次采样失败，调用方继续使用上一次的快照
+                baseFee = record(feeHistoryResponse.get().getFeeHistory());
+            }
+        }
+
+        Snapshot updated = baseFee == null
+                ? new Snapshot(chainId, gasPrice, null, null, System.currentTimeMillis())
+                : new Snapshot(chainId, gasPrice, baseFee, priorityFees(), System.currentTimeMillis());
+        snapshot = updated;
+        logger.debug("Gas oracle sampled: {}", updated);
+        return updated;
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to sample gas fees: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 把 eth_feeHistory 的结果合并进滚动窗口
+     *
+     * @return 下一个区块的基础费用；节点返回的数据不含基础费用时返回null
+     */
+    private BigInteger record(EthFeeHistory.FeeHistory feeHistory) {
+        List<BigInteger> baseFees = feeHistory.getBaseFeePerGas();
+        if (baseFees == null || baseFees.isEmpty() || baseFees.get(baseFees.size() - 1).signum() == 0) {
+            return null;
+        }
+
+        List<List<BigInteger>> rewards = feeHistory.getReward();
+        List<Double> gasUsedRatios = feeHistory.getGasUsedRatio();
+        long oldestBlock = feeHistory.getOldestBlock().longValue();
+        for (int i = 0; rewards != null && i < rewards.size(); i++) {
+            // 空区块没有交易，小费分位数全是0，不能代表市场价格
+            if (gasUsedRatios != null && i < gasUsedRatios.size() && gasUsedRatios.get(i) == 0.0) {
+                continue;
+            }
+            List<BigInteger> blockRewards = rewards.get(i);
+            if (blockRewards.size() == rewardPercentiles.length) {
+                rewardsByBlock.put(oldestBlock + i, blockRewards.toArray(new BigInteger[0]));
+            }
+        }
+        while (rewardsByBlock.size() > historyBlocks) {
+            rewardsByBlock.pollFirstEntry();
+        }
+
+        // baseFeePerGas 比区块数多一项，最后一项是下一个区块的基础费用
+        return baseFees.get(baseFees.size() - 1);
+    }
+
+    /**
+     * 每个档位取窗口内各区块对应分位数的中位数，避免单个区块的极端小费影响建议值
+     */
+    private BigInteger[] priorityFees() {
+        BigInteger[] fees = new BigInteger[rewardPercentiles.length];
+        for (int tier = 0; tier < fees.length; tier++) {
+            List<BigInteger> values = new ArrayList<>();
+            for (Map.Entry<Long, BigInteger[]> entry : rewardsByBlock.entrySet()) {
+                values.add(entry.getValue()[tier]);
+            }
+            if (values.isEmpty()) {
+                fees[tier] = BigInteger.ZERO;
+                continue;
+            }
+            Collections.sort(values);
+            fees[tier] = values.get(values.size() / 2);
+        }
+        // 保证档位之间单调不减
+        for (int tier = 1; tier < fees.length; tier++) {
+            fees[tier] = fees[tier].max(fees[tier - 1]);
+        }
+        return fees;
+    }
+
+    private List<Double> percentileList() {
+        List<Double> percentiles = new ArrayList<>();
+        for (double percentile : rewardPercentiles) {
+            percentiles.add(percentile);
+        }
+        return percentiles;
+    }
+
+    public boolean isFeeHistorySupported() {
+        return feeHistorySupported;
+    }
+
+    public Speed getDefaultSpeed() {
+        return defaultSpeed;
+    }
+
+    /**
+     * 某一时刻的费用快照，不可变
+     */
+    public static final class Snapshot {
+
+        private final long chainId;
+
+        private final BigInteger gasPrice;
+
+        private final BigInteger baseFeePerGas;
+
+        private final BigInteger[] priorityFees;
+
+        private final long sampledAt;
+
+        Snapshot(long chainId, BigInteger gasPrice, BigInteger baseFeePerGas, BigInteger[] priorityFees,
+                 long sampledAt) {
+            this.chainId = chainId;
+            this.gasPrice = gasPrice;
+            this.baseFeePerGas = baseFeePerGas;
+            this.priorityFees = priorityFees;
+            this.sampledAt = sampledAt;
+        }
+
+        /**
+         * 是否可以发送 EIP-1559 交易
+         */
+        public boolean isEip1559() {
+            return baseFeePerGas != null;
+        }
+
+        /**
+         * 指定档位的小费
+         */
+        public BigInteger getMaxPriorityFeePerGas(Speed speed) {
+            if (!isEip1559()) {
+                return gasPrice;
+            }
+            return priorityFees[Math.min(speed.ordinal(), priorityFees.length - 1)];
+        }
+
+        /**
+         * 指定档位的最高费用
+         *
+         * 取两倍基础费用加小费：基础费用每个区块最多上涨12.5%，两倍可以覆盖连续6个满区块的上涨。
+         * 实际只按 基础费用 + 小费 扣费，多出的部分不会被收取。
+         */
+        public BigInteger getMaxFeePerGas(Speed speed) {
+            if (!isEip1559()) {
+                return gasPrice;
+            }
+            return baseFeePerGas.shiftLeft(1).add(getMaxPriorityFeePerGas(speed));
+        }
+
+        public long getChainId() {
+            return chainId;
+        }
+
+        public BigInteger getGasPrice() {
+            return gasPrice;
+        }
+
+        public BigInteger getBaseFeePerGas() {
+            return baseFeePerGas;
+        }
+
+        public long getSampledAt() {
+            return sampledAt;
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot{chainId=" + chainId
+                    + ", gasPrice=" + gasPrice
+                    + ", baseFeePerGas=" + baseFeePerGas
+                    + ", priorityFees=" + Arrays.toString(priorityFees)
+                    + '}';
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.blockchain.learning.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.FunctionReturnDecoder;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Bool;
+import org.web3j.abi.datatypes.DynamicArray;
+import org.web3j.abi.datatypes.DynamicBytes;
+import org.web3j.abi.datatypes.DynamicStruct;
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Multicall3 聚合调用
+ *
+ * 把多个只读合约调用打包进 Multicall3 合约的一次 {@code aggregate3} eth_call，
+ * 所有结果都来自同一个区块。调用数超过单次上限时拆成多次 eth_call 并行发送，
+ * 调用方需要指定区块号以保证各批次读取的是同一区块的状态。
+ *
+ * Multicall3 在主网和主流测试网上部署在同一个地址，启动后第一次使用时检查该地址是否有合约代码。
+ */
+@Service
+public class MulticallService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MulticallService.class);
+
+    @Autowired
+    private Web3j web3j;
+
+    @Value("${blockchain.multicall3.enabled:true}")
+    private boolean enabled;
+
+    @Value("${blockchain.multicall3.address:0xcA11bde05977b3631167028862bE2a173976CA11}")
+    private String contractAddress;
+
+    @Value("${blockchain.multicall3.max-calls-per-request:500}")
+    private int maxCallsPerRequest;
+
+    /** 合约是否已部署，null表示尚未检查 */
+    private volatile Boolean deployed;
+
+    /**
+     * 检查 Multicall3 是否可用
+     *
+     * 检查结果只在成功查询到合约代码后缓存，查询失败时本次视为不可用，下次再查。
+     */
+    public CompletableFuture<Boolean> isAvailableAsync() {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(false);
+        }
+        Boolean known = deployed;
+        if (known != null) {
+            return CompletableFuture.completedFuture(known);
+        }
+        return web3j.ethGetCode(contractAddress, DefaultBlockParameterName.LATEST).sendAsync()
+                .thenApply(response -> {
+                    if (response.hasError()) {
+                        throw new CompletionException(new IOException(
+                                "RPC error in eth_getCode: " + response.getError().getMessage()));
+                    }
+                    String code = response.getCode();
+                    boolean available = code != null && Numeric.cleanHexPrefix(code).length() > 0;
+                    deployed = available;
+                    logger.info("Multicall3 {} at {}", available ? "found" : "not deployed", contractAddress);
+                    return available;
+                })
+                .exceptionally(e -> {
+                    logger.warn("Could not check Multicall3 deployment: {}", Web3Service.unwrap(e).getMessage());
+                    return false;
+                });
+    }
+
+    /**
+     * 在指定区块执行一组调用
+     *
+     * @param calls 调用列表
+     * @param block 读取状态的区块，多次 eth_call 使用同一区块
+     * @return 与调用列表一一对应的结果
+     */
+    public CompletableFuture<List<Result>> aggregate3Async(List<Call> calls, DefaultBlockParameter block) {
+        List<CompletableFuture<List<Result>>> chunks = new ArrayList<>();
+        for (int from = 0; from < calls.size(); from += maxCallsPerRequest) {
+            chunks.add(sendChunk(calls.subList(from, Math.min(from + maxCallsPerRequest, calls.size())), block));
+        }
+
+        return CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> {
+                    List<Result> results = new ArrayList<>(calls.size());
+                    for (CompletableFuture<List<Result>> chunk : chunks) {
+                        results.addAll(chunk.join());
+                    }
+                    return results;
+                });
+    }
+
+    private CompletableFuture<List<Result>> sendChunk(List<Call> calls, DefaultBlockParameter block) {
+        List<Call3> encoded = new ArrayList<>(calls.size());
+        for (Call call : calls) {
+            encoded.add(new Call3(new Address(call.getTarget()), new Bool(call.isAllowFailure()),
+                    new DynamicBytes(Numeric.hexStringToByteArray(call.getCallData()))));
+        }
+        Function function = new Function("aggregate3",
+                Collections.<Type>singletonList(new DynamicArray<>(Call3.class, encoded)),
+                Collections.<TypeReference<?>>emptyList());
+        Transaction transaction = Transaction.createEthCallTransaction(
+                null, contractAddress, FunctionEncoder.encode(function));
+
+        return web3j.ethCall(transaction, block).sendAsync()
+                .thenApply(response -> {
+                    if (response.hasError()) {
+                        throw new CompletionException(new IOException(
+                                "RPC error in aggregate3: " + response.getError().getMessage()));
+                    }
+                    List<Result> results = decode(response.getValue());
+                    if (results.size() != calls.size()) {
+                        throw new CompletionException(new IOException(
+                                "aggregate3 returned " + results.size() + " results for " + calls.size() + " calls"));
+                    }
+                    return results;
+                });
+    }
+
+    /**
+     * 解码 aggregate3 的返回值 {@code (bool success, bytes returnData)[]}
+     */
+    @SuppressWarnings("unchecked")
+    static List<Result> decode(String value) {
+        List<Type> decoded = FunctionReturnDecoder.decode(value,
+                Collections.<TypeReference<Type>>singletonList(
+                        (TypeReference<Type>) (TypeReference<?>) new TypeReference<DynamicArray<Result3>>() {
+                        }));
+        if (decoded.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Result3> items = ((DynamicArray<Result3>) decoded.get(0)).getValue();
+        List<Result> results = new ArrayList<>(items.size());
+        for (Result3 item : items) {
+            results.add(new Result(item.success, Numeric.toHexString(item.returnData)));
+        }
+        return results;
+    }
+
+    /**
+     * 构造查询地址ETH余额的调用（Multicall3 自身的 getEthBalance）
+     */
+    public Call getEthBalance(String address) {
+        Function function = new Function("getEthBalance",
+                Collections.<Type>singletonList(new Address(address)),
+                Collections.<TypeReference<?>>emptyList());
+        return new Call(contractAddress, true, FunctionEncoder.encode(function));
+    }
+
+    public String getContractAddress() {
+        return contractAddress;
+    }
+
+    /**
+     * 单个调用
+     */
+    public static final class Call {
+
+        private final String target;
+
+        private final boolean allowFailure;
+
+        private final String callData;
+
+        /**
+         * @param target 被调用的合约地址
+         * @param allowFailure 为false时任一调用失败会使整个 aggregate3 回滚
+         * @param callData ABI编码后的调用数据
+         */
+        public Call(String target, boolean allowFailure, String callData) {
+            this.target = target;
+            this.allowFailure = allowFailure;
+            this.callData = callData;
+        }
+
+        public String getTarget() {
+            return target;
+        }
+
+        public boolean isAllowFailure() {
+            return allowFailure;
+        }
+
+        public String getCallData() {
+            return callData;
+        }
+    }
+
+    /**
+     * 单个调用的结果
+     */
+    public static final class Result {
+
+        private final boolean success;
+
+        private final String returnData;
+
+        public Result(boolean success, String returnData) {
+            this.success = success;
+            this.returnData = returnData;
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        /**
+         * 调用的返回数据（十六进制），调用失败时为revert数据
+         */
+        public String getReturnData() {
+            return returnData;
+        }
+    }
+
+    /** aggregate3 的入参结构 {@code (address target, bool allowFailure, bytes callData)} */
+    public static class Call3 extends DynamicStruct {
+
+        public Call3(Address target, Bool allowFailure, DynamicBytes callData) {
+            super(target, allowFailure, callData);
+        }
+    }
+
+    /** aggregate3 的返回结构 {@code (bool success, bytes returnData)} */
+    public static class Result3 extends DynamicStruct {
+
+        private final boolean success;
+
+        private final byte[] returnData;
+
+        public Result3(Bool success, DynamicBytes returnData) {
+            super(success, returnData);
+            this.success = success.getValue();
+            this.returnData = returnData.getValue();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.blockchain.learning.service;
+
+import com.blockchain.learning.exception.BlockchainException;
+import com.blockchain.learning.rpc.RpcBatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.methods.response.EthChainId;
+import org.web3j.protocol.core.methods.response.Web3ClientVersion;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 网络元数据快照
+ *
+ * 链ID、节点版本和网络名称几乎不会变化，启动时加载一次，之后按固定间隔在后台刷新。
+ * 需要链ID或网络信息的调用方都从这里读取内存中的快照，而不是每次查询节点。
+ */
+@Service
+public class NetworkInfoService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NetworkInfoService.class);
+
+    @Autowired
+    private Web3j web3j;
+
+    @Value("${blockchain.network.display-name:Unknown Network}")
+    private String networkDisplayName;
+
+    @Value("${blockchain.network-info.refresh-interval-ms:300000}")
+    private long refreshIntervalMs;
+
+    private volatile Snapshot snapshot;
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void start() {
+        refreshQuietly();
+        if (snapshot != null) {
+            logger.info("Successfully connected to blockchain network: {} (chainId={}, node={})",
+                    networkDisplayName, snapshot.getChainId(), snapshot.getNodeVersion());
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "network-info");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::refreshQuietly, refreshIntervalMs, refreshIntervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 获取内存中的快照
+     *
+     * @return 最近一次成功加载的快照，从未加载成功时返回null
+     */
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * 异步获取快照，尚未加载时立即加载一次
+     */
+    public CompletableFuture<Snapshot> getSnapshotAsync() {
+        Snapshot current = snapshot;
+        return current != null ? CompletableFuture.completedFuture(current) : refreshAsync();
+    }
+
+    /**
+     * 获取链ID
+     *
+     * @throws BlockchainException 快照尚未加载且节点不可用
+     */
+    public long getChainId() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            try {
+                current = refreshAsync().join();
+            } catch (CompletionException e) {
+                throw new BlockchainException("Could not load chain id: " + Web3Service.unwrap(e).getMessage(),
+                        Web3Service.unwrap(e));
+            }
+        }
+        return current.getChainId().longValue();
+    }
+
+    public String getNetworkName() {
+        return networkDisplayName;
+    }
+
+    /**
+     * 快照是否已经过期（超过两个刷新间隔没有成功刷新）
+     */
+    public boolean isStale() {
+        Snapshot current = snapshot;
+        return current == null || System.currentTimeMillis() - current.getRefreshedAt() > 2 * refreshIntervalMs;
+    }
+
+    /**
+     * 通过一次批量请求重新加载链ID和节点版本
+     */
+    public CompletableFuture<Snapshot> refreshAsync() {
+        RpcBatch batch = new RpcBatch(web3j);
+        RpcBatch.Call<Web3ClientVersion> clientVersion = batch.add(web3j.web3ClientVersion());
+        RpcBatch.Call<EthChainId> chainIdResponse = batch.add(web3j.ethChainId());
+
+        return batch.executeAsync().thenApply(ignored -> {
+            try {
+                Snapshot previous = snapshot;
+                Snapshot updated = new Snapshot(chainIdResponse.get().getChainId(),
+                        clientVersion.get().getWeb3ClientVersion(), System.currentTimeMillis());
+                if (previous != null && !previous.getChainId().equals(updated.getChainId())) {
+                    logger.warn("Chain id changed from {} to {}, RPC endpoint may point to another network",
+                            previous.getChainId(), updated.getChainId());
+                }
+                snapshot = updated;
+                logger.debug("Network info refreshed: chainId={}, node={}",
+                        updated.getChainId(), updated.getNodeVersion());
+                return updated;
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    private void refreshQuietly() {
+        try {
+            refreshAsync().join();
+        } catch (CompletionException e) {
+            logger.error("Failed to refresh network info: {}", Web3Service.unwrap(e).getMessage());
+        }
+    }
+
+    /**
+     * 网络元数据快照，不可变
+     */
+    public static final class Snapshot {
+
+        private final BigInteger chainId;
+
+        private final String nodeVersion;
+
+        private final long refreshedAt;
+
+        Snapshot(BigInteger chainId, String nodeVersion, long refreshedAt) {
+            this.chainId = chainId;
+            this.nodeVersion = nodeVersion;
+            this.refreshedAt = refreshedAt;
+        }
+
+        public BigInteger getChainId() {
+            return chainId;
+        }
+
+        public String getNodeVersion() {
+            return nodeVersion;
+        }
+
+        /**
+         * 快照加载时间（毫秒时间戳）
+         */
+        public long getRefreshedAt() {
+            return refreshedAt;
+        }
+    }
+}
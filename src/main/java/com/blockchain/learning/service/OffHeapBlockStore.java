@@ -0,0 +1,177 @@
+package com.blockchain.learning.service;
+
+import com.blockchain.learning.model.BlockSummary;
+import com.blockchain.learning.model.Hash32;
+import com.blockchain.learning.util.LongLongHashMap;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 堆外区块存储，区块缓存的第二层
+ *
+ * 区块以 {@link BlockSummaryCodec} 编码后顺序追加到固定大小的直接内存slab中，堆上只保留区块号到位置的索引，
+ * 区块对象本身不占堆空间，也不参与GC扫描。读取时从slab中解码出新的对象。
+ *
+ * 只存放已确认的区块，写入后不再修改。空间用完时整块回收最早写满的slab（FIFO），
+ * 并删除仍指向它的索引项。非线程安全，由 {@link BlockCache} 的锁保护。
+ */
+class OffHeapBlockStore {
+
+    /** 位置和区块号都不会是负数 */
+    private static final long NOT_FOUND = -1;
+
+    private final ByteBuffer[] slabs;
+
+    private final int slabBytes;
+
+    /** 每个slab中存放的区块号（前 slabBlockCounts[i] 个有效），回收slab时用来清理索引 */
+    private final long[][] slabBlocks;
+
+    private final int[] slabBlockCounts;
+
+    /** 区块号 → (slab序号 << 32 | 偏移) */
+    private final LongLongHashMap locations = new LongLongHashMap();
+
+    /** 区块哈希折叠值 → 区块号；查到后核对解码出的完整哈希 */
+    private final LongLongHashMap numbersByHash = new LongLongHashMap();
+
+    private int currentSlab = -1;
+
+    private long usedBytes;
+
+    private long slabEvictions;
+
+    OffHeapBlockStore(long capacityBytes, int slabBytes) {
+        int slabCount = (int) Math.max(1, capacityBytes / slabBytes);
+        this.slabs = new ByteBuffer[slabCount];
+        this.slabBytes = slabBytes;
+        this.slabBlocks = new long[slabCount][];
+        this.slabBlockCounts = new int[slabCount];
+        for (int i = 0; i < slabCount; i++) {
+            slabBlocks[i] = new long[64];
+        }
+    }
+
+    /**
+     * 写入区块，已存在时忽略
+     */
+    void put(BlockSummary block) {
+        if (locations.containsKey(block.getNumber())) {
+            return;
+        }
+        int size = BlockSummaryCodec.encodedSize(block);
+        if (size > slabBytes) {
+            return;
+        }
+        if (currentSlab < 0 || slabs[currentSlab].remaining() < size) {
+            nextSlab();
+        }
+
+        ByteBuffer slab = slabs[currentSlab];
+        int offset = slab.position();
+        BlockSummaryCodec.encode(block, slab);
+        usedBytes += size;
+        locations.put(block.getNumber(), ((long) currentSlab << 32) | offset);
+        numbersByHash.put(Hash32.fromHex(block.getHash()).fold(), block.getNumber());
+        addSlabBlock(currentSlab, block.getNumber());
+    }
+
+    /**
+     * 按区块号读取
+     *
+     * @return 不存在时返回null
+     */
+    BlockSummary get(long blockNumber) {
+        long location = locations.get(blockNumber, NOT_FOUND);
+        if (location == NOT_FOUND) {
+            return null;
+        }
+        // 使用独立的视图读取，不影响slab的写入位置
+        ByteBuffer view = slabs[(int) (location >>> 32)].duplicate();
+        view.position((int) location);
+        return BlockSummaryCodec.decode(view);
+    }
+
+    /**
+     * 按区块哈希读取
+     *
+     * @return 不存在时返回null
+     */
+    BlockSummary getByHash(Hash32 hash) {
+        long blockNumber = numbersByHash.get(hash.fold(), NOT_FOUND);
+        if (blockNumber == NOT_FOUND) {
+            return null;
+        }
+        BlockSummary block = get(blockNumber);
+        return block != null && hash.equals(Hash32.fromHex(block.getHash())) ? block : null;
+    }
+
+    boolean contains(long blockNumber) {
+        return locations.containsKey(blockNumber);
+    }
+
+    /**
+     * 切换到下一个slab，必要时回收它原有的内容
+     */
+    private void nextSlab() {
+        currentSlab = (currentSlab + 1) % slabs.length;
+        if (slabs[currentSlab] == null) {
+            // 按需分配，未用到的容量不占用直接内存
+            slabs[currentSlab] = ByteBuffer.allocateDirect(slabBytes);
+            return;
+        }
+
+        long[] evicted = slabBlocks[currentSlab];
+        for (int i = 0; i < slabBlockCounts[currentSlab]; i++) {
+            long blockNumber = evicted[i];
+            long location = locations.get(blockNumber, NOT_FOUND);
+            if (location != NOT_FOUND && (int) (location >>> 32) == currentSlab) {
+                long hashKey = Hash32.fromHex(get(blockNumber).getHash()).fold();
+                locations.remove(blockNumber);
+                if (numbersByHash.get(hashKey, NOT_FOUND) == blockNumber) {
+                    numbersByHash.remove(hashKey);
+                }
+            }
+        }
+        usedBytes -= slabs[currentSlab].position();
+        slabBlockCounts[currentSlab] = 0;
+        slabs[currentSlab].clear();
+        slabEvictions++;
+    }
+
+    private void addSlabBlock(int slab, long blockNumber) {
+        int count = slabBlockCounts[slab];
+        if (count == slabBlocks[slab].length) {
+            slabBlocks[slab] = Arrays.copyOf(slabBlocks[slab], count * 2);
+        }
+        slabBlocks[slab][count] = blockNumber;
+        slabBlockCounts[slab] = count + 1;
+    }
+
+    int size() {
+        return locations.size();
+    }
+
+    long getUsedBytes() {
+        return usedBytes;
+    }
+
+    long getAllocatedBytes() {
+        long allocated = 0;
+        for (ByteBuffer slab : slabs) {
+            if (slab != null) {
+                allocated += slab.capacity();
+            }
+        }
+        return allocated;
+    }
+
+    long getCapacityBytes() {
+        return (long) slabs.length * slabBytes;
+    }
+
+    long getSlabEvictions() {
+        return slabEvictions;
+    }
+}
@@ -0,0 +1,70 @@
+package com.blockchain.learning.service;
+
+import org.web3j.tx.gas.ContractEIP1559GasProvider;
+
+import java.math.BigInteger;
+
+/**
+ * 基于 {@link GasOracle} 快照的合约Gas提供者
+ *
+ * 节点支持 EIP-1559 时web3j会发送类型2交易，使用快照中对应档位的 maxFeePerGas / maxPriorityFeePerGas；
+ * 否则发送传统交易，使用快照中的 gasPrice。所有取值都来自内存，不会发起RPC请求。
+ */
+public class OracleGasProvider implements ContractEIP1559GasProvider {
+
+    private final GasOracle.Snapshot snapshot;
+
+    private final GasOracle.Speed speed;
+
+    private final BigInteger gasLimit;
+
+    OracleGasProvider(GasOracle.Snapshot snapshot, GasOracle.Speed speed, BigInteger gasLimit) {
+        this.snapshot = snapshot;
+        this.speed = speed;
+        this.gasLimit = gasLimit;
+    }
+
+    @Override
+    public boolean isEIP1559Enabled() {
+        return snapshot.isEip1559();
+    }
+
+    @Override
+    public long getChainId() {
+        return snapshot.getChainId();
+    }
+
+    @Override
+    public BigInteger getMaxFeePerGas(String contractFunc) {
+        return snapshot.getMaxFeePerGas(speed);
+    }
+
+    @Override
+    public BigInteger getMaxPriorityFeePerGas(String contractFunc) {
+        return snapshot.getMaxPriorityFeePerGas(speed);
+    }
+
+    @Override
+    public BigInteger getGasPrice(String contractFunc) {
+        return getGasPrice();
+    }
+
+    @Override
+    public BigInteger getGasPrice() {
+        return snapshot.isEip1559() ? snapshot.getMaxFeePerGas(speed) : snapshot.getGasPrice();
+    }
+
+    @Override
+    public BigInteger getGasLimit(String contractFunc) {
+        return gasLimit;
+    }
+
+    @Override
+    public BigInteger getGasLimit() {
+        return gasLimit;
+    }
+
+    public GasOracle.Speed getSpeed() {
+        return speed;
+    }
+}
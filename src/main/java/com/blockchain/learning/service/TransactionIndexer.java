@@ -0,0 +1,426 @@
+package com.blockchain.learning.service;
+
+import com.blockchain.learning.model.Address20;
+import com.blockchain.learning.model.BlockWithTransactions;
+import com.blockchain.learning.model.EtherscanTransaction;
+import com.blockchain.learning.model.ReceiptSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地交易索引器
+ *
+ * 从节点读取区块的全部交易和回执，写入 {@link AddressTxIndex}，让地址交易历史不必再查询Etherscan。
+ * 首次启动时从链头往前 start-blocks-back 个区块开始，之后一直跟随链头；区块数超过 max-blocks、
+ * 或估计的堆内存占用超过 max-mb 时淘汰最早的区块。
+ *
+ * 每轮同时读取 parallelism 个区块，按区块号顺序写入索引。写入前核对父哈希，
+ * 与索引末尾的区块对不上时（链重组）回滚末尾的区块，下一轮重新读取。
+ *
+ * 已确认的区块按段写入 path 目录下的 {@link TxIndexSegments}，重启时读回最近的一串连续的段，
+ * 只需要向节点补读最后一段未写盘的区块。写盘的区块落后链头超过 start-blocks-back 时不再读回，从头开始。
+ */
+@Service
+public class TransactionIndexer {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionIndexer.class);
+
+    /** 构造Etherscan格式的交易需要的字段 */
+    private static final Set<String> TRANSACTION_FIELDS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "hash", "from", "to", "value", "gasPrice", "transactionIndex")));
+
+    @Autowired
+    private Web3Service web3Service;
+
+    @Autowired
+    private ChainHeadTracker chainHeadTracker;
+
+    @Autowired
+    private NetworkInfoService networkInfoService;
+
+    @Value("${blockchain.explorer.index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${blockchain.explorer.index.start-blocks-back:10000}")
+    private long startBlocksBack;
+
+    @Value("${blockchain.explorer.index.max-blocks:50000}")
+    private int maxBlocks;
+
+    @Value("${blockchain.explorer.index.parallelism:4}")
+    private int parallelism;
+
+    @Value("${blockchain.explorer.index.poll-interval-ms:2000}")
+    private long pollIntervalMs;
+
+    @Value("${blockchain.explorer.index.max-results:10000}")
+    private int maxResults;
+
+    @Value("${blockchain.explorer.index.max-lag-blocks:16}")
+    private long maxLagBlocks;
+
+    @Value("${blockchain.explorer.index.max-mb:512}")
+    private long maxMb;
+
+    @Value("${blockchain.explorer.index.persist:true}")
+    private boolean persist;
+
+    @Value("${blockchain.explorer.index.path:./data/tx-index}")
+    private String path;
+
+    @Value("${blockchain.explorer.index.segment-blocks:1000}")
+    private int segmentBlocks;
+
+    @Value("${blockchain.cache.blocks.confirmation-depth:64}")
+    private long confirmationDepth;
+
+    private final AddressTxIndex index = new AddressTxIndex();
+
+    private final AtomicLong reorgs = new AtomicLong();
+
+    private final AtomicLong failures = new AtomicLong();
+
+    private volatile long chainHead = -1;
+
+    private TxIndexSegments segments;
+
+    /** 已写盘的最后一个区块 */
+    private volatile long persistedThrough = -1;
+
+    private volatile int loadedBlocks;
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            logger.info("Local transaction index is disabled");
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "tx-indexer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 先读回写盘的段，之后定期追赶链头；两者在同一线程上执行
+        if (persist) {
+            scheduler.execute(this::loadQuietly);
+        }
+        scheduler.scheduleWithFixedDelay(this::indexQuietly, 0, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 把索引推进到当前链头
+     *
+     * @return 本轮写入的区块数
+     */
+    public int indexNewBlocks() throws IOException {
+        long head = latestBlock();
+        chainHead = head;
+
+        int indexed = 0;
+        long next = index.highest() >= 0 ? index.highest() + 1 : Math.max(0, head - startBlocksBack + 1);
+        while (next <= head && !Thread.currentThread().isInterrupted()) {
+            long to = Math.min(head, next + parallelism - 1);
+            List<CompletableFuture<AddressTxIndex.IndexedBlock>> window = new ArrayList<>();
+            for (long number = next; number <= to; number++) {
+                window.add(fetch(number));
+            }
+            for (CompletableFuture<AddressTxIndex.IndexedBlock> future : window) {
+                AddressTxIndex.IndexedBlock block = Web3Service.await(future);
+                AddressTxIndex.IndexedBlock parent = index.block(block.getNumber() - 1);
+                if (parent != null && !parent.getHash().equalsIgnoreCase(block.getParentHash())) {
+                    AddressTxIndex.IndexedBlock removed = index.removeHighest();
+                    reorgs.incrementAndGet();
+                    logger.info("Chain reorganization at block {}, rolled back indexed block {}",
+                            block.getNumber(), removed.getNumber());
+                    return indexed;
+                }
+                index.append(block);
+                indexed++;
+                evictOverCapacity();
+            }
+            next = to + 1;
+        }
+        return indexed;
+    }
+
+    /**
+     * 读回写盘的段：从最新的段往前取一串连续、完整的段，最多 max-blocks 个区块，其余的段删除
+     *
+     * @return 读回的区块数
+     */
+    public synchronized int load() throws IOException {
+        if (index.highest() >= 0) {
+            return 0;
+        }
+        TxIndexSegments store = segments();
+        long chainId = networkInfoService.getChainId();
+        long head = latestBlock();
+        List<Long> starts = store.starts();
+
+        Deque<List<AddressTxIndex.IndexedBlock>> run = new ArrayDeque<>();
+        int blocks = 0;
+        for (int i = starts.size() - 1; i >= 0 && blocks < maxBlocks; i--) {
+            long start = starts.get(i);
+            boolean contiguous = run.isEmpty() || start + segmentBlocks == run.peekFirst().get(0).getNumber();
+            boolean recent = !run.isEmpty() || start + segmentBlocks - 1 >= head - startBlocksBack;
+            List<AddressTxIndex.IndexedBlock> segment = contiguous && recent ? store.read(start, chainId) : null;
+            if (segment == null) {
+                break;
+            }
+            run.addFirst(segment);
+            blocks += segment.size();
+        }
+        long first = run.isEmpty() ? Long.MAX_VALUE : run.peekFirst().get(0).getNumber();
+        for (long start : starts) {
+            if (start < first) {
+                store.delete(start);
+            }
+        }
+
+        for (List<AddressTxIndex.IndexedBlock> segment : run) {
+            for (AddressTxIndex.IndexedBlock block : segment) {
+                index.append(block);
+                evictOverCapacity();
+            }
+        }
+        persistedThrough = index.highest();
+        loadedBlocks = blocks;
+        logger.info("Loaded {} indexed blocks ({}..{}) from {}, {} stale segments discarded",
+                blocks, index.lowest(), index.highest(), path, starts.size() - run.size());
+        return blocks;
+    }
+
+    /**
+     * 把已确认、尚未写盘的整段区块写入分段文件，删除已被淘汰的段
+     *
+     * @return 写入的段数
+     */
+    public synchronized int persist() throws IOException {
+        long lowest = index.lowest();
+        if (lowest < 0) {
+            return 0;
+        }
+        TxIndexSegments store = segments();
+        long chainId = networkInfoService.getChainId();
+        long confirmed = Math.min(index.highest(), chainHead - confirmationDepth);
+        long start = Math.max(persistedThrough + 1, lowest);
+        start = (start + segmentBlocks - 1) / segmentBlocks * segmentBlocks;
+
+        int written = 0;
+        while (start + segmentBlocks - 1 <= confirmed) {
+            List<AddressTxIndex.IndexedBlock> blocks = new ArrayList<>(segmentBlocks);
+            for (long number = start; number < start + segmentBlocks; number++) {
+                AddressTxIndex.IndexedBlock block = index.block(number);
+                if (block == null) {
+                    // 区块刚被淘汰或回滚
+                    return written;
+                }
+                blocks.add(block);
+            }
+            store.write(chainId, blocks);
+            persistedThrough = start + segmentBlocks - 1;
+            written++;
+            start += segmentBlocks;
+        }
+        for (long segment : store.starts()) {
+            if (segment + segmentBlocks - 1 < index.lowest()) {
+                store.delete(segment);
+            }
+        }
+        return written;
+    }
+
+    private TxIndexSegments segments() throws IOException {
+        if (segments == null) {
+            segments = new TxIndexSegments(Paths.get(path), segmentBlocks);
+        }
+        return segments;
+    }
+
+    private void evictOverCapacity() {
+        long maxBytes = maxMb << 20;
+        while (index.blockCount() > maxBlocks || (maxBytes > 0 && index.bytes() > maxBytes && index.blockCount() > 1)) {
+            index.removeLowest();
+        }
+    }
+
+    private long latestBlock() throws IOException {
+        BigInteger latest = chainHeadTracker.getLatestBlockNumber();
+        if (latest == null) {
+            latest = web3Service.getLatestBlock().getBlock().getNumber();
+        }
+        return latest.longValue();
+    }
+
+    /**
+     * 读取一个区块的交易和回执，编码成索引记录
+     */
+    private CompletableFuture<AddressTxIndex.IndexedBlock> fetch(long number) {
+        BigInteger blockNumber = BigInteger.valueOf(number);
+        return web3Service.getBlockWithTransactionsAsync(blockNumber, TRANSACTION_FIELDS).thenCompose(block -> {
+            if (block == null) {
+                throw new IllegalStateException("Block " + number + " not found");
+            }
+            List<String> hashes = new ArrayList<>(block.getTransactions().size());
+            for (Map<String, Object> transaction : block.getTransactions()) {
+                hashes.add((String) transaction.get("hash"));
+            }
+            return web3Service.getBlockReceiptsAsync(blockNumber, hashes)
+                    .thenApply(receipts -> encode(block, receipts));
+        });
+    }
+
+    static AddressTxIndex.IndexedBlock encode(BlockWithTransactions block, List<ReceiptSummary> receipts) {
+        List<Map<String, Object>> transactions = block.getTransactions();
+        if (receipts.size() != transactions.size()) {
+            throw new IllegalStateException("Block " + block.getSummary().getNumber() + " has "
+                    + transactions.size() + " transactions but " + receipts.size() + " receipts");
+        }
+        byte[][] records = new byte[transactions.size()][];
+        for (int i = 0; i < records.length; i++) {
+            Map<String, Object> transaction = transactions.get(i);
+            ReceiptSummary receipt = receipts.get(i);
+            records[i] = AddressTxIndex.IndexedBlock.encode((String) transaction.get("hash"),
+                    (String) transaction.get("from"), (String) transaction.get("to"), receipt.getContractAddress(),
+                    (BigInteger) transaction.get("value"), (BigInteger) transaction.get("gasPrice"),
+                    receipt.getGasUsed(), receipt.getSuccess());
+        }
+        return new AddressTxIndex.IndexedBlock(block.getSummary().getNumber(), block.getSummary().getHash(),
+                block.getSummary().getParentHash(), block.getSummary().getTimestamp(), records);
+    }
+
+    private void indexQuietly() {
+        try {
+            int indexed = indexNewBlocks();
+            if (indexed > 0) {
+                logger.debug("Indexed {} blocks, index now covers {}..{}", indexed, index.lowest(), index.highest());
+            }
+        } catch (IOException | RuntimeException e) {
+            failures.incrementAndGet();
+            logger.warn("Transaction indexing failed at block {}: {}", index.highest() + 1, e.getMessage());
+        }
+        if (persist) {
+            try {
+                persist();
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Failed to persist the transaction index to {}: {}", path, e.getMessage());
+            }
+        }
+    }
+
+    private void loadQuietly() {
+        try {
+            load();
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to load the transaction index from {}: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * 索引中地址的交易，按区块号降序，最多 max-results 条
+     */
+    public List<EtherscanTransaction> getTransactions(Address20 address) {
+        return index.transactions(address, maxResults);
+    }
+
+    /**
+     * 索引中地址在 [fromBlock, toBlock] 区间内的交易，按区块号降序
+     */
+    public List<EtherscanTransaction> getTransactions(Address20 address, long fromBlock, long toBlock, int limit) {
+        return index.transactions(address, fromBlock, toBlock, limit);
+    }
+
+    /**
+     * 索引是否已有数据，且末尾落后链头不超过 max-lag-blocks
+     *
+     * 落后较多时（刚启动、追赶中）末尾之后的区块需要由Etherscan补齐。
+     */
+    public boolean isCaughtUp() {
+        long highest = index.highest();
+        return highest >= 0 && chainHead - highest <= maxLagBlocks;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getLowestBlock() {
+        return index.lowest();
+    }
+
+    public long getHighestBlock() {
+        return index.highest();
+    }
+
+    public long getChainHead() {
+        return chainHead;
+    }
+
+    public int getIndexedBlocks() {
+        return index.blockCount();
+    }
+
+    public long getIndexedBytes() {
+        return index.bytes();
+    }
+
+    public long getPersistedThrough() {
+        return persistedThrough;
+    }
+
+    public int getLoadedBlocks() {
+        return loadedBlocks;
+    }
+
+    public long getIndexedTransactions() {
+        return index.transactionCount();
+    }
+
+    public int getIndexedAddresses() {
+        return index.addressCount();
+    }
+
+    public long getReorgs() {
+        return reorgs.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    public int getMaxResults() {
+        return maxResults;
+    }
+}
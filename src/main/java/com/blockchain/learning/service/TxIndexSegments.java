@@ -0,0 +1,188 @@
+package com.blockchain.learning.service;
+
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * 交易索引的分段文件
+ *
+ * 每 segment-blocks 个连续的已确认区块写成一个文件，文件名是段的起始区块号。段只在其中的区块全部确认后
+ * 写一次，之后不再修改；索引淘汰了整段区块后删除对应的文件。
+ *
+ * 文件格式（大端）：魔数、版本、链ID、起始区块号、区块数，随后每个区块：区块号、哈希、父哈希、时间戳、
+ * 交易数和每笔交易的记录（长度前缀加 {@link AddressTxIndex.IndexedBlock} 的紧凑记录），最后是之前全部内容的CRC32。
+ * 先写临时文件再原子替换。
+ */
+final class TxIndexSegments {
+
+    private static final int MAGIC = 0x54584931; // "TXI1"
+
+    private static final int VERSION = 1;
+
+    /** 魔数、版本、链ID、起始区块号、区块数 */
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4;
+
+    private static final String PREFIX = "txindex-";
+
+    private static final String SUFFIX = ".seg";
+
+    private final Path directory;
+
+    private final int segmentBlocks;
+
+    TxIndexSegments(Path directory, int segmentBlocks) throws IOException {
+        this.directory = directory;
+        this.segmentBlocks = segmentBlocks;
+        Files.createDirectories(directory);
+    }
+
+    int getSegmentBlocks() {
+        return segmentBlocks;
+    }
+
+    /**
+     * 目录中所有段的起始区块号，升序
+     */
+    List<Long> starts() throws IOException {
+        List<Long> starts = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                try {
+                    starts.add(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // 不是本类写出的文件
+                }
+            }
+        }
+        Collections.sort(starts);
+        return starts;
+    }
+
+    /**
+     * 写入一整段区块
+     *
+     * @param blocks 从段起点开始的 segment-blocks 个连续区块
+     */
+    void write(long chainId, List<AddressTxIndex.IndexedBlock> blocks) throws IOException {
+        long start = blocks.get(0).getNumber();
+        int size = HEADER_BYTES + 4;
+        List<byte[][]> hashes = new ArrayList<>(blocks.size());
+        for (AddressTxIndex.IndexedBlock block : blocks) {
+            byte[][] pair = {hexBytes(block.getHash()), hexBytes(block.getParentHash())};
+            hashes.add(pair);
+            size += 8 + 1 + pair[0].length + 1 + pair[1].length + 8 + 4;
+            for (int i = 0; i < block.size(); i++) {
+                size += 4 + block.record(i).length;
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(chainId);
+        buffer.putLong(start);
+        buffer.putInt(blocks.size());
+        for (int b = 0; b < blocks.size(); b++) {
+            AddressTxIndex.IndexedBlock block = blocks.get(b);
+            buffer.putLong(block.getNumber());
+            for (byte[] hash : hashes.get(b)) {
+                buffer.put((byte) hash.length);
+                buffer.put(hash);
+            }
+            buffer.putLong(block.getTimestamp());
+            buffer.putInt(block.size());
+            for (int i = 0; i < block.size(); i++) {
+                byte[] record = block.record(i);
+                buffer.putInt(record.length);
+                buffer.put(record);
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+
+        Path target = file(start);
+        Path temp = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, buffer.array());
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 读取一段区块
+     *
+     * @return 段中的区块，格式不对、内容损坏、区块不连续或链ID不一致时返回null
+     */
+    List<AddressTxIndex.IndexedBlock> read(long start, long chainId) throws IOException {
+        byte[] data = Files.readAllBytes(file(start));
+        if (data.length < HEADER_BYTES + 4) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length - 4);
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        if (buffer.getInt(data.length - 4) != (int) crc.getValue()
+                || buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                || buffer.getLong() != chainId || buffer.getLong() != start) {
+            return null;
+        }
+        try {
+            int count = buffer.getInt();
+            if (count != segmentBlocks) {
+                return null;
+            }
+            List<AddressTxIndex.IndexedBlock> blocks = new ArrayList<>(count);
+            for (int b = 0; b < count; b++) {
+                long number = buffer.getLong();
+                String hash = Numeric.toHexString(bytes(buffer, buffer.get() & 0xff));
+                String parentHash = Numeric.toHexString(bytes(buffer, buffer.get() & 0xff));
+                long timestamp = buffer.getLong();
+                int size = buffer.getInt();
+                if (number != start + b || size < 0 || size > AddressTxIndex.MAX_TRANSACTIONS_PER_BLOCK) {
+                    return null;
+                }
+                byte[][] records = new byte[size][];
+                for (int i = 0; i < size; i++) {
+                    records[i] = bytes(buffer, buffer.getInt());
+                }
+                blocks.add(new AddressTxIndex.IndexedBlock(number, hash, parentHash, timestamp, records));
+            }
+            return blocks;
+        } catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e) {
+            return null;
+        }
+    }
+
+    void delete(long start) throws IOException {
+        Files.deleteIfExists(file(start));
+    }
+
+    private Path file(long start) {
+        return directory.resolve(String.format("%s%012d%s", PREFIX, start, SUFFIX));
+    }
+
+    private static byte[] hexBytes(String value) {
+        return value == null ? new byte[0] : Numeric.hexStringToByteArray(value);
+    }
+
+    private static byte[] bytes(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
@@ -20,6 +20,7 @@ import java.nio.file.Paths;
 import java.security.SecureRandom;
 import java.time.LocalDateTime;
 import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class WalletService {
@@ -141,6 +142,23 @@ public class WalletService {
         }
     }
 
+    /**
+     * 异步获取指定地址的余额
+     *
+     * 查询失败时Future以 {@link WalletException} 结束。
+     */
+    public CompletableFuture<BigInteger> getBalanceAsync(String address) {
+        return web3Service.getBalanceAsync(address)
+                .handle((balance, e) -> {
+                    if (e != null) {
+                        Throwable cause = Web3Service.unwrap(e);
+                        logger.error("Error fetching balance for address {}: {}", address, cause.getMessage());
+                        throw new WalletException("Failed to fetch balance", cause);
+                    }
+                    return balance;
+                });
+    }
+
     /**
      * 获取当前钱包信息
      */
@@ -163,6 +181,32 @@ public class WalletService {
         }
     }
 
+    /**
+     * 异步获取当前钱包信息
+     *
+     * 余额查询失败时按0处理，与 {@link #getCurrentWallet()} 一致。
+     */
+    public CompletableFuture<WalletInfo> getCurrentWalletAsync() {
+        Credentials credentials = currentCredentials;
+        if (credentials == null) {
+            CompletableFuture<WalletInfo> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new WalletException("No wallet is currently loaded"));
+            return failed;
+        }
+
+        String address = credentials.getAddress();
+        return web3Service.getBalanceAsync(address)
+                .exceptionally(e -> {
+                    logger.warn("Could not fetch balance for address {}: {}", address,
+                            Web3Service.unwrap(e).getMessage());
+                    return BigInteger.ZERO;
+                })
+                .thenApply(balance -> {
+                    String balanceInEth = Convert.fromWei(balance.toString(), Convert.Unit.ETHER).toString();
+                    return new WalletInfo(address, balance, balanceInEth, LocalDateTime.now());
+                });
+    }
+
     /**
      * 检查是否有当前钱包
      */
@@ -1,41 +1,108 @@
 package com.blockchain.learning.service;
 
+import com.blockchain.learning.exception.BlockchainException;
+import com.blockchain.learning.model.BlockSummary;
+import com.blockchain.learning.model.BlockWithTransactions;
 import com.blockchain.learning.model.NetworkInfo;
+import com.blockchain.learning.model.ReceiptSummary;
+import com.blockchain.learning.rpc.BlockSummaryResponse;
+import com.blockchain.learning.rpc.BlockWithTransactionsResponse;
+import com.blockchain.learning.rpc.ReceiptsResponse;
+import com.blockchain.learning.rpc.RpcBatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.web3j.protocol.Web3j;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.DefaultBlockParameter;
 import org.web3j.protocol.core.DefaultBlockParameterName;
 import org.web3j.protocol.core.methods.response.EthBlock;
-import org.web3j.protocol.core.methods.response.EthChainId;
-import org.web3j.protocol.core.methods.response.EthGetBalance;
+import org.web3j.protocol.core.methods.response.EthBlockNumber;
+import org.web3j.protocol.core.methods.response.EthGasPrice;
+import org.web3j.protocol.core.methods.response.EthGetTransactionCount;
 import org.web3j.protocol.core.methods.response.Transaction;
-import org.web3j.protocol.core.methods.response.Web3ClientVersion;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.IOException;
 import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class Web3Service {
 
     private static final Logger logger = LoggerFactory.getLogger(Web3Service.class);
 
+    /** JSON-RPC错误码：方法不存在 */
+    private static final int METHOD_NOT_FOUND = -32601;
+
     @Autowired
     private Web3j web3j;
 
-    @Value("${blockchain.network.display-name:Unknown Network}")
-    private String networkDisplayName;
+    /** 与 web3j 使用同一条请求链，用于发送自定义解码方式的请求 */
+    @Autowired
+    private Web3jService web3jService;
+
+    @Autowired
+    private ChainHeadTracker chainHeadTracker;
+
+    @Autowired
+    private BlockCache blockCache;
+
+    @Autowired
+    private BlockStore blockStore;
+
+    @Autowired
+    private BalanceCache balanceCache;
+
+    @Autowired
+    private NetworkInfoService networkInfoService;
+
+    @Value("${blockchain.blocks.range.batch-size:50}")
+    private int rangeBatchSize;
+
+    @Value("${blockchain.blocks.range.parallelism:4}")
+    private int rangeParallelism;
+
+    @Value("${blockchain.blocks.range.max-concurrent-streams:4}")
+    private int maxConcurrentRangeStreams;
+
+    private ExecutorService rangeExecutor;
+
+    /** 节点返回"方法不存在"后不再尝试 eth_getBlockReceipts */
+    private volatile boolean blockReceiptsSupported = true;
 
     @PostConstruct
     public void init() {
-        try {
-            NetworkInfo networkInfo = getNetworkInfo();
-            logger.info("Successfully connected to blockchain network: {}", networkInfo);
-        } catch (Exception e) {
-            logger.error("Failed to connect to blockchain network: {}", e.getMessage());
+        // 没有排队：同时进行的区块区间读取数达到上限时直接拒绝，内存占用不随请求数增长
+        AtomicInteger threadCount = new AtomicInteger();
+        rangeExecutor = new ThreadPoolExecutor(0, maxConcurrentRangeStreams, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "block-range-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (rangeExecutor != null) {
+            rangeExecutor.shutdownNow();
         }
     }
 
@@ -43,98 +110,513 @@ public class Web3Service {
      * 获取网络信息
      */
     public NetworkInfo getNetworkInfo() throws IOException {
-        logger.debug("Fetching network information...");
-
-        try {
-            // 获取客户端版本
-            Web3ClientVersion clientVersion = web3j.web3ClientVersion().send();
-            String nodeVersion = clientVersion.getWeb3ClientVersion();
+        return await(getNetworkInfoAsync());
+    }
 
-            // 获取链ID
-            EthChainId chainIdResponse = web3j.ethChainId().send();
-            BigInteger chainId = chainIdResponse.getChainId();
+    /**
+     * 异步获取网络信息
+     *
+     * 链ID和节点版本来自内存中的网络快照；最新区块号优先使用链头跟踪器中的值，
+     * 两者都就绪时不会发起任何RPC请求。
+     * 节点不可用时不会以异常结束，而是返回 connected=false 的网络信息。
+     */
+    public CompletableFuture<NetworkInfo> getNetworkInfoAsync() {
+        logger.debug("Fetching network information...");
 
-            // 获取最新区块号
-            BigInteger latestBlockNumber = web3j.ethBlockNumber().send().getBlockNumber();
+        BigInteger trackedBlockNumber = chainHeadTracker.getLatestBlockNumber();
+        CompletableFuture<BigInteger> latestBlockNumber = trackedBlockNumber != null
+                ? CompletableFuture.completedFuture(trackedBlockNumber)
+                : web3j.ethBlockNumber().sendAsync().thenApply(EthBlockNumber::getBlockNumber);
 
-            NetworkInfo networkInfo = new NetworkInfo(
-                    networkDisplayName,
-                    chainId,
-                    latestBlockNumber,
-                    nodeVersion,
-                    true
-            );
+        return networkInfoService.getSnapshotAsync()
+                .thenCombine(latestBlockNumber, (snapshot, blockNumber) -> {
+                    NetworkInfo networkInfo = new NetworkInfo(
+                            networkInfoService.getNetworkName(),
+                            snapshot.getChainId(),
+                            blockNumber,
+                            snapshot.getNodeVersion(),
+                            true
+                    );
+                    networkInfo.setMetadataUpdatedAt(snapshot.getRefreshedAt());
 
-            logger.debug("Network info retrieved: {}", networkInfo);
-            return networkInfo;
+                    logger.debug("Network info retrieved: {}", networkInfo);
+                    return networkInfo;
+                })
+                .exceptionally(e -> {
+                    logger.error("Error fetching network info: {}", unwrap(e).getMessage());
+                    return new NetworkInfo(networkInfoService.getNetworkName(), null, null, null, false);
+                });
+    }
 
-        } catch (IOException e) {
-            logger.error("Error fetching network info: {}", e.getMessage());
-            return new NetworkInfo(networkDisplayName, null, null, null, false);
-        }
+    /**
+     * 创建新的JSON-RPC批量请求
+     *
+     * 需要同时发起多个RPC调用时使用，所有请求在 {@link RpcBatch#execute()} 时通过一次HTTP请求发送。
+     */
+    public RpcBatch newBatch() {
+        return new RpcBatch(web3j);
     }
 
     /**
      * 获取最新区块
+     *
+     * 优先返回链头跟踪器在内存中保存的区块，只有跟踪器尚未就绪或数据过期时才查询节点。
      */
     public EthBlock getLatestBlock() throws IOException {
+        return await(getLatestBlockAsync());
+    }
+
+    /**
+     * 异步获取最新区块
+     */
+    public CompletableFuture<EthBlock> getLatestBlockAsync() {
+        EthBlock tracked = chainHeadTracker.getLatestBlock();
+        if (tracked != null) {
+            logger.debug("Serving latest block {} from head tracker", tracked.getBlock().getNumber());
+            return CompletableFuture.completedFuture(tracked);
+        }
+
         logger.debug("Fetching latest block...");
-        EthBlock block = web3j.ethGetBlockByNumber(DefaultBlockParameterName.LATEST, false).send();
-        logger.debug("Latest block number: {}", block.getBlock().getNumber());
-        return block;
+        return web3j.ethGetBlockByNumber(DefaultBlockParameterName.LATEST, false).sendAsync()
+                .thenApply(block -> {
+                    logger.debug("Latest block number: {}", block.getBlock().getNumber());
+                    chainHeadTracker.update(block);
+                    return block;
+                });
     }
 
     /**
-     * 根据区块号获取区块
+     * 根据区块号获取区块摘要
+     *
+     * @return 区块不存在时返回null
      */
-    public EthBlock getBlockByNumber(BigInteger blockNumber) throws IOException {
+    public BlockSummary getBlockByNumber(BigInteger blockNumber) throws IOException {
+        return await(getBlockByNumberAsync(blockNumber));
+    }
+
+    /**
+     * 异步根据区块号获取区块摘要
+     *
+     * 依次查找区块缓存和本地区块库，都未命中时才请求节点，从响应流中直接解码摘要，不构造完整的区块对象。
+     */
+    public CompletableFuture<BlockSummary> getBlockByNumberAsync(BigInteger blockNumber) {
+        BlockSummary cached = blockCache.getByNumber(blockNumber);
+        if (cached != null) {
+            logger.debug("Block {} served from cache", blockNumber);
+            return CompletableFuture.completedFuture(cached);
+        }
+        BlockSummary stored = blockStore.get(blockNumber.longValue());
+        if (stored != null) {
+            logger.debug("Block {} served from local block store", blockNumber);
+            blockCache.put(stored);
+            return CompletableFuture.completedFuture(stored);
+        }
+
         logger.debug("Fetching block by number: {}", blockNumber);
-        EthBlock block = web3j.ethGetBlockByNumber(
-                org.web3j.protocol.core.DefaultBlockParameter.valueOf(blockNumber), 
-                false
-        ).send();
-        return block;
+        return BlockSummaryResponse.byNumber(web3jService, DefaultBlockParameter.valueOf(blockNumber), false)
+                .sendAsync()
+                .thenApply(response -> cacheBlock("eth_getBlockByNumber", response));
+    }
+
+    /**
+     * 异步获取区块及其全部交易
+     *
+     * 每笔交易只解码 fields 中的字段，区块不存在时结果为null。交易列表不进入缓存，
+     * 区块摘要会顺便放入区块缓存。
+     *
+     * @param fields 需要的交易字段，为null时返回全部字段
+     */
+    public CompletableFuture<BlockWithTransactions> getBlockWithTransactionsAsync(BigInteger blockNumber,
+                                                                                  Set<String> fields) {
+        logger.debug("Fetching block {} with transactions, fields {}", blockNumber, fields);
+        return BlockWithTransactionsResponse.byNumber(web3jService, DefaultBlockParameter.valueOf(blockNumber), fields)
+                .sendAsync()
+                .thenApply(response -> {
+                    if (response.hasError()) {
+                        throw new CompletionException(new IOException(
+                                "RPC error in eth_getBlockByNumber: " + response.getError().getMessage()));
+                    }
+                    BlockWithTransactions block = response.getBlock();
+                    if (block != null) {
+                        remember(block.getSummary());
+                    }
+                    return block;
+                });
+    }
+
+    /**
+     * 异步获取区块中全部交易的回执摘要，按交易顺序
+     *
+     * 优先用一次 eth_getBlockReceipts 取回整个区块的回执；节点不支持时改为把每笔交易的
+     * eth_getTransactionReceipt 合成一个批量请求。
+     *
+     * @param transactionHashes 区块中的交易哈希，按交易顺序
+     */
+    public CompletableFuture<List<ReceiptSummary>> getBlockReceiptsAsync(BigInteger blockNumber,
+                                                                       List<String> transactionHashes) {
+        if (transactionHashes.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+        if (!blockReceiptsSupported) {
+            return getTransactionReceiptsAsync(transactionHashes);
+        }
+        return ReceiptsResponse.byBlock(web3jService, DefaultBlockParameter.valueOf(blockNumber)).sendAsync()
+                .thenCompose(response -> {
+                    if (!response.hasError()) {
+                        if (response.getReceipts() == null) {
+                            throw new CompletionException(new IOException("Block " + blockNumber + " not found"));
+                        }
+                        return CompletableFuture.completedFuture(response.getReceipts());
+                    }
+                    if (response.getError().getCode() != METHOD_NOT_FOUND) {
+                        throw new CompletionException(new IOException(
+                                "RPC error in eth_getBlockReceipts: " + response.getError().getMessage()));
+                    }
+                    logger.info("Node does not support eth_getBlockReceipts, falling back to per-transaction receipts");
+                    blockReceiptsSupported = false;
+                    return getTransactionReceiptsAsync(transactionHashes);
+                });
+    }
+
+    private CompletableFuture<List<ReceiptSummary>> getTransactionReceiptsAsync(List<String> transactionHashes) {
+        RpcBatch batch = new RpcBatch(web3j);
+        List<RpcBatch.Call<ReceiptsResponse>> calls = new ArrayList<>(transactionHashes.size());
+        for (String hash : transactionHashes) {
+            calls.add(batch.add(ReceiptsResponse.byTransaction(web3jService, hash)));
+        }
+        return batch.executeAsync().thenApply(ignored -> {
+            List<ReceiptSummary> receipts = new ArrayList<>(calls.size());
+            for (int i = 0; i < calls.size(); i++) {
+                List<ReceiptSummary> receipt;
+                try {
+                    receipt = calls.get(i).get().getReceipts();
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+                if (receipt == null) {
+                    throw new CompletionException(new IOException(
+                            "Receipt not found for transaction " + transactionHashes.get(i)));
+                }
+                receipts.add(receipt.get(0));
+            }
+            return receipts;
+        });
+    }
+
+    /**
+     * 按区块号顺序读取一段区块
+     *
+     * 区间按批次大小切分，每批通过一次JSON-RPC批量请求获取（已缓存的区块不再请求），
+     * 同时最多有 parallelism 个批次在途。最前面的批次完成后才交给 sink，sink 返回后再发出下一个批次，
+     * 所以 sink 写得慢时读取也随之放慢，内存中最多只有 parallelism × batchSize 个区块摘要。
+     *
+     * 遇到尚不存在的区块（超过链头）时在它之前结束。
+     *
+     * @param sink 按顺序接收每个已完成的批次，抛出的IOException会中止读取并原样抛出
+     * @throws BlockchainException 节点请求失败
+     */
+    public void streamBlocks(long from, long to, BlockSink sink) throws IOException {
+        Deque<CompletableFuture<List<BlockSummary>>> window = new ArrayDeque<>();
+        long next = from;
+        try {
+            while (next <= to || !window.isEmpty()) {
+                while (next <= to && window.size() < rangeParallelism) {
+                    long end = Math.min(to, next + rangeBatchSize - 1);
+                    window.addLast(fetchBlocks(next, end, false));
+                    next = end + 1;
+                }
+
+                List<BlockSummary> blocks;
+                try {
+                    blocks = window.removeFirst().join();
+                } catch (CompletionException e) {
+                    throw new BlockchainException("Could not fetch blocks: " + unwrap(e).getMessage(), unwrap(e));
+                }
+                int available = blocks.indexOf(null);
+                if (available >= 0) {
+                    if (available > 0) {
+                        sink.accept(blocks.subList(0, available));
+                    }
+                    return;
+                }
+                sink.accept(blocks);
+            }
+        } finally {
+            for (CompletableFuture<List<BlockSummary>> pending : window) {
+                pending.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * {@link #streamBlocks} 的异步版本，在专用线程上执行
+     *
+     * @throws RejectedExecutionException 同时进行的区间读取已达上限
+     */
+    public CompletableFuture<Void> streamBlocksAsync(long from, long to, BlockSink sink) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                streamBlocks(from, to, sink);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, rangeExecutor);
+    }
+
+    /**
+     * 把 [from, to] 区间中尚未缓存的区块读入区块缓存（预取）
+     *
+     * 预取不计入缓存命中统计。取消返回的Future后，已发出的请求不会中断，但结果不再放入缓存。
+     *
+     * @return 读入的区块数
+     */
+    public CompletableFuture<Integer> prefetchBlocksAsync(long from, long to) {
+        // 在返回的Future上写入缓存：Future被取消后这一步不会执行
+        return fetchBlocks(from, to, true).thenApply(blocks -> {
+            int fetched = 0;
+            for (BlockSummary block : blocks) {
+                if (block != null) {
+                    remember(block);
+                    fetched++;
+                }
+            }
+            return fetched;
+        });
+    }
+
+    /**
+     * 把 [from, to] 区间中本地区块库还没有的区块写入区块库（历史回填）
+     *
+     * 缺少的区块通过一次批量请求读取，不经过区块缓存，避免大量历史区块挤出热点数据。
+     * 区块是否已确认按调用方核对过的 confirmedThrough 判断，不依赖链头跟踪器；
+     * 读到的区块没能写入区块库时整块失败，不会被当作已完成。
+     *
+     * @param confirmedThrough 调用方确认过的最高区块号，to 不能超过它
+     * @return 写入的区块数
+     */
+    public CompletableFuture<Integer> backfillBlocksAsync(long from, long to, long confirmedThrough) {
+        if (to > confirmedThrough) {
+            CompletableFuture<Integer> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IllegalArgumentException(
+                    "Block " + to + " is above the confirmed block " + confirmedThrough));
+            return failed;
+        }
+        RpcBatch batch = new RpcBatch(web3j);
+        List<RpcBatch.Call<BlockSummaryResponse>> calls = new ArrayList<>();
+        List<Long> numbers = new ArrayList<>();
+        for (long number = from; number <= to; number++) {
+            if (!blockStore.contains(number)) {
+                calls.add(batch.add(BlockSummaryResponse.byNumber(
+                        web3jService, DefaultBlockParameter.valueOf(BigInteger.valueOf(number)), false)));
+                numbers.add(number);
+            }
+        }
+
+        return batch.executeAsync().thenApply(ignored -> {
+            int stored = 0;
+            for (int i = 0; i < calls.size(); i++) {
+                BlockSummary block;
+                try {
+                    block = calls.get(i).get().getBlock();
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+                if (block == null) {
+                    throw new CompletionException(new IOException("Block " + numbers.get(i) + " not found"));
+                }
+                try {
+                    if (blockStore.appendConfirmed(block)) {
+                        stored++;
+                    }
+                } catch (IOException e) {
+                    throw new CompletionException(new IOException(
+                            "Could not store block " + numbers.get(i) + ": " + e.getMessage(), e));
+                }
+            }
+            return stored;
+        });
+    }
+
+    /**
+     * 获取 [from, to] 区间的区块摘要，不存在的区块为null
+     *
+     * @param prefetch 为true时只请求缓存中没有的区块，已缓存的位置为null，不计入缓存命中统计，
+     *                 结果也不写入缓存（由调用方写入）。两种模式下本地区块库中已有的区块都不再请求节点
+     */
+    private CompletableFuture<List<BlockSummary>> fetchBlocks(long from, long to, boolean prefetch) {
+        List<BlockSummary> blocks = new ArrayList<>((int) (to - from + 1));
+        RpcBatch batch = new RpcBatch(web3j);
+        List<RpcBatch.Call<BlockSummaryResponse>> calls = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (long number = from; number <= to; number++) {
+            BigInteger blockNumber = BigInteger.valueOf(number);
+            boolean cached = prefetch && blockCache.contains(number);
+            BlockSummary block = prefetch ? null : blockCache.getByNumber(blockNumber);
+            if (block == null && !cached) {
+                block = blockStore.get(number);
+                if (block != null && !prefetch) {
+                    blockCache.put(block);
+                }
+            }
+            blocks.add(block);
+            if (!cached && block == null) {
+                calls.add(batch.add(BlockSummaryResponse.byNumber(
+                        web3jService, DefaultBlockParameter.valueOf(blockNumber), false)));
+                positions.add(blocks.size() - 1);
+            }
+        }
+
+        return batch.executeAsync().thenApply(ignored -> {
+            for (int i = 0; i < calls.size(); i++) {
+                BlockSummary block;
+                try {
+                    block = calls.get(i).get().getBlock();
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+                if (!prefetch) {
+                    remember(block);
+                }
+                blocks.set(positions.get(i), block);
+            }
+            return blocks;
+        });
+    }
+
+    /**
+     * 按顺序接收区块区间读取结果
+     */
+    @FunctionalInterface
+    public interface BlockSink {
+
+        void accept(List<BlockSummary> blocks) throws IOException;
     }
 
     /**
      * 根据交易哈希获取交易信息
      */
     public Transaction getTransaction(String transactionHash) throws IOException {
+        return await(getTransactionAsync(transactionHash));
+    }
+
+    /**
+     * 异步根据交易哈希获取交易信息
+     *
+     * @return 交易信息，交易不存在时结果为null
+     */
+    public CompletableFuture<Transaction> getTransactionAsync(String transactionHash) {
         logger.debug("Fetching transaction: {}", transactionHash);
-        return web3j.ethGetTransactionByHash(transactionHash).send().getTransaction().orElse(null);
+        return web3j.ethGetTransactionByHash(transactionHash).sendAsync()
+                .thenApply(response -> response.getTransaction().orElse(null));
     }
 
     /**
      * 获取地址余额
      */
     public BigInteger getBalance(String address) throws IOException {
+        return await(getBalanceAsync(address));
+    }
+
+    /**
+     * 异步获取地址余额
+     *
+     * 链头没有变化时直接返回缓存的余额。仍然按 LATEST 查询而不是指定区块号，
+     * 因为负载均衡到的节点可能还没有同步到跟踪器看到的最新区块。
+     */
+    public CompletableFuture<BigInteger> getBalanceAsync(String address) {
+        BigInteger headBlockNumber = chainHeadTracker.getLatestBlockNumber();
+        BigInteger cached = balanceCache.get(address, headBlockNumber);
+        if (cached != null) {
+            logger.debug("Balance for address {} served from cache", address);
+            return CompletableFuture.completedFuture(cached);
+        }
+
         logger.debug("Fetching balance for address: {}", address);
-        EthGetBalance balance = web3j.ethGetBalance(address, DefaultBlockParameterName.LATEST).send();
-        return balance.getBalance();
+        return web3j.ethGetBalance(address, DefaultBlockParameterName.LATEST).sendAsync()
+                .thenApply(response -> {
+                    BigInteger balance = response.getBalance();
+                    balanceCache.put(address, headBlockNumber, balance);
+                    return balance;
+                });
     }
 
     /**
      * 获取地址的交易数量（nonce）
      */
     public BigInteger getTransactionCount(String address) throws IOException {
+        return await(getTransactionCountAsync(address));
+    }
+
+    /**
+     * 异步获取地址的交易数量（nonce）
+     */
+    public CompletableFuture<BigInteger> getTransactionCountAsync(String address) {
         logger.debug("Fetching transaction count for address: {}", address);
-        return web3j.ethGetTransactionCount(address, DefaultBlockParameterName.LATEST).send().getTransactionCount();
+        return web3j.ethGetTransactionCount(address, DefaultBlockParameterName.LATEST).sendAsync()
+                .thenApply(EthGetTransactionCount::getTransactionCount);
     }
 
     /**
      * 获取当前Gas价格
      */
     public BigInteger getGasPrice() throws IOException {
+        return await(getGasPriceAsync());
+    }
+
+    /**
+     * 异步获取当前Gas价格
+     */
+    public CompletableFuture<BigInteger> getGasPriceAsync() {
         logger.debug("Fetching current gas price...");
-        return web3j.ethGasPrice().send().getGasPrice();
+        return web3j.ethGasPrice().sendAsync().thenApply(EthGasPrice::getGasPrice);
+    }
+
+    /**
+     * 根据区块哈希获取区块摘要
+     *
+     * @return 区块不存在时返回null
+     */
+    public BlockSummary getBlockByHash(String blockHash) throws IOException {
+        return await(getBlockByHashAsync(blockHash));
     }
 
     /**
-     * 根据区块哈希获取区块
+     * 异步根据区块哈希获取区块摘要，依次查找区块缓存、本地区块库和节点
      */
-    public EthBlock getBlockByHash(String blockHash) throws IOException {
+    public CompletableFuture<BlockSummary> getBlockByHashAsync(String blockHash) {
+        BlockSummary cached = blockCache.getByHash(blockHash);
+        if (cached != null) {
+            logger.debug("Block {} served from cache", blockHash);
+            return CompletableFuture.completedFuture(cached);
+        }
+        BlockSummary stored = blockStore.getByHash(blockHash);
+        if (stored != null) {
+            logger.debug("Block {} served from local block store", blockHash);
+            blockCache.put(stored);
+            return CompletableFuture.completedFuture(stored);
+        }
+
         logger.debug("Fetching block by hash: {}", blockHash);
-        return web3j.ethGetBlockByHash(blockHash, false).send();
+        return BlockSummaryResponse.byHash(web3jService, blockHash, false).sendAsync()
+                .thenApply(response -> cacheBlock("eth_getBlockByHash", response));
+    }
+
+    private BlockSummary cacheBlock(String method, BlockSummaryResponse response) {
+        if (response.hasError()) {
+            throw new CompletionException(new IOException(
+                    "RPC error in " + method + ": " + response.getError().getMessage()));
+        }
+        BlockSummary block = response.getBlock();
+        remember(block);
+        return block;
+    }
+
+    /**
+     * 从节点取得的区块放入缓存，已确认的同时写入本地区块库
+     */
+    private void remember(BlockSummary block) {
+        blockCache.put(block);
+        blockStore.append(block);
     }
 
     /**
@@ -149,4 +631,41 @@ public class Web3Service {
             return false;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 异步检查连接状态
+     */
+    public CompletableFuture<Boolean> isConnectedAsync() {
+        return web3j.web3ClientVersion().sendAsync()
+                .thenApply(version -> true)
+                .exceptionally(e -> {
+                    logger.warn("Connection check failed: {}", unwrap(e).getMessage());
+                    return false;
+                });
+    }
+
+    /**
+     * 等待异步调用完成，并还原同步接口原有的异常类型
+     */
+    static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * 取出 {@link CompletionException} 包装的原始异常
+     */
+    public static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
@@ -1,9 +1,13 @@
 package com.blockchain.learning.config;
 
+import com.blockchain.learning.rpc.RpcEndpointPool;
 import org.junit.jupiter.api.Test;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.web3j.protocol.Web3j;
 
+import java.io.IOException;
+import java.util.Arrays;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class Web3ConfigTest {
@@ -14,6 +18,7 @@ class Web3ConfigTest {
         Web3Config config = new Web3Config();
         ReflectionTestUtils.setField(config, "infuraProjectId", "test-project-id");
         ReflectionTestUtils.setField(config, "networkName", "sepolia");
+        ReflectionTestUtils.setField(config, "rpcProperties", new RpcProperties());
 
         // Act
         Web3j web3j = config.web3j();
@@ -28,6 +33,7 @@ class Web3ConfigTest {
         Web3Config config = new Web3Config();
         ReflectionTestUtils.setField(config, "infuraProjectId", "test-project-id");
         ReflectionTestUtils.setField(config, "networkName", "sepolia"); // 默认值
+        ReflectionTestUtils.setField(config, "rpcProperties", new RpcProperties());
 
         // Act
         Web3j web3j = config.web3j();
@@ -35,4 +41,23 @@ class Web3ConfigTest {
         // Assert
         assertNotNull(web3j);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testRpcEndpointPool_UsesConfiguredEndpoints() throws IOException {
+        // Arrange
+        Web3Config config = new Web3Config();
+        RpcProperties properties = new RpcProperties();
+        properties.setEndpoints(Arrays.asList("http://localhost:8545", "http://localhost:8546"));
+        ReflectionTestUtils.setField(config, "infuraProjectId", "test-project-id");
+        ReflectionTestUtils.setField(config, "networkName", "sepolia");
+        ReflectionTestUtils.setField(config, "rpcProperties", properties);
+
+        // Act
+        RpcEndpointPool pool = config.rpcEndpointPool();
+
+        // Assert
+        assertEquals(2, pool.getEndpoints().size());
+        assertEquals("http://localhost:8545", pool.getEndpoints().get(0).getName());
+        pool.close();
+    }
+}
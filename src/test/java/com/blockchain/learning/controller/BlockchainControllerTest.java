@@ -1,24 +1,47 @@
 package com.blockchain.learning.controller;
 
+import com.blockchain.learning.exception.BlockchainException;
+import com.blockchain.learning.model.BlockSummary;
+import com.blockchain.learning.model.BlockWithTransactions;
 import com.blockchain.learning.model.NetworkInfo;
+import com.blockchain.learning.service.BalanceService;
+import com.blockchain.learning.service.BlockPrefetcher;
+import com.blockchain.learning.service.GasOracle;
 import com.blockchain.learning.service.Web3Service;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.web3j.protocol.core.methods.response.EthBlock;
 import org.web3j.protocol.core.methods.response.Transaction;
 
 import java.io.IOException;
 import java.math.BigInteger;
-
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(BlockchainController.class)
@@ -30,6 +53,15 @@ class BlockchainControllerTest {
     @MockBean
     private Web3Service web3Service;
 
+    @MockBean
+    private GasOracle gasOracle;
+
+    @MockBean
+    private BalanceService balanceService;
+
+    @MockBean
+    private BlockPrefetcher blockPrefetcher;
+
     private NetworkInfo mockNetworkInfo;
     private EthBlock mockEthBlock;
     private EthBlock.Block mockBlock;
@@ -75,9 +107,9 @@ class BlockchainControllerTest {
 
     @Test
     void testGetNetworkInfo_Success() throws Exception {
-        when(web3Service.getNetworkInfo()).thenReturn(mockNetworkInfo);
+        when(web3Service.getNetworkInfoAsync()).thenReturn(CompletableFuture.completedFuture(mockNetworkInfo));
 
-        mockMvc.perform(get("/api/blockchain/network-info"))
+        performAsync(get("/api/blockchain/network-info"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.networkName").value("Test Network"))
                 .andExpect(jsonPath("$.chainId").value(11155111))
@@ -87,18 +119,18 @@ class BlockchainControllerTest {
 
     @Test
     void testGetNetworkInfo_Error() throws Exception {
-        when(web3Service.getNetworkInfo()).thenThrow(new IOException("Connection failed"));
+        when(web3Service.getNetworkInfoAsync()).thenReturn(failed(new IOException("Connection failed")));
 
-        mockMvc.perform(get("/api/blockchain/network-info"))
+        performAsync(get("/api/blockchain/network-info"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.connected").value(false));
     }
 
     @Test
     void testGetLatestBlock_Success() throws Exception {
-        when(web3Service.getLatestBlock()).thenReturn(mockEthBlock);
+        when(web3Service.getLatestBlockAsync()).thenReturn(CompletableFuture.completedFuture(mockEthBlock));
 
-        mockMvc.perform(get("/api/blockchain/blocks/latest"))
+        performAsync(get("/api/blockchain/blocks/latest"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.number").value(1000000))
                 .andExpect(jsonPath("$.hash").value("0x123456789abcdef"))
@@ -107,36 +139,118 @@ class BlockchainControllerTest {
 
     @Test
     void testGetBlockByNumber_Success() throws Exception {
-        when(web3Service.getBlockByNumber(any(BigInteger.class))).thenReturn(mockEthBlock);
+        BlockSummary block = new BlockSummary(1000000, "0x123456789abcdef", "0xparent", 1_700_000_000L,
+                30_000_000L, 12_000_000L, "0xminer123", BigInteger.TEN, 0);
+        when(web3Service.getBlockByNumberAsync(any(BigInteger.class))).thenReturn(CompletableFuture.completedFuture(block));
 
-        mockMvc.perform(get("/api/blockchain/blocks/1000000"))
+        performAsync(get("/api/blockchain/blocks/1000000"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.number").value(1000000))
                 .andExpect(jsonPath("$.hash").value("0x123456789abcdef"))
                 .andExpect(jsonPath("$.miner").value("0xminer123"));
+        verify(blockPrefetcher).recordAccess("127.0.0.1", BigInteger.valueOf(1000000));
+
+        performAsync(get("/api/blockchain/blocks/1000000").header("X-Client-Id", "explorer-1"))
+                .andExpect(status().isOk());
+        verify(blockPrefetcher).recordAccess("explorer-1", BigInteger.valueOf(1000000));
+    }
+
+    @Test
+    void testGetBlockByNumber_FullWithProjectedTransactionFields() throws Exception {
+        BlockSummary summary = new BlockSummary(1000000, "0x123456789abcdef", "0xparent", 1_700_000_000L,
+                30_000_000L, 12_000_000L, "0xminer123", BigInteger.TEN, 1);
+        Map<String, Object> transaction = new LinkedHashMap<>();
+        transaction.put("hash", "0xtx1");
+        transaction.put("value", BigInteger.ONE);
+        when(web3Service.getBlockWithTransactionsAsync(any(BigInteger.class), eq(new LinkedHashSet<>(Arrays.asList("hash", "value")))))
+                .thenReturn(CompletableFuture.completedFuture(
+                        new BlockWithTransactions(summary, Collections.singletonList(transaction))));
+
+        performAsync(get("/api/blockchain/blocks/1000000").param("full", "true").param("fields", "hash, value"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.number").value(1000000))
+                .andExpect(jsonPath("$.transactionCount").value(1))
+                .andExpect(jsonPath("$.transactions[0].hash").value("0xtx1"))
+                .andExpect(jsonPath("$.transactions[0].value").value(1))
+                .andExpect(jsonPath("$.transactions[0].from").doesNotExist());
+    }
+
+    @Test
+    void testGetBlockByNumber_FieldsRequireFull() throws Exception {
+        performAsync(get("/api/blockchain/blocks/1000000").param("fields", "hash"))
+                .andExpect(status().isBadRequest());
+        performAsync(get("/api/blockchain/blocks/1000000").param("full", "true").param("fields", "hash,in-put"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(web3Service);
+    }
+
+    @Test
+    void testGetBlockRange_StreamsNdjsonLines() throws Exception {
+        when(web3Service.streamBlocksAsync(eq(10L), eq(12L), any())).thenAnswer(invocation -> {
+            Web3Service.BlockSink sink = invocation.getArgument(2);
+            sink.accept(Arrays.asList(
+                    new BlockSummary(10, "0xa", "0x9", 0, 0, 0, null, null, 1),
+                    new BlockSummary(11, "0xb", "0xa", 0, 0, 0, null, null, 2)));
+            sink.accept(Collections.singletonList(new BlockSummary(12, "0xc", "0xb", 0, 0, 0, null, null, 3)));
+            return CompletableFuture.completedFuture(null);
+        });
+
+        MvcResult result = mockMvc.perform(get("/api/blockchain/blocks").param("from", "10").param("to", "12"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].contains("\"number\":10"));
+        assertTrue(lines[2].contains("\"hash\":\"0xc\""));
+        assertEquals("application/x-ndjson", result.getResponse().getContentType());
+    }
+
+    @Test
+    void testGetBlockRange_ReportsNodeErrorAsLastLine() throws Exception {
+        when(web3Service.streamBlocksAsync(eq(0L), eq(5L), any())).thenAnswer(invocation -> {
+            Web3Service.BlockSink sink = invocation.getArgument(2);
+            sink.accept(Collections.singletonList(new BlockSummary(0, "0xa", "0x0", 0, 0, 0, null, null, 0)));
+            return failed(new BlockchainException("Could not fetch blocks: timeout"));
+        });
+
+        MvcResult result = mockMvc.perform(get("/api/blockchain/blocks").param("from", "0").param("to", "5"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[1].contains("Could not fetch blocks: timeout"));
+    }
+
+    @Test
+    void testGetBlockRange_RejectsInvalidRange() throws Exception {
+        mockMvc.perform(get("/api/blockchain/blocks").param("from", "20").param("to", "10"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/blockchain/blocks").param("from", "0").param("to", "100000"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(web3Service);
     }
 
     @Test
     void testGetBlockByNumber_InvalidNumber() throws Exception {
-        mockMvc.perform(get("/api/blockchain/blocks/invalid"))
+        performAsync(get("/api/blockchain/blocks/invalid"))
                 .andExpect(status().isBadRequest());
     }
 
     @Test
     void testGetBlockByNumber_NotFound() throws Exception {
-        EthBlock emptyBlock = mock(EthBlock.class);
-        when(emptyBlock.getBlock()).thenReturn(null);
-        when(web3Service.getBlockByNumber(any(BigInteger.class))).thenReturn(emptyBlock);
+        when(web3Service.getBlockByNumberAsync(any(BigInteger.class))).thenReturn(CompletableFuture.completedFuture(null));
 
-        mockMvc.perform(get("/api/blockchain/blocks/999999999"))
+        performAsync(get("/api/blockchain/blocks/999999999"))
                 .andExpect(status().isNotFound());
     }
 
     @Test
     void testGetTransaction_Success() throws Exception {
-        when(web3Service.getTransaction(anyString())).thenReturn(mockTransaction);
+        when(web3Service.getTransactionAsync(anyString())).thenReturn(CompletableFuture.completedFuture(mockTransaction));
 
-        mockMvc.perform(get("/api/blockchain/transactions/0xtxhash123"))
+        performAsync(get("/api/blockchain/transactions/0xtxhash123"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.hash").value("0xtxhash123"))
                 .andExpect(jsonPath("$.from").value("0xfrom123"))
@@ -146,18 +260,18 @@ class BlockchainControllerTest {
 
     @Test
     void testGetTransaction_NotFound() throws Exception {
-        when(web3Service.getTransaction(anyString())).thenReturn(null);
+        when(web3Service.getTransactionAsync(anyString())).thenReturn(CompletableFuture.completedFuture(null));
 
-        mockMvc.perform(get("/api/blockchain/transactions/0xnonexistent"))
+        performAsync(get("/api/blockchain/transactions/0xnonexistent"))
                 .andExpect(status().isNotFound());
     }
 
     @Test
     void testGetBalance_Success() throws Exception {
         BigInteger balance = new BigInteger("1000000000000000000"); // 1 ETH in Wei
-        when(web3Service.getBalance(anyString())).thenReturn(balance);
+        when(web3Service.getBalanceAsync(anyString())).thenReturn(CompletableFuture.completedFuture(balance));
 
-        mockMvc.perform(get("/api/blockchain/balance/0xaddress123"))
+        performAsync(get("/api/blockchain/balance/0xaddress123"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.address").value("0xaddress123"))
                 .andExpect(jsonPath("$.balanceWei").value("1000000000000000000"))
@@ -166,9 +280,9 @@ class BlockchainControllerTest {
 
     @Test
     void testGetTransactionCount_Success() throws Exception {
-        when(web3Service.getTransactionCount(anyString())).thenReturn(BigInteger.valueOf(42));
+        when(web3Service.getTransactionCountAsync(anyString())).thenReturn(CompletableFuture.completedFuture(BigInteger.valueOf(42)));
 
-        mockMvc.perform(get("/api/blockchain/address/0xaddress123/transaction-count"))
+        performAsync(get("/api/blockchain/address/0xaddress123/transaction-count"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.address").value("0xaddress123"))
                 .andExpect(jsonPath("$.transactionCount").value(42));
@@ -177,11 +291,48 @@ class BlockchainControllerTest {
     @Test
     void testGetGasPrice_Success() throws Exception {
         BigInteger gasPrice = new BigInteger("20000000000"); // 20 Gwei
-        when(web3Service.getGasPrice()).thenReturn(gasPrice);
+        when(web3Service.getGasPriceAsync()).thenReturn(CompletableFuture.completedFuture(gasPrice));
 
-        mockMvc.perform(get("/api/blockchain/gas-price"))
+        performAsync(get("/api/blockchain/gas-price"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.gasPriceWei").value("20000000000"))
                 .andExpect(jsonPath("$.gasPriceGwei").value("20"));
     }
+
+    @Test
+    void testGetBalance_NodeError() throws Exception {
+        when(web3Service.getBalanceAsync(anyString())).thenReturn(failed(new IOException("Connection failed")));
+
+        performAsync(get("/api/blockchain/balance/0xaddress123"))
+                .andExpect(status().isInternalServerError());
+    }
+
+    @Test
+    void testGetBalances_RejectsInvalidAddress() throws Exception {
+        performAsync(post("/api/blockchain/balances")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"addresses\": [\"0x742d35Cc6634C0532925a3b8D4C9db96C4b4d8b6\", \"not-an-address\"]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("invalid address: not-an-address"));
+
+        performAsync(post("/api/blockchain/balances")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"addresses\": []}"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(balanceService);
+    }
+
+    private ResultActions performAsync(MockHttpServletRequestBuilder requestBuilder) throws Exception {
+        MvcResult result = mockMvc.perform(requestBuilder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result));
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable error) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(error);
+        return future;
+    }
 }
\ No newline at end of file
@@ -1,10 +1,13 @@
 package com.blockchain.learning.controller;
 
+import com.blockchain.learning.service.CacheWarmer;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.web.servlet.MockMvc;
 
+import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -14,6 +17,9 @@ class HealthControllerTest {
     @Autowired
     private MockMvc mockMvc;
 
+    @MockBean
+    private CacheWarmer cacheWarmer;
+
     @Test
     void testHealthEndpoint() throws Exception {
         mockMvc.perform(get("/api/health"))
@@ -23,6 +29,22 @@ class HealthControllerTest {
                 .andExpect(jsonPath("$.timestamp").exists());
     }
 
+    @Test
+    void testReadyEndpoint_ReflectsWarmupState() throws Exception {
+        when(cacheWarmer.isReady()).thenReturn(false);
+        when(cacheWarmer.getState()).thenReturn(CacheWarmer.State.WARMING);
+        mockMvc.perform(get("/api/health/ready"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.status").value("WARMING_UP"))
+                .andExpect(jsonPath("$.warmup").value("WARMING"));
+
+        when(cacheWarmer.isReady()).thenReturn(true);
+        when(cacheWarmer.getState()).thenReturn(CacheWarmer.State.COMPLETED);
+        mockMvc.perform(get("/api/health/ready"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("READY"));
+    }
+
     @Test
     void testWelcomeEndpoint() throws Exception {
         mockMvc.perform(get("/api/"))
@@ -12,11 +12,15 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
 import java.math.BigInteger;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.when;
@@ -130,9 +134,9 @@ class WalletControllerTest {
         String address = "0x742d35Cc6634C0532925a3b8D4C9db96c4b4d8b";
         BigInteger balance = new BigInteger("2000000000000000000"); // 2 ETH
 
-        when(walletService.getBalance(address)).thenReturn(balance);
+        when(walletService.getBalanceAsync(address)).thenReturn(CompletableFuture.completedFuture(balance));
 
-        mockMvc.perform(get("/api/wallet/balance/" + address))
+        performAsync(get("/api/wallet/balance/" + address))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.address").value(address))
                 .andExpect(jsonPath("$.balanceWei").value("2000000000000000000"))
@@ -144,7 +148,7 @@ class WalletControllerTest {
     void testGetBalance_InvalidAddress() throws Exception {
         String invalidAddress = "invalid-address";
 
-        mockMvc.perform(get("/api/wallet/balance/" + invalidAddress))
+        performAsync(get("/api/wallet/balance/" + invalidAddress))
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.success").value(false))
                 .andExpect(jsonPath("$.error").value("Invalid address format"));
@@ -155,9 +159,9 @@ class WalletControllerTest {
     void testGetBalance_ServiceError() throws Exception {
         String address = "0x742d35Cc6634C0532925a3b8D4C9db96c4b4d8b";
 
-        when(walletService.getBalance(address)).thenThrow(new WalletException("Network error"));
+        when(walletService.getBalanceAsync(address)).thenReturn(failed(new WalletException("Network error")));
 
-        mockMvc.perform(get("/api/wallet/balance/" + address))
+        performAsync(get("/api/wallet/balance/" + address))
                 .andExpect(status().isInternalServerError())
                 .andExpect(jsonPath("$.success").value(false))
                 .andExpect(jsonPath("$.error").value("Network error"));
@@ -166,9 +170,9 @@ class WalletControllerTest {
     @Test
     void testGetCurrentWalletInfo_HasWallet() throws Exception {
         when(walletService.hasCurrentWallet()).thenReturn(true);
-        when(walletService.getCurrentWallet()).thenReturn(mockWalletInfo);
+        when(walletService.getCurrentWalletAsync()).thenReturn(CompletableFuture.completedFuture(mockWalletInfo));
 
-        mockMvc.perform(get("/api/wallet/info"))
+        performAsync(get("/api/wallet/info"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.hasWallet").value(true))
                 .andExpect(jsonPath("$.wallet.address").value("0x742d35Cc6634C0532925a3b8D4C9db96c4b4d8b"))
@@ -179,7 +183,7 @@ class WalletControllerTest {
     void testGetCurrentWalletInfo_NoWallet() throws Exception {
         when(walletService.hasCurrentWallet()).thenReturn(false);
 
-        mockMvc.perform(get("/api/wallet/info"))
+        performAsync(get("/api/wallet/info"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.hasWallet").value(false))
                 .andExpect(jsonPath("$.message").value("No wallet is currently loaded"));
@@ -265,9 +269,9 @@ class WalletControllerTest {
     @Test
     void testGetWalletStatus_HasWallet() throws Exception {
         when(walletService.hasCurrentWallet()).thenReturn(true);
-        when(walletService.getCurrentWallet()).thenReturn(mockWalletInfo);
+        when(walletService.getCurrentWalletAsync()).thenReturn(CompletableFuture.completedFuture(mockWalletInfo));
 
-        mockMvc.perform(get("/api/wallet/status"))
+        performAsync(get("/api/wallet/status"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.hasCurrentWallet").value(true))
                 .andExpect(jsonPath("$.currentAddress").value("0x742d35Cc6634C0532925a3b8D4C9db96c4b4d8b"))
@@ -279,9 +283,22 @@ class WalletControllerTest {
     void testGetWalletStatus_NoWallet() throws Exception {
         when(walletService.hasCurrentWallet()).thenReturn(false);
 
-        mockMvc.perform(get("/api/wallet/status"))
+        performAsync(get("/api/wallet/status"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.hasCurrentWallet").value(false))
                 .andExpect(jsonPath("$.timestamp").exists());
     }
-}
\ No newline at end of file
+
+    private ResultActions performAsync(MockHttpServletRequestBuilder requestBuilder) throws Exception {
+        MvcResult result = mockMvc.perform(requestBuilder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result));
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable error) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(error);
+        return future;
+    }
+}
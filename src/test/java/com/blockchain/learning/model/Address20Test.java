@@ -0,0 +1,37 @@
+package com.blockchain.learning.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Address20Test {
+
+    private static final String CHECKSUMMED = "0x95222290DD7278Aa3Ddd389Cc1E1d165CC4BAfe5";
+
+    @Test
+    void testFromHex_RoundTripsAndIgnoresCase() {
+        Address20 address = Address20.fromHex(CHECKSUMMED);
+
+        assertEquals(CHECKSUMMED.toLowerCase(), address.toHex());
+        assertEquals(address, Address20.fromHex(CHECKSUMMED.toLowerCase()));
+        assertEquals(address.hashCode(), Address20.fromHex(CHECKSUMMED.toLowerCase()).hashCode());
+        assertEquals("0x" + String.format("%040x", 1), Address20.fromHex("0x01").toHex());
+    }
+
+    @Test
+    void testFromHex_DistinguishesEveryWord() {
+        String zero = "0x" + String.format("%040x", 0);
+        Address20 base = Address20.fromHex(zero);
+
+        assertNotEquals(base, Address20.fromHex("0x1" + zero.substring(3)));
+        assertNotEquals(base, Address20.fromHex(zero.substring(0, 25) + "1" + zero.substring(26)));
+        assertNotEquals(base, Address20.fromHex(zero.substring(0, 41) + "1"));
+    }
+
+    @Test
+    void testTryFromHex_RejectsInvalidInput() {
+        assertNull(Address20.tryFromHex("0xnot-an-address"));
+        assertNull(Address20.tryFromHex(CHECKSUMMED + "00"));
+        assertNull(Address20.tryFromHex(null));
+    }
+}
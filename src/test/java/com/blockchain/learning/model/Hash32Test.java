@@ -0,0 +1,35 @@
+package com.blockchain.learning.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Hash32Test {
+
+    private static final String HASH = "0x8f5bab218b6bb34476f51ca588e9f4553a3a7ce5e13a66c660a5283e97e9a85a";
+
+    @Test
+    void testFromHex_RoundTripsAndIgnoresCase() {
+        Hash32 hash = Hash32.fromHex(HASH);
+
+        assertEquals(HASH, hash.toHex());
+        assertEquals(hash, Hash32.fromHex(HASH.toUpperCase().replace("0X", "0x")));
+        assertEquals(hash, Hash32.fromHex(HASH.substring(2)));
+        assertEquals(hash.fold(), Hash32.fromHex(HASH.toUpperCase()).fold());
+        assertNotEquals(hash, Hash32.fromHex(HASH.replace('a', 'b')));
+    }
+
+    @Test
+    void testFromHex_LeftPadsShortInput() {
+        assertEquals("0x" + String.format("%064x", 0x50), Hash32.fromHex("0x50").toHex());
+        assertEquals(Hash32.fromHex("0x50"), Hash32.fromHex("0x0050"));
+    }
+
+    @Test
+    void testTryFromHex_RejectsInvalidInput() {
+        assertNull(Hash32.tryFromHex(null));
+        assertNull(Hash32.tryFromHex("0xzz"));
+        assertNull(Hash32.tryFromHex(HASH + "00"));
+        assertThrows(IllegalArgumentException.class, () -> Hash32.fromHex("0x12g4"));
+    }
+}
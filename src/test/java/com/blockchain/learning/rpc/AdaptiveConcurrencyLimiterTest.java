@@ -0,0 +1,127 @@
+package com.blockchain.learning.rpc;
+
+import com.blockchain.learning.config.RpcProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.methods.response.EthBlockNumber;
+import org.web3j.protocol.exceptions.ClientConnectionException;
+import org.web3j.protocol.http.HttpService;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private StubRpcServer server;
+    private RpcProperties.Limiter settings;
+    private AdaptiveConcurrencyLimiter limiter;
+    private Web3j web3j;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new StubRpcServer();
+        settings = new RpcProperties.Limiter();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (web3j != null) {
+            web3j.shutdown();
+        }
+        server.close();
+    }
+
+    private void start() {
+        limiter = new AdaptiveConcurrencyLimiter(new HttpService(server.getUrl()), settings);
+        web3j = Web3j.build(limiter);
+    }
+
+    @Test
+    void testExcessRequestsQueueUntilSlotsFree() {
+        server.withLatency(200);
+        settings.setInitialLimit(2);
+        settings.setMinLimit(2);
+        settings.setMaxLimit(2);
+        start();
+
+        List<CompletableFuture<EthBlockNumber>> futures = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            futures.add(web3j.ethBlockNumber().sendAsync());
+        }
+
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(4, limiter.getQueueDepth());
+        for (CompletableFuture<EthBlockNumber> future : futures) {
+            assertEquals(100, future.join().getBlockNumber().longValue());
+        }
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(0, limiter.getQueueDepth());
+    }
+
+    @Test
+    void testRejectsWhenQueueIsFull() {
+        server.withLatency(200);
+        settings.setInitialLimit(1);
+        settings.setMinLimit(1);
+        settings.setMaxQueueSize(1);
+        start();
+
+        CompletableFuture<EthBlockNumber> running = web3j.ethBlockNumber().sendAsync();
+        CompletableFuture<EthBlockNumber> queued = web3j.ethBlockNumber().sendAsync();
+        CompletableFuture<EthBlockNumber> rejected = web3j.ethBlockNumber().sendAsync();
+
+        CompletionException error = assertThrows(CompletionException.class, rejected::join);
+        assertTrue(error.getCause() instanceof IOException);
+        assertEquals(1, limiter.getRejected());
+        assertNotNull(running.join());
+        assertNotNull(queued.join());
+    }
+
+    @Test
+    void testQueuedRequestTimesOut() {
+        server.withLatency(500);
+        settings.setInitialLimit(1);
+        settings.setMinLimit(1);
+        settings.setMaxQueueWait(Duration.ofMillis(100));
+        start();
+
+        CompletableFuture<EthBlockNumber> running = web3j.ethBlockNumber().sendAsync();
+
+        assertThrows(IOException.class, () -> web3j.ethBlockNumber().send());
+        assertEquals(1, limiter.getQueueTimeouts());
+        assertNotNull(running.join());
+    }
+
+    @Test
+    void testErrorsShrinkLimitAndSuccessesGrowItBack() {
+        start();
+        server.withStatusCode(503);
+        for (int i = 0; i < 3; i++) {
+            assertThrows(ClientConnectionException.class, () -> web3j.ethBlockNumber().send());
+        }
+
+        int degraded = limiter.getLimit();
+        assertEquals(5, degraded);
+        assertEquals(3, limiter.getDecreases());
+        assertTrue(limiter.getErrorRateEwma() > 0.4);
+
+        server.withStatusCode(200);
+        for (int round = 0; round < 20; round++) {
+            List<CompletableFuture<EthBlockNumber>> futures = new ArrayList<>();
+            for (int i = 0; i < degraded; i++) {
+                futures.add(web3j.ethBlockNumber().sendAsync());
+            }
+            futures.forEach(CompletableFuture::join);
+        }
+
+        assertTrue(limiter.getLimit() > degraded);
+    }
+}
@@ -0,0 +1,156 @@
+package com.blockchain.learning.rpc;
+
+import com.blockchain.learning.model.BlockSummary;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.web3j.protocol.ObjectMapperFactory;
+import org.web3j.protocol.core.methods.response.EthBlock;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 区块解码基准：web3j的 {@link EthBlock} 完整反序列化 vs {@link BlockSummaryResponse} 流式解码
+ *
+ * 对包含600笔完整交易的区块分别测量每次解码的平均耗时和分配的字节数（按当前线程统计）。
+ * 默认不运行，需要时执行：
+ * <pre>
+ * mvn test -Dtest=BlockDecodeBenchmark -Dbenchmark=true
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class BlockDecodeBenchmark {
+
+    private static final int TRANSACTIONS = 600;
+
+    private static final int WARMUP_ITERATIONS = 300;
+
+    private static final int MEASURED_ITERATIONS = 1_000;
+
+    private final ObjectMapper objectMapper = ObjectMapperFactory.getObjectMapper();
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void compareFullBlockDecoding() throws Exception {
+        byte[] payload = response(TRANSACTIONS, true);
+
+        Result materialized = measure("EthBlock (materialized)", payload, () -> {
+            EthBlock.Block block = objectMapper.readValue(new ByteArrayInputStream(payload), EthBlock.class).getBlock();
+            return block.getTransactions().size();
+        });
+        Result streaming = measure("BlockSummaryResponse (streaming)", payload, () -> {
+            BlockSummary block = objectMapper.readValue(new ByteArrayInputStream(payload), BlockSummaryResponse.class)
+                    .getBlock();
+            return block.getTransactionCount();
+        });
+
+        assertTrue(streaming.bytesPerOp < materialized.bytesPerOp / 4,
+                "streaming decode should allocate far less than the materialized block");
+    }
+
+    @Test
+    void compareHashOnlyBlockDecoding() throws Exception {
+        byte[] payload = response(TRANSACTIONS, false);
+
+        Result materialized = measure("EthBlock hashes (materialized)", payload, () ->
+                objectMapper.readValue(new ByteArrayInputStream(payload), EthBlock.class).getBlock()
+                        .getTransactions().size());
+        Result streaming = measure("BlockSummaryResponse hashes (streaming)", payload, () ->
+                objectMapper.readValue(new ByteArrayInputStream(payload), BlockSummaryResponse.class).getBlock()
+                        .getTransactionCount());
+
+        assertTrue(streaming.bytesPerOp < materialized.bytesPerOp);
+    }
+
+    private Result measure(String name, byte[] payload, Decode decode) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            assertEquals(TRANSACTIONS, decode.run());
+        }
+
+        long thread = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            decode.run();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+
+        Result result = new Result(elapsedNanos / MEASURED_ITERATIONS, allocated / MEASURED_ITERATIONS);
+        System.out.printf("%-42s payload=%,d B  %,10d ns/op  %,12d B/op%n",
+                name, payload.length, result.nanosPerOp, result.bytesPerOp);
+        return result;
+    }
+
+    /**
+     * 生成一个接近主网结构的 eth_getBlockByNumber 响应
+     */
+    private static byte[] response(int transactions, boolean full) {
+        StringBuilder json = new StringBuilder(transactions * 1_200);
+        json.append("{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":{")
+                .append("\"number\":\"0x12a05f2\",\"hash\":\"").append(hex(64, 1)).append('"')
+                .append(",\"parentHash\":\"").append(hex(64, 2)).append('"')
+                .append(",\"logsBloom\":\"").append(hex(512, 3)).append('"')
+                .append(",\"timestamp\":\"0x6553f100\",\"gasLimit\":\"0x1c9c380\",\"gasUsed\":\"0x1c8f2a1\"")
+                .append(",\"miner\":\"").append(hex(40, 4)).append('"')
+                .append(",\"extraData\":\"0x6265617665726275696c642e6f7267\",\"baseFeePerGas\":\"0x5d21dba00\"")
+                .append(",\"uncles\":[],\"transactions\":[");
+        for (int i = 0; i < transactions; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            if (!full) {
+                json.append('"').append(hex(64, i)).append('"');
+                continue;
+            }
+            json.append("{\"blockHash\":\"").append(hex(64, 1)).append('"')
+                    .append(",\"blockNumber\":\"0x12a05f2\",\"chainId\":\"0x1\"")
+                    .append(",\"from\":\"").append(hex(40, i + 5)).append('"')
+                    .append(",\"gas\":\"0x5208\",\"gasPrice\":\"0x5d21dba00\"")
+                    .append(",\"maxFeePerGas\":\"0x6fc23ac00\",\"maxPriorityFeePerGas\":\"0x3b9aca00\"")
+                    .append(",\"hash\":\"").append(hex(64, i)).append('"')
+                    .append(",\"input\":\"0xa9059cbb").append(hex(128, i + 7).substring(2)).append('"')
+                    .append(",\"nonce\":\"0x").append(Integer.toHexString(i)).append('"')
+                    .append(",\"to\":\"").append(hex(40, i + 6)).append('"')
+                    .append(",\"transactionIndex\":\"0x").append(Integer.toHexString(i)).append('"')
+                    .append(",\"value\":\"0xde0b6b3a7640000\",\"type\":\"0x2\",\"accessList\":[]")
+                    .append(",\"v\":\"0x1\",\"r\":\"").append(hex(64, i + 8)).append('"')
+                    .append(",\"s\":\"").append(hex(64, i + 9)).append('"')
+                    .append(",\"yParity\":\"0x1\"}");
+        }
+        json.append("]}}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String hex(int digits, int seed) {
+        StringBuilder value = new StringBuilder(digits + 2).append("0x");
+        for (int i = 0; i < digits; i++) {
+            value.append(Character.forDigit((seed * 31 + i * 7) & 0xf, 16));
+        }
+        return value.toString();
+    }
+
+    @FunctionalInterface
+    private interface Decode {
+        int run() throws Exception;
+    }
+
+    private static final class Result {
+
+        private final long nanosPerOp;
+
+        private final long bytesPerOp;
+
+        private Result(long nanosPerOp, long bytesPerOp) {
+            this.nanosPerOp = nanosPerOp;
+            this.bytesPerOp = bytesPerOp;
+        }
+    }
+}
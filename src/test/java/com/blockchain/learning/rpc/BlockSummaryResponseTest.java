@@ -0,0 +1,81 @@
+package com.blockchain.learning.rpc;
+
+import com.blockchain.learning.model.BlockSummary;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.ObjectMapperFactory;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.http.HttpService;
+
+import java.io.IOException;
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlockSummaryResponseTest {
+
+    private static final String FULL_BLOCK = "{\"number\":\"0x10\",\"hash\":\"0xh16\",\"parentHash\":\"0xh15\","
+            + "\"logsBloom\":\"0x00ff\",\"timestamp\":\"0x65\",\"gasLimit\":\"0x1c9c380\",\"gasUsed\":\"0x5208\","
+            + "\"miner\":\"0xminer\",\"baseFeePerGas\":\"0x3b9aca00\",\"uncles\":[],"
+            + "\"withdrawals\":[{\"index\":\"0x1\",\"amount\":\"0x2\"}],"
+            + "\"transactions\":[{\"hash\":\"0xt1\",\"input\":\"0x\",\"accessList\":[{\"address\":\"0xa\","
+            + "\"storageKeys\":[\"0x1\"]}]},{\"hash\":\"0xt2\",\"value\":\"0x0\"}]}";
+
+    private final ObjectMapper objectMapper = ObjectMapperFactory.getObjectMapper();
+
+    @Test
+    void testDecodesHeaderFieldsAndCountsFullTransactions() throws IOException {
+        BlockSummaryResponse response = objectMapper.readValue(
+                "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":" + FULL_BLOCK + "}", BlockSummaryResponse.class);
+
+        BlockSummary block = response.getBlock();
+        assertEquals(16, block.getNumber());
+        assertEquals("0xh16", block.getHash());
+        assertEquals("0xh15", block.getParentHash());
+        assertEquals(0x65, block.getTimestamp());
+        assertEquals(30_000_000L, block.getGasLimit());
+        assertEquals(21_000L, block.getGasUsed());
+        assertEquals("0xminer", block.getMiner());
+        assertEquals(BigInteger.valueOf(1_000_000_000L), block.getBaseFeePerGas());
+        assertEquals(2, block.getTransactionCount());
+    }
+
+    @Test
+    void testMissingBlockAndErrorResponse() throws IOException {
+        BlockSummaryResponse missing = objectMapper.readValue(
+                "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":null}", BlockSummaryResponse.class);
+        assertNull(missing.getBlock());
+
+        BlockSummaryResponse error = objectMapper.readValue(
+                "{\"jsonrpc\":\"2.0\",\"id\":1,\"error\":{\"code\":-32000,\"message\":\"header not found\"}}",
+                BlockSummaryResponse.class);
+        assertTrue(error.hasError());
+        assertNull(error.getBlock());
+    }
+
+    @Test
+    void testRequestSentThroughWeb3jService() throws IOException {
+        try (StubRpcServer server = new StubRpcServer()) {
+            server.withResult("eth_getBlockByNumber", params -> {
+                assertEquals("0x10", params.get(0).asText());
+                assertTrue(params.get(1).asBoolean());
+                return readTree(FULL_BLOCK);
+            });
+            HttpService service = new HttpService(server.getUrl());
+
+            BlockSummary block = BlockSummaryResponse.byNumber(service, DefaultBlockParameter.valueOf(BigInteger.valueOf(16)), true)
+                    .send().getBlock();
+
+            assertEquals("0xh16", block.getHash());
+            assertEquals(2, block.getTransactionCount());
+        }
+    }
+
+    private Object readTree(String json) {
+        try {
+            return objectMapper.readTree(json);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.blockchain.learning.rpc;
+
+import com.blockchain.learning.model.BlockWithTransactions;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.ObjectMapperFactory;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlockWithTransactionsResponseTest {
+
+    private static final String BLOCK = "{\"number\":\"0x10\",\"hash\":\"0xh16\",\"parentHash\":\"0xh15\","
+            + "\"transactions\":[{\"hash\":\"0xt1\",\"from\":\"0xf1\",\"to\":null,\"value\":\"0xde0b6b3a7640000\","
+            + "\"input\":\"0xa9059cbb\",\"accessList\":[{\"address\":\"0xa\",\"storageKeys\":[]}]},"
+            + "{\"hash\":\"0xt2\",\"from\":\"0xf2\",\"to\":\"0xt\",\"value\":\"0x0\",\"input\":\"0x\"}]}";
+
+    private final ObjectMapper objectMapper = ObjectMapperFactory.getObjectMapper();
+
+    private StubRpcServer server;
+
+    private AsyncHttpService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new StubRpcServer().withResult("eth_getBlockByNumber", params -> {
+            assertTrue(params.get(1).asBoolean());
+            try {
+                return objectMapper.readTree(BLOCK);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        service = new AsyncHttpService(server.getUrl(), new OkHttpClient());
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void testDecodesOnlyProjectedFields() throws Exception {
+        BlockWithTransactions block = BlockWithTransactionsResponse
+                .byNumber(service, DefaultBlockParameter.valueOf(BigInteger.valueOf(16)),
+                        new LinkedHashSet<>(Arrays.asList("hash", "to", "value")))
+                .sendAsync().get().getBlock();
+
+        assertEquals("0xh16", block.getSummary().getHash());
+        assertEquals(2, block.getSummary().getTransactionCount());
+        Map<String, Object> first = block.getTransactions().get(0);
+        assertEquals(Arrays.asList("hash", "to", "value"), Arrays.asList(first.keySet().toArray()));
+        assertEquals("0xt1", first.get("hash"));
+        assertNull(first.get("to"));
+        assertEquals(new BigInteger("1000000000000000000"), first.get("value"));
+        assertEquals("0xt", block.getTransactions().get(1).get("to"));
+    }
+
+    @Test
+    void testSyncSendAppliesProjection() throws IOException {
+        BlockWithTransactions block = BlockWithTransactionsResponse
+                .byNumber(service, DefaultBlockParameter.valueOf(BigInteger.valueOf(16)),
+                        new LinkedHashSet<>(Arrays.asList("from")))
+                .send().getBlock();
+
+        assertEquals(1, block.getTransactions().get(0).size());
+        assertEquals("0xf2", block.getTransactions().get(1).get("from"));
+    }
+
+    @Test
+    void testSyncBatchAppliesProjection() throws IOException {
+        DefaultBlockParameter block = DefaultBlockParameter.valueOf(BigInteger.valueOf(16));
+        RpcBatch batch = new RpcBatch(Web3j.build(service));
+        RpcBatch.Call<BlockWithTransactionsResponse> hashes = batch.add(BlockWithTransactionsResponse
+                .byNumber(service, block, new LinkedHashSet<>(Arrays.asList("hash"))));
+        RpcBatch.Call<BlockWithTransactionsResponse> all = batch.add(BlockWithTransactionsResponse
+                .byNumber(service, block, null));
+
+        batch.execute();
+
+        assertEquals(Collections.singletonMap("hash", "0xt1"), hashes.get().getBlock().getTransactions().get(0));
+        assertEquals(6, all.get().getBlock().getTransactions().get(0).size());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    void testBatchFailsWhenResponseIdMatchesNoRequest() {
+        Request<?, BlockWithTransactionsResponse> request = BlockWithTransactionsResponse
+                .byNumber(service, DefaultBlockParameter.valueOf(BigInteger.ONE), null);
+        List<Request<?, ? extends Response<?>>> requests = Collections.singletonList(request);
+        String body = "[{\"jsonrpc\":\"2.0\",\"id\":" + (request.getId() + 1) + ",\"result\":null}]";
+
+        assertThrows(IOException.class, () -> service.parseBatch(requests,
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    void testWithoutProjectionDecodesAllFields() throws IOException {
+        BlockWithTransactions block = BlockWithTransactionsResponse
+                .byNumber(service, DefaultBlockParameter.valueOf(BigInteger.valueOf(16)), null)
+                .send().getBlock();
+
+        Map<String, Object> first = block.getTransactions().get(0);
+        assertEquals(6, first.size());
+        assertEquals("0xa9059cbb", first.get("input"));
+        assertTrue(first.get("accessList") instanceof com.fasterxml.jackson.databind.JsonNode);
+    }
+
+    @Test
+    void testDifferentProjectionsAreNotCoalesced() throws Exception {
+        server.withLatency(100);
+        SingleFlightService singleFlight = new SingleFlightService(service);
+        DefaultBlockParameter block = DefaultBlockParameter.valueOf(BigInteger.valueOf(16));
+
+        BlockWithTransactions hashes = BlockWithTransactionsResponse
+                .byNumber(singleFlight, block, new LinkedHashSet<>(Arrays.asList("hash"))).sendAsync()
+                .thenCombine(BlockWithTransactionsResponse
+                                .byNumber(singleFlight, block, new LinkedHashSet<>(Arrays.asList("from"))).sendAsync(),
+                        (first, second) -> {
+                            assertEquals("0xf1", second.getBlock().getTransactions().get(0).get("from"));
+                            return first.getBlock();
+                        })
+                .get();
+
+        assertEquals("0xt1", hashes.getTransactions().get(0).get("hash"));
+        assertEquals(0, singleFlight.getCoalesced());
+        assertEquals(2, server.getMethodCount("eth_getBlockByNumber"));
+    }
+}
@@ -0,0 +1,49 @@
+package com.blockchain.learning.rpc;
+
+import com.blockchain.learning.model.ReceiptSummary;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.ObjectMapperFactory;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReceiptsResponseTest {
+
+    private final ObjectMapper objectMapper = ObjectMapperFactory.getObjectMapper();
+
+    @Test
+    void testDecodesBlockReceiptsAndSkipsLogs() throws IOException {
+        ReceiptsResponse response = objectMapper.readValue("{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":["
+                + "{\"transactionHash\":\"0xt1\",\"transactionIndex\":\"0x0\",\"gasUsed\":\"0x5208\",\"status\":\"0x1\","
+                + "\"contractAddress\":null,\"logsBloom\":\"0x00\",\"logs\":[{\"topics\":[\"0x1\"],\"data\":\"0x\"}]},"
+                + "{\"transactionHash\":\"0xt2\",\"transactionIndex\":\"0x1\",\"gasUsed\":\"0x30d40\",\"status\":\"0x0\","
+                + "\"contractAddress\":\"0xc0\",\"logs\":[]}]}", ReceiptsResponse.class);
+
+        List<ReceiptSummary> receipts = response.getReceipts();
+        assertEquals(2, receipts.size());
+        assertEquals("0xt1", receipts.get(0).getTransactionHash());
+        assertEquals(21_000L, receipts.get(0).getGasUsed());
+        assertTrue(receipts.get(0).getSuccess());
+        assertNull(receipts.get(0).getContractAddress());
+        assertEquals(1, receipts.get(1).getTransactionIndex());
+        assertFalse(receipts.get(1).getSuccess());
+        assertEquals("0xc0", receipts.get(1).getContractAddress());
+    }
+
+    @Test
+    void testSingleReceiptAndMissingTransaction() throws IOException {
+        ReceiptsResponse single = objectMapper.readValue("{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":"
+                + "{\"transactionHash\":\"0xt1\",\"transactionIndex\":\"0x5\",\"gasUsed\":\"0x5208\",\"root\":\"0xr\"}}",
+                ReceiptsResponse.class);
+        assertEquals(1, single.getReceipts().size());
+        assertEquals(5, single.getReceipts().get(0).getTransactionIndex());
+        assertNull(single.getReceipts().get(0).getSuccess());
+
+        ReceiptsResponse missing = objectMapper.readValue(
+                "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":null}", ReceiptsResponse.class);
+        assertNull(missing.getReceipts());
+    }
+}
@@ -0,0 +1,123 @@
+package com.blockchain.learning.rpc;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthBlockNumber;
+import org.web3j.protocol.core.methods.response.EthChainId;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class RpcBatchTest {
+
+    private Web3jService web3jService;
+    private Web3j web3j;
+
+    @BeforeEach
+    void setUp() {
+        web3jService = mock(Web3jService.class);
+        web3j = Web3j.build(web3jService);
+    }
+
+    @Test
+    void testExecute_MatchesOutOfOrderResponsesById() throws IOException {
+        RpcBatch batch = new RpcBatch(web3j);
+        Request<?, EthChainId> chainIdRequest = web3j.ethChainId();
+        Request<?, EthBlockNumber> blockNumberRequest = web3j.ethBlockNumber();
+        RpcBatch.Call<EthChainId> chainId = batch.add(chainIdRequest);
+        RpcBatch.Call<EthBlockNumber> blockNumber = batch.add(blockNumberRequest);
+
+        EthChainId chainIdResponse = response(new EthChainId(), chainIdRequest.getId(), "0xaa36a7");
+        EthBlockNumber blockNumberResponse = response(new EthBlockNumber(), blockNumberRequest.getId(), "0x10");
+        when(web3jService.sendBatch(any(BatchRequest.class))).thenAnswer(invocation -> {
+            BatchRequest request = invocation.getArgument(0);
+            // 节点以相反顺序返回
+            return new BatchResponse(request.getRequests(), Arrays.asList(blockNumberResponse, chainIdResponse));
+        });
+
+        batch.execute();
+
+        assertEquals(BigInteger.valueOf(11155111), chainId.get().getChainId());
+        assertEquals(BigInteger.valueOf(16), blockNumber.get().getBlockNumber());
+        verify(web3jService, times(1)).sendBatch(any(BatchRequest.class));
+    }
+
+    @Test
+    void testExecute_SingleRequestIsSentDirectly() throws IOException {
+        RpcBatch batch = new RpcBatch(web3j);
+        Request<?, EthChainId> request = web3j.ethChainId();
+        RpcBatch.Call<EthChainId> chainId = batch.add(request);
+
+        when(web3jService.send(any(Request.class), eq(EthChainId.class)))
+                .thenReturn(response(new EthChainId(), request.getId(), "0x1"));
+
+        batch.execute();
+
+        assertEquals(BigInteger.ONE, chainId.get().getChainId());
+        verify(web3jService, never()).sendBatch(any(BatchRequest.class));
+    }
+
+    @Test
+    void testGet_RpcErrorOnlyFailsThatCall() throws IOException {
+        RpcBatch batch = new RpcBatch(web3j);
+        Request<?, EthChainId> chainIdRequest = web3j.ethChainId();
+        Request<?, EthBlockNumber> blockNumberRequest = web3j.ethBlockNumber();
+        RpcBatch.Call<EthChainId> chainId = batch.add(chainIdRequest);
+        RpcBatch.Call<EthBlockNumber> blockNumber = batch.add(blockNumberRequest);
+
+        EthChainId chainIdResponse = response(new EthChainId(), chainIdRequest.getId(), "0x1");
+        EthBlockNumber blockNumberResponse = new EthBlockNumber();
+        blockNumberResponse.setId(blockNumberRequest.getId());
+        blockNumberResponse.setError(new Response.Error(-32000, "header not found"));
+        List<Response<?>> responses = new ArrayList<>(Arrays.asList(chainIdResponse, blockNumberResponse));
+        when(web3jService.sendBatch(any(BatchRequest.class))).thenAnswer(invocation -> {
+            BatchRequest request = invocation.getArgument(0);
+            return new BatchResponse(request.getRequests(), responses);
+        });
+
+        batch.execute();
+
+        assertTrue(chainId.isSuccessful());
+        assertEquals(BigInteger.ONE, chainId.get().getChainId());
+        assertFalse(blockNumber.isSuccessful());
+        IOException exception = assertThrows(IOException.class, blockNumber::get);
+        assertTrue(exception.getMessage().contains("header not found"));
+    }
+
+    @Test
+    void testGet_BeforeExecuteThrows() {
+        RpcBatch batch = new RpcBatch(web3j);
+        RpcBatch.Call<EthChainId> chainId = batch.add(web3j.ethChainId());
+
+        assertThrows(IllegalStateException.class, chainId::get);
+    }
+
+    @Test
+    void testExecute_TwiceThrows() throws IOException {
+        RpcBatch batch = new RpcBatch(web3j);
+        batch.execute();
+
+        assertThrows(IllegalStateException.class, batch::execute);
+        assertThrows(IllegalStateException.class, () -> batch.add(web3j.ethChainId()));
+    }
+
+    private static <T extends Response<String>> T response(T response, long id, String result) {
+        response.setId(id);
+        response.setResult(result);
+        return response;
+    }
+}
@@ -0,0 +1,253 @@
+package com.blockchain.learning.rpc;
+
+import com.blockchain.learning.config.RpcProperties;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.methods.response.EthChainId;
+import org.web3j.protocol.exceptions.ClientConnectionException;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RpcEndpointPoolTest {
+
+    private final List<StubRpcServer> servers = new ArrayList<>();
+    private final OkHttpClient client = new OkHttpClient();
+    private RpcProperties properties;
+    private RpcEndpointPool pool;
+
+    @BeforeEach
+    void setUp() {
+        properties = new RpcProperties();
+        properties.setMaxBlockLag(3);
+        properties.setEjectThreshold(2);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (pool != null) {
+            pool.close();
+        }
+        servers.forEach(StubRpcServer::close);
+    }
+
+    @Test
+    void testRoutesMostTrafficToLowerLatencyEndpoint() throws IOException {
+        StubRpcServer fast = server().withLatency(5);
+        StubRpcServer slow = server().withLatency(80);
+        Web3j web3j = Web3j.build(pool(fast, slow));
+
+        for (int i = 0; i < 20; i++) {
+            web3j.ethChainId().send();
+        }
+
+        assertTrue(fast.getRequestCount() >= 18,
+                "fast=" + fast.getRequestCount() + ", slow=" + slow.getRequestCount());
+        assertTrue(slow.getRequestCount() <= 2);
+    }
+
+    @Test
+    void testFailsOverAndEjectsFailingEndpoint() throws IOException {
+        StubRpcServer broken = server().withStatusCode(503);
+        StubRpcServer healthy = server().withLatency(20);
+        Web3j web3j = Web3j.build(pool(broken, healthy));
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(BigInteger.valueOf(11155111), web3j.ethChainId().send().getChainId());
+        }
+
+        RpcEndpoint brokenEndpoint = pool.getEndpoints().get(0);
+        assertTrue(brokenEndpoint.isEjected());
+        assertTrue(broken.getRequestCount() <= properties.getEjectThreshold());
+        assertEquals(10, healthy.getRequestCount());
+    }
+
+    @Test
+    void testThrowsWhenAllEndpointsFail() {
+        properties.getRetry().setMaxAttempts(2);
+        StubRpcServer first = server().withStatusCode(503);
+        StubRpcServer second = server().withStatusCode(429);
+        Web3j web3j = Web3j.build(pool(first, second));
+
+        assertThrows(RuntimeException.class, () -> web3j.ethChainId().send());
+        assertEquals(1, first.getRequestCount());
+        assertEquals(1, second.getRequestCount());
+        assertEquals(1, pool.getRetries());
+    }
+
+    @Test
+    void testSkipsEndpointLaggingOnHeadBlock() throws IOException {
+        StubRpcServer lagging = server().withBlockNumber(50);
+        StubRpcServer current = server().withBlockNumber(100).withLatency(30);
+        Web3j web3j = Web3j.build(pool(lagging, current));
+
+        pool.checkHealth();
+        assertTrue(pool.isLagging(pool.getEndpoints().get(0)));
+        int laggingBefore = lagging.getRequestCount();
+
+        for (int i = 0; i < 5; i++) {
+            web3j.ethChainId().send();
+        }
+
+        assertEquals(laggingBefore, lagging.getRequestCount());
+        assertEquals(100, pool.getHighestHeadBlock());
+    }
+
+    @Test
+    void testHealthCheckRestoresRecoveredEndpoint() throws IOException {
+        StubRpcServer flaky = server().withStatusCode(503);
+        StubRpcServer healthy = server();
+        Web3j web3j = Web3j.build(pool(flaky, healthy));
+
+        pool.checkHealth();
+        pool.checkHealth();
+        assertTrue(pool.getEndpoints().get(0).isEjected());
+
+        flaky.withStatusCode(200);
+        pool.checkHealth();
+
+        assertFalse(pool.getEndpoints().get(0).isEjected());
+        web3j.ethChainId().send();
+    }
+
+    @Test
+    void testSendAsyncFailsOverToHealthyEndpoint() throws Exception {
+        StubRpcServer broken = server().withStatusCode(503);
+        StubRpcServer healthy = server().withLatency(20);
+        Web3j web3j = Web3j.build(pool(broken, healthy));
+
+        List<CompletableFuture<EthChainId>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(web3j.ethChainId().sendAsync());
+        }
+
+        for (CompletableFuture<EthChainId> future : futures) {
+            assertEquals(BigInteger.valueOf(11155111), future.get(5, TimeUnit.SECONDS).getChainId());
+        }
+        assertEquals(10, healthy.getRequestCount());
+    }
+
+    @Test
+    void testSendAsyncCompletesExceptionallyWhenAllEndpointsFail() {
+        properties.getRetry().setMaxAttempts(2);
+        StubRpcServer first = server().withStatusCode(503);
+        StubRpcServer second = server().withStatusCode(503);
+        Web3j web3j = Web3j.build(pool(first, second));
+
+        ExecutionException error = assertThrows(ExecutionException.class,
+                () -> web3j.ethChainId().sendAsync().get(5, TimeUnit.SECONDS));
+
+        assertTrue(error.getCause() instanceof ClientConnectionException);
+        assertEquals(1, first.getRequestCount());
+        assertEquals(1, second.getRequestCount());
+    }
+
+    @Test
+    void testRetriesSingleEndpointWithBackoff() throws IOException {
+        properties.setEjectThreshold(5);
+        StubRpcServer flaky = server().failNext(2);
+        Web3j web3j = Web3j.build(pool(flaky));
+
+        assertEquals(BigInteger.valueOf(11155111), web3j.ethChainId().send().getChainId());
+
+        assertEquals(3, flaky.getRequestCount());
+        assertEquals(2, pool.getRetries());
+    }
+
+    @Test
+    void testRetryBudgetLimitsRetries() {
+        properties.setEjectThreshold(100);
+        properties.getRetry().setBudgetMaxTokens(1);
+        properties.getRetry().setBudgetRatio(0);
+        properties.getRetry().setBudgetMinPerSecond(0);
+        StubRpcServer broken = server().withStatusCode(503);
+        Web3j web3j = Web3j.build(pool(broken));
+
+        assertThrows(ClientConnectionException.class, () -> web3j.ethChainId().send());
+        assertThrows(ClientConnectionException.class, () -> web3j.ethChainId().send());
+
+        assertEquals(3, broken.getRequestCount());
+        assertEquals(1, pool.getRetries());
+        assertTrue(pool.getRetryBudget().getExhausted() >= 1);
+    }
+
+    @Test
+    void testOpenCircuitFailsFastThenHalfOpenProbeCloses() throws Exception {
+        properties.getRetry().setMaxAttempts(1);
+        properties.setEjectDuration(Duration.ofMillis(200));
+        StubRpcServer broken = server().withStatusCode(503);
+        Web3j web3j = Web3j.build(pool(broken));
+        RpcEndpoint endpoint = pool.getEndpoints().get(0);
+
+        assertThrows(ClientConnectionException.class, () -> web3j.ethChainId().send());
+        assertThrows(ClientConnectionException.class, () -> web3j.ethChainId().send());
+        assertEquals(RpcEndpoint.CircuitState.OPEN, endpoint.getCircuitState());
+
+        IOException error = assertThrows(IOException.class, () -> web3j.ethChainId().send());
+        assertTrue(error.getMessage().contains("circuit breakers are open"));
+        assertEquals(2, broken.getRequestCount());
+
+        Thread.sleep(250);
+        assertEquals(RpcEndpoint.CircuitState.HALF_OPEN, endpoint.getCircuitState());
+        broken.withStatusCode(200);
+
+        assertEquals(BigInteger.valueOf(11155111), web3j.ethChainId().send().getChainId());
+        assertEquals(RpcEndpoint.CircuitState.CLOSED, endpoint.getCircuitState());
+    }
+
+    @Test
+    void testHedgesRequestSlowerThanRecentP95() throws Exception {
+        properties.getHedge().setMinSamples(5);
+        properties.getHedge().setMinDelay(Duration.ofMillis(30));
+        StubRpcServer stub = server();
+        Web3j web3j = Web3j.build(pool(stub));
+        for (int i = 0; i < 10; i++) {
+            web3j.ethChainId().send();
+        }
+
+        stub.delayNext(1, 2_000);
+        long start = System.nanoTime();
+        EthChainId response = web3j.ethChainId().sendAsync().get(5, TimeUnit.SECONDS);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(BigInteger.valueOf(11155111), response.getChainId());
+        assertTrue(elapsedMillis < 1_000, "elapsed=" + elapsedMillis);
+        assertEquals(1, pool.getHedges());
+        // 计数在结果完成之后才更新
+        long deadline = System.currentTimeMillis() + 1_000;
+        while (pool.getHedgeWins() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, pool.getHedgeWins());
+    }
+
+    private StubRpcServer server() {
+        try {
+            StubRpcServer server = new StubRpcServer();
+            servers.add(server);
+            return server;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private RpcEndpointPool pool(StubRpcServer... stubs) {
+        List<RpcEndpoint> endpoints = new ArrayList<>();
+        for (StubRpcServer stub : stubs) {
+            endpoints.add(new RpcEndpoint(stub.getUrl(), new AsyncHttpService(stub.getUrl(), client)));
+        }
+        pool = new RpcEndpointPool(endpoints, properties);
+        return pool;
+    }
+}
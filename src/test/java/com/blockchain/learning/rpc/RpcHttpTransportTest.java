@@ -0,0 +1,100 @@
+package com.blockchain.learning.rpc;
+
+import com.blockchain.learning.config.RpcProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.methods.response.EthBlockNumber;
+import org.web3j.protocol.core.methods.response.EthChainId;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RpcHttpTransportTest {
+
+    private StubRpcServer server;
+    private RpcHttpTransport transport;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new StubRpcServer();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (transport != null) {
+            transport.close();
+        }
+        server.close();
+    }
+
+    @Test
+    void testSequentialCallsReuseConnection() throws IOException {
+        RpcProperties.Transport settings = new RpcProperties.Transport();
+        settings.setWarmupConnections(0);
+        transport = new RpcHttpTransport(settings);
+        Web3j web3j = Web3j.build(transport.createService(server.getUrl()));
+
+        for (int i = 0; i < 5; i++) {
+            web3j.ethBlockNumber().send();
+        }
+
+        TransportMetrics metrics = transport.getMetrics();
+        assertEquals(5, metrics.getCallsStarted());
+        assertEquals(1, metrics.getConnectionsOpened());
+        assertEquals(4, metrics.getConnectionsReused());
+        assertEquals(0, metrics.getTlsHandshakes());
+    }
+
+    @Test
+    void testBatchAsyncCompletesOnDispatcherThread() throws Exception {
+        RpcProperties.Transport settings = new RpcProperties.Transport();
+        settings.setWarmupConnections(0);
+        transport = new RpcHttpTransport(settings);
+        Web3j web3j = Web3j.build(transport.createService(server.getUrl()));
+        server.withBlockNumber(4242).withLatency(100);
+
+        RpcBatch batch = new RpcBatch(web3j);
+        RpcBatch.Call<EthBlockNumber> blockNumber = batch.add(web3j.ethBlockNumber());
+        RpcBatch.Call<EthChainId> chainId = batch.add(web3j.ethChainId());
+        String thread = batch.executeAsync().thenApply(ignored -> Thread.currentThread().getName())
+                .get(5, TimeUnit.SECONDS);
+
+        // 响应由OkHttp的回调线程解析，而不是web3j的异步线程池
+        assertTrue(thread.startsWith("OkHttp"), thread);
+        assertEquals(4242, blockNumber.get().getBlockNumber().longValue());
+        assertEquals(11155111L, chainId.get().getChainId().longValue());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    void testWarmUpOpensConnectionsBeforeFirstCall() throws Exception {
+        RpcProperties.Transport settings = new RpcProperties.Transport();
+        settings.setWarmupConnections(1);
+        transport = new RpcHttpTransport(settings);
+
+        transport.warmUp(Collections.singletonList(server.getUrl()));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (transport.getMetrics().getConnectionsOpened() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(1, transport.getMetrics().getConnectionsOpened());
+        assertEquals(0, server.getMethodCount("eth_blockNumber"));
+    }
+
+    @Test
+    void testWarmUpDisabled() {
+        RpcProperties.Transport settings = new RpcProperties.Transport();
+        settings.setWarmupConnections(0);
+        transport = new RpcHttpTransport(settings);
+
+        transport.warmUp(Collections.singletonList(server.getUrl()));
+
+        assertEquals(0, transport.getMetrics().getCallsStarted());
+    }
+}
@@ -0,0 +1,140 @@
+package com.blockchain.learning.rpc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.response.EthChainId;
+import org.web3j.protocol.core.methods.response.EthGetBalance;
+import org.web3j.protocol.http.HttpService;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightServiceTest {
+
+    private static final int CALLERS = 20;
+
+    private StubRpcServer server;
+    private SingleFlightService singleFlight;
+    private Web3j web3j;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new StubRpcServer()
+                .withLatency(300)
+                .withResult("eth_getBalance", params -> "0x" + params.get(0).asText().substring(2));
+        singleFlight = new SingleFlightService(new HttpService(server.getUrl()));
+        web3j = Web3j.build(singleFlight);
+    }
+
+    @AfterEach
+    void tearDown() {
+        web3j.shutdown();
+        server.close();
+    }
+
+    @Test
+    void testConcurrentIdenticalCallsShareOneUpstreamRequest() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<EthChainId>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return web3j.ethChainId().send();
+                }));
+            }
+            start.countDown();
+
+            for (Future<EthChainId> result : results) {
+                assertEquals(BigInteger.valueOf(11155111), result.get(5, TimeUnit.SECONDS).getChainId());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, server.getMethodCount("eth_chainId"));
+        assertEquals(CALLERS, singleFlight.getRequests());
+        assertEquals(CALLERS - 1, singleFlight.getCoalesced());
+        assertEquals(1, singleFlight.getUpstreamRequests());
+        assertEquals((double) (CALLERS - 1) / CALLERS, singleFlight.getCoalescingRatio(), 1e-9);
+        assertEquals(0, singleFlight.getInFlightCount());
+    }
+
+    @Test
+    void testConcurrentAsyncCallsShareOneUpstreamRequest() throws Exception {
+        List<CompletableFuture<EthChainId>> futures = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            futures.add(web3j.ethChainId().sendAsync());
+        }
+
+        for (CompletableFuture<EthChainId> future : futures) {
+            assertEquals(BigInteger.valueOf(11155111), future.get(5, TimeUnit.SECONDS).getChainId());
+        }
+        assertEquals(1, server.getMethodCount("eth_chainId"));
+        assertEquals(CALLERS - 1, singleFlight.getCoalesced());
+    }
+
+    @Test
+    void testCancellingOneCallerDoesNotAffectOthers() throws Exception {
+        CompletableFuture<EthChainId> first = web3j.ethChainId().sendAsync();
+        CompletableFuture<EthChainId> second = web3j.ethChainId().sendAsync();
+
+        assertTrue(first.cancel(false));
+
+        assertEquals(BigInteger.valueOf(11155111), second.get(5, TimeUnit.SECONDS).getChainId());
+        assertTrue(first.isCancelled());
+        assertEquals(1, server.getMethodCount("eth_chainId"));
+        assertEquals(1, singleFlight.getCoalesced());
+    }
+
+    @Test
+    void testDifferentParamsAreNotCoalesced() throws Exception {
+        CompletableFuture<EthGetBalance> first = web3j
+                .ethGetBalance("0x01", DefaultBlockParameterName.LATEST).sendAsync();
+        CompletableFuture<EthGetBalance> second = web3j
+                .ethGetBalance("0x02", DefaultBlockParameterName.LATEST).sendAsync();
+
+        assertEquals(BigInteger.ONE, first.get(5, TimeUnit.SECONDS).getBalance());
+        assertEquals(BigInteger.valueOf(2), second.get(5, TimeUnit.SECONDS).getBalance());
+        assertEquals(2, server.getMethodCount("eth_getBalance"));
+        assertEquals(0, singleFlight.getCoalesced());
+    }
+
+    @Test
+    void testSequentialCallsAreNotCached() throws IOException {
+        web3j.ethChainId().send();
+        web3j.ethChainId().send();
+
+        assertEquals(2, server.getMethodCount("eth_chainId"));
+    }
+
+    @Test
+    void testFailureIsSharedAndNotRemembered() throws Exception {
+        server.withStatusCode(503);
+        List<CompletableFuture<EthChainId>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(web3j.ethChainId().sendAsync());
+        }
+        for (CompletableFuture<EthChainId> future : futures) {
+            assertThrows(Exception.class, () -> future.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, server.getRequestCount());
+
+        server.withStatusCode(200).withLatency(0);
+        assertEquals(BigInteger.valueOf(11155111), web3j.ethChainId().send().getChainId());
+    }
+}
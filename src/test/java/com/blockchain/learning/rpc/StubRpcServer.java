@@ -0,0 +1,194 @@
+package com.blockchain.learning.rpc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 测试用的本地JSON-RPC节点
+ *
+ * 支持单个请求和批量请求，可以注入延迟、返回HTTP错误，并统计收到的请求数。
+ */
+public class StubRpcServer implements AutoCloseable {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final HttpServer server;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final AtomicInteger requestCount = new AtomicInteger();
+
+    private final Map<String, AtomicInteger> methodCounts = new ConcurrentHashMap<>();
+
+    private final Map<String, Function<JsonNode, Object>> handlers = new ConcurrentHashMap<>();
+
+    private final Map<String, ObjectNode> errors = new ConcurrentHashMap<>();
+
+    private volatile long latencyMillis;
+
+    private volatile long blockNumber = 100;
+
+    private volatile int statusCode = 200;
+
+    private final AtomicInteger pendingFailures = new AtomicInteger();
+
+    private final AtomicInteger pendingDelays = new AtomicInteger();
+
+    private volatile long delayMillis;
+
+    public StubRpcServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+
+        handlers.put("eth_blockNumber", params -> "0x" + Long.toHexString(blockNumber));
+        handlers.put("eth_chainId", params -> "0xaa36a7");
+        handlers.put("web3_clientVersion", params -> "StubRpcServer/v1.0.0");
+    }
+
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public StubRpcServer withLatency(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+        return this;
+    }
+
+    public StubRpcServer withBlockNumber(long blockNumber) {
+        this.blockNumber = blockNumber;
+        return this;
+    }
+
+    public StubRpcServer withStatusCode(int statusCode) {
+        this.statusCode = statusCode;
+        return this;
+    }
+
+    /**
+     * 接下来的 count 个请求返回HTTP 503，之后恢复正常
+     */
+    public StubRpcServer failNext(int count) {
+        pendingFailures.set(count);
+        return this;
+    }
+
+    /**
+     * 接下来的 count 个请求额外延迟 delayMillis 毫秒
+     */
+    public StubRpcServer delayNext(int count, long delayMillis) {
+        this.delayMillis = delayMillis;
+        pendingDelays.set(count);
+        return this;
+    }
+
+    /**
+     * 自定义某个RPC方法的返回结果，参数为请求中的params数组
+     */
+    public StubRpcServer withResult(String method, Function<JsonNode, Object> handler) {
+        errors.remove(method);
+        handlers.put(method, handler);
+        return this;
+    }
+
+    /**
+     * 某个RPC方法返回JSON-RPC错误，直到再次调用 {@link #withResult}
+     */
+    public StubRpcServer withError(String method, int code, String message) {
+        ObjectNode error = objectMapper.createObjectNode();
+        error.put("code", code);
+        error.put("message", message);
+        errors.put(method, error);
+        return this;
+    }
+
+    public int getRequestCount() {
+        return requestCount.get();
+    }
+
+    public int getMethodCount(String method) {
+        AtomicInteger count = methodCounts.get(method);
+        return count == null ? 0 : count.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        try {
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+            if (pendingDelays.getAndUpdate(count -> Math.max(0, count - 1)) > 0) {
+                Thread.sleep(delayMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        int status = pendingFailures.getAndUpdate(count -> Math.max(0, count - 1)) > 0 ? 503 : statusCode;
+        if (status != 200 || !"POST".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(status != 200 ? status : 405, -1);
+            exchange.close();
+            return;
+        }
+
+        JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+        JsonNode response;
+        if (request.isArray()) {
+            ArrayNode responses = objectMapper.createArrayNode();
+            for (JsonNode item : request) {
+                responses.add(respond(item));
+            }
+            response = responses;
+        } else {
+            response = respond(request);
+        }
+
+        byte[] body = objectMapper.writeValueAsBytes(response);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    private ObjectNode respond(JsonNode request) {
+        String method = request.path("method").asText();
+        methodCounts.computeIfAbsent(method, key -> new AtomicInteger()).incrementAndGet();
+
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("jsonrpc", "2.0");
+        response.set("id", request.get("id"));
+        Function<JsonNode, Object> handler = handlers.get(method);
+        if (errors.containsKey(method)) {
+            response.set("error", errors.get(method));
+        } else if (handler == null) {
+            ObjectNode error = response.putObject("error");
+            error.put("code", -32601);
+            error.put("message", "the method " + method + " does not exist/is not available");
+        } else {
+            response.set("result", objectMapper.valueToTree(handler.apply(request.path("params"))));
+        }
+        return response;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,133 @@
+package com.blockchain.learning.service;
+
+import com.blockchain.learning.model.Address20;
+import com.blockchain.learning.model.EtherscanTransaction;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AddressTxIndexTest {
+
+    private static final String ALICE = "0x" + repeat("a1", 20);
+    private static final String BOB = "0x" + repeat("b2", 20);
+    private static final String CONTRACT = "0x" + repeat("c3", 20);
+
+    @Test
+    void testTransactions_NewestFirstInEtherscanFormat() {
+        AddressTxIndex index = new AddressTxIndex();
+        index.append(block(100, transfer(1, ALICE, BOB), transfer(2, BOB, ALICE)));
+        index.append(block(101, transfer(3, ALICE, ALICE)));
+
+        Address20 key = Address20.fromHex(ALICE.toUpperCase().replace("0X", "0x"));
+        List<EtherscanTransaction> alice = index.transactions(key, 10);
+
+        assertEquals(3, alice.size());
+        assertEquals(hash(3), alice.get(0).getHash());
+        assertEquals(hash(2), alice.get(1).getHash());
+        assertEquals(hash(1), alice.get(2).getHash());
+        EtherscanTransaction first = alice.get(2);
+        assertEquals("100", first.getBlockNumber());
+        assertEquals("1700000100", first.getTimeStamp());
+        assertEquals(ALICE, first.getFrom());
+        assertEquals(BOB, first.getTo());
+        assertEquals("1000000000000000000", first.getValue());
+        assertEquals("20000000000", first.getGasPrice());
+        assertEquals("21000", first.getGasUsed());
+        assertEquals("0", first.getIsError());
+        assertEquals(2, index.transactions(Address20.fromHex(ALICE), 2).size());
+        assertEquals(3, index.transactionCount());
+        assertEquals(2, index.addressCount());
+    }
+
+    @Test
+    void testContractCreation_IndexedUnderCreatedContract() {
+        AddressTxIndex index = new AddressTxIndex();
+        byte[] creation = AddressTxIndex.IndexedBlock.encode(hash(1), ALICE, null, CONTRACT, BigInteger.ZERO,
+                BigInteger.ONE, 500_000, false);
+        index.append(block(7, creation));
+
+        EtherscanTransaction transaction = index.transactions(Address20.fromHex(CONTRACT), 10).get(0);
+        assertEquals("", transaction.getTo());
+        assertEquals("1", transaction.getIsError());
+        assertEquals(1, index.transactions(Address20.fromHex(ALICE), 10).size());
+    }
+
+    @Test
+    void testRemoveLowestAndHighest_KeepRangeContiguous() {
+        AddressTxIndex index = new AddressTxIndex();
+        index.append(block(10, transfer(1, ALICE, BOB)));
+        index.append(block(11, transfer(2, ALICE, BOB)));
+        index.append(block(12, transfer(3, BOB, CONTRACT)));
+        assertThrows(IllegalArgumentException.class, () -> index.append(block(14)));
+
+        index.removeLowest();
+        assertEquals(12, index.removeHighest().getNumber());
+
+        assertEquals(11, index.lowest());
+        assertEquals(11, index.highest());
+        assertEquals(1, index.transactions(Address20.fromHex(BOB), 10).size());
+        assertTrue(index.transactions(Address20.fromHex(CONTRACT), 10).isEmpty());
+        assertEquals(2, index.addressCount());
+
+        index.removeHighest();
+        assertEquals(-1, index.highest());
+        assertEquals(0, index.addressCount());
+        index.append(block(20, transfer(4, ALICE, BOB)));
+        assertEquals(20, index.lowest());
+    }
+
+    @Test
+    void testTransactions_WithinBlockRange() {
+        AddressTxIndex index = new AddressTxIndex();
+        for (long number = 10; number <= 14; number++) {
+            index.append(block(number, transfer(number, ALICE, BOB)));
+        }
+
+        List<EtherscanTransaction> range = index.transactions(Address20.fromHex(BOB), 11, 13, 10);
+
+        assertEquals(3, range.size());
+        assertEquals("13", range.get(0).getBlockNumber());
+        assertEquals("11", range.get(2).getBlockNumber());
+        assertEquals(1, index.transactions(Address20.fromHex(BOB), 11, 13, 1).size());
+    }
+
+    @Test
+    void testBytes_TracksAppendAndRemove() {
+        AddressTxIndex index = new AddressTxIndex();
+        index.append(block(10, transfer(1, ALICE, BOB)));
+        long one = index.bytes();
+        index.append(block(11, transfer(2, ALICE, BOB)));
+
+        assertTrue(one > 0);
+        assertEquals(2 * one, index.bytes());
+        index.removeLowest();
+        assertEquals(one, index.bytes());
+        index.removeHighest();
+        assertEquals(0, index.bytes());
+    }
+
+    private static AddressTxIndex.IndexedBlock block(long number, byte[]... records) {
+        return new AddressTxIndex.IndexedBlock(number, hash(number), hash(number - 1), 1_700_000_000L + number,
+                records);
+    }
+
+    private static byte[] transfer(long id, String from, String to) {
+        return AddressTxIndex.IndexedBlock.encode(hash(id), from, to, null, BigInteger.TEN.pow(18),
+                BigInteger.valueOf(20_000_000_000L), 21_000, true);
+    }
+
+    private static String hash(long id) {
+        return String.format("0x%064x", id + 0x1000);
+    }
+
+    private static String repeat(String value, int times) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+}
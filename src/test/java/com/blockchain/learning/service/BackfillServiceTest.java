@@ -0,0 +1,247 @@
+package com.blockchain.learning.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.web3j.protocol.core.methods.response.EthBlock;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class BackfillServiceTest {
+
+    @TempDir
+    Path dir;
+
+    @Mock
+    private Web3Service web3Service;
+
+    @Mock
+    private ChainHeadTracker chainHeadTracker;
+
+    @Mock
+    private BlockCache blockCache;
+
+    @Mock
+    private BlockStore blockStore;
+
+    @InjectMocks
+    private BackfillService backfillService;
+
+    /** 节点收到的每个区间请求 */
+    private final List<long[]> requests = new ArrayList<>();
+
+    /** 超过这个区块数的请求返回"结果过多"错误 */
+    private long maxRangeBlocks = Long.MAX_VALUE;
+
+    @BeforeEach
+    void setUp() {
+        configure(backfillService);
+        when(chainHeadTracker.getLatestBlockNumber()).thenReturn(BigInteger.valueOf(100_000));
+        when(blockCache.getConfirmationDepth()).thenReturn(64L);
+        when(blockStore.isOpen()).thenReturn(true);
+        when(web3Service.backfillBlocksAsync(anyLong(), anyLong(), anyLong())).thenAnswer(invocation -> {
+            long from = invocation.getArgument(0);
+            long to = invocation.getArgument(1);
+            requests.add(new long[]{from, to});
+            if (to - from + 1 > maxRangeBlocks) {
+                CompletableFuture<Integer> failed = new CompletableFuture<>();
+                failed.completeExceptionally(new IOException(
+                        "RPC error in eth_getBlockByNumber: query returned more than 10000 results"));
+                return failed;
+            }
+            return CompletableFuture.completedFuture((int) (to - from + 1));
+        });
+    }
+
+    @Test
+    void testBackfill_CoversRangeInGrowingChunks() throws Exception {
+        BackfillJob job = backfillService.start(1_000, 1_999);
+
+        drain(backfillService);
+
+        assertEquals(BackfillJob.State.COMPLETED, job.getState());
+        assertEquals(1_000, job.getCompletedBlocks());
+        assertEquals(1_000, job.getStoredBlocks());
+        assertEquals(10, requests.get(0)[1] - requests.get(0)[0] + 1);
+        assertTrue(job.getChunkSize() > 10);
+        assertContiguous(1_000, 1_999);
+        assertTrue(Files.exists(dir.resolve("job-000001.ckpt")));
+    }
+
+    @Test
+    void testBackfill_SplitsChunksRejectedAsTooLarge() throws Exception {
+        maxRangeBlocks = 4;
+        BackfillJob job = backfillService.start(0, 99);
+
+        drain(backfillService);
+
+        assertEquals(BackfillJob.State.COMPLETED, job.getState());
+        assertEquals(100, job.getCompletedBlocks());
+        assertTrue(job.getSplits() > 0);
+        assertEquals(0, job.getFailures());
+        assertTrue(job.getChunkSize() <= 8);
+    }
+
+    @Test
+    void testBackfill_BacksOffInsteadOfSplittingWhenRateLimited() throws Exception {
+        when(web3Service.backfillBlocksAsync(anyLong(), anyLong(), anyLong())).thenAnswer(invocation -> {
+            CompletableFuture<Integer> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IOException("Invalid response received: 429; Too Many Requests"));
+            return failed;
+        });
+        BackfillJob job = backfillService.start(0, 99);
+
+        drain(backfillService);
+
+        assertEquals(BackfillJob.State.FAILED, job.getState());
+        assertEquals(0, job.getSplits());
+        assertEquals(3, job.getFailures());
+        assertEquals(10, job.getChunkSize());
+    }
+
+    @Test
+    void testIsRangeTooLarge_OnlyForPayloadSizeErrors() {
+        assertTrue(BackfillService.isRangeTooLarge(new IOException(
+                "RPC error in eth_getLogs: query returned more than 10000 results")));
+        assertTrue(BackfillService.isRangeTooLarge(new IOException("batch size too large")));
+        assertTrue(BackfillService.isRangeTooLarge(new IOException("response size exceeded")));
+        assertFalse(BackfillService.isRangeTooLarge(new IOException("rate limit exceeded")));
+        assertFalse(BackfillService.isRangeTooLarge(new IOException("Too Many Requests")));
+        assertFalse(BackfillService.isRangeTooLarge(new IOException("daily request limit exceeded")));
+    }
+
+    @Test
+    void testRestart_ResumesFromCheckpoint() throws Exception {
+        BackfillJob job = backfillService.start(0, 999);
+        for (int i = 0; i < 3; i++) {
+            backfillService.runOnce();
+        }
+        long completed = job.getCompletedBlocks();
+        backfillService.checkpoint(job);
+
+        BackfillService restarted = new BackfillService();
+        ReflectionTestUtils.setField(restarted, "web3Service", web3Service);
+        ReflectionTestUtils.setField(restarted, "blockStore", blockStore);
+        configure(restarted);
+        restarted.load();
+        requests.clear();
+        drain(restarted);
+
+        BackfillJob resumed = restarted.getJobs().get(0);
+        assertEquals(BackfillJob.State.COMPLETED, resumed.getState());
+        assertEquals(1_000, resumed.getCompletedBlocks());
+        assertEquals(completed, requests.get(0)[0]);
+        assertContiguous(completed, 999);
+    }
+
+    @Test
+    void testBackfill_StopsAfterRepeatedFailuresAndResumes() throws Exception {
+        maxRangeBlocks = 0;
+        BackfillJob job = backfillService.start(0, 9);
+
+        drain(backfillService);
+
+        assertEquals(BackfillJob.State.FAILED, job.getState());
+        assertEquals(3, job.getFailures());
+        assertNotNull(job.getLastError());
+
+        maxRangeBlocks = Long.MAX_VALUE;
+        backfillService.resume(job.getId());
+        drain(backfillService);
+        assertEquals(BackfillJob.State.COMPLETED, job.getState());
+    }
+
+    @Test
+    void testBackfill_CompletesWithHeadTrackerDisabled() throws Exception {
+        when(chainHeadTracker.getLatestBlockNumber()).thenReturn(null);
+        EthBlock.Block head = new EthBlock.Block();
+        head.setNumber("0x186a0");
+        EthBlock latest = new EthBlock();
+        latest.setResult(head);
+        when(web3Service.getLatestBlock()).thenReturn(latest);
+
+        BackfillJob job = backfillService.start(500, 599);
+        drain(backfillService);
+
+        // 确认与否以任务终点为准，不再依赖链头跟踪器
+        assertEquals(BackfillJob.State.COMPLETED, job.getState());
+        verify(web3Service, never()).backfillBlocksAsync(anyLong(), anyLong(), eq(99_999L));
+        verify(web3Service).backfillBlocksAsync(eq(500L), anyLong(), eq(599L));
+    }
+
+    @Test
+    void testBackfill_BlocksThatWereNotStoredFailTheChunk() throws Exception {
+        when(web3Service.backfillBlocksAsync(anyLong(), anyLong(), anyLong())).thenAnswer(invocation -> {
+            CompletableFuture<Integer> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IOException(
+                    "Could not store block " + invocation.getArgument(0) + ": Local block store is not open"));
+            return failed;
+        });
+        BackfillJob job = backfillService.start(0, 99);
+
+        drain(backfillService);
+
+        assertEquals(BackfillJob.State.FAILED, job.getState());
+        assertEquals(0, job.getCompletedBlocks());
+        assertTrue(job.getLastError().contains("not open"));
+    }
+
+    @Test
+    void testStart_RejectsUnconfirmedBlocks() {
+        assertThrows(IllegalArgumentException.class, () -> backfillService.start(0, 99_999));
+        assertThrows(IllegalArgumentException.class, () -> backfillService.start(10, 9));
+    }
+
+    private void configure(BackfillService service) {
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "path", dir.toString());
+        ReflectionTestUtils.setField(service, "initialChunkSize", 10);
+        ReflectionTestUtils.setField(service, "minChunkSize", 1);
+        ReflectionTestUtils.setField(service, "maxChunkSize", 200);
+        ReflectionTestUtils.setField(service, "maxFailures", 3);
+        ReflectionTestUtils.setField(service, "retryBackoffMs", 0L);
+        ReflectionTestUtils.setField(service, "checkpointIntervalMs", 0L);
+    }
+
+    private static void drain(BackfillService service) throws InterruptedException {
+        while (service.runOnce()) {
+            // 单线程逐块处理，直到没有可分配的块
+        }
+    }
+
+    /**
+     * 成功的请求首尾相接地覆盖了 [from, to]
+     */
+    private void assertContiguous(long from, long to) {
+        long next = from;
+        for (long[] request : requests) {
+            if (request[1] - request[0] + 1 <= maxRangeBlocks) {
+                assertEquals(next, request[0]);
+                next = request[1] + 1;
+            }
+        }
+        assertEquals(to + 1, next);
+    }
+}
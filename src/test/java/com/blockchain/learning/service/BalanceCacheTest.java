@@ -0,0 +1,80 @@
+package com.blockchain.learning.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.web3j.protocol.core.methods.response.EthBlock;
+
+import java.math.BigInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class BalanceCacheTest {
+
+    private static final String ADDRESS = "0xAbCdEf0123456789abcdef0123456789ABCDEF01";
+
+    @Mock
+    private ChainHeadTracker chainHeadTracker;
+
+    @InjectMocks
+    private BalanceCache balanceCache;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(balanceCache, "maxEntries", 2);
+        ReflectionTestUtils.setField(balanceCache, "ttlMs", 60_000L);
+        balanceCache.init();
+    }
+
+    @Test
+    void testGet_ValidWhileHeadUnchanged() {
+        balanceCache.put(ADDRESS, BigInteger.valueOf(100), BigInteger.TEN);
+
+        assertEquals(BigInteger.TEN, balanceCache.get(ADDRESS.toLowerCase(), BigInteger.valueOf(100)));
+        assertNull(balanceCache.get(ADDRESS, BigInteger.valueOf(101)));
+
+        assertEquals(1, balanceCache.getHits());
+        assertEquals(1, balanceCache.getMisses());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testHeadListener_InvalidatesAllEntries() {
+        ArgumentCaptor<Consumer<EthBlock>> listener = ArgumentCaptor.forClass(Consumer.class);
+        verify(chainHeadTracker).addListener(listener.capture());
+        balanceCache.put(ADDRESS, BigInteger.valueOf(100), BigInteger.TEN);
+
+        listener.getValue().accept(new EthBlock());
+
+        assertEquals(0, balanceCache.size());
+        assertEquals(1, balanceCache.getInvalidations());
+        assertNull(balanceCache.get(ADDRESS, BigInteger.valueOf(100)));
+    }
+
+    @Test
+    void testGet_FallsBackToTtlWhenHeadUnknown() {
+        balanceCache.put(ADDRESS, null, BigInteger.ONE);
+        assertEquals(BigInteger.ONE, balanceCache.get(ADDRESS, null));
+
+        ReflectionTestUtils.setField(balanceCache, "ttlMs", 0L);
+        assertNull(balanceCache.get(ADDRESS, null));
+    }
+
+    @Test
+    void testPut_EvictsLeastRecentlyUsed() {
+        balanceCache.put("0x01", BigInteger.ONE, BigInteger.ONE);
+        balanceCache.put("0x02", BigInteger.ONE, BigInteger.ONE);
+        balanceCache.put("0x03", BigInteger.ONE, BigInteger.ONE);
+
+        assertEquals(2, balanceCache.size());
+        assertNull(balanceCache.get("0x01", BigInteger.ONE));
+    }
+}
@@ -0,0 +1,145 @@
+package com.blockchain.learning.service;
+
+import com.blockchain.learning.rpc.StubRpcServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.datatypes.Bool;
+import org.web3j.abi.datatypes.DynamicArray;
+import org.web3j.abi.datatypes.DynamicBytes;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.http.HttpService;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BalanceServiceTest {
+
+    private static final String GET_ETH_BALANCE_SELECTOR = "4d2301cc";
+
+    private static final List<String> ADDRESSES = Arrays.asList(
+            "0x0000000000000000000000000000000000000001",
+            "0x0000000000000000000000000000000000000002",
+            "0x0000000000000000000000000000000000000003",
+            "0x0000000000000000000000000000000000000001");
+
+    private StubRpcServer server;
+    private Web3j web3j;
+    private MulticallService multicallService;
+    private BalanceService balanceService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new StubRpcServer().withBlockNumber(0x100);
+        web3j = Web3j.build(new HttpService(server.getUrl()));
+
+        multicallService = new MulticallService();
+        ReflectionTestUtils.setField(multicallService, "web3j", web3j);
+        ReflectionTestUtils.setField(multicallService, "enabled", true);
+        ReflectionTestUtils.setField(multicallService, "contractAddress", "0xcA11bde05977b3631167028862bE2a173976CA11");
+        ReflectionTestUtils.setField(multicallService, "maxCallsPerRequest", 2);
+
+        ChainHeadTracker chainHeadTracker = mock(ChainHeadTracker.class);
+        when(chainHeadTracker.getLatestBlockNumber()).thenReturn(null);
+
+        balanceService = new BalanceService();
+        ReflectionTestUtils.setField(balanceService, "web3j", web3j);
+        ReflectionTestUtils.setField(balanceService, "chainHeadTracker", chainHeadTracker);
+        ReflectionTestUtils.setField(balanceService, "balanceCache", mock(BalanceCache.class));
+        ReflectionTestUtils.setField(balanceService, "multicallService", multicallService);
+        ReflectionTestUtils.setField(balanceService, "batchSize", 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        web3j.shutdown();
+        server.close();
+    }
+
+    @Test
+    void testGetBalances_UsesChunkedRpcBatchesAtPinnedBlock() {
+        Set<String> blockTags = ConcurrentHashMap.newKeySet();
+        server.withResult("eth_getBalance", params -> {
+            blockTags.add(params.get(1).asText());
+            return "0x" + params.get(0).asText().substring(41);
+        });
+
+        BalanceService.Balances result = balanceService.getBalancesAsync(ADDRESSES).join();
+
+        assertEquals(BalanceService.SOURCE_RPC_BATCH, result.getSource());
+        assertEquals(BigInteger.valueOf(0x100), result.getBlockNumber());
+        assertEquals(Collections.singleton("0x100"), blockTags);
+        assertEquals(3, result.getBalances().size());
+        assertEquals(BigInteger.valueOf(3), result.getBalances().get(ADDRESSES.get(2)));
+        assertTrue(result.getErrors().isEmpty());
+        assertEquals(3, server.getMethodCount("eth_getBalance"));
+    }
+
+    @Test
+    void testGetBalances_QueriesMixedCaseCopiesOnce() {
+        String lower = "0x8ba1f109551bd432803012645ac136ddd64dba72";
+        String checksum = "0x8ba1F109551bD432803012645Ac136ddd64DBA72";
+        server.withResult("eth_getBalance", params -> "0x2a");
+
+        BalanceService.Balances result = balanceService.getBalancesAsync(Arrays.asList(lower, checksum)).join();
+
+        assertEquals(1, server.getMethodCount("eth_getBalance"));
+        assertEquals(BigInteger.valueOf(42), result.getBalances().get(lower));
+        assertEquals(BigInteger.valueOf(42), result.getBalances().get(checksum));
+        assertEquals(Arrays.asList(lower, checksum), new ArrayList<>(result.getBalances().keySet()));
+    }
+
+    @Test
+    void testGetBalances_UsesMulticallWhenDeployed() {
+        Set<String> blockTags = ConcurrentHashMap.newKeySet();
+        server.withResult("eth_getCode", params -> "0x6080")
+                .withResult("eth_call", params -> {
+                    blockTags.add(params.get(1).asText());
+                    // 按调用数据中 getEthBalance 选择器出现的次数返回递增的余额
+                    String data = params.get(0).path("data").asText();
+                    int calls = data.split(GET_ETH_BALANCE_SELECTOR, -1).length - 1;
+                    List<MulticallService.Result3> results = new ArrayList<>();
+                    for (int i = 0; i < calls; i++) {
+                        results.add(new MulticallService.Result3(new Bool(true),
+                                new DynamicBytes(Numeric.toBytesPadded(BigInteger.valueOf(1000 + i), 32))));
+                    }
+                    return "0x" + FunctionEncoder.encodeConstructor(Collections.<Type>singletonList(
+                            new DynamicArray<>(MulticallService.Result3.class, results)));
+                });
+
+        BalanceService.Balances result = balanceService.getBalancesAsync(ADDRESSES).join();
+
+        assertEquals(BalanceService.SOURCE_MULTICALL, result.getSource());
+        assertEquals(Collections.singleton("0x100"), blockTags);
+        assertEquals(2, server.getMethodCount("eth_call"));
+        assertEquals(BigInteger.valueOf(1000), result.getBalances().get(ADDRESSES.get(0)));
+        assertEquals(BigInteger.valueOf(1001), result.getBalances().get(ADDRESSES.get(1)));
+        assertEquals(BigInteger.valueOf(1000), result.getBalances().get(ADDRESSES.get(2)));
+        assertEquals(0, server.getMethodCount("eth_getBalance"));
+    }
+
+    @Test
+    void testGetBalances_FallsBackToRpcBatchesWhenMulticallFails() {
+        server.withResult("eth_getCode", params -> "0x6080")
+                .withResult("eth_getBalance", params -> "0x1");
+
+        BalanceService.Balances result = balanceService.getBalancesAsync(ADDRESSES).join();
+
+        assertEquals(BalanceService.SOURCE_RPC_BATCH, result.getSource());
+        assertEquals(3, result.getBalances().size());
+    }
+}
@@ -0,0 +1,131 @@
+package com.blockchain.learning.service;
+
+import com.blockchain.learning.model.BlockSummary;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * 区块缓存GC基准：全部区块留在堆上 vs 小堆上热点集合 + 堆外第二层
+ *
+ * 缓存中保存30万个已确认区块，模拟区块浏览器的访问：90%的请求落在最近5000个区块上，
+ * 其余随机访问全部历史区块，每个请求另外产生约2KB的响应对象。分别统计工作负载期间的GC次数与耗时、
+ * 一次完整GC的停顿，以及完整GC后的堆占用。默认不运行，需要时执行：
+ * <pre>
+ * mvn test -Dtest=BlockCacheGcBenchmark -Dbenchmark=true
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class BlockCacheGcBenchmark {
+
+    private static final int BLOCKS = 300_000;
+
+    private static final int HOT_BLOCKS = 5_000;
+
+    private static final int REQUESTS = 3_000_000;
+
+    private static final long HEAD = 20_000_000L;
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+    @Test
+    void compareOnHeapAndOffHeapTiers() {
+        run("on-heap only (300k objects)", BLOCKS, false);
+        run("on-heap 10k + off-heap", 10_000, true);
+    }
+
+    private void run(String name, int onHeapEntries, boolean offHeap) {
+        BlockCache cache = cache(onHeapEntries, offHeap);
+        for (long i = 0; i < BLOCKS; i++) {
+            cache.put(block(HEAD - BLOCKS + i));
+        }
+        System.gc();
+
+        long[] before = gcTotals();
+        SplittableRandom random = new SplittableRandom(42);
+        long checksum = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            long number = random.nextInt(10) < 9
+                    ? HEAD - 1 - random.nextInt(HOT_BLOCKS)
+                    : HEAD - BLOCKS + random.nextInt(BLOCKS);
+            BlockSummary block = cache.getByNumber(BigInteger.valueOf(number));
+            checksum += response(block).size();
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        long[] after = gcTotals();
+
+        long fullGcStart = System.nanoTime();
+        System.gc();
+        long fullGcMs = (System.nanoTime() - fullGcStart) / 1_000_000;
+        long heapUsed = memory.getHeapMemoryUsage().getUsed();
+
+        System.out.printf("%-30s %,6d ms  gc=%,5d  gcTime=%,6d ms  fullGc=%,5d ms  heapAfterGc=%,6d MB  offHeap=%,5d MB%n",
+                name, elapsedMs, after[0] - before[0], after[1] - before[1], fullGcMs, heapUsed >> 20,
+                cache.getOffHeapUsedBytes() >> 20);
+        assertNotNull(cache.getByNumber(BigInteger.valueOf(HEAD - 1)), String.valueOf(checksum));
+    }
+
+    private static BlockCache cache(int maxEntries, boolean offHeap) {
+        ChainHeadTracker tracker = new ChainHeadTracker() {
+            @Override
+            public BigInteger getLatestBlockNumber() {
+                return BigInteger.valueOf(HEAD + 100);
+            }
+
+            @Override
+            public BigInteger getFinalizedBlockNumber() {
+                return BigInteger.valueOf(HEAD);
+            }
+        };
+        BlockCache cache = new BlockCache();
+        ReflectionTestUtils.setField(cache, "chainHeadTracker", tracker);
+        ReflectionTestUtils.setField(cache, "maxEntries", maxEntries);
+        ReflectionTestUtils.setField(cache, "confirmationDepth", 64L);
+        ReflectionTestUtils.setField(cache, "offHeapEnabled", offHeap);
+        ReflectionTestUtils.setField(cache, "offHeapMaxMb", 128L);
+        ReflectionTestUtils.setField(cache, "offHeapSlabMb", 16);
+        cache.init();
+        return cache;
+    }
+
+    /**
+     * 模拟控制器为每个请求构造的响应
+     */
+    private static Map<String, Object> response(BlockSummary block) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("number", block.getNumber());
+        response.put("hash", block.getHash());
+        response.put("parentHash", block.getParentHash());
+        response.put("miner", block.getMiner());
+        response.put("gasUsed", block.getGasUsed());
+        response.put("payload", new byte[1_536]);
+        return response;
+    }
+
+    private long[] gcTotals() {
+        long count = 0;
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return new long[]{count, time};
+    }
+
+    private static BlockSummary block(long number) {
+        return new BlockSummary(number, String.format("0x%064x", number), String.format("0x%064x", number - 1),
+                1_600_000_000L + number * 12, 30_000_000L, 15_000_000L,
+                String.format("0x%040x", number % 50), BigInteger.valueOf(10_000_000_000L + number), 150);
+    }
+}
@@ -0,0 +1,179 @@
+package com.blockchain.learning.service;
+
+import com.blockchain.learning.model.BlockSummary;
+import com.blockchain.learning.rpc.RpcBatch;
+import com.blockchain.learning.rpc.StubRpcServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.http.HttpService;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BlockCacheSnapshotTest {
+
+    private static final String HASH_100 = "0x" + repeat("a1", 32);
+    private static final String HASH_101 = "0x" + repeat("b2", 32);
+    private static final String HASH_150 = "0x" + repeat("c3", 32);
+    private static final String HASH_151 = "0x" + repeat("d4", 32);
+    private static final String MINER = "0x" + repeat("ee", 20);
+
+    @TempDir
+    Path dir;
+
+    private StubRpcServer server;
+
+    private Web3j web3j;
+
+    private ChainHeadTracker chainHeadTracker;
+
+    private NetworkInfoService networkInfoService;
+
+    /** 节点上各区块号对应的哈希 */
+    private final Map<Long, String> chain = new HashMap<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new StubRpcServer().withResult("eth_getBlockByNumber", params -> {
+            long number = Long.decode(params.get(0).asText());
+            Map<String, Object> block = new HashMap<>();
+            block.put("number", params.get(0).asText());
+            block.put("hash", chain.get(number));
+            block.put("transactions", new Object[0]);
+            return block;
+        });
+        web3j = Web3j.build(new HttpService(server.getUrl()));
+        chainHeadTracker = mock(ChainHeadTracker.class);
+        networkInfoService = mock(NetworkInfoService.class);
+        when(networkInfoService.getChainId()).thenReturn(11155111L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        web3j.shutdown();
+        server.close();
+    }
+
+    @Test
+    void testRestore_FinalizedBlocksWithoutNodeCalls() throws IOException {
+        when(chainHeadTracker.getLatestBlockNumber()).thenReturn(BigInteger.valueOf(200));
+        when(chainHeadTracker.getFinalizedBlockNumber()).thenReturn(BigInteger.valueOf(120));
+        BlockCache source = cache();
+        source.put(block(100, HASH_100, "0x" + repeat("99", 32), BigInteger.valueOf(7)));
+        source.put(block(101, HASH_101, HASH_100, null));
+        // 未确认的区块不写入快照
+        source.put(block(199, HASH_150, HASH_101, null));
+        BlockCacheSnapshot snapshot = snapshot(source);
+        assertEquals(2, snapshot.save());
+
+        BlockCache target = cache();
+        assertEquals(2, snapshot(target).restore());
+
+        BlockSummary restored = target.getByNumber(BigInteger.valueOf(100));
+        assertEquals(HASH_100, restored.getHash());
+        assertEquals(MINER, restored.getMiner());
+        assertEquals(BigInteger.valueOf(7), restored.getBaseFeePerGas());
+        assertEquals(12, restored.getTransactionCount());
+        assertNull(target.getByNumber(BigInteger.valueOf(101)).getBaseFeePerGas());
+        assertEquals(0, server.getRequestCount());
+    }
+
+    @Test
+    void testRestore_ValidatesUnfinalizedBlocksAgainstNode() throws IOException {
+        when(chainHeadTracker.getLatestBlockNumber()).thenReturn(BigInteger.valueOf(300));
+        when(chainHeadTracker.getFinalizedBlockNumber()).thenReturn(BigInteger.valueOf(100));
+        BlockCache source = cache();
+        source.put(block(100, HASH_100, null, null));
+        source.put(block(150, HASH_150, null, null));
+        source.put(block(151, HASH_151, HASH_150, null));
+        BlockCacheSnapshot snapshot = snapshot(source);
+        snapshot.save();
+
+        // 重启期间151号区块被重组
+        chain.put(150L, HASH_150);
+        chain.put(151L, "0x" + repeat("ff", 32));
+        BlockCache target = cache();
+        BlockCacheSnapshot restoring = snapshot(target);
+
+        assertEquals(2, restoring.restore());
+        assertEquals(1, restoring.getValidated());
+        assertEquals(1, restoring.getDiscarded());
+        assertNotNull(target.getByNumber(BigInteger.valueOf(100)));
+        assertNotNull(target.getByNumber(BigInteger.valueOf(150)));
+        assertNull(target.getByNumber(BigInteger.valueOf(151)));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    void testRestore_IgnoresSnapshotFromAnotherChain() throws IOException {
+        when(chainHeadTracker.getLatestBlockNumber()).thenReturn(BigInteger.valueOf(200));
+        when(chainHeadTracker.getFinalizedBlockNumber()).thenReturn(BigInteger.valueOf(120));
+        BlockCache source = cache();
+        source.put(block(100, HASH_100, null, null));
+        assertEquals(1, snapshot(source).save());
+
+        when(networkInfoService.getChainId()).thenReturn(1L);
+        BlockCache target = cache();
+
+        assertEquals(0, snapshot(target).restore());
+        assertEquals(0, target.size());
+        assertEquals(0, server.getRequestCount());
+    }
+
+    @Test
+    void testRestore_IgnoresCorruptFile() throws IOException {
+        Files.write(dir.resolve("blocks.snapshot"), new byte[]{0x42, 0x43, 0x53, 0x31, 0, 0, 0, 1, 0});
+        BlockCache target = cache();
+
+        assertEquals(0, snapshot(target).restore());
+        assertEquals(0, target.size());
+    }
+
+    private BlockCache cache() {
+        BlockCache cache = new BlockCache();
+        ReflectionTestUtils.setField(cache, "chainHeadTracker", chainHeadTracker);
+        ReflectionTestUtils.setField(cache, "maxEntries", 100);
+        ReflectionTestUtils.setField(cache, "confirmationDepth", 64L);
+        cache.init();
+        return cache;
+    }
+
+    private BlockCacheSnapshot snapshot(BlockCache cache) {
+        Web3Service web3Service = mock(Web3Service.class);
+        when(web3Service.newBatch()).thenAnswer(invocation -> new RpcBatch(web3j));
+        BlockCacheSnapshot snapshot = new BlockCacheSnapshot();
+        ReflectionTestUtils.setField(snapshot, "blockCache", cache);
+        ReflectionTestUtils.setField(snapshot, "chainHeadTracker", chainHeadTracker);
+        ReflectionTestUtils.setField(snapshot, "web3Service", web3Service);
+        ReflectionTestUtils.setField(snapshot, "networkInfoService", networkInfoService);
+        ReflectionTestUtils.setField(snapshot, "web3jService", new HttpService(server.getUrl()));
+        ReflectionTestUtils.setField(snapshot, "path", dir.resolve("blocks.snapshot").toString());
+        ReflectionTestUtils.setField(snapshot, "validateBatchSize", 100);
+        return snapshot;
+    }
+
+    private static BlockSummary block(long number, String hash, String parentHash, BigInteger baseFee) {
+        return new BlockSummary(number, hash, parentHash, 1_700_000_000L + number, 30_000_000L, 12_000_000L,
+                MINER, baseFee, 12);
+    }
+
+    private static String repeat(String value, int times) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,146 @@
+package com.blockchain.learning.service;
+
+import com.blockchain.learning.model.BlockSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class BlockCacheTest {
+
+    @Mock
+    private ChainHeadTracker chainHeadTracker;
+
+    @InjectMocks
+    private BlockCache blockCache;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(blockCache, "maxEntries", 3);
+        ReflectionTestUtils.setField(blockCache, "confirmationDepth", 10L);
+        blockCache.init();
+        when(chainHeadTracker.getLatestBlockNumber()).thenReturn(BigInteger.valueOf(100));
+    }
+
+    @Test
+    void testGetByNumberAndHash_CountsHitsAndMisses() {
+        blockCache.put(block(50, "0x50", "0x49"));
+
+        assertNotNull(blockCache.getByNumber(BigInteger.valueOf(50)));
+        assertNotNull(blockCache.getByHash("0X50"));
+        assertNull(blockCache.getByNumber(BigInteger.valueOf(51)));
+
+        assertEquals(2, blockCache.getHits());
+        assertEquals(1, blockCache.getMisses());
+    }
+
+    @Test
+    void testPut_EvictsLeastRecentlyUsed() {
+        blockCache.put(block(10, "0x10", "0x09"));
+        blockCache.put(block(20, "0x20", "0x19"));
+        blockCache.put(block(30, "0x30", "0x29"));
+        blockCache.getByNumber(BigInteger.valueOf(10));
+
+        blockCache.put(block(40, "0x40", "0x39"));
+
+        assertEquals(3, blockCache.size());
+        assertNull(blockCache.getByNumber(BigInteger.valueOf(20)));
+        assertNull(blockCache.getByHash("0x20"));
+        assertNotNull(blockCache.getByNumber(BigInteger.valueOf(10)));
+        assertEquals(1, blockCache.getEvictions());
+    }
+
+    @Test
+    void testPut_ParentHashMismatchInvalidatesUnconfirmedBlocks() {
+        blockCache.put(block(50, "0x50", "0x49"));
+        blockCache.put(block(98, "0x98", "0x97"));
+        blockCache.put(block(99, "0x99", "0x98"));
+
+        // 新的100号区块指向另一个99号区块，说明发生了重组
+        blockCache.put(block(100, "0x100b", "0x99b"));
+
+        assertNotNull(blockCache.getByNumber(BigInteger.valueOf(50)));
+        assertNull(blockCache.getByNumber(BigInteger.valueOf(98)));
+        assertNull(blockCache.getByNumber(BigInteger.valueOf(99)));
+        assertNotNull(blockCache.getByNumber(BigInteger.valueOf(100)));
+        assertEquals(2, blockCache.getReorgInvalidations());
+    }
+
+    @Test
+    void testGetByNumber_ExpiresUnconfirmedBlocks() throws InterruptedException {
+        ReflectionTestUtils.setField(blockCache, "unconfirmedTtlMs", 20L);
+        blockCache.put(block(50, "0x50", "0x49"));
+        blockCache.put(block(99, "0x99", "0x98"));
+
+        Thread.sleep(40);
+
+        // 99号没有相邻区块可供核对哈希，只能靠过期淘汰；已确认的50号不受影响
+        assertNull(blockCache.getByNumber(BigInteger.valueOf(99)));
+        assertNull(blockCache.getByHash("0x99"));
+        assertNotNull(blockCache.getByNumber(BigInteger.valueOf(50)));
+        assertEquals(1, blockCache.getExpirations());
+        assertEquals(1, blockCache.size());
+    }
+
+    @Test
+    void testPut_ConflictWithConfirmedBlockIsIgnored() {
+        blockCache.put(block(50, "0x50", "0x49"));
+
+        blockCache.put(block(50, "0x50b", "0x49"));
+
+        assertEquals("0x50", blockCache.getByNumber(BigInteger.valueOf(50)).getHash());
+    }
+
+    @Test
+    void testPut_WithoutHeadOnlyCachesFinalizedBlocks() {
+        when(chainHeadTracker.getLatestBlockNumber()).thenReturn(null);
+        when(chainHeadTracker.getFinalizedBlockNumber()).thenReturn(BigInteger.valueOf(60));
+
+        blockCache.put(block(60, "0x60", "0x59"));
+        blockCache.put(block(61, "0x61", "0x60"));
+
+        assertNotNull(blockCache.getByNumber(BigInteger.valueOf(60)));
+        assertNull(blockCache.getByNumber(BigInteger.valueOf(61)));
+    }
+
+    @Test
+    void testEviction_MovesConfirmedBlocksOffHeap() {
+        ReflectionTestUtils.setField(blockCache, "offHeapEnabled", true);
+        ReflectionTestUtils.setField(blockCache, "offHeapMaxMb", 1L);
+        ReflectionTestUtils.setField(blockCache, "offHeapSlabMb", 1);
+        blockCache.init();
+
+        blockCache.put(block(10, "0x10", "0x09"));
+        blockCache.put(block(95, "0x95", "0x94"));
+        blockCache.put(block(20, "0x20", "0x19"));
+        blockCache.put(block(30, "0x30", "0x29"));
+        blockCache.put(block(40, "0x40", "0x39"));
+
+        // 10号已确认，移到堆外；95号未确认，直接丢弃
+        assertEquals(1, blockCache.getOffHeapEntries());
+        assertTrue(blockCache.contains(10));
+        assertFalse(blockCache.contains(95));
+        BlockSummary restored = blockCache.getByHash("0x10");
+        assertEquals(10, restored.getNumber());
+        assertEquals("0x09", restored.getParentHash());
+        assertEquals(1, blockCache.getOffHeapHits());
+        assertEquals(0, blockCache.getMisses());
+        assertNotNull(blockCache.getByNumber(BigInteger.valueOf(20)));
+    }
+
+    private BlockSummary block(long number, String hash, String parentHash) {
+        return new BlockSummary(number, hash, parentHash, 0, 0, 0, null, null, 0);
+    }
+}
@@ -0,0 +1,130 @@
+package com.blockchain.learning.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigInteger;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class BlockPrefetcherTest {
+
+    @Mock
+    private Web3Service web3Service;
+
+    @Mock
+    private ChainHeadTracker chainHeadTracker;
+
+    @InjectMocks
+    private BlockPrefetcher blockPrefetcher;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(blockPrefetcher, "enabled", true);
+        ReflectionTestUtils.setField(blockPrefetcher, "trigger", 2);
+        ReflectionTestUtils.setField(blockPrefetcher, "minDepth", 4);
+        ReflectionTestUtils.setField(blockPrefetcher, "maxDepth", 64);
+        ReflectionTestUtils.setField(blockPrefetcher, "maxStreams", 16);
+        ReflectionTestUtils.setField(blockPrefetcher, "maxInFlight", 8);
+        ReflectionTestUtils.setField(blockPrefetcher, "idleTimeoutMs", 30_000L);
+        when(chainHeadTracker.getLatestBlockNumber()).thenReturn(BigInteger.valueOf(1000));
+    }
+
+    @Test
+    void testForwardScan_PrefetchesAfterTrigger() {
+        when(web3Service.prefetchBlocksAsync(anyLong(), anyLong())).thenReturn(CompletableFuture.completedFuture(4));
+
+        access("a", 100);
+        access("a", 101);
+        verify(web3Service, never()).prefetchBlocksAsync(anyLong(), anyLong());
+
+        access("a", 102);
+        verify(web3Service).prefetchBlocksAsync(103, 106);
+
+        // 已预取范围之内的访问计为命中，之后只补齐尾部
+        access("a", 103);
+        verify(web3Service).prefetchBlocksAsync(eq(107L), anyLong());
+        assertEquals(1, blockPrefetcher.getPrefetchHits());
+        assertEquals(2, blockPrefetcher.getPrefetches());
+    }
+
+    @Test
+    void testBackwardScan_PrefetchesLowerBlocksAndStopsAtGenesis() {
+        when(web3Service.prefetchBlocksAsync(anyLong(), anyLong())).thenReturn(CompletableFuture.completedFuture(2));
+
+        access("a", 4);
+        access("a", 3);
+        access("a", 2);
+
+        verify(web3Service).prefetchBlocksAsync(0, 1);
+    }
+
+    @Test
+    void testForwardScan_DoesNotPrefetchBeyondChainHead() {
+        when(web3Service.prefetchBlocksAsync(anyLong(), anyLong())).thenReturn(CompletableFuture.completedFuture(1));
+
+        access("a", 997);
+        access("a", 998);
+        access("a", 999);
+        access("a", 1000);
+
+        verify(web3Service).prefetchBlocksAsync(1000, 1000);
+    }
+
+    @Test
+    void testJump_CancelsPendingPrefetch() {
+        CompletableFuture<Integer> pending = new CompletableFuture<>();
+        when(web3Service.prefetchBlocksAsync(anyLong(), anyLong())).thenReturn(pending);
+
+        access("a", 100);
+        access("a", 101);
+        access("a", 102);
+        access("a", 500);
+
+        assertTrue(pending.isCancelled());
+        assertEquals(1, blockPrefetcher.getCancelled());
+        assertEquals(0, blockPrefetcher.getInFlight());
+    }
+
+    @Test
+    void testClients_AreTrackedSeparately() {
+        access("a", 100);
+        access("b", 101);
+        access("a", 102);
+        access("b", 300);
+
+        verify(web3Service, never()).prefetchBlocksAsync(anyLong(), anyLong());
+        assertEquals(2, blockPrefetcher.getActiveStreams());
+    }
+
+    @Test
+    void testDepthFor_AdaptsToAccessRate() {
+        // 还没有时延样本时使用最小深度
+        assertEquals(4, BlockPrefetcher.depthFor(1_000_000, 0, 4, 64));
+        // 访问间隔10ms、往返100ms：预取期间大约会读10个区块
+        assertEquals(11, BlockPrefetcher.depthFor(10_000_000, 100_000_000, 4, 64));
+        // 客户端比节点慢得多
+        assertEquals(4, BlockPrefetcher.depthFor(500_000_000, 50_000_000, 4, 64));
+        // 访问极快时受最大深度限制
+        assertEquals(64, BlockPrefetcher.depthFor(10_000, 100_000_000, 4, 64));
+    }
+
+    private void access(String client, long blockNumber) {
+        blockPrefetcher.recordAccess(client, BigInteger.valueOf(blockNumber));
+    }
+}
@@ -0,0 +1,215 @@
+package com.blockchain.learning.service;
+
+import com.blockchain.learning.model.BlockSummary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BlockStoreTest {
+
+    private static final String MINER = "0x95222290dd7278aa3ddd389cc1e1d165cc4bafe5";
+
+    @TempDir
+    Path dir;
+
+    private final BlockCache blockCache = mock(BlockCache.class);
+
+    private final NetworkInfoService networkInfoService = mock(NetworkInfoService.class);
+
+    private long chainId = 11155111L;
+
+    private BlockStore store;
+
+    @AfterEach
+    void tearDown() {
+        if (store != null) {
+            store.closeQuietly();
+        }
+    }
+
+    @Test
+    void testAppendAndRead_ByNumberAndHash() throws IOException {
+        store = open(1, 16);
+        BlockSummary block = block(18_000_000L);
+
+        assertTrue(store.append(block));
+        assertFalse(store.append(block));
+
+        BlockSummary read = store.get(18_000_000L);
+        assertEquals(block.getHash(), read.getHash());
+        assertEquals(block.getParentHash(), read.getParentHash());
+        assertEquals(MINER, read.getMiner());
+        assertEquals(block.getBaseFeePerGas(), read.getBaseFeePerGas());
+        assertEquals(18_000_000L, store.getByHash(block.getHash().toUpperCase().replace("0X", "0x")).getNumber());
+        assertNull(store.get(17_999_999L));
+        assertNull(store.getByHash(block(1).getHash()));
+        assertEquals(2, store.getHits());
+        assertEquals(2, store.getMisses());
+    }
+
+    @Test
+    void testAppend_IgnoresUnconfirmedBlocks() throws IOException {
+        store = open(1, 16);
+        when(blockCache.isConfirmed(100)).thenReturn(false);
+
+        assertFalse(store.append(block(100)));
+        assertNull(store.get(100));
+    }
+
+    @Test
+    void testAppendConfirmed_DoesNotDependOnChainHead() throws IOException {
+        store = open(1, 16);
+        // 链头跟踪器未启用时缓存无法判断确认状态
+        when(blockCache.isConfirmed(anyLong())).thenReturn(false);
+
+        assertTrue(store.appendConfirmed(block(100)));
+        assertFalse(store.appendConfirmed(block(100)));
+        assertEquals(block(100).getHash(), store.get(100).getHash());
+
+        store.stop();
+        assertThrows(IOException.class, () -> store.appendConfirmed(block(101)));
+    }
+
+    @Test
+    void testIndex_GrowsInPlaceAndRejectsNegativeBlockNumbers() throws IOException {
+        Path file = dir.resolve("blocks.idx");
+        BlockStoreIndex index = BlockStoreIndex.open(file, 8);
+        for (long number = 0; number < 1_000; number++) {
+            index.put(number, number * 31 + 7, number << 8);
+        }
+        index.checkpoint(0, 0);
+
+        assertTrue(index.capacity() >= 2_000);
+        assertEquals(Files.size(file), index.sizeBytes());
+        assertEquals(BlockStoreIndex.NOT_FOUND, index.location(-1));
+        assertThrows(IllegalArgumentException.class, () -> index.put(-1, 1, 1));
+        index.close();
+
+        BlockStoreIndex reopened = BlockStoreIndex.open(file, 8);
+        assertEquals(1_000, reopened.size());
+        assertEquals(999L << 8, reopened.location(999));
+        assertEquals(500, reopened.numberByHash(500 * 31 + 7));
+        reopened.close();
+    }
+
+    @Test
+    void testReopen_KeepsBlocksAcrossSegmentsAndIndexGrowth() throws IOException {
+        // 每个分段1MB，索引初始容量很小，写入过程中会切换分段并多次重建索引
+        store = open(1, 8);
+        for (long number = 0; number < 10_000; number++) {
+            assertTrue(store.append(block(number)));
+        }
+        assertTrue(store.getSegments() > 1);
+        store.stop();
+
+        store = open(1, 8);
+        assertEquals(10_000, store.getBlocks());
+        assertEquals(0, store.getRecoveredRecords());
+        for (long number = 0; number < 10_000; number += 997) {
+            assertEquals(number, store.get(number).getNumber());
+            assertEquals(number, store.getByHash(block(number).getHash()).getNumber());
+        }
+    }
+
+    @Test
+    void testRecovery_ReindexesAfterCheckpointAndTruncatesTornRecord() throws IOException {
+        store = open(1, 16);
+        store.append(block(1));
+        store.flush();
+        store.append(block(2));
+        store.append(block(3));
+        // 模拟崩溃：不刷盘、不更新检查点，最后一条记录只写了一半
+        store.closeQuietly();
+        Path segment = dir.resolve("segment-000000.dat");
+        long size = Files.size(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 5);
+        }
+
+        store = open(1, 16);
+
+        assertEquals(1, store.get(1).getNumber());
+        assertEquals(2, store.get(2).getNumber());
+        assertNull(store.get(3));
+        assertEquals(1, store.getRecoveredRecords());
+        assertTrue(store.getTruncatedBytes() > 0);
+        // 截断后继续追加，新记录接在最后一条完整记录之后
+        assertTrue(store.append(block(3)));
+        assertEquals(3, store.get(3).getNumber());
+    }
+
+    @Test
+    void testMissingIndex_RebuiltFromSegments() throws IOException {
+        store = open(1, 16);
+        for (long number = 0; number < 50; number++) {
+            store.append(block(number));
+        }
+        store.stop();
+        Files.delete(dir.resolve("blocks.idx"));
+
+        store = open(1, 16);
+
+        assertEquals(50, store.getBlocks());
+        assertEquals(50, store.getRecoveredRecords());
+        assertEquals(49, store.getByHash(block(49).getHash()).getNumber());
+    }
+
+    @Test
+    void testReopen_DiscardsBlocksFromAnotherChain() throws IOException {
+        store = open(1, 16);
+        store.append(block(1));
+        store.stop();
+
+        store = open(1, 16);
+        assertEquals(1, store.get(1).getNumber());
+        store.stop();
+
+        chainId = 1L;
+        store = open(1, 16);
+
+        assertEquals(0, store.getBlocks());
+        assertNull(store.get(1));
+        assertTrue(store.append(block(1)));
+    }
+
+    private BlockStore open(int segmentMb, int indexCapacity) throws IOException {
+        when(blockCache.isConfirmed(anyLong())).thenReturn(true);
+        when(networkInfoService.getChainId()).thenReturn(chainId);
+        BlockStore blockStore = new BlockStore();
+        ReflectionTestUtils.setField(blockStore, "blockCache", blockCache);
+        ReflectionTestUtils.setField(blockStore, "networkInfoService", networkInfoService);
+        ReflectionTestUtils.setField(blockStore, "enabled", true);
+        ReflectionTestUtils.setField(blockStore, "path", dir.toString());
+        ReflectionTestUtils.setField(blockStore, "segmentMb", segmentMb);
+        ReflectionTestUtils.setField(blockStore, "indexInitialCapacity", indexCapacity);
+        blockStore.open();
+        return blockStore;
+    }
+
+    private static BlockSummary block(long number) {
+        return new BlockSummary(number, hash(number), hash(number - 1), 1_700_000_000L + number * 12,
+                30_000_000L, 15_000_000L, MINER, BigInteger.valueOf(25_000_000_000L + number), 150);
+    }
+
+    /**
+     * 看起来随机的哈希，和真实区块一样几乎不可压缩
+     */
+    private static String hash(long number) {
+        long mixed = (number + 1) * 0x9e3779b97f4a7c15L;
+        return String.format("0x%016x%016x%016x%016x", mixed, Long.rotateLeft(mixed, 17) ^ number,
+                mixed * 31, ~mixed);
+    }
+}
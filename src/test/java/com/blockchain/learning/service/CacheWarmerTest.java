@@ -0,0 +1,183 @@
+package com.blockchain.learning.service;
+
+import com.blockchain.learning.model.BlockSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.web3j.protocol.core.methods.response.EthBlock;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class CacheWarmerTest {
+
+    private static final String ADDRESS_A = "0x742d35cc6634c0532925a3b8d4c9db96c4b4d8b6";
+
+    private static final String ADDRESS_B = "0x8ba1f109551bd432803012645ac136ddd64dba72";
+
+    @Mock
+    private Web3Service web3Service;
+
+    @Mock
+    private BlockCache blockCache;
+
+    @Mock
+    private GasOracle gasOracle;
+
+    @Mock
+    private BalanceService balanceService;
+
+    @InjectMocks
+    private CacheWarmer cacheWarmer;
+
+    @TempDir
+    Path walletDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ReflectionTestUtils.setField(cacheWarmer, "enabled", true);
+        ReflectionTestUtils.setField(cacheWarmer, "recentBlocks", 16);
+        ReflectionTestUtils.setField(cacheWarmer, "maxAddresses", 500);
+        ReflectionTestUtils.setField(cacheWarmer, "jitIterations", 100);
+        ReflectionTestUtils.setField(cacheWarmer, "timeoutMs", 5_000L);
+        ReflectionTestUtils.setField(cacheWarmer, "walletStoragePath", walletDir.toString());
+
+        EthBlock.Block head = new EthBlock.Block();
+        head.setNumber("0x64");
+        EthBlock ethBlock = new EthBlock();
+        ethBlock.setResult(head);
+        when(web3Service.getLatestBlock()).thenReturn(ethBlock);
+        when(web3Service.prefetchBlocksAsync(anyLong(), anyLong())).thenReturn(CompletableFuture.completedFuture(16));
+        when(blockCache.contains(anyLong())).thenReturn(true);
+        when(blockCache.getByNumber(any(BigInteger.class))).thenAnswer(invocation ->
+                new BlockSummary(((BigInteger) invocation.getArgument(0)).longValue(),
+                        "0xhash", "0xparent", 0, 0, 0, "0xminer", null, 0));
+    }
+
+    @Test
+    void testStart_WarmsBlocksGasAndWalletBalances() throws Exception {
+        Files.write(walletDir.resolve(ADDRESS_A + ".wallet"), new byte[]{1});
+        Files.write(walletDir.resolve(ADDRESS_B + ".wallet"), new byte[]{1});
+        Files.write(walletDir.resolve("notes.txt"), new byte[]{1});
+        Map<String, BigInteger> balances = new HashMap<>();
+        balances.put(ADDRESS_A, BigInteger.ONE);
+        balances.put(ADDRESS_B, BigInteger.TEN);
+        when(balanceService.getBalancesAsync(any())).thenReturn(CompletableFuture.completedFuture(
+                new BalanceService.Balances(BigInteger.valueOf(100), BalanceService.SOURCE_RPC_BATCH,
+                        balances, Collections.emptyMap())));
+        assertFalse(cacheWarmer.isReady());
+
+        CacheWarmer.State state = cacheWarmer.start().get(5, TimeUnit.SECONDS);
+
+        assertEquals(CacheWarmer.State.COMPLETED, state);
+        assertTrue(cacheWarmer.isReady());
+        verify(web3Service).prefetchBlocksAsync(85, 100);
+        verify(gasOracle).refresh();
+        List<String> addresses = cacheWarmer.walletAddresses();
+        assertEquals(2, addresses.size());
+        assertTrue(addresses.containsAll(Arrays.asList(ADDRESS_A, ADDRESS_B)));
+        verify(balanceService).getBalancesAsync(any());
+        verify(blockCache, atLeastOnce()).getByNumber(BigInteger.valueOf(85));
+        verify(web3Service, never()).getBlockByNumberAsync(any(BigInteger.class));
+        assertEquals(16, cacheWarmer.getWarmedBlocks());
+        assertEquals(2, cacheWarmer.getWarmedBalances());
+        assertTrue(cacheWarmer.getFailures().isEmpty());
+        cacheWarmer.stop();
+    }
+
+    @Test
+    void testStart_FailedStepsStillComplete() throws Exception {
+        when(web3Service.getLatestBlock()).thenThrow(new IOException("node unavailable"));
+        when(gasOracle.refresh()).thenThrow(new IOException("node unavailable"));
+
+        assertEquals(CacheWarmer.State.COMPLETED, cacheWarmer.start().get(5, TimeUnit.SECONDS));
+
+        assertTrue(cacheWarmer.isReady());
+        assertEquals(Arrays.asList("latestBlock", "gasPrice"), cacheWarmer.getFailures());
+        verify(web3Service, never()).prefetchBlocksAsync(anyLong(), anyLong());
+        verify(balanceService, never()).getBalancesAsync(any());
+        cacheWarmer.stop();
+    }
+
+    @Test
+    void testStart_ExercisesOnlyBlocksThatStayedCached() throws Exception {
+        when(blockCache.contains(anyLong())).thenAnswer(invocation -> (long) invocation.getArgument(0) < 90);
+
+        assertEquals(CacheWarmer.State.COMPLETED, cacheWarmer.start().get(5, TimeUnit.SECONDS));
+
+        verify(blockCache, atLeastOnce()).getByNumber(BigInteger.valueOf(89));
+        verify(blockCache, never()).getByNumber(BigInteger.valueOf(90));
+        verify(blockCache, never()).getByNumber(BigInteger.valueOf(100));
+        cacheWarmer.stop();
+    }
+
+    @Test
+    void testStart_SkipsHotPathsWhenNothingWasCached() throws Exception {
+        when(blockCache.contains(anyLong())).thenReturn(false);
+
+        assertEquals(CacheWarmer.State.COMPLETED, cacheWarmer.start().get(5, TimeUnit.SECONDS));
+
+        verify(blockCache, never()).getByNumber(any(BigInteger.class));
+        cacheWarmer.stop();
+    }
+
+    @Test
+    void testStart_StopsHotPathsWhenCachedBlocksExpire() throws Exception {
+        // 100号在执行前还在缓存中，读取时已过期
+        when(blockCache.getByNumber(BigInteger.valueOf(100))).thenReturn(null);
+
+        assertEquals(CacheWarmer.State.COMPLETED, cacheWarmer.start().get(5, TimeUnit.SECONDS));
+
+        verify(blockCache).getByNumber(BigInteger.valueOf(100));
+        verify(blockCache, never()).getByNumber(BigInteger.valueOf(99));
+        verify(blockCache, never()).getByHash(any());
+        verify(web3Service, never()).getBlockByNumberAsync(any(BigInteger.class));
+        cacheWarmer.stop();
+    }
+
+    @Test
+    void testStart_ReportsReadyAfterTimeout() throws Exception {
+        ReflectionTestUtils.setField(cacheWarmer, "timeoutMs", 50L);
+        when(web3Service.prefetchBlocksAsync(anyLong(), anyLong())).thenReturn(new CompletableFuture<>());
+
+        assertEquals(CacheWarmer.State.TIMED_OUT, cacheWarmer.start().get(5, TimeUnit.SECONDS));
+
+        assertTrue(cacheWarmer.isReady());
+        cacheWarmer.stop();
+    }
+
+    @Test
+    void testStart_DisabledIsReadyImmediately() throws Exception {
+        ReflectionTestUtils.setField(cacheWarmer, "enabled", false);
+
+        assertEquals(CacheWarmer.State.DISABLED, cacheWarmer.start().get(1, TimeUnit.SECONDS));
+        assertTrue(cacheWarmer.isReady());
+        verify(web3Service, never()).getLatestBlock();
+    }
+}
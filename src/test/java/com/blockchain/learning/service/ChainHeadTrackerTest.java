@@ -0,0 +1,75 @@
+package com.blockchain.learning.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.web3j.protocol.core.methods.response.EthBlock;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChainHeadTrackerTest {
+
+    private ChainHeadTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new ChainHeadTracker();
+        ReflectionTestUtils.setField(tracker, "enabled", true);
+        ReflectionTestUtils.setField(tracker, "blockTimeMs", 12000.0);
+    }
+
+    @Test
+    void testUpdate_KeepsHighestBlock() {
+        tracker.update(block(100, "0xa", 1_000));
+        tracker.update(block(101, "0xb", 1_012));
+        tracker.update(block(99, "0xc", 988));
+
+        assertEquals(BigInteger.valueOf(101), tracker.getLatestBlockNumber());
+        assertEquals("0xb", tracker.getLatestBlock().getBlock().getHash());
+    }
+
+    @Test
+    void testUpdate_ReplacesBlockAtSameHeightOnReorg() {
+        tracker.update(block(100, "0xa", 1_000));
+        tracker.update(block(100, "0xa2", 1_000));
+
+        assertEquals("0xa2", tracker.getLatestBlock().getBlock().getHash());
+    }
+
+    @Test
+    void testUpdate_EstimatesBlockTimeFromConsecutiveBlocks() {
+        tracker.update(block(100, "0xa", 1_000));
+        tracker.update(block(101, "0xb", 1_002));
+
+        assertTrue(tracker.getBlockTimeMs() < 12000.0);
+    }
+
+    @Test
+    void testGetLatestBlock_NullWhenStale() {
+        tracker.update(block(100, "0xa", 1_000));
+        ReflectionTestUtils.setField(tracker, "lastUpdatedAt", System.currentTimeMillis() - 60_000);
+
+        assertFalse(tracker.isFresh());
+        assertNull(tracker.getLatestBlock());
+    }
+
+    @Test
+    void testGetLatestBlock_NullWhenDisabled() {
+        ReflectionTestUtils.setField(tracker, "enabled", false);
+        tracker.update(block(100, "0xa", 1_000));
+
+        assertNull(tracker.getLatestBlock());
+    }
+
+    private EthBlock block(long number, String hash, long timestamp) {
+        EthBlock.Block block = new EthBlock.Block();
+        block.setNumber("0x" + Long.toHexString(number));
+        block.setHash(hash);
+        block.setTimestamp("0x" + Long.toHexString(timestamp));
+        EthBlock ethBlock = new EthBlock();
+        ethBlock.setResult(block);
+        return ethBlock;
+    }
+}
@@ -0,0 +1,143 @@
+package com.blockchain.learning.service;
+
+import com.blockchain.learning.rpc.StubRpcServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Bool;
+import org.web3j.abi.datatypes.DynamicArray;
+import org.web3j.abi.datatypes.DynamicBytes;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.http.HttpService;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ContractServiceTest {
+
+    private static final String OWNER = "0x00000000000000000000000000000000000000aa";
+
+    private static final String MULTICALL = "0xcA11bde05977b3631167028862bE2a173976CA11";
+
+    private static final List<String> CONTRACTS = Arrays.asList(
+            "0x0000000000000000000000000000000000000001",
+            "0x0000000000000000000000000000000000000002",
+            "0x0000000000000000000000000000000000000003");
+
+    private StubRpcServer server;
+    private Web3j web3j;
+    private ContractService contractService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new StubRpcServer();
+        web3j = Web3j.build(new HttpService(server.getUrl()));
+
+        MulticallService multicallService = new MulticallService();
+        ReflectionTestUtils.setField(multicallService, "web3j", web3j);
+        ReflectionTestUtils.setField(multicallService, "enabled", true);
+        ReflectionTestUtils.setField(multicallService, "contractAddress", MULTICALL);
+        ReflectionTestUtils.setField(multicallService, "maxCallsPerRequest", 500);
+
+        ChainHeadTracker chainHeadTracker = mock(ChainHeadTracker.class);
+        when(chainHeadTracker.getLatestBlockNumber()).thenReturn(BigInteger.valueOf(100));
+
+        contractService = new ContractService();
+        ReflectionTestUtils.setField(contractService, "web3j", web3j);
+        ReflectionTestUtils.setField(contractService, "multicallService", multicallService);
+        ReflectionTestUtils.setField(contractService, "chainHeadTracker", chainHeadTracker);
+    }
+
+    @AfterEach
+    void tearDown() {
+        web3j.shutdown();
+        server.close();
+    }
+
+    @Test
+    void testGetValues_AggregatesReadsIntoOneMulticall() {
+        server.withResult("eth_getCode", params -> "0x6080")
+                .withResult("eth_call", params -> aggregate3Result(
+                        new MulticallService.Result3(new Bool(true), abi(new Uint256(42))),
+                        new MulticallService.Result3(new Bool(false), new DynamicBytes(new byte[0])),
+                        new MulticallService.Result3(new Bool(true), new DynamicBytes(new byte[0]))));
+
+        ContractService.BulkReadResult result = contractService.getValues(CONTRACTS, ContractService.ReadMethod.GET);
+
+        assertEquals(1, server.getMethodCount("eth_call"));
+        assertEquals(ContractService.SOURCE_MULTICALL, result.getSource());
+        assertEquals(BigInteger.valueOf(100), result.getBlockNumber());
+        assertEquals(Collections.singletonMap(CONTRACTS.get(0), BigInteger.valueOf(42)), result.getValues());
+        assertEquals("call reverted", result.getErrors().get(CONTRACTS.get(1)));
+        assertTrue(result.getErrors().containsKey(CONTRACTS.get(2)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testGetValues_DecodesGetInfoTuple() {
+        server.withResult("eth_getCode", params -> "0x6080")
+                .withResult("eth_call", params -> aggregate3Result(
+                        new MulticallService.Result3(new Bool(true),
+                                abi(new Uint256(7), new Address(OWNER), new Address(CONTRACTS.get(0))))));
+
+        ContractService.BulkReadResult result = contractService.getValues(
+                Collections.singletonList(CONTRACTS.get(0)), ContractService.ReadMethod.GET_INFO);
+
+        Map<String, Object> info = (Map<String, Object>) result.getValues().get(CONTRACTS.get(0));
+        assertEquals(BigInteger.valueOf(7), info.get("value"));
+        assertEquals(OWNER, info.get("owner"));
+        assertEquals(CONTRACTS.get(0), info.get("contractAddress"));
+    }
+
+    @Test
+    void testGetValues_FallsBackToSingleRpcBatchWithoutMulticall() {
+        server.withResult("eth_call", params -> Numeric.toHexString(abi(new Address(OWNER)).getValue()));
+
+        ContractService.BulkReadResult result = contractService.getValues(CONTRACTS, ContractService.ReadMethod.OWNER);
+
+        assertEquals(ContractService.SOURCE_RPC_BATCH, result.getSource());
+        assertEquals(3, server.getMethodCount("eth_call"));
+        assertEquals(3, result.getValues().size());
+        assertEquals(OWNER, result.getValues().get(CONTRACTS.get(2)));
+        assertTrue(result.getErrors().isEmpty());
+    }
+
+    @Test
+    void testGetValues_FallsBackToRpcBatchWhenMulticallFails() {
+        // aggregate3 返回的结果条数不对，各合约自己的 eth_call 正常
+        server.withResult("eth_getCode", params -> "0x6080")
+                .withResult("eth_call", params -> MULTICALL.equalsIgnoreCase(params.path(0).path("to").asText())
+                        ? "0x"
+                        : Numeric.toHexString(abi(new Address(OWNER)).getValue()));
+
+        ContractService.BulkReadResult result = contractService.getValues(CONTRACTS, ContractService.ReadMethod.OWNER);
+
+        assertEquals(ContractService.SOURCE_RPC_BATCH, result.getSource());
+        assertEquals(4, server.getMethodCount("eth_call"));
+        assertEquals(3, result.getValues().size());
+        assertTrue(result.getErrors().isEmpty());
+    }
+
+    private static DynamicBytes abi(Type<?>... values) {
+        return new DynamicBytes(Numeric.hexStringToByteArray(FunctionEncoder.encodeConstructor(Arrays.asList(values))));
+    }
+
+    private static String aggregate3Result(MulticallService.Result3... results) {
+        return "0x" + FunctionEncoder.encodeConstructor(Collections.<Type>singletonList(
+                new DynamicArray<>(MulticallService.Result3.class, Arrays.asList(results))));
+    }
+}
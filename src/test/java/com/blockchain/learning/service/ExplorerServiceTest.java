@@ -0,0 +1,96 @@
+package com.blockchain.learning.service;
+
+import com.blockchain.learning.model.Address20;
+import com.blockchain.learning.model.EtherscanTransaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.queryParam;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class ExplorerServiceTest {
+
+    private static final String ADDRESS = "0x742d35cc6634c0532925a3b8d4c9db96c4b4d8b6";
+
+    private TransactionIndexer transactionIndexer;
+    private MockRestServiceServer etherscan;
+    private ExplorerService explorerService;
+
+    @BeforeEach
+    void setUp() {
+        explorerService = new ExplorerService(new RestTemplateBuilder());
+        ReflectionTestUtils.setField(explorerService, "apiUrl", "https://api.etherscan.io/api");
+        ReflectionTestUtils.setField(explorerService, "apiKey", "test-key");
+        etherscan = MockRestServiceServer.bindTo(
+                (RestTemplate) ReflectionTestUtils.getField(explorerService, "restTemplate")).build();
+
+        // 索引覆盖 1000..2000，已追上链头
+        transactionIndexer = mock(TransactionIndexer.class);
+        when(transactionIndexer.getLowestBlock()).thenReturn(1000L);
+        when(transactionIndexer.getHighestBlock()).thenReturn(2000L);
+        when(transactionIndexer.isCaughtUp()).thenReturn(true);
+        when(transactionIndexer.getMaxResults()).thenReturn(3);
+        ReflectionTestUtils.setField(explorerService, "transactionIndexer", transactionIndexer);
+    }
+
+    @Test
+    void testGetTransactionHistory_ServesCoveredRangeWithoutEtherscan() {
+        when(transactionIndexer.getTransactions(any(Address20.class), eq(1500L), eq(2000L), eq(3)))
+                .thenReturn(transactions(1900, 1800));
+
+        List<EtherscanTransaction> result = explorerService.getTransactionHistory(
+                ADDRESS, 1500, ExplorerService.LATEST_BLOCK);
+
+        assertEquals(2, result.size());
+        assertEquals("1900", result.get(0).getBlockNumber());
+        etherscan.verify();
+    }
+
+    @Test
+    void testGetTransactionHistory_FetchesOlderHistoryOnlyUntilMaxResults() {
+        when(transactionIndexer.getTransactions(any(Address20.class), anyLong(), anyLong(), anyInt()))
+                .thenReturn(transactions(1900, 1800));
+        etherscan.expect(queryParam("startblock", "0"))
+                .andExpect(queryParam("endblock", "999"))
+                .andRespond(withSuccess("{\"status\":\"1\",\"message\":\"OK\",\"result\":["
+                        + "{\"blockNumber\":\"900\"},{\"blockNumber\":\"800\"}]}", MediaType.APPLICATION_JSON));
+
+        List<EtherscanTransaction> result = explorerService.getTransactionHistory(ADDRESS);
+
+        assertEquals(3, result.size());
+        assertEquals("900", result.get(2).getBlockNumber());
+        etherscan.verify();
+
+        // 索引已经凑满 max-results 条，更早的历史不会再请求Etherscan
+        when(transactionIndexer.getTransactions(any(Address20.class), anyLong(), anyLong(), anyInt()))
+                .thenReturn(transactions(1900, 1800, 1700));
+        etherscan.reset();
+        assertEquals(3, explorerService.getTransactionHistory(ADDRESS).size());
+        etherscan.verify();
+    }
+
+    private static List<EtherscanTransaction> transactions(long... blockNumbers) {
+        List<EtherscanTransaction> transactions = new ArrayList<>();
+        for (long blockNumber : blockNumbers) {
+            EtherscanTransaction transaction = new EtherscanTransaction();
+            transaction.setBlockNumber(Long.toString(blockNumber));
+            transactions.add(transaction);
+        }
+        return transactions;
+    }
+}
@@ -0,0 +1,167 @@
+package com.blockchain.learning.service;
+
+import com.blockchain.learning.rpc.StubRpcServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.http.HttpService;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class GasOracleTest {
+
+    private static final long GWEI = 1_000_000_000L;
+
+    private StubRpcServer server;
+    private Web3j web3j;
+    private GasOracle gasOracle;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new StubRpcServer()
+                .withResult("eth_gasPrice", params -> hex(30 * GWEI));
+        web3j = Web3j.build(new HttpService(server.getUrl()));
+
+        NetworkInfoService networkInfoService = mock(NetworkInfoService.class);
+        when(networkInfoService.getChainId()).thenReturn(11155111L);
+
+        gasOracle = new GasOracle();
+        ReflectionTestUtils.setField(gasOracle, "web3j", web3j);
+        ReflectionTestUtils.setField(gasOracle, "networkInfoService", networkInfoService);
+        ReflectionTestUtils.setField(gasOracle, "enabled", false);
+        ReflectionTestUtils.setField(gasOracle, "refreshIntervalMs", 60_000L);
+        ReflectionTestUtils.setField(gasOracle, "historyBlocks", 20);
+        ReflectionTestUtils.setField(gasOracle, "rewardPercentiles", new double[]{10, 50, 90});
+        ReflectionTestUtils.setField(gasOracle, "defaultSpeed", GasOracle.Speed.STANDARD);
+    }
+
+    @AfterEach
+    void tearDown() {
+        web3j.shutdown();
+        server.close();
+    }
+
+    @Test
+    void testRefresh_SuggestsMedianPriorityFeesOverWindow() throws IOException {
+        server.withResult("eth_feeHistory", params -> feeHistory(
+                Arrays.asList(1L, 2L, 100L),
+                Arrays.asList(2L, 3L, 4L),
+                Arrays.asList(3L, 4L, 5L)));
+
+        GasOracle.Snapshot snapshot = gasOracle.refresh();
+
+        assertTrue(snapshot.isEip1559());
+        assertEquals(11155111L, snapshot.getChainId());
+        assertEquals(BigInteger.valueOf(12 * GWEI), snapshot.getBaseFeePerGas());
+        assertEquals(BigInteger.valueOf(2 * GWEI), snapshot.getMaxPriorityFeePerGas(GasOracle.Speed.SLOW));
+        assertEquals(BigInteger.valueOf(3 * GWEI), snapshot.getMaxPriorityFeePerGas(GasOracle.Speed.STANDARD));
+        assertEquals(BigInteger.valueOf(5 * GWEI), snapshot.getMaxPriorityFeePerGas(GasOracle.Speed.FAST));
+        assertEquals(BigInteger.valueOf(27 * GWEI), snapshot.getMaxFeePerGas(GasOracle.Speed.STANDARD));
+    }
+
+    @Test
+    void testRefresh_IgnoresEmptyBlocks() throws IOException {
+        server.withResult("eth_feeHistory", params -> {
+            Map<String, Object> result = feeHistory(
+                    Arrays.asList(0L, 0L, 0L),
+                    Arrays.asList(4L, 6L, 8L),
+                    Arrays.asList(0L, 0L, 0L));
+            result.put("gasUsedRatio", Arrays.asList(0.0, 0.5, 0.0));
+            return result;
+        });
+
+        GasOracle.Snapshot snapshot = gasOracle.refresh();
+
+        assertEquals(BigInteger.valueOf(4 * GWEI), snapshot.getMaxPriorityFeePerGas(GasOracle.Speed.SLOW));
+        assertEquals(BigInteger.valueOf(8 * GWEI), snapshot.getMaxPriorityFeePerGas(GasOracle.Speed.FAST));
+    }
+
+    @Test
+    void testRefresh_FallsBackToLegacyGasPriceWithoutFeeHistory() throws IOException {
+        GasOracle.Snapshot snapshot = gasOracle.refresh();
+
+        assertFalse(snapshot.isEip1559());
+        assertFalse(gasOracle.isFeeHistorySupported());
+        OracleGasProvider provider = gasOracle.gasProvider(BigInteger.valueOf(2_000_000L));
+        assertFalse(provider.isEIP1559Enabled());
+        assertEquals(BigInteger.valueOf(30 * GWEI), provider.getGasPrice());
+        assertEquals(BigInteger.valueOf(2_000_000L), provider.getGasLimit());
+    }
+
+    @Test
+    void testRefresh_KeepsFeeHistoryAfterTransientError() throws IOException {
+        server.withResult("eth_feeHistory", params -> feeHistory(
+                Arrays.asList(1L, 2L, 3L),
+                Arrays.asList(1L, 2L, 3L),
+                Arrays.asList(1L, 2L, 3L)));
+        GasOracle.Snapshot first = gasOracle.refresh();
+
+        server.withError("eth_feeHistory", -32005, "rate limit exceeded");
+        assertThrows(IOException.class, () -> gasOracle.refresh());
+        assertTrue(gasOracle.isFeeHistorySupported());
+        assertSame(first, gasOracle.current());
+
+        server.withResult("eth_feeHistory", params -> feeHistory(
+                Arrays.asList(4L, 5L, 6L),
+                Arrays.asList(4L, 5L, 6L),
+                Arrays.asList(4L, 5L, 6L)));
+        GasOracle.Snapshot recovered = gasOracle.refresh();
+
+        assertTrue(recovered.isEip1559());
+        assertEquals(3, server.getMethodCount("eth_feeHistory"));
+    }
+
+    @Test
+    void testGasProvider_ServedFromMemoryAfterFirstSample() {
+        server.withResult("eth_feeHistory", params -> feeHistory(
+                Arrays.asList(1L, 2L, 3L),
+                Arrays.asList(1L, 2L, 3L),
+                Arrays.asList(1L, 2L, 3L)));
+
+        OracleGasProvider first = gasOracle.gasProvider(BigInteger.valueOf(21_000L));
+        int requestsAfterFirstSample = server.getRequestCount();
+        OracleGasProvider second = gasOracle.gasProvider(GasOracle.Speed.FAST, BigInteger.valueOf(21_000L));
+
+        assertEquals(1, requestsAfterFirstSample);
+        assertEquals(requestsAfterFirstSample, server.getRequestCount());
+        assertTrue(second.isEIP1559Enabled());
+        assertEquals(11155111L, second.getChainId());
+        assertTrue(second.getMaxFeePerGas(null).compareTo(first.getMaxFeePerGas(null)) > 0);
+    }
+
+    /**
+     * 构造三个区块的 eth_feeHistory 结果，参数分别是每个区块10/50/90分位的小费（Gwei）
+     */
+    @SafeVarargs
+    private static Map<String, Object> feeHistory(List<Long>... blockRewards) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("oldestBlock", hex(100));
+        result.put("baseFeePerGas", Arrays.asList(hex(10 * GWEI), hex(11 * GWEI), hex(11 * GWEI), hex(12 * GWEI)));
+        result.put("gasUsedRatio", Arrays.asList(0.5, 0.6, 0.7));
+        Object[] rewards = new Object[blockRewards.length];
+        for (int i = 0; i < blockRewards.length; i++) {
+            String[] tiers = new String[blockRewards[i].size()];
+            for (int tier = 0; tier < tiers.length; tier++) {
+                tiers[tier] = hex(blockRewards[i].get(tier) * GWEI);
+            }
+            rewards[i] = tiers;
+        }
+        result.put("reward", rewards);
+        return result;
+    }
+
+    private static String hex(long value) {
+        return "0x" + Long.toHexString(value);
+    }
+}
@@ -0,0 +1,87 @@
+package com.blockchain.learning.service;
+
+import com.blockchain.learning.exception.BlockchainException;
+import com.blockchain.learning.rpc.StubRpcServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.http.HttpService;
+
+import java.io.IOException;
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NetworkInfoServiceTest {
+
+    private StubRpcServer server;
+    private Web3j web3j;
+    private NetworkInfoService networkInfoService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new StubRpcServer();
+        web3j = Web3j.build(new HttpService(server.getUrl()));
+
+        networkInfoService = new NetworkInfoService();
+        ReflectionTestUtils.setField(networkInfoService, "web3j", web3j);
+        ReflectionTestUtils.setField(networkInfoService, "networkDisplayName", "Sepolia Testnet");
+        ReflectionTestUtils.setField(networkInfoService, "refreshIntervalMs", 60_000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        networkInfoService.stop();
+        web3j.shutdown();
+        server.close();
+    }
+
+    @Test
+    void testStart_LoadsSnapshotOnceAndServesChainIdFromMemory() {
+        networkInfoService.start();
+        int requestsAfterStart = server.getRequestCount();
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(11155111L, networkInfoService.getChainId());
+        }
+
+        assertEquals(1, requestsAfterStart);
+        assertEquals(requestsAfterStart, server.getRequestCount());
+        assertEquals("StubRpcServer/v1.0.0", networkInfoService.getSnapshot().getNodeVersion());
+        assertFalse(networkInfoService.isStale());
+    }
+
+    @Test
+    void testGetChainId_LoadsOnDemandWhenStartupFailed() {
+        server.withStatusCode(503);
+        networkInfoService.start();
+        assertNull(networkInfoService.getSnapshot());
+        assertTrue(networkInfoService.isStale());
+
+        server.withStatusCode(200);
+
+        assertEquals(11155111L, networkInfoService.getChainId());
+        assertNotNull(networkInfoService.getSnapshot());
+    }
+
+    @Test
+    void testGetChainId_ThrowsWhenNodeUnavailable() {
+        server.withStatusCode(503);
+
+        assertThrows(BlockchainException.class, () -> networkInfoService.getChainId());
+    }
+
+    @Test
+    void testRefresh_FailureKeepsPreviousSnapshot() {
+        networkInfoService.start();
+        NetworkInfoService.Snapshot loaded = networkInfoService.getSnapshot();
+
+        server.withStatusCode(503);
+        assertThrows(Exception.class, () -> networkInfoService.refreshAsync().join());
+
+        assertSame(loaded, networkInfoService.getSnapshot());
+        assertEquals(BigInteger.valueOf(11155111), networkInfoService.getSnapshot().getChainId());
+    }
+}
@@ -0,0 +1,64 @@
+package com.blockchain.learning.service;
+
+import com.blockchain.learning.model.BlockSummary;
+import com.blockchain.learning.model.Hash32;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapBlockStoreTest {
+
+    private static final String HASH = "0x8f5bab218b6bb34476f51ca588e9f4553a3a7ce5e13a66c660a5283e97e9a85a";
+
+    private static final String MINER = "0x95222290dd7278aa3ddd389cc1e1d165cc4bafe5";
+
+    @Test
+    void testPutAndGet_RoundTripsAllFields() {
+        OffHeapBlockStore store = new OffHeapBlockStore(4096, 4096);
+        BlockSummary block = new BlockSummary(18_000_000L, HASH, HASH.replace('8', '7'), 1_693_000_000L,
+                30_000_000L, 12_345_678L, MINER, new BigInteger("25000000000"), 187);
+
+        store.put(block);
+        BlockSummary read = store.get(18_000_000L);
+
+        assertEquals(block.getHash(), read.getHash());
+        assertEquals(block.getParentHash(), read.getParentHash());
+        assertEquals(block.getTimestamp(), read.getTimestamp());
+        assertEquals(block.getGasLimit(), read.getGasLimit());
+        assertEquals(block.getGasUsed(), read.getGasUsed());
+        assertEquals(MINER, read.getMiner());
+        assertEquals(block.getBaseFeePerGas(), read.getBaseFeePerGas());
+        assertEquals(187, read.getTransactionCount());
+        assertEquals(18_000_000L, store.getByHash(Hash32.fromHex(HASH.toUpperCase().replace("0X", "0x"))).getNumber());
+        assertEquals(BlockSummaryCodec.encodedSize(block), store.getUsedBytes());
+    }
+
+    @Test
+    void testFullStore_RecyclesOldestSlab() {
+        BlockSummary sample = block(0);
+        int size = BlockSummaryCodec.encodedSize(sample);
+        // 两个slab，每个正好放下三个区块
+        OffHeapBlockStore store = new OffHeapBlockStore(2L * 3 * size, 3 * size);
+
+        for (long number = 0; number < 7; number++) {
+            store.put(block(number));
+        }
+
+        assertEquals(4, store.size());
+        assertEquals(1, store.getSlabEvictions());
+        assertNull(store.get(0));
+        assertNull(store.get(2));
+        assertEquals(3, store.get(3).getNumber());
+        assertEquals(6, store.get(6).getNumber());
+        assertNull(store.getByHash(Hash32.fromHex(block(1).getHash())));
+        assertEquals(2L * 3 * size, store.getAllocatedBytes());
+    }
+
+    private static BlockSummary block(long number) {
+        String hash = String.format("0x%064x", number + 1);
+        return new BlockSummary(number, hash, HASH, 1_700_000_000L + number, 30_000_000L, 15_000_000L,
+                MINER, BigInteger.TEN, 100);
+    }
+}
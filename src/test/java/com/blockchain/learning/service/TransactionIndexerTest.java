@@ -0,0 +1,239 @@
+package com.blockchain.learning.service;
+
+import com.blockchain.learning.model.Address20;
+import com.blockchain.learning.model.BlockSummary;
+import com.blockchain.learning.model.BlockWithTransactions;
+import com.blockchain.learning.model.EtherscanTransaction;
+import com.blockchain.learning.model.ReceiptSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class TransactionIndexerTest {
+
+    private static final String SENDER = "0x742d35cc6634c0532925a3b8d4c9db96c4b4d8b6";
+
+    private static final String RECEIVER = "0x8ba1f109551bd432803012645ac136ddd64dba72";
+
+    @Mock
+    private Web3Service web3Service;
+
+    @Mock
+    private ChainHeadTracker chainHeadTracker;
+
+    @Mock
+    private NetworkInfoService networkInfoService;
+
+    @TempDir
+    Path dir;
+
+    @InjectMocks
+    private TransactionIndexer indexer;
+
+    /** 节点上的链：区块号 → 区块哈希的"分叉标记"，区块哈希和交易哈希都由它派生 */
+    private final Map<Long, String> chain = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(indexer, "startBlocksBack", 10L);
+        ReflectionTestUtils.setField(indexer, "maxBlocks", 100);
+        ReflectionTestUtils.setField(indexer, "parallelism", 3);
+        ReflectionTestUtils.setField(indexer, "maxResults", 1000);
+        ReflectionTestUtils.setField(indexer, "maxLagBlocks", 2L);
+        configure(indexer);
+        when(networkInfoService.getChainId()).thenReturn(1L);
+        when(web3Service.getBlockWithTransactionsAsync(any(BigInteger.class), any())).thenAnswer(invocation -> {
+            long number = invocation.<BigInteger>getArgument(0).longValue();
+            return CompletableFuture.completedFuture(block(number));
+        });
+        when(web3Service.getBlockReceiptsAsync(any(BigInteger.class), anyList())).thenAnswer(invocation -> {
+            List<String> hashes = invocation.getArgument(1);
+            return CompletableFuture.completedFuture(Collections.singletonList(
+                    new ReceiptSummary(hashes.get(0), 0, 21_000, true, null)));
+        });
+    }
+
+    @Test
+    void testIndexNewBlocks_StartsBehindHeadAndFollowsIt() throws IOException {
+        head(100);
+
+        assertEquals(10, indexer.indexNewBlocks());
+        assertEquals(91, indexer.getLowestBlock());
+        assertEquals(100, indexer.getHighestBlock());
+        assertTrue(indexer.isCaughtUp());
+
+        head(104);
+        assertEquals(4, indexer.indexNewBlocks());
+        List<EtherscanTransaction> transactions = indexer.getTransactions(Address20.fromHex(RECEIVER));
+        assertEquals(14, transactions.size());
+        assertEquals("104", transactions.get(0).getBlockNumber());
+        assertEquals(SENDER, transactions.get(0).getFrom());
+        assertEquals("21000", transactions.get(0).getGasUsed());
+    }
+
+    @Test
+    void testIndexNewBlocks_RollsBackOnReorg() throws IOException {
+        head(100);
+        indexer.indexNewBlocks();
+        String replaced = txHash(100);
+
+        // 区块100被替换，新的区块101接在替换后的区块100之后
+        chain.put(100L, "b");
+        chain.put(101L, "b");
+        head(101);
+        indexer.indexNewBlocks();
+        assertEquals(99, indexer.getHighestBlock());
+        assertEquals(1, indexer.getReorgs());
+
+        indexer.indexNewBlocks();
+        assertEquals(101, indexer.getHighestBlock());
+        List<EtherscanTransaction> transactions = indexer.getTransactions(Address20.fromHex(SENDER));
+        assertEquals(txHash(101), transactions.get(0).getHash());
+        assertEquals(txHash(100), transactions.get(1).getHash());
+        assertNotEquals(replaced, transactions.get(1).getHash());
+    }
+
+    @Test
+    void testIndexNewBlocks_EvictsOldestBeyondMaxBlocks() throws IOException {
+        ReflectionTestUtils.setField(indexer, "maxBlocks", 5);
+        head(100);
+
+        indexer.indexNewBlocks();
+
+        assertEquals(96, indexer.getLowestBlock());
+        assertEquals(5, indexer.getIndexedBlocks());
+        assertEquals(5, indexer.getTransactions(Address20.fromHex(SENDER)).size());
+    }
+
+    @Test
+    void testRestart_LoadsPersistedSegmentsAndFetchesOnlyTheTail() throws IOException {
+        ReflectionTestUtils.setField(indexer, "startBlocksBack", 20L);
+        head(100);
+        indexer.indexNewBlocks();
+
+        // 81..100已索引，确认到98：写出 85..89、90..94 两段，95..99 还未全部确认
+        assertEquals(2, indexer.persist());
+        assertEquals(94, indexer.getPersistedThrough());
+        assertTrue(Files.exists(dir.resolve("txindex-000000000085.seg")));
+
+        TransactionIndexer restarted = new TransactionIndexer();
+        ReflectionTestUtils.setField(restarted, "web3Service", web3Service);
+        ReflectionTestUtils.setField(restarted, "chainHeadTracker", chainHeadTracker);
+        ReflectionTestUtils.setField(restarted, "networkInfoService", networkInfoService);
+        ReflectionTestUtils.setField(restarted, "startBlocksBack", 20L);
+        ReflectionTestUtils.setField(restarted, "maxBlocks", 100);
+        ReflectionTestUtils.setField(restarted, "parallelism", 3);
+        ReflectionTestUtils.setField(restarted, "maxResults", 1000);
+        configure(restarted);
+
+        assertEquals(10, restarted.load());
+        assertEquals(85, restarted.getLowestBlock());
+        assertEquals(94, restarted.getHighestBlock());
+        assertEquals(6, restarted.indexNewBlocks());
+        verify(web3Service, times(20 + 6)).getBlockWithTransactionsAsync(any(BigInteger.class), any());
+        List<EtherscanTransaction> transactions = restarted.getTransactions(Address20.fromHex(SENDER), 85, 94, 100);
+        assertEquals(10, transactions.size());
+        assertEquals(txHash(94), transactions.get(0).getHash());
+        assertEquals("21000", transactions.get(9).getGasUsed());
+    }
+
+    @Test
+    void testLoad_DiscardsSegmentsFromAnotherChain() throws IOException {
+        ReflectionTestUtils.setField(indexer, "startBlocksBack", 20L);
+        head(100);
+        indexer.indexNewBlocks();
+        indexer.persist();
+
+        TransactionIndexer restarted = new TransactionIndexer();
+        ReflectionTestUtils.setField(restarted, "chainHeadTracker", chainHeadTracker);
+        ReflectionTestUtils.setField(restarted, "networkInfoService", networkInfoService);
+        ReflectionTestUtils.setField(restarted, "startBlocksBack", 20L);
+        ReflectionTestUtils.setField(restarted, "maxBlocks", 100);
+        configure(restarted);
+        when(networkInfoService.getChainId()).thenReturn(5L);
+
+        assertEquals(0, restarted.load());
+        assertEquals(-1, restarted.getHighestBlock());
+        assertFalse(Files.exists(dir.resolve("txindex-000000000085.seg")));
+    }
+
+    @Test
+    void testPersist_DeletesSegmentsEvictedFromTheIndex() throws IOException {
+        ReflectionTestUtils.setField(indexer, "startBlocksBack", 20L);
+        head(100);
+        indexer.indexNewBlocks();
+        indexer.persist();
+
+        ReflectionTestUtils.setField(indexer, "maxBlocks", 12);
+        head(101);
+        indexer.indexNewBlocks();
+        indexer.persist();
+
+        // 90..101：85..89 整段被淘汰
+        assertEquals(90, indexer.getLowestBlock());
+        assertFalse(Files.exists(dir.resolve("txindex-000000000085.seg")));
+        assertTrue(Files.exists(dir.resolve("txindex-000000000090.seg")));
+    }
+
+    private void configure(TransactionIndexer target) {
+        ReflectionTestUtils.setField(target, "persist", true);
+        ReflectionTestUtils.setField(target, "path", dir.toString());
+        ReflectionTestUtils.setField(target, "segmentBlocks", 5);
+        ReflectionTestUtils.setField(target, "confirmationDepth", 2L);
+    }
+
+    private void head(long number) {
+        when(chainHeadTracker.getLatestBlockNumber()).thenReturn(BigInteger.valueOf(number));
+    }
+
+    private BlockWithTransactions block(long number) {
+        Map<String, Object> transaction = new LinkedHashMap<>();
+        transaction.put("hash", txHash(number));
+        transaction.put("from", SENDER);
+        transaction.put("to", RECEIVER);
+        transaction.put("value", BigInteger.ONE);
+        transaction.put("gasPrice", BigInteger.TEN);
+        BlockSummary summary = new BlockSummary(number, blockHash(number), blockHash(number - 1),
+                1_700_000_000L + number, 30_000_000L, 21_000L, null, null, 1);
+        return new BlockWithTransactions(summary, Collections.singletonList(transaction));
+    }
+
+    private String blockHash(long number) {
+        return String.format("0x%s%063x", fork(number), number);
+    }
+
+    private String txHash(long number) {
+        return String.format("0x%s%063x", fork(number), number + 0xabc000);
+    }
+
+    private String fork(long number) {
+        return chain.getOrDefault(number, "a");
+    }
+}
@@ -0,0 +1,227 @@
+package com.blockchain.learning.service;
+
+import com.blockchain.learning.model.BlockSummary;
+import com.blockchain.learning.model.NetworkInfo;
+import com.blockchain.learning.rpc.BlockSummaryResponse;
+import com.blockchain.learning.rpc.StubRpcServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.methods.response.EthBlock;
+import org.web3j.protocol.http.HttpService;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class Web3ServiceTest {
+
+    @Mock
+    private Web3j web3j;
+
+    @Mock
+    private Web3jService web3jService;
+
+    @Mock
+    private ChainHeadTracker chainHeadTracker;
+
+    @Mock
+    private BlockCache blockCache;
+
+    @Mock
+    private BlockStore blockStore;
+
+    @Mock
+    private BalanceCache balanceCache;
+
+    @Mock
+    private NetworkInfoService networkInfoService;
+
+    @InjectMocks
+    private Web3Service web3Service;
+
+    @Test
+    void testGetNetworkInfo_ServedFromSnapshotAndHeadTracker() throws IOException {
+        NetworkInfoService.Snapshot snapshot =
+                new NetworkInfoService.Snapshot(BigInteger.valueOf(11155111), "Geth/v1.13.0", 1_000L);
+        when(networkInfoService.getSnapshotAsync()).thenReturn(CompletableFuture.completedFuture(snapshot));
+        when(networkInfoService.getNetworkName()).thenReturn("Sepolia Testnet");
+        when(chainHeadTracker.getLatestBlockNumber()).thenReturn(BigInteger.valueOf(100));
+
+        NetworkInfo networkInfo = web3Service.getNetworkInfo();
+
+        assertTrue(networkInfo.isConnected());
+        assertEquals(BigInteger.valueOf(11155111), networkInfo.getChainId());
+        assertEquals(BigInteger.valueOf(100), networkInfo.getLatestBlockNumber());
+        assertEquals("Geth/v1.13.0", networkInfo.getNodeVersion());
+        assertEquals(1_000L, networkInfo.getMetadataUpdatedAt());
+        verifyNoInteractions(web3j);
+    }
+
+    @Test
+    void testGetBalance_ServedFromCacheWhileHeadUnchanged() throws IOException {
+        when(chainHeadTracker.getLatestBlockNumber()).thenReturn(BigInteger.valueOf(100));
+        when(balanceCache.get("0xabc", BigInteger.valueOf(100))).thenReturn(BigInteger.TEN);
+
+        assertEquals(BigInteger.TEN, web3Service.getBalance("0xabc"));
+        verifyNoInteractions(web3j);
+    }
+
+    @Test
+    void testGetLatestBlock_ServedFromHeadTracker() throws IOException {
+        EthBlock.Block block = new EthBlock.Block();
+        block.setNumber("0x64");
+        EthBlock tracked = new EthBlock();
+        tracked.setResult(block);
+        when(chainHeadTracker.getLatestBlock()).thenReturn(tracked);
+
+        EthBlock result = web3Service.getLatestBlock();
+
+        assertSame(tracked, result);
+        verifyNoInteractions(web3j);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testGetLatestBlock_FetchesAndRecordsWhenTrackerNotReady() throws IOException {
+        EthBlock.Block block = new EthBlock.Block();
+        block.setNumber("0x64");
+        EthBlock fetched = new EthBlock();
+        fetched.setResult(block);
+        Request<?, EthBlock> request = mock(Request.class);
+        when(request.sendAsync()).thenReturn(CompletableFuture.completedFuture(fetched));
+        when(chainHeadTracker.getLatestBlock()).thenReturn(null);
+        doReturn(request).when(web3j).ethGetBlockByNumber(any(DefaultBlockParameter.class), anyBoolean());
+
+        EthBlock result = web3Service.getLatestBlock();
+
+        assertSame(fetched, result);
+        verify(chainHeadTracker).update(fetched);
+    }
+
+    @Test
+    void testGetBlockByNumber_ServedFromCache() throws IOException {
+        BlockSummary cached = new BlockSummary(10, "0xa", "0x9", 0, 0, 0, null, null, 0);
+        when(blockCache.getByNumber(BigInteger.TEN)).thenReturn(cached);
+
+        BlockSummary result = web3Service.getBlockByNumber(BigInteger.TEN);
+
+        assertSame(cached, result);
+        verifyNoInteractions(web3j, web3jService);
+    }
+
+    @Test
+    void testGetBlockByNumber_ServedFromLocalStoreOnCacheMiss() throws IOException {
+        BlockSummary stored = new BlockSummary(10, "0xa", "0x9", 0, 0, 0, null, null, 0);
+        when(blockStore.get(10)).thenReturn(stored);
+
+        BlockSummary result = web3Service.getBlockByNumber(BigInteger.TEN);
+
+        assertSame(stored, result);
+        verify(blockCache).put(stored);
+        verifyNoInteractions(web3j, web3jService);
+    }
+
+    @Test
+    void testStreamBlocks_DeliversOrderedBatchesWithBoundedLookahead() throws IOException {
+        try (StubRpcServer server = blockServer(1_000)) {
+            useNode(server, 10, 3);
+            List<Long> numbers = new ArrayList<>();
+            List<Integer> requestedAtDelivery = new ArrayList<>();
+
+            web3Service.streamBlocks(5, 104, blocks -> {
+                requestedAtDelivery.add(server.getMethodCount("eth_getBlockByNumber"));
+                for (BlockSummary block : blocks) {
+                    numbers.add(block.getNumber());
+                }
+            });
+
+            assertEquals(100, numbers.size());
+            for (int i = 0; i < numbers.size(); i++) {
+                assertEquals(5 + i, numbers.get(i).longValue());
+            }
+            // 交出第k批时，最多只请求到第 k + parallelism - 1 批
+            for (int k = 0; k < requestedAtDelivery.size(); k++) {
+                assertTrue(requestedAtDelivery.get(k) <= (k + 3) * 10, "batch " + k);
+            }
+        }
+    }
+
+    @Test
+    void testStreamBlocks_StopsAtChainHead() throws IOException {
+        try (StubRpcServer server = blockServer(22)) {
+            useNode(server, 10, 2);
+            List<Long> numbers = new ArrayList<>();
+
+            web3Service.streamBlocks(0, 1_000, blocks -> {
+                for (BlockSummary block : blocks) {
+                    numbers.add(block.getNumber());
+                }
+            });
+
+            assertEquals(23, numbers.size());
+            assertEquals(22L, numbers.get(22).longValue());
+        }
+    }
+
+    @Test
+    void testGetBlockByHash_CachesFetchedBlock() throws IOException {
+        BlockSummary fetched = new BlockSummary(10, "0xabc", "0x9", 0, 0, 0, null, null, 3);
+        BlockSummaryResponse response = new BlockSummaryResponse();
+        response.setResult(fetched);
+        when(blockCache.getByHash("0xabc")).thenReturn(null);
+        when(web3jService.sendAsync(any(Request.class), eq(BlockSummaryResponse.class)))
+                .thenReturn(CompletableFuture.completedFuture(response));
+
+        BlockSummary result = web3Service.getBlockByHash("0xabc");
+
+        assertSame(fetched, result);
+        verify(blockCache).put(fetched);
+        verify(blockStore).append(fetched);
+    }
+
+    /**
+     * 区块号不超过 head 的区块都存在的节点
+     */
+    private static StubRpcServer blockServer(long head) throws IOException {
+        return new StubRpcServer().withResult("eth_getBlockByNumber", params -> {
+            long number = Long.decode(params.get(0).asText());
+            if (number > head) {
+                return null;
+            }
+            Map<String, Object> block = new HashMap<>();
+            block.put("number", "0x" + Long.toHexString(number));
+            block.put("hash", "0xh" + number);
+            block.put("parentHash", "0xh" + (number - 1));
+            block.put("transactions", Collections.emptyList());
+            return block;
+        });
+    }
+
+    private void useNode(StubRpcServer server, int batchSize, int parallelism) {
+        HttpService service = new HttpService(server.getUrl());
+        ReflectionTestUtils.setField(web3Service, "web3j", Web3j.build(service));
+        ReflectionTestUtils.setField(web3Service, "web3jService", service);
+        ReflectionTestUtils.setField(web3Service, "rangeBatchSize", batchSize);
+        ReflectionTestUtils.setField(web3Service, "rangeParallelism", parallelism);
+    }
+}
@@ -0,0 +1,123 @@
+package com.blockchain.learning.util;
+
+import com.blockchain.learning.model.Address20;
+import com.blockchain.learning.model.Hash32;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * 缓存索引的每条目内存：十六进制字符串键 / 装箱的Long键 vs 定长二进制键 / 原始类型Map
+ *
+ * 每种结构放入100万个条目，比较完整GC后堆占用的增量。默认不运行，需要时执行：
+ * <pre>
+ * mvn test -Dtest=BinaryKeyMemoryBenchmark -Dbenchmark=true
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class BinaryKeyMemoryBenchmark {
+
+    private static final int ENTRIES = 1_000_000;
+
+    private static final long FIRST_BLOCK = 18_000_000L;
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+    @Test
+    void compareBytesPerEntry() {
+        measure("hash index HashMap<String,Long>", i -> {
+            Map<String, Long> map = new HashMap<>();
+            for (int n = 0; n < ENTRIES; n++) {
+                map.put(hash(n), FIRST_BLOCK + n);
+            }
+            return map;
+        });
+        measure("hash index LongLongHashMap", i -> {
+            LongLongHashMap map = new LongLongHashMap();
+            for (int n = 0; n < ENTRIES; n++) {
+                map.put(Hash32.fromHex(hash(n)).fold(), FIRST_BLOCK + n);
+            }
+            return map;
+        });
+        measure("block index HashMap<Long,Long>", i -> {
+            Map<Long, Long> map = new HashMap<>();
+            for (int n = 0; n < ENTRIES; n++) {
+                map.put(FIRST_BLOCK + n, (long) n << 20);
+            }
+            return map;
+        });
+        measure("block index LongLongHashMap", i -> {
+            LongLongHashMap map = new LongLongHashMap();
+            for (int n = 0; n < ENTRIES; n++) {
+                map.put(FIRST_BLOCK + n, (long) n << 20);
+            }
+            return map;
+        });
+        measure("address keys String", i -> {
+            String[] keys = new String[ENTRIES];
+            for (int n = 0; n < ENTRIES; n++) {
+                keys[n] = address(n).toLowerCase();
+            }
+            return keys;
+        });
+        measure("address keys Address20", i -> {
+            Address20[] keys = new Address20[ENTRIES];
+            for (int n = 0; n < ENTRIES; n++) {
+                keys[n] = Address20.fromHex(address(n));
+            }
+            return keys;
+        });
+        measure("hash keys String", i -> {
+            String[] keys = new String[ENTRIES];
+            for (int n = 0; n < ENTRIES; n++) {
+                keys[n] = hash(n);
+            }
+            return keys;
+        });
+        measure("hash keys Hash32", i -> {
+            Hash32[] keys = new Hash32[ENTRIES];
+            for (int n = 0; n < ENTRIES; n++) {
+                keys[n] = Hash32.fromHex(hash(n));
+            }
+            return keys;
+        });
+    }
+
+    private void measure(String name, IntFunction<Object> build) {
+        long before = heapAfterGc();
+        Object retained = build.apply(0);
+        long after = heapAfterGc();
+        System.out.printf("%-34s %6.1f bytes/entry%n", name, (after - before) / (double) ENTRIES);
+        assertNotNull(retained);
+    }
+
+    /**
+     * 反复完整GC直到堆占用不再下降，避免上一轮的大数组还没回收时计入基线
+     */
+    private long heapAfterGc() {
+        long used = Long.MAX_VALUE;
+        while (true) {
+            System.gc();
+            long current = memory.getHeapMemoryUsage().getUsed();
+            if (current >= used) {
+                return current;
+            }
+            used = current;
+        }
+    }
+
+    private static String hash(long n) {
+        return String.format("0x%016x%016x%016x%016x", n * 0x9e3779b97f4a7c15L, n, ~n, n * 31);
+    }
+
+    private static String address(long n) {
+        return String.format("0x%016X%016x%08x", n * 0x9e3779b97f4a7c15L, n, (int) n);
+    }
+}
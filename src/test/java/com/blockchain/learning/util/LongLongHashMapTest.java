@@ -0,0 +1,63 @@
+package com.blockchain.learning.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongLongHashMapTest {
+
+    @Test
+    void testPutGetRemove() {
+        LongLongHashMap map = new LongLongHashMap();
+        map.put(7, 70);
+        map.put(7, 71);
+
+        assertEquals(1, map.size());
+        assertEquals(71, map.get(7, -1));
+        assertEquals(-1, map.get(8, -1));
+        assertTrue(map.remove(7));
+        assertFalse(map.remove(7));
+        assertFalse(map.containsKey(7));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void testZeroKey_StoredSeparately() {
+        LongLongHashMap map = new LongLongHashMap();
+        map.put(0, 5);
+
+        assertTrue(map.containsKey(0));
+        assertEquals(5, map.get(0, -1));
+        assertEquals(1, map.size());
+        map.remove(0);
+        assertEquals(-1, map.get(0, -1));
+    }
+
+    @Test
+    void testRandomOperations_MatchHashMap() {
+        // 键空间较小，大量冲突和删除会反复触发后移与扩容
+        LongLongHashMap map = new LongLongHashMap(4);
+        Map<Long, Long> expected = new HashMap<>();
+        SplittableRandom random = new SplittableRandom(1);
+
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(5_000) - 100;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key) != null, map.remove(key));
+            } else {
+                map.put(key, i);
+                expected.put(key, (long) i);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (long key = -100; key < 4_900; key++) {
+            Long value = expected.get(key);
+            assertEquals(value == null ? Long.MIN_VALUE : value, map.get(key, Long.MIN_VALUE));
+        }
+    }
+}